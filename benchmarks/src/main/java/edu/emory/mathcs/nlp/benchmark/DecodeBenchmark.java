@@ -0,0 +1,95 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.util.GlobalLexica;
+import edu.emory.mathcs.nlp.component.template.util.NLPMode;
+
+/**
+ * Measures end-to-end decoding of part-of-speech tagging, named entity recognition, and dependency parsing
+ * with components trained on a synthetic corpus; one operation decodes the whole development corpus.
+ * The development corpus is read again before every operation since decoding overwrites the nodes.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class DecodeBenchmark
+{
+	@Param({"pos", "ner", "dep"})
+	public String mode;
+	@Param({"gap-list", "array"})
+	public String storage;
+	@Param({"false"})
+	public boolean hashed;
+	@Param({"false"})
+	public boolean frozen;
+	@Param({"1000"})
+	public int trainSentences;
+	@Param({"200"})
+	public int developSentences;
+	
+	private OnlineComponent<NLPNode,?> component;
+	private GlobalLexica<NLPNode> lexica;
+	private String develop;
+	private List<NLPNode[]> corpus;
+	
+	@Setup
+	public void setup()
+	{
+		NLPMode m = NLPMode.valueOf(mode);
+		lexica    = SyntheticCorpus.createGlobalLexica(1);
+		component = SyntheticCorpus.createComponent(m, SyntheticCorpus.createConfiguration(m, "adagrad", storage, hashed));
+		SyntheticCorpus.train(component, lexica, SyntheticCorpus.createTSV(trainSentences, 1), 2);
+		if (frozen) component.freeze();
+		develop = SyntheticCorpus.createTSV(developSentences, 2);
+	}
+	
+	@Setup(Level.Invocation)
+	public void read()
+	{
+		corpus = SyntheticCorpus.read(develop);
+		for (NLPNode[] nodes : corpus) lexica.process(nodes);
+	}
+	
+	@Benchmark
+	public List<NLPNode[]> decode()
+	{
+		for (NLPNode[] nodes : corpus) component.process(nodes);
+		return corpus;
+	}
+}
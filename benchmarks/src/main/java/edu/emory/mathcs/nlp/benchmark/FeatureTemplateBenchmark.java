@@ -0,0 +1,99 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.emory.mathcs.nlp.component.pos.POSState;
+import edu.emory.mathcs.nlp.component.pos.POSTagger;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.util.GlobalLexica;
+import edu.emory.mathcs.nlp.component.template.util.NLPMode;
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
+
+/**
+ * Measures {@link FeatureTemplate#createFeatureVector} with the part-of-speech template over a synthetic corpus,
+ * with string and hashed feature lookups; one operation extracts the features of every token in the corpus.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class FeatureTemplateBenchmark
+{
+	static private final int[] TOP2 = {0, -1};
+	
+	@Param({"false", "true"})
+	public boolean hashed;
+	@Param({"500"})
+	public int sentences;
+	
+	private FeatureTemplate<NLPNode,POSState<NLPNode>> template;
+	private LabelMap label_map;
+	private List<NLPNode[]> corpus;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup()
+	{
+		String tsv = SyntheticCorpus.createTSV(sentences, 1);
+		GlobalLexica<NLPNode> lexica = SyntheticCorpus.createGlobalLexica(1);
+		POSTagger<NLPNode> tagger = (POSTagger<NLPNode>)SyntheticCorpus.createComponent(NLPMode.pos, SyntheticCorpus.createConfiguration(NLPMode.pos, "adagrad", "gap-list", hashed));
+		SyntheticCorpus.train(tagger, lexica, tsv, 1);
+		
+		template  = tagger.getFeatureTemplate();
+		label_map = tagger.getOptimizer().getLabelMap();
+		corpus    = SyntheticCorpus.read(tsv);
+		for (NLPNode[] nodes : corpus) lexica.process(nodes);
+	}
+	
+	@Benchmark
+	public int createFeatureVector()
+	{
+		POSState<NLPNode> state;
+		int count = 0;
+		
+		for (NLPNode[] nodes : corpus)
+		{
+			state = new POSState<>(nodes);
+			
+			while (!state.isTerminate())
+			{
+				count += template.createFeatureVector(state, false).getSparseVector().size();
+				state.next(label_map, TOP2, null);
+			}
+		}
+		
+		return count;
+	}
+}
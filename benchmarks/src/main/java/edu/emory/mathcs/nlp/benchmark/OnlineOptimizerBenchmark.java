@@ -0,0 +1,113 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.emory.mathcs.nlp.component.template.config.NLPConfig;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.component.template.util.NLPMode;
+import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.SparseVector;
+
+/**
+ * Measures {@link OnlineOptimizer#train(Instance)} for every algorithm in {@link NLPConfig#getOnlineOptimizer(HyperParameter)}
+ * on synthetic sparse instances; one operation trains one pass over {@link #INSTANCES} instances.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class OnlineOptimizerBenchmark
+{
+	static public final int INSTANCES = 2000;
+	
+	@Param({"perceptron", "averaged-perceptron", "softmax-regression", "adagrad", "adagrad-mini-batch", "adagrad-regression", "adadelta-mini-batch", "ffnn-softmax"})
+	public String algorithm;
+	@Param({"gap-list", "array"})
+	public String storage;
+	@Param({"50"})
+	public int labels;
+	@Param({"100000"})
+	public int features;
+	
+	private OnlineOptimizer optimizer;
+	private int batch_size;
+	private int[] gold;
+	private SparseVector[] vectors;
+	
+	@Setup
+	public void setup()
+	{
+		NLPConfig<NLPNode> config = new NLPConfig<>(SyntheticCorpus.toInputStream(SyntheticCorpus.createConfiguration(NLPMode.pos, algorithm, storage, false)));
+		HyperParameter hp = config.getHyperParameter();
+		Random rand = new Random(1);
+		
+		optimizer  = config.getOnlineOptimizer(hp);
+		batch_size = hp.getBatchSize();
+		gold    = new int[INSTANCES];
+		vectors = new SparseVector[INSTANCES];
+		
+		for (int i=0; i<INSTANCES; i++)
+		{
+			gold[i] = rand.nextInt(labels);
+			vectors[i] = new SparseVector();
+			
+			// a few features correlate with the label so that the weights keep changing
+			vectors[i].add(1 + gold[i]);
+			for (int j=0; j<30; j++) vectors[i].add(1 + labels + rand.nextInt(features - labels - 1));
+		}
+		
+		// adds all labels and features once so that the benchmark does not measure the expansion
+		train();
+	}
+	
+	@Benchmark
+	public int train()
+	{
+		int correct = 0;
+		Instance instance;
+		
+		for (int i=0; i<INSTANCES; i++)
+		{
+			instance = new Instance("L"+gold[i], new FeatureVector(new SparseVector(vectors[i]), null));
+			optimizer.train(instance);
+			if (instance.isGoldLabel(instance.getPredictedLabel())) correct++;
+			if ((i+1) % batch_size == 0) optimizer.updateMiniBatch();
+		}
+		
+		return correct;
+	}
+}
@@ -0,0 +1,356 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import edu.emory.mathcs.nlp.common.collection.tree.PrefixNode;
+import edu.emory.mathcs.nlp.common.collection.tree.PrefixTree;
+import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
+import edu.emory.mathcs.nlp.component.dep.DEPParser;
+import edu.emory.mathcs.nlp.component.ner.NERTagger;
+import edu.emory.mathcs.nlp.component.pos.POSTagger;
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.config.NLPConfig;
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.component.template.util.GlobalLexica;
+import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
+import edu.emory.mathcs.nlp.component.template.util.NLPMode;
+
+/**
+ * Generates deterministic corpora, lexica, and configurations so that the benchmarks run offline.
+ * Word forms follow a Zipfian distribution over a fixed vocabulary; dependency trees are random but projective.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class SyntheticCorpus
+{
+	static public final int VOCABULARY_SIZE = 20000;
+	static public final int POS_SIZE = 45;
+	static public final String[] DEPRELS  = {"nsubj","dobj","amod","det","prep","pobj","advmod","aux","cc","conj","nn","punct"};
+	static public final String[] NAMENTS  = {"PER","ORG","LOC","MISC"};
+	
+//	=================================== CORPUS ===================================
+	
+	/** @return sentences in the TSV format of {@link #createReader()}: id, form, lemma, pos, feats, dhead, deprel, sheads, nament. */
+	static public String createTSV(int sentenceSize, long seed)
+	{
+		StringBuilder build = new StringBuilder();
+		Random rand = new Random(seed);
+		int i, length, word;
+		String form;
+		
+		for (int s=0; s<sentenceSize; s++)
+		{
+			length = 5 + rand.nextInt(36);
+			int[] heads = new int[length+1];
+			String[] nament = createNamedEntityTags(rand, length);
+			createProjectiveTree(rand, heads, 1, length, 0);
+			
+			for (i=1; i<=length; i++)
+			{
+				word = zipf(rand, VOCABULARY_SIZE);
+				form = getWordForm(word);
+				build.append(i).append('\t');
+				build.append(form).append('\t');
+				build.append(form.toLowerCase()).append('\t');
+				build.append(getPartOfSpeechTag(word)).append('\t');
+				build.append('_').append('\t');
+				build.append(heads[i]).append('\t');
+				build.append(heads[i] == 0 ? "root" : DEPRELS[(word + i) % DEPRELS.length]).append('\t');
+				build.append('_').append('\t');
+				build.append(nament[i]).append('\n');
+			}
+			
+			build.append('\n');
+		}
+		
+		return build.toString();
+	}
+	
+	/** Assigns random heads to the nodes in [begin, end] so that the subtree is projective. */
+	static private void createProjectiveTree(Random rand, int[] heads, int begin, int end, int head)
+	{
+		if (begin > end) return;
+		int root = begin + rand.nextInt(end - begin + 1);
+		heads[root] = head;
+		createProjectiveTree(rand, heads, begin, root-1, root);
+		createProjectiveTree(rand, heads, root+1, end, root);
+	}
+	
+	static private String[] createNamedEntityTags(Random rand, int length)
+	{
+		String[] tags = new String[length+1];
+		String type;
+		int i, size;
+		
+		for (i=1; i<=length; )
+		{
+			if (rand.nextInt(8) > 0) {tags[i++] = "O"; continue;}
+			type = NAMENTS[rand.nextInt(NAMENTS.length)];
+			size = Math.min(length - i + 1, 1 + rand.nextInt(3));
+			
+			if (size == 1)
+				tags[i++] = "U-"+type;
+			else
+			{
+				tags[i++] = "B-"+type;
+				for (int j=2; j<size; j++) tags[i++] = "I-"+type;
+				tags[i++] = "L-"+type;
+			}
+		}
+		
+		return tags;
+	}
+	
+	/** @return an index in [0, size) drawn from an approximately Zipfian distribution. */
+	static private int zipf(Random rand, int size)
+	{
+		return (int)Math.min(size - 1, Math.floor(Math.pow(size + 1, rand.nextDouble())) - 1);
+	}
+	
+	static public String getWordForm(int word)
+	{
+		return (word % 7 == 0 ? "W" : "w") + Integer.toString(word, 36) + (word % 5 == 0 ? "s" : "");
+	}
+	
+	static public String getPartOfSpeechTag(int word)
+	{
+		return "P"+(word % POS_SIZE);
+	}
+	
+	static public InputStream toInputStream(String s)
+	{
+		return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	static public NLPReader createReader()
+	{
+		return new NLPReader(1, 2, 3, 4, 5, 6, -1, 8);
+	}
+	
+	static public List<NLPNode[]> read(String tsv)
+	{
+		List<NLPNode[]> sentences = new ArrayList<>();
+		NLPReader reader = createReader();
+		NLPNode[] nodes;
+		
+		try
+		{
+			reader.open(toInputStream(tsv));
+			while ((nodes = reader.next()) != null) sentences.add(nodes);
+			reader.close();
+		}
+		catch (Exception e) {throw new IllegalStateException(e);}
+		
+		return sentences;
+	}
+	
+//	=================================== LEXICA ===================================
+	
+	/** @return lexica with ambiguity classes, word clusters, word embeddings, gazetteers, and stop words over the vocabulary. */
+	static public GlobalLexica<NLPNode> createGlobalLexica(long seed)
+	{
+		GlobalLexica<NLPNode> lexica = new GlobalLexica<>(toInputStream("<configuration/>"));
+		Map<String,List<String>> ambiguity = new HashMap<>();
+		Map<String,Set<String>>  clusters  = new HashMap<>();
+		Map<String,float[]>      embedding = new HashMap<>();
+		PrefixTree<String,Set<String>> gazetteers = new PrefixTree<>();
+		Set<String> stopwords = new HashSet<>();
+		Random rand = new Random(seed);
+		PrefixNode<String,Set<String>> node;
+		String form;
+		
+		for (int word=0; word<VOCABULARY_SIZE; word++)
+		{
+			form = getWordForm(word);
+			List<String> tags = new ArrayList<>();
+			tags.add(getPartOfSpeechTag(word));
+			if (word % 3 == 0) tags.add(getPartOfSpeechTag(word + 1));
+			ambiguity.put(form, tags);
+			
+			Set<String> set = new HashSet<>();
+			for (int depth=4; depth<=12; depth+=4) set.add(Integer.toBinaryString(word & ((1 << depth) - 1)));
+			clusters.put(form, set);
+			
+			float[] v = new float[50];
+			for (int i=0; i<v.length; i++) v[i] = (float)rand.nextGaussian();
+			embedding.put(form, v);
+			
+			if (word < 100) stopwords.add(form);
+			
+			if (word % 50 == 0)
+			{
+				node = gazetteers.add(new String[]{form, getWordForm(word+1)}, 0, 2, s -> s);
+				if (node.getValue() == null) node.setValue(new TreeSet<>());
+				node.getValue().add(NAMENTS[word % NAMENTS.length]);
+			}
+		}
+		
+		lexica.setAmbiguityClasses(new Pair<>(ambiguity, Field.word_form));
+		lexica.setWordClusters(new Pair<>(clusters, Field.word_form));
+		lexica.setWordEmbeddings(new Pair<>(embedding, Field.word_form));
+		lexica.setNamedEntityGazetteers(new Pair<>(gazetteers, Field.word_form));
+		lexica.setStopWords(new Pair<>(stopwords, Field.word_form));
+		return lexica;
+	}
+	
+//	=================================== CONFIGURATION ===================================
+	
+	/**
+	 * @param algorithm one of the algorithms in {@code NLPConfig#getOnlineOptimizer}.
+	 * @param weightVector the storage of the weights (e.g., gap-list, array, direct).
+	 */
+	static public String createConfiguration(NLPMode mode, String algorithm, String weightVector, boolean hashed)
+	{
+		StringBuilder build = new StringBuilder();
+		
+		build.append("<configuration>\n");
+		build.append("<tsv>\n");
+		build.append("  <column index=\"1\" field=\"form\"/>\n");
+		build.append("  <column index=\"2\" field=\"lemma\"/>\n");
+		build.append("  <column index=\"3\" field=\"pos\"/>\n");
+		build.append("  <column index=\"4\" field=\"feats\"/>\n");
+		build.append("  <column index=\"5\" field=\"dhead\"/>\n");
+		build.append("  <column index=\"6\" field=\"deprel\"/>\n");
+		build.append("  <column index=\"8\" field=\"nament\"/>\n");
+		build.append("</tsv>\n");
+		build.append("<optimizer>\n");
+		build.append("  <algorithm>").append(algorithm).append("</algorithm>\n");
+		build.append("  <weight_vector>").append(weightVector).append("</weight_vector>\n");
+		build.append("  <l1_regularization>0</l1_regularization>\n");
+		build.append("  <learning_rate>0.02</learning_rate>\n");
+		build.append("  <decaying_rate>0.4</decaying_rate>\n");
+		build.append("  <feature_cutoff>0</feature_cutoff>\n");
+		build.append("  <batch_size>8</batch_size>\n");
+		build.append("  <max_epoch>1</max_epoch>\n");
+		build.append("  <bias>0</bias>\n");
+		build.append("  <hidden_dimensions>64</hidden_dimensions>\n");
+		build.append("  <activation_functions>sigmoid</activation_functions>\n");
+		build.append("  <weight_generator lower=\"-0.1\" upper=\"0.1\"/>\n");
+		build.append("</optimizer>\n");
+		build.append("<feature_template hashed=\"").append(hashed).append("\">\n");
+		for (String[] f : getFeatureTemplate(mode)) build.append(toFeature(f, false));
+		for (String   f : getSetFeatureTemplate(mode)) build.append(toFeature(new String[]{f}, true));
+		build.append("</feature_template>\n");
+		build.append("</configuration>\n");
+		
+		return build.toString();
+	}
+	
+	static private String[][] getFeatureTemplate(NLPMode mode)
+	{
+		switch (mode)
+		{
+		case pos: return new String[][]{
+			{"i-2:word_form_simplified"}, {"i-1:word_form_simplified"}, {"i:word_form_simplified"}, {"i1:word_form_simplified"}, {"i2:word_form_simplified"},
+			{"i:word_form_simplified_lowercase"}, {"i:word_shape"}, {"i:prefix:2"}, {"i:suffix:3"}, {"i1:ambiguity_classes"}, {"i2:ambiguity_classes"},
+			{"i-2:part_of_speech_tag"}, {"i-1:part_of_speech_tag"},
+			{"i-1:part_of_speech_tag", "i1:ambiguity_classes"}, {"i-1:word_form_simplified", "i:word_form_simplified"}};
+		case ner: return new String[][]{
+			{"i-1:word_form_simplified"}, {"i:word_form_simplified"}, {"i1:word_form_simplified"},
+			{"i:word_shape"}, {"i:part_of_speech_tag"}, {"i1:part_of_speech_tag"}, {"i:named_entity_gazetteers"},
+			{"i-2:named_entity_tag"}, {"i-1:named_entity_tag"},
+			{"i-1:named_entity_tag", "i:word_shape"}, {"i:word_form_simplified", "i1:word_form_simplified"}};
+		case dep: return new String[][]{
+			{"i:word_form_simplified"}, {"j:word_form_simplified"}, {"i:part_of_speech_tag"}, {"j:part_of_speech_tag"},
+			{"k:part_of_speech_tag"}, {"j1:part_of_speech_tag"}, {"i_h:part_of_speech_tag"}, {"i_lmd:dependency_label"}, {"i_rmd:dependency_label"},
+			{"j_lmd:dependency_label"}, {"i:part_of_speech_tag", "j:part_of_speech_tag"}, {"i:word_form_simplified", "j:part_of_speech_tag"},
+			{"i:part_of_speech_tag", "j:word_form_simplified"}, {"i:part_of_speech_tag", "j:part_of_speech_tag", "j1:part_of_speech_tag"}};
+		default: throw new IllegalArgumentException("Unsupported mode: "+mode);
+		}
+	}
+	
+	static private String[] getSetFeatureTemplate(NLPMode mode)
+	{
+		switch (mode)
+		{
+		case pos: return new String[]{"i:orthographic"};
+		case ner: return new String[]{"i:orthographic", "i:word_clusters"};
+		default : return new String[0];
+		}
+	}
+	
+	static private String toFeature(String[] items, boolean set)
+	{
+		StringBuilder build = new StringBuilder("  <feature");
+		if (set) build.append(" set=\"true\"");
+		
+		for (int i=0; i<items.length; i++)
+			build.append(" f").append(i).append("=\"").append(items[i]).append("\"");
+		
+		return build.append("/>\n").toString();
+	}
+	
+//	=================================== COMPONENT ===================================
+	
+	static public OnlineComponent<NLPNode,?> createComponent(NLPMode mode, String configuration)
+	{
+		OnlineComponent<NLPNode,?> component;
+		
+		switch (mode)
+		{
+		case pos: component = new POSTagger<>(toInputStream(configuration)); break;
+		case ner: component = new NERTagger<>(toInputStream(configuration)); break;
+		case dep: component = new DEPParser<>(toInputStream(configuration)); break;
+		default : throw new IllegalArgumentException("Unsupported mode: "+mode);
+		}
+		
+		NLPConfig<NLPNode> config = component.getConfiguration();
+		HyperParameter hp = config.getHyperParameter();
+		component.setHyperParameter(hp);
+		component.setOptimizer(config.getOnlineOptimizer(hp));
+		component.initFeatureTemplate();
+		return component;
+	}
+	
+	/** Trains the component on the corpus, which is read again for every epoch since training modifies the nodes. */
+	static public void train(OnlineComponent<NLPNode,?> component, GlobalLexica<NLPNode> lexica, String tsv, int epochs)
+	{
+		int batchSize = component.getHyperParameter().getBatchSize(), count = 0;
+		component.setFlag(NLPFlag.TRAIN);
+		
+		for (int epoch=0; epoch<epochs; epoch++)
+		{
+			for (NLPNode[] nodes : read(tsv))
+			{
+				lexica.process(nodes);
+				component.process(nodes);
+				
+				if (++count == batchSize)
+				{
+					component.getOptimizer().updateMiniBatch();
+					count = 0;
+				}
+			}
+		}
+		
+		if (count > 0) component.getOptimizer().updateMiniBatch();
+		component.setFlag(NLPFlag.DECODE);
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.emory.mathcs.nlp.learning.initialization.RandomWeightGenerator;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorDirectVector;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.RowMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.SparseVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * Measures {@link WeightVector#scores} for sparse and dense feature vectors with each weight storage.
+ * One operation scores {@link #BATCH} vectors.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class WeightVectorBenchmark
+{
+	static public final int BATCH = 256;
+	
+	@Param({"gap-list", "array", "direct"})
+	public String storage;
+	@Param({"50"})
+	public int labels;
+	@Param({"500000"})
+	public int features;
+	@Param({"40"})
+	public int active;
+	@Param({"200"})
+	public int dimension;
+	
+	private WeightVector weights;
+	private FeatureVector[] sparse;
+	private FeatureVector[] dense;
+	
+	@Setup
+	public void setup()
+	{
+		Random rand = new Random(1);
+		weights = createWeightVector(storage);
+		weights.expand(features, dimension, labels, new RandomWeightGenerator(-1, 1));
+		sparse = new FeatureVector[BATCH];
+		dense  = new FeatureVector[BATCH];
+		
+		for (int i=0; i<BATCH; i++)
+		{
+			SparseVector x = new SparseVector();
+			for (int j=0; j<active; j++) x.add((int)Math.min(features - 1, Math.pow(features, rand.nextDouble())));
+			sparse[i] = new FeatureVector(x, null);
+			
+			float[] d = new float[dimension];
+			for (int j=0; j<dimension; j++) d[j] = (float)rand.nextGaussian();
+			dense[i] = new FeatureVector(null, d);
+		}
+	}
+	
+	static public WeightVector createWeightVector(String storage)
+	{
+		switch (storage)
+		{
+		case "gap-list": return new WeightVector();
+		case "array"   : return new WeightVector(new ColumnMajorArrayVector() , new RowMajorArrayVector(), null);
+		case "direct"  : return new WeightVector(new ColumnMajorDirectVector(), new RowMajorArrayVector(), null);
+		default: throw new IllegalArgumentException(storage+" is not a valid weight vector type.");
+		}
+	}
+	
+	@Benchmark
+	public float sparseScores()
+	{
+		float sum = 0;
+		for (FeatureVector x : sparse) sum += weights.scores(x)[0];
+		return sum;
+	}
+	
+	@Benchmark
+	public float sparseScoresBatch()
+	{
+		float sum = 0;
+		for (float[] scores : weights.scores(sparse, 0)) sum += scores[0];
+		return sum;
+	}
+	
+	@Benchmark
+	public float denseScores()
+	{
+		float sum = 0;
+		for (FeatureVector x : dense) sum += weights.scores(x)[0];
+		return sum;
+	}
+	
+	@Benchmark
+	public float denseScoresBatch()
+	{
+		float sum = 0;
+		for (float[] scores : weights.scores(dense, 0)) sum += scores[0];
+		return sum;
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.bin;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import org.kohsuke.args4j.Option;
+
+import edu.emory.mathcs.nlp.common.util.BinUtils;
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.util.BinaryModel;
+
+/**
+ * Converts a serialized model into the memory-mapped binary format ({@link BinaryModel}).
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class ModelConvert
+{
+	@Option(name="-i", usage="input model file (required)", required=true, metaVar="<filename>")
+	protected String input_file;
+	@Option(name="-o", usage="output binary model file (required)", required=true, metaVar="<filename>")
+	protected String output_file;
+	
+	public void convert(String[] args)
+	{
+		BinUtils.initArgs(args, this);
+		BinUtils.LOG.info("Loading the model\n");
+		
+		try
+		{
+			ObjectInputStream oin = IOUtils.createObjectXZBufferedInputStream(IOUtils.createFileInputStream(input_file));
+			OnlineComponent<?,?> component = (OnlineComponent<?,?>)oin.readObject();
+			oin.close();
+			
+			BinUtils.LOG.info("Saving the binary model\n");
+			component.freeze();
+			BinaryModel.save(component, output_file);
+		}
+		catch (IOException | ClassNotFoundException e) {e.printStackTrace();}
+	}
+	
+	static public void main(String[] args)
+	{
+		new ModelConvert().convert(args);
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.bin;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.kohsuke.args4j.Option;
+
+import edu.emory.mathcs.nlp.common.util.BinUtils;
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.learning.util.RowMajorQuantizedVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * Freezes a serialized model and stores its dense weights in 8 or 16 bits ({@link RowMajorQuantizedVector}).
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class ModelQuantize
+{
+	@Option(name="-i", usage="input model file (required)", required=true, metaVar="<filename>")
+	protected String input_file;
+	@Option(name="-o", usage="output model file (required)", required=true, metaVar="<filename>")
+	protected String output_file;
+	@Option(name="-bits", usage="number of bits per dense weight: 8|16 (default: 8)", required=false, metaVar="<integer>")
+	protected int bits = 8;
+	
+	public void quantize(String[] args)
+	{
+		BinUtils.initArgs(args, this);
+		BinUtils.LOG.info("Loading the model\n");
+		
+		try
+		{
+			ObjectInputStream oin = IOUtils.createObjectXZBufferedInputStream(IOUtils.createFileInputStream(input_file));
+			OnlineComponent<?,?> component = (OnlineComponent<?,?>)oin.readObject();
+			oin.close();
+			
+			BinUtils.LOG.info("Quantizing the dense weights in "+bits+" bits\n");
+			component.freeze();
+			
+			for (WeightVector w : component.getOptimizer().getWeightVectors())
+			{
+				if (!w.quantize(bits))
+					BinUtils.LOG.warn("Dense weights left in floats: "+w.getDenseWeightVector().getClass().getSimpleName()+"\n");
+			}
+			
+			BinUtils.LOG.info("Saving the model\n");
+			ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(output_file);
+			out.writeObject(component);
+			out.close();
+		}
+		catch (IOException | ClassNotFoundException e) {e.printStackTrace();}
+	}
+	
+	static public void main(String[] args)
+	{
+		new ModelQuantize().quantize(args);
+	}
+}
@@ -44,7 +44,7 @@ public class ModelReduce extends NLPTrain
 		
 		BinUtils.LOG.info("Loading the model\n");
 		OnlineComponent<N,S> component = readComponent(IOUtils.createFileInputStream(previous_model_file), IOUtils.createFileInputStream(configuration_file));
-		TSVReader<N> reader = trainer.createTSVReader(component.getConfiguration().getReaderFieldMap());
+		TSVReader<N> reader = trainer.initTSVReader(component.getConfiguration());
 		trainer.reduceModel(reader, developFiles, component, lexica, previous_model_file, model_file);
 	}
 	
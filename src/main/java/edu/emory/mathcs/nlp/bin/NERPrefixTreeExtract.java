@@ -27,33 +27,34 @@ import edu.emory.mathcs.nlp.common.collection.tree.PrefixTree;
 import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.common.util.Splitter;
 import edu.emory.mathcs.nlp.common.util.StringUtils;
+import edu.emory.mathcs.nlp.component.template.util.GazetteerTrie;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
 public class NERPrefixTreeExtract
 {
+	static private final String[] PATH = {
+		"known_corporations.txt",
+		"known_countries.txt",
+		"known_currencies.txt",
+		"known_jobs.txt",
+		"known_names.txt",
+		"known_nationalities.txt",
+		"known_places.txt",
+		"known_states.txt",
+		"WikiArtWork.txt",
+		"WikiCompetitionsBattlesEvents.txt",
+		"WikiFilms.txt",
+		"WikiLocations.txt",
+		"WikiManMadeObjectNames.txt",
+		"WikiOrganizations.txt",
+		"WikiPeople.txt",
+		"WikiSongs.txt"
+	};
+	
 	static public PrefixTree<String,Set<String>> getNERPrefixTree(final String DIR) throws IOException
 	{
-		final String[] PATH = {
-				"known_corporations.txt",
-				"known_countries.txt",
-				"known_currencies.txt",
-				"known_jobs.txt",
-				"known_names.txt",
-				"known_nationalities.txt",
-				"known_places.txt",
-				"known_states.txt",
-				"WikiArtWork.txt",
-				"WikiCompetitionsBattlesEvents.txt",
-				"WikiFilms.txt",
-				"WikiLocations.txt",
-				"WikiManMadeObjectNames.txt",
-				"WikiOrganizations.txt",
-				"WikiPeople.txt",
-				"WikiSongs.txt"
-		};
-		
 		PrefixTree<String,Set<String>> tree = new PrefixTree<>();
 		
 		for (int i=0; i<PATH.length; i++)
@@ -87,6 +88,33 @@ public class NERPrefixTreeExtract
 		}
 	}
 	
+	/** @return the gazetteers in the compact format; see {@link GazetteerTrie}. */
+	static public GazetteerTrie getNERGazetteerTrie(final String DIR) throws IOException
+	{
+		GazetteerTrie trie = new GazetteerTrie();
+		BufferedReader reader;
+		String line;
+		String[] t;
+		
+		for (int i=0; i<PATH.length; i++)
+		{
+			reader = IOUtils.createBufferedReader(IOUtils.createFileInputStream(DIR+"/"+PATH[i]));
+			
+			while ((line = reader.readLine()) != null)
+			{
+				t = Splitter.splitSpace(line.trim());
+				if (t.length == 1 && t[0].length() == 1) continue;
+				for (int j=0; j<t.length; j++) t[j] = toKey(t[j]);
+				trie.add(t, Integer.toString(i));
+			}
+			
+			reader.close();
+		}
+		
+		trie.freeze();
+		return trie;
+	}
+	
 	static private String toKey(String s)
 	{
 		return StringUtils.toSimplifiedForm(s);
@@ -99,12 +127,12 @@ public class NERPrefixTreeExtract
 	{
 		final String dir = args[0];
 		final String outputFile = args[1];
+		final boolean trie = args.length > 2 && "trie".equals(args[2]);
 		
 		try
 		{
-			PrefixTree<String,Set<String>> tree = NERPrefixTreeExtract.getNERPrefixTree(dir);
 			ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(outputFile);
-			out.writeObject(tree);
+			out.writeObject(trie ? NERPrefixTreeExtract.getNERGazetteerTrie(dir) : NERPrefixTreeExtract.getNERPrefixTree(dir));
 			out.close();
 		}
 		catch (Exception e) {e.printStackTrace();}
@@ -15,9 +15,15 @@
  */
 package edu.emory.mathcs.nlp.bin;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.BiFunction;
 
 import org.kohsuke.args4j.Option;
 
@@ -61,10 +67,27 @@ public class NLPTrain
 	protected String mode = null;
 	@Option(name="-cv", usage="# of cross-validation folds (default: 0)", required=false, metaVar="<int>")
 	protected int cv = 0;
+	@Option(name="-mix", usage="# of workers for iterative parameter mixing (default: 0)", required=false, metaVar="<int>")
+	protected int mix = 0;
+	@Option(name="-mix_dir", usage="directory shared by the parameter mixing workers (default: temporary directory)", required=false, metaVar="<filepath>")
+	protected String mix_dir = null;
+	@Option(name="-mix_process", usage="if set, the parameter mixing workers run as local processes instead of threads", required=false)
+	protected boolean mix_process = false;
+	@Option(name="-mix_epoch", usage="epoch trained by this process as a parameter mixing worker (internal)", required=false, metaVar="<int>")
+	protected int mix_epoch = -1;
+	@Option(name="-mix_shard", usage="shard trained by this process as a parameter mixing worker (internal)", required=false, metaVar="<int>")
+	protected int mix_shard = -1;
 	
 	public <N extends AbstractNLPNode<N>, S extends NLPState<N>>void train(String[] args)
 	{
 		BinUtils.initArgs(args, this);
+		
+		if (mix_shard >= 0)
+		{
+			trainShard();
+			return;
+		}
+		
 		List<String> trainFiles    = FileUtils.getFileList(train_path  , train_ext);
 		List<String> developFiles  = FileUtils.getFileList(develop_path, develop_ext);
 		OnlineTrainer<N,S> trainer = createOnlineTrainer();
@@ -73,8 +96,56 @@ public class NLPTrain
 		Collections.sort(developFiles);
 		NLPMode m = NLPMode.valueOf(mode);
 		
-		if (cv > 1) trainer.crossValidate(m, trainFiles, configuration_file, model_file, previous_model_file, cv);
-		else		trainer.train(m, trainFiles, developFiles, configuration_file, model_file, previous_model_file);
+		if (cv > 1)
+			trainer.crossValidate(m, trainFiles, configuration_file, model_file, previous_model_file, cv);
+		else if (mix > 1)
+		{
+			BiFunction<Integer,Integer,List<String>> command = mix_process ? (epoch, shard) -> getWorkerCommand(args, epoch, shard) : null;
+			trainer.trainMixing(m, trainFiles, developFiles, configuration_file, model_file, previous_model_file, mix, getMixDirectory(), command);
+		}
+		else
+			trainer.train(m, trainFiles, developFiles, configuration_file, model_file, previous_model_file);
+	}
+	
+	/** Trains the shard as a parameter mixing worker launched by {@link #getWorkerCommand(String[], int, int)}. */
+	protected <N extends AbstractNLPNode<N>, S extends NLPState<N>>void trainShard()
+	{
+		OnlineTrainer<N,S> trainer = createOnlineTrainer();
+		
+		try
+		{
+			trainer.trainShard(NLPMode.valueOf(mode), configuration_file, mix_dir, mix_epoch, mix_shard);
+		}
+		catch (IOException e) {e.printStackTrace(); System.exit(1);}
+	}
+	
+	protected String getMixDirectory()
+	{
+		try
+		{
+			if (mix_dir == null) mix_dir = Files.createTempDirectory("nlp4j-mix").toString();
+		}
+		catch (IOException e) {throw new IllegalStateException(e);}
+		
+		return mix_dir;
+	}
+	
+	/** @return the command running this class in a new process as the parameter mixing worker for the specific epoch and shard. */
+	protected List<String> getWorkerCommand(String[] args, int epoch, int shard)
+	{
+		List<String> command = new ArrayList<>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(getClass().getName());
+		command.addAll(Arrays.asList(args));
+		command.add("-mix_dir");
+		command.add(getMixDirectory());
+		command.add("-mix_epoch");
+		command.add(Integer.toString(epoch));
+		command.add("-mix_shard");
+		command.add(Integer.toString(shard));
+		return command;
 	}
 	
 	public <N extends AbstractNLPNode<N>, S extends NLPState<N>>OnlineTrainer<N,S> createOnlineTrainer()
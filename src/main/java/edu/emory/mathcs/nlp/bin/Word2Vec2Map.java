@@ -25,6 +25,7 @@ import java.util.Map;
 
 import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.common.util.Splitter;
+import edu.emory.mathcs.nlp.component.template.util.EmbeddingStore;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -75,9 +76,17 @@ public class Word2Vec2Map
 	{
 		final String INPUT_FILE  = args[0];
 		final String OUTPUT_FILE = args[1];
+		final boolean STORE = args.length > 2 && args[2].equals("store");
+		final int     BITS  = args.length > 3 ? Integer.parseInt(args[3]) : Float.SIZE;
 		
 		try
 		{
+			if (STORE)
+			{
+				EmbeddingStore.convert(new FileInputStream(INPUT_FILE), OUTPUT_FILE, Word2Vec2Map::skip, BITS);
+				return;
+			}
+			
 			Map<String,float[]> map = getEmbeddings(new FileInputStream(INPUT_FILE));
 			ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(OUTPUT_FILE);
 			out.writeObject(map);
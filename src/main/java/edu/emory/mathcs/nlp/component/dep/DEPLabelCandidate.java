@@ -22,20 +22,24 @@ import edu.emory.mathcs.nlp.learning.util.MLUtils;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
 
 /**
+ * Labels are added by copying the sets so that they can be read by multiple threads without locking while another thread adds labels.
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
 public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializable
 {
 	private static final long serialVersionUID = 5579863219050051216L;
 	
-	private IntSet X_SHIFT;
-	private IntSet NO_X;
-	private IntSet NO_SHIFT_OR_PASS;
-	private IntSet NOT_NO_REDUCE;
-	private IntSet LEFT_ARC;
-	private IntSet RIGHT_ARC;
+	private volatile IntSet X_SHIFT;
+	private volatile IntSet NO_X;
+	private volatile IntSet NO_SHIFT_OR_PASS;
+	private volatile IntSet NOT_NO_REDUCE;
+	private volatile IntSet LEFT_ARC;
+	private volatile IntSet RIGHT_ARC;
+	/** The indices of all labels added, so that known labels are skipped without locking or parsing them. */
+	private volatile IntSet ALL;
 	
 	public DEPLabelCandidate()
 	{
@@ -45,27 +49,53 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 		NOT_NO_REDUCE    = new IntOpenHashSet();
 		LEFT_ARC         = new IntOpenHashSet();
 		RIGHT_ARC        = new IntOpenHashSet();
+		ALL              = new IntOpenHashSet();
 	}
-
+	
 	public void add(String label, int index)
 	{
+		if (!contains(index)) addLabel(label, index);
+	}
+	
+	/** @return true if the label of the specific index has been added. */
+	public boolean contains(int index)
+	{
+		IntSet all = ALL;
+		return all != null && all.contains(index);
+	}
+	
+	private synchronized void addLabel(String label, int index)
+	{
+		if (contains(index)) return;
 		DEPLabel lb = new DEPLabel(label);
 		
 		if (lb.isList(DEPState.LIST_SHIFT))
-			X_SHIFT.add(index);
+			X_SHIFT = add(X_SHIFT, index);
 		
 		if (lb.isArc(DEPState.ARC_LEFT))
-			LEFT_ARC.add(index);
+			LEFT_ARC = add(LEFT_ARC, index);
 		else if (lb.isArc(DEPState.ARC_RIGHT))
-			RIGHT_ARC.add(index);
+			RIGHT_ARC = add(RIGHT_ARC, index);
 		else
 		{
-			NO_X.add(index);
-			if (!lb.isList(DEPState.LIST_REDUCE)) NO_SHIFT_OR_PASS.add(index);
+			NO_X = add(NO_X, index);
+			if (!lb.isList(DEPState.LIST_REDUCE)) NO_SHIFT_OR_PASS = add(NO_SHIFT_OR_PASS, index);
 		}
 		
 		if (!(lb.isArc(DEPState.ARC_NO) && lb.isList(DEPState.LIST_REDUCE)))
-			NOT_NO_REDUCE.add(index);
+			NOT_NO_REDUCE = add(NOT_NO_REDUCE, index);
+		
+		// set last so that the label is not skipped before the other sets include it
+		ALL = add(ALL != null ? ALL : new IntOpenHashSet(), index);
+	}
+	
+	/** @return the specific set if it contains the index; otherwise, a copy of the set including the index. */
+	private IntSet add(IntSet set, int index)
+	{
+		if (set.contains(index)) return set;
+		IntSet nset = new IntOpenHashSet(set);
+		nset.add(index);
+		return nset;
 	}
 	
 	public IntSet get(N stack, N input)
@@ -101,6 +131,24 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 		return RIGHT_ARC;
 	}
 	
+	/** Makes the candidate sets read-only. */
+	public void freeze()
+	{
+		X_SHIFT          = freeze(X_SHIFT);
+		NO_X             = freeze(NO_X);
+		NO_SHIFT_OR_PASS = freeze(NO_SHIFT_OR_PASS);
+		NOT_NO_REDUCE    = freeze(NOT_NO_REDUCE);
+		LEFT_ARC         = freeze(LEFT_ARC);
+		RIGHT_ARC        = freeze(RIGHT_ARC);
+		if (ALL != null) ALL = freeze(ALL);
+	}
+	
+	private IntSet freeze(IntSet set)
+	{
+		if (set instanceof IntOpenHashSet) ((IntOpenHashSet)set).trim();
+		return IntSets.unmodifiable(set);
+	}
+	
 	public void remap(Int2IntMap map)
 	{
 		X_SHIFT          = remap(map, X_SHIFT);
@@ -109,6 +157,7 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 		NOT_NO_REDUCE    = remap(map, NOT_NO_REDUCE);
 		LEFT_ARC         = remap(map, LEFT_ARC);
 		RIGHT_ARC        = remap(map, RIGHT_ARC);
+		if (ALL != null) ALL = remap(map, ALL);
 	}
 	
 	private IntSet remap(Int2IntMap map, IntSet set)
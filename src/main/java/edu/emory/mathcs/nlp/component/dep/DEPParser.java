@@ -16,12 +16,17 @@
 package edu.emory.mathcs.nlp.component.dep;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import edu.emory.mathcs.nlp.common.treebank.DEPTagEn;
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.config.ConfigXML;
+import edu.emory.mathcs.nlp.component.template.config.NLPConfig;
 import edu.emory.mathcs.nlp.component.template.eval.Eval;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
 import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.MLUtils;
 import it.unimi.dsi.fastutil.ints.IntSet;
@@ -33,11 +38,13 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 {
 	private static final long serialVersionUID = 7031031976396726276L;
 	private DEPLabelCandidate<N> label_candidates;
+	private int beam_size;
 
 	public DEPParser()
 	{
 		super(false);
 		label_candidates = new DEPLabelCandidate<>(); 
+		setBeamSize(1);
 	}
 	
 	public DEPParser(InputStream configuration)
@@ -46,6 +53,15 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 		label_candidates = new DEPLabelCandidate<>();
 	}
 	
+	/** Also sets the beam size, so the beam size of a loaded model can be changed by the configuration. */
+	@Override
+	public void setConfiguration(NLPConfig<N> config)
+	{
+		super.setConfiguration(config);
+		String size = config.getTextContent(ConfigXML.BEAM_SIZE);
+		setBeamSize(size == null || size.isEmpty() ? 1 : Integer.parseInt(size));
+	}
+	
 //	============================== ABSTRACT ==============================
 	
 	@Override
@@ -82,6 +98,144 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 		return label_candidates;
 	}
 	
+	@Override
+	public void freeze()
+	{
+		super.freeze();
+		label_candidates.freeze();
+	}
+	
+//	============================== BEAM SEARCH ==============================
+	
+	public int getBeamSize()
+	{
+		return beam_size;
+	}
+	
+	/** @param size the number of states kept during decoding; if {@code size <= 1}, decodes greedily. */
+	public void setBeamSize(int size)
+	{
+		beam_size = size;
+	}
+	
+	/** Decodes using beam search if the beam size is greater than 1; training is always greedy. */
+	@Override
+	public DEPState<N> process(DEPState<N> state)
+	{
+		if (beam_size <= 1 || isTrain()) return super.process(state);
+		if (!isDecode() && !state.saveOracle()) return state;
+		List<DEPState<N>> beam = Collections.singletonList(state);
+		
+		while (!isTerminate(beam))
+			beam = nextBeam(beam);
+		
+		state = beam.get(0);
+		state.install();
+		postProcess(state);
+		if (isEvaluate()) state.evaluate(eval);
+		return state;
+	}
+	
+	private boolean isTerminate(List<DEPState<N>> beam)
+	{
+		for (DEPState<N> state : beam)
+			if (!state.isTerminate()) return false;
+		
+		return true;
+	}
+	
+	/**
+	 * Expands every state in the beam by its top transitions and keeps the best {@link #beam_size} states.
+	 * The states share the nodes, so features and label candidates are taken from each state in turn,
+	 * and the feature vectors of all states are scored in one batch.
+	 * If the scores are probabilities (see {@link OnlineOptimizer#isProbabilistic()}), the states are ranked by their log-probabilities.
+	 */
+	protected List<DEPState<N>> nextBeam(List<DEPState<N>> beam)
+	{
+		List<DEPState<N>> active = new ArrayList<>(beam.size());
+		List<DEPCandidate> candidates = new ArrayList<>();
+		FeatureVector[] xs;
+		IntSet[] labels;
+		float[][] scores;
+		DEPState<N> state;
+		int i;
+		
+		for (DEPState<N> s : beam)
+		{
+			if (s.isTerminate()) candidates.add(new DEPCandidate(s, -1, s.getScore(), null));
+			else active.add(s);
+		}
+		
+		xs     = new FeatureVector[active.size()];
+		labels = new IntSet[active.size()];
+		
+		for (i=0; i<xs.length; i++)
+		{
+			state = active.get(i);
+			state.install();
+			xs[i] = feature_template.createFeatureVector(state, false);
+			labels[i] = label_candidates.get(state.getStack(), state.getInput());
+		}
+		
+		scores = optimizer.scores(xs);
+		boolean probabilistic = optimizer.isProbabilistic();
+		
+		for (i=0; i<xs.length; i++)
+		{
+			state = active.get(i);
+			
+			for (int yhat : MLUtils.argmaxK(scores[i], labels[i], beam_size))
+				candidates.add(new DEPCandidate(state, yhat, state.getScore() + getTransitionScore(scores[i][yhat], probabilistic), scores[i]));
+		}
+		
+		Collections.sort(candidates);
+		List<DEPState<N>> next = new ArrayList<>(beam_size);
+		
+		for (DEPCandidate c : candidates.subList(0, Math.min(beam_size, candidates.size())))
+		{
+			if (c.yhat < 0)
+				next.add(c.state);
+			else
+			{
+				state = c.state.copy();
+				state.addScore(c.score - c.state.getScore());
+				state.next(optimizer.getLabelMap(), new int[]{c.yhat, -1}, c.scores);
+				next.add(state);
+			}
+		}
+		
+		return next;
+	}
+	
+	/** @return the log of the specific score if it is a probability; otherwise, the score itself. */
+	private float getTransitionScore(float score, boolean probabilistic)
+	{
+		return probabilistic ? (float)Math.log(Math.max(score, Float.MIN_NORMAL)) : score;
+	}
+	
+	class DEPCandidate implements Comparable<DEPCandidate>
+	{
+		DEPState<N> state;
+		int         yhat;
+		float       score;
+		float[]     scores;
+		
+		public DEPCandidate(DEPState<N> state, int yhat, float score, float[] scores)
+		{
+			this.state  = state;
+			this.yhat   = yhat;
+			this.score  = score;
+			this.scores = scores;
+		}
+		
+		/** Sorts in descending order of the scores. */
+		@Override
+		public int compareTo(DEPCandidate o)
+		{
+			return Float.compare(o.score, score);
+		}
+	}
+	
 //	============================== POST-PROCESS ==============================
 
 	@Override
@@ -44,15 +44,75 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	private IntArrayList    inter;
 	private int             input;
 	
+	// arcs predicted by this state, used to share the nodes among states in a beam
+	private int[]           heads;
+	private String[]        labels;
+	private float           score;
+	
 	public DEPState(N[] nodes)
 	{
 		super(nodes);
-		stack = new IntArrayList();
-		inter = new IntArrayList();
-		input = 0;
+		stack  = new IntArrayList();
+		inter  = new IntArrayList();
+		input  = 0;
+		heads  = new int[nodes.length];
+		labels = new String[nodes.length];
+		score  = 0;
+		Arrays.fill(heads, -1);
 		shift();
 	}
 	
+	/** Copy constructor sharing the nodes and the oracle with the specific state. */
+	protected DEPState(DEPState<N> state)
+	{
+		super(state.nodes);
+		oracle = state.oracle;
+		stack  = new IntArrayList(state.stack);
+		inter  = new IntArrayList(state.inter);
+		input  = state.input;
+		heads  = state.heads.clone();
+		labels = state.labels.clone();
+		score  = state.score;
+		dense_projection = state.dense_projection;
+		word_embeddings  = state.word_embeddings;
+	}
+	
+//	====================================== BEAM ======================================
+	
+	/** @return a copy of this state that shares the nodes with this state; see {@link #install()}. */
+	public DEPState<N> copy()
+	{
+		return new DEPState<>(this);
+	}
+	
+	/**
+	 * Sets the arcs predicted by this state to the nodes, which may have been modified by other states sharing them.
+	 * Must be called before features are extracted from this state.
+	 */
+	public void install()
+	{
+		N node, head;
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			node = nodes[i];
+			head = (heads[i] < 0) ? null : nodes[heads[i]];
+			if (node.getDependencyHead() != head) node.setDependencyHead(head);
+			node.setDependencyLabel(labels[i]);
+		}
+	}
+	
+	/** @return the sum of the scores of the transitions made by this state. */
+	public float getScore()
+	{
+		return score;
+	}
+	
+	public void addScore(float score)
+	{
+		this.score += score;
+	}
+	
 //	====================================== ORACLE ======================================
 
 	@Override
@@ -167,13 +227,13 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		
 		if (label.isArc(ARC_LEFT))
 		{
-			stack.setDependencyHead(input, label.getDeprel());
+			setDependencyHead(stack, input, label.getDeprel());
 			if (label.isList(LIST_REDUCE)) reduce();
 			else pass();
 		}
 		else if (label.isArc(ARC_RIGHT))
 		{
-			input.setDependencyHead(stack, label.getDeprel());
+			setDependencyHead(input, stack, label.getDeprel());
 			if (label.isList(LIST_SHIFT)) shift();
 			else pass();
 		}
@@ -185,6 +245,13 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		}
 	}
 	
+	private void setDependencyHead(N node, N head, String deprel)
+	{
+		node.setDependencyHead(head, deprel);
+		heads [node.getID()] = head.getID();
+		labels[node.getID()] = deprel;
+	}
+	
 	@Override
 	public boolean isTerminate()
 	{
@@ -16,6 +16,7 @@
 package edu.emory.mathcs.nlp.component.doc;
 
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
 
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
@@ -31,7 +32,9 @@ public class DOCAnalyzer<N extends AbstractNLPNode<N>> extends OnlineComponent<N
 {
 	private static final long serialVersionUID = 408764219381044191L;
 	public static final String FEAT_KEY = "doc_feat_key";
+	public static final String STREAMING = "doc_streaming";
 	protected String feat_key;
+	protected boolean streaming;
 
 	public DOCAnalyzer() {super(true);}
 	
@@ -46,9 +49,50 @@ public class DOCAnalyzer<N extends AbstractNLPNode<N>> extends OnlineComponent<N
 		NLPConfig<N> config = new NLPConfig<N>(in);
 		setConfiguration(config);
 		feat_key = config.getTextContent(FEAT_KEY);
+		streaming = Boolean.parseBoolean(config.getTextContent(STREAMING));
 		return config;
 	}
 	
+	@Override
+	public boolean isStreaming()
+	{
+		return streaming;
+	}
+	
+	public void setStreaming(boolean streaming)
+	{
+		this.streaming = streaming;
+	}
+	
+	/**
+	 * In the streaming mode, the features of each sentence are accumulated by {@link DOCFeatureTemplate#accumulate(DOCState, AbstractNLPNode[])}
+	 * as it is read, and the sentence is not kept; only the first node of the document, holding the label, is.
+	 */
+	@Override
+	public void process(Iterator<N[]> document)
+	{
+		if (!streaming) {super.process(document); return;}
+		DOCFeatureTemplate<N,DOCState<N>> template = (DOCFeatureTemplate<N,DOCState<N>>)feature_template;
+		DOCState<N> state = null;
+		N[] nodes;
+		
+		while (document.hasNext())
+		{
+			nodes = document.next();
+			
+			if (state == null)
+			{
+				state = new DOCState<N>(nodes[1], feat_key, template.getBagSize());
+				// the label must not be visible to the features
+				if (!isDecode()) state.saveOracle();
+			}
+			
+			template.accumulate(state, nodes);
+		}
+		
+		if (state != null) process(state);
+	}
+	
 	@Override
 	protected DOCState<N> initState(List<N[]> document)
 	{
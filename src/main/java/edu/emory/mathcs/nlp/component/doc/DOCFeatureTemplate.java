@@ -32,6 +32,7 @@ import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
 import edu.emory.mathcs.nlp.component.template.feature.Field;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.SparseVector;
 import it.unimi.dsi.fastutil.objects.Object2FloatMap;
 import it.unimi.dsi.fastutil.objects.Object2FloatOpenHashMap;
@@ -71,16 +72,18 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 		
 		for (i=0; i<feature_list.size(); i++,type++)
 		{
-			t = getWeightedFeatures(state, feature_list.get(i), feature_list_type.get(i));
+			t = getWeightedFeatures(state, i);
 			if (t != null) for (ObjectFloatPair<String> s : t) add(x, type, s.o, s.f, isTrain);
 		}
 		
 		return x;
 	}
 	
-	protected Collection<ObjectFloatPair<String>> getWeightedFeatures(S state, FeatureItem[] items, Field type)
+	/** @param index the index of the feature list. */
+	protected Collection<ObjectFloatPair<String>> getWeightedFeatures(S state, int index)
 	{
-		Object2FloatMap<String> map = getBagOfLexicons(state, items, type);
+		Field type = feature_list_type.get(index);
+		Object2FloatMap<String> map = state.isStreaming() ? state.getBagOfLexicons(index) : getBagOfLexicons(state, feature_list.get(index), type);
 		return (map == null || map.isEmpty()) ? null : getBagOfLexicons(map, type);
 	}
 	
@@ -135,52 +138,119 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 	protected Object2FloatMap<String> getBagOfWords(S state, FeatureItem[] items, boolean stopwords)
 	{
 		Object2FloatMap<String> map = new Object2FloatOpenHashMap<>();
+		
+		for (N[] nodes : state.getDocument(stopwords))
+			addBagOfWords(map, state, items, nodes);
+		
+		return map;
+	}
+	
+	protected void addBagOfWords(Object2FloatMap<String> map, S state, FeatureItem[] items, N[] nodes)
+	{
 		N node;
 		int index;
 		String f;
 		
-		for (N[] nodes : state.getDocument(stopwords))
+		outer: for (int i=1; i<nodes.length; i++)
 		{
-			outer: for (int i=1; i<nodes.length; i++)
+			StringJoiner join = new StringJoiner("_");
+			
+			for (FeatureItem item : items)
 			{
-				StringJoiner join = new StringJoiner("_");
-				
-				for (FeatureItem item : items)
-				{
-					index = i + item.window;
-					if (index < 1 || index >= nodes.length) continue outer;
-					node = state.getRelativeNode(nodes[index], item.relation);
-					if (node == null) continue outer;
-					f = getFeature(state, item, node);
-					if (f == null) continue outer;
-					join.add(f);
-				}
-				
-				map.merge(join.toString(), 1f, (oldCount, newCount) -> oldCount + newCount);
+				index = i + item.window;
+				if (index < 1 || index >= nodes.length) continue outer;
+				node = state.getRelativeNode(nodes[index], item.relation);
+				if (node == null) continue outer;
+				f = getFeature(state, item, node);
+				if (f == null) continue outer;
+				join.add(f);
 			}
+			
+			map.merge(join.toString(), 1f, (oldCount, newCount) -> oldCount + newCount);
 		}
-		
-		return map;
 	}
 	
 	protected Object2FloatMap<String> getBagOfClusters(S state, boolean stopwords)
 	{
 		Object2FloatMap<String> map = new Object2FloatOpenHashMap<>();
-		Set<String> clusters;
 		
 		for (N[] nodes : state.getDocument(stopwords))
+			addBagOfClusters(map, nodes);
+		
+		return map;
+	}
+	
+	protected void addBagOfClusters(Object2FloatMap<String> map, N[] nodes)
+	{
+		Set<String> clusters;
+		
+		for (int i=1; i<nodes.length; i++)
 		{
-			for (int i=1; i<nodes.length; i++)
+			clusters = nodes[i].getWordClusters();
+			if (clusters == null) continue;
+			
+			for (String f : clusters)
+				map.merge(f, 1f, (oldCount, newCount) -> oldCount + newCount);
+		}
+	}
+	
+//	============================== STREAMING ==============================
+	
+	/** @return the number of bags of lexicons accumulated by {@link #accumulate(DOCState, AbstractNLPNode[])}. */
+	public int getBagSize()
+	{
+		return feature_list.size();
+	}
+	
+	/**
+	 * Adds the bags of lexicons and the word embeddings of the sentence to the streaming state
+	 * so the sentence does not need to be kept; memory is bounded by the vocabulary instead of the document size.
+	 * @see DOCState#DOCState(AbstractNLPNode, String, int)
+	 */
+	public void accumulate(S state, N[] nodes)
+	{
+		N[] nonstop = null;
+		Field type;
+		
+		for (int i=0; i<feature_list.size(); i++)
+		{
+			type = feature_list_type.get(i);
+			
+			switch (type)
 			{
-				clusters = nodes[i].getWordClusters();
-				if (clusters == null) continue;
-				
-				for (String f : clusters)
-					map.merge(f, 1f, (oldCount, newCount) -> oldCount + newCount);
+			case bag_of_words:
+			case bag_of_words_norm:
+			case bag_of_words_count:
+				addBagOfWords(state.getBagOfLexicons(i), state, feature_list.get(i), nodes); break;
+			case bag_of_clusters:
+			case bag_of_clusters_norm:
+			case bag_of_clusters_count:
+				addBagOfClusters(state.getBagOfLexicons(i), nodes); break;
+			case bag_of_words_stopwords:
+			case bag_of_words_stopwords_norm:
+			case bag_of_words_stopwords_count:
+				if (nonstop == null && (nonstop = DOCState.getNonStopWords(nodes)) == null) break;
+				addBagOfWords(state.getBagOfLexicons(i), state, feature_list.get(i), nonstop); break;
+			case bag_of_clusters_stopwords:
+			case bag_of_clusters_stopwords_norm:
+			case bag_of_clusters_stopwords_count:
+				if (nonstop == null && (nonstop = DOCState.getNonStopWords(nodes)) == null) break;
+				addBagOfClusters(state.getBagOfLexicons(i), nonstop); break;
+			default:
 			}
 		}
 		
-		return map;
+		if (word_embeddings != null && !word_embeddings.isEmpty())
+		{
+			for (int i=1; i<nodes.length; i++)
+				if (!nodes[i].isStopWord() && nodes[i].hasWordEmbedding()) state.addEmbedding(nodes[i]);
+		}
+	}
+	
+	@Override
+	protected void setDenseVector(S state, FeatureVector x, boolean isTrain)
+	{
+		x.setDenseVector(createDenseVector(state));
 	}
 	
 	@Override
@@ -193,7 +263,8 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 	
 	public float[] getEmbeddings(S state, boolean average)
 	{
-		float[] w, v = null;
+		if (state.isStreaming()) return state.getEmbedding(average);
+		float[] v = null;
 		int count = 0;
 		N node;
 		
@@ -205,9 +276,8 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 				
 				if (!node.isStopWord() && node.hasWordEmbedding())
 				{
-					w = node.getWordEmbedding();
-					if (v == null) v = new float[w.length];
-					MathUtils.add(v, w);
+					if (v == null) v = new float[node.getWordEmbeddingDimension()];
+					node.addWordEmbedding(v);
 					count++;
 				}
 			}
@@ -17,6 +17,7 @@ package edu.emory.mathcs.nlp.component.doc;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import edu.emory.mathcs.nlp.component.template.eval.AccuracyEval;
@@ -25,6 +26,8 @@ import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.state.NLPState;
 import edu.emory.mathcs.nlp.learning.util.LabelMap;
+import it.unimi.dsi.fastutil.objects.Object2FloatMap;
+import it.unimi.dsi.fastutil.objects.Object2FloatOpenHashMap;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -38,46 +41,73 @@ public class DOCState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	protected List<N[]> non_stopwords;
 	protected float[]   prediction_scores;
 	
+	// streaming mode
+	protected List<Object2FloatMap<String>> bags;
+	protected float[] embedding_sum;
+	protected int     embedding_count;
+	
 	public DOCState(List<N[]> document, String key)
 	{
 		super(document);
 		feat_key = key;
 		key_node = document.get(0)[1];
-		non_stopwords = getNonStopWords(document);
 		reinit();
 	}
 	
-	@SuppressWarnings("unchecked")
+	/**
+	 * For streaming: the sentences are not kept; instead, their bags of lexicons and word embeddings
+	 * are accumulated by {@link DOCFeatureTemplate#accumulate(DOCState, AbstractNLPNode[])} as they are read.
+	 * @param keyNode the first node of the first sentence, where the document label is stored.
+	 * @param bagSize the number of bags of lexicons to accumulate.
+	 */
+	public DOCState(N keyNode, String key, int bagSize)
+	{
+		super(Collections.<N[]>emptyList());
+		feat_key = key;
+		key_node = keyNode;
+		non_stopwords = Collections.emptyList();
+		bags = new ArrayList<>(bagSize);
+		for (int i=0; i<bagSize; i++) bags.add(new Object2FloatOpenHashMap<>());
+		reinit();
+	}
+	
 	public List<N[]> getNonStopWords(List<N[]> document)
 	{
 		List<N[]> nonstop = new ArrayList<>();
-		N node;
+		N[] snodes;
 		
 		for (N[] nodes : document)
 		{
-			List<N> sen = new ArrayList<>();
-			
-			for (int i=1; i<nodes.length; i++)
-			{
-				node = nodes[i];
-				if (!node.isStopWord()) sen.add(node);
-			}
-			
-			if (!sen.isEmpty())
-			{
-				N[] snodes = (N[])Array.newInstance(key_node.getClass(), sen.size()+1);
-				snodes[0] = nodes[0];
-				
-				for (int i=1; i<snodes.length; i++)
-					snodes[i] = sen.get(i-1);
-				
-				nonstop.add(snodes);
-			}
+			snodes = getNonStopWords(nodes);
+			if (snodes != null) nonstop.add(snodes);
 		}
 		
 		return nonstop;
 	}
 	
+	/** @return the root followed by the non-stop words in the sentence if exists; otherwise, {@code null}. */
+	@SuppressWarnings("unchecked")
+	static public <N extends AbstractNLPNode<N>> N[] getNonStopWords(N[] nodes)
+	{
+		List<N> sen = new ArrayList<>();
+		N node;
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			node = nodes[i];
+			if (!node.isStopWord()) sen.add(node);
+		}
+		
+		if (sen.isEmpty()) return null;
+		N[] snodes = (N[])Array.newInstance(nodes.getClass().getComponentType(), sen.size()+1);
+		snodes[0] = nodes[0];
+		
+		for (int i=1; i<snodes.length; i++)
+			snodes[i] = sen.get(i-1);
+		
+		return snodes;
+	}
+	
 	public void reinit()
 	{
 		terminate = false;
@@ -89,7 +119,7 @@ public class DOCState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	@Override
 	public boolean saveOracle()
 	{
-		oracle = key_node.removeFeat(feat_key);
+		if (oracle == null) oracle = key_node.removeFeat(feat_key);
 		return oracle != null;
 	}
 	
@@ -109,7 +139,37 @@ public class DOCState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	
 	public List<N[]> getDocument(boolean excludeStopwords)
 	{
-		return excludeStopwords ? non_stopwords : getDocument();
+		if (!excludeStopwords) return getDocument();
+		if (non_stopwords == null) non_stopwords = getNonStopWords(getDocument());
+		return non_stopwords;
+	}
+	
+	/** @return {@code true} if this state accumulates features as the sentences stream past instead of keeping them. */
+	public boolean isStreaming()
+	{
+		return bags != null;
+	}
+	
+	/** @return the bag of lexicons accumulated for the index'th feature list in the streaming mode. */
+	public Object2FloatMap<String> getBagOfLexicons(int index)
+	{
+		return bags.get(index);
+	}
+	
+	public void addEmbedding(N node)
+	{
+		if (embedding_sum == null) embedding_sum = new float[node.getWordEmbeddingDimension()];
+		node.addWordEmbedding(embedding_sum);
+		embedding_count++;
+	}
+	
+	/** @return the sum (or the average) of the word embeddings accumulated in the streaming mode if exists; otherwise, {@code null}. */
+	public float[] getEmbedding(boolean average)
+	{
+		if (embedding_sum == null || !average) return embedding_sum;
+		float[] v = new float[embedding_sum.length];
+		for (int i=0; i<v.length; i++) v[i] = embedding_sum[i] / embedding_count;
+		return v;
 	}
 	
 	public String getLabel()
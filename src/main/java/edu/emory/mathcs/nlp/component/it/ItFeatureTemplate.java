@@ -24,6 +24,7 @@ import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
 import edu.emory.mathcs.nlp.component.template.feature.Field;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -50,6 +51,12 @@ public class ItFeatureTemplate<N extends AbstractNLPNode<N>> extends FeatureTemp
 //		return x;
 //	}
 	
+	@Override
+	protected void setDenseVector(ItState<N> state, FeatureVector x, boolean isTrain)
+	{
+		x.setDenseVector(createDenseVector(state));
+	}
+	
 	@Override
 	public float[] createDenseVector(ItState<N> state)
 	{
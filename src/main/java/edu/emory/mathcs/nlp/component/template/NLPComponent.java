@@ -15,7 +15,10 @@
  */
 package edu.emory.mathcs.nlp.component.template;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 
@@ -29,4 +32,19 @@ public interface NLPComponent<N extends AbstractNLPNode<N>>
 	
 	/** Processes a document. */
 	void process(List<N[]> document);
+	
+	/**
+	 * Processes the sentences in parallel using the executor; each sentence is processed by {@link #process(AbstractNLPNode[])}.
+	 * @return the sentences in the input order once all of them are processed.
+	 */
+	default List<N[]> process(List<N[]> sentences, Executor executor)
+	{
+		List<CompletableFuture<Void>> futures = new ArrayList<>(sentences.size());
+		
+		for (N[] nodes : sentences)
+			futures.add(CompletableFuture.runAsync(() -> process(nodes), executor));
+		
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+		return sentences;
+	}
 }
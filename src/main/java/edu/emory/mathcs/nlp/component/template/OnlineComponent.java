@@ -17,7 +17,10 @@ package edu.emory.mathcs.nlp.component.template;
 
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import edu.emory.mathcs.nlp.component.template.config.NLPConfig;
 import edu.emory.mathcs.nlp.component.template.eval.Eval;
@@ -27,8 +30,10 @@ import edu.emory.mathcs.nlp.component.template.state.NLPState;
 import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
 import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
 import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
+import edu.emory.mathcs.nlp.learning.util.FeatureMap;
 import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
 import edu.emory.mathcs.nlp.learning.util.MLUtils;
 
 /**
@@ -40,6 +45,7 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 	protected FeatureTemplate<N,S> feature_template;
 	protected boolean              document_based;
 	protected OnlineOptimizer      optimizer;
+	protected boolean              frozen;
 	
 	// for training and development
 	protected transient HyperParameter hyper_parameter;
@@ -115,6 +121,9 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 	
 	public void setFlag(NLPFlag flag)
 	{
+		if (frozen && flag != NLPFlag.DECODE)
+			throw new IllegalStateException("A frozen component can only decode: "+flag);
+		
 		this.flag = flag;
 		
 		if (flag == NLPFlag.EVALUATE && eval == null)
@@ -152,17 +161,67 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 	
 	public boolean isTrain()
 	{
-		return flag == NLPFlag.TRAIN;
+		return !frozen && flag == NLPFlag.TRAIN;
 	}
 	
+	/** @return true if the decode flag is set or this component is frozen. */
 	public boolean isDecode()
 	{
-		return flag == NLPFlag.DECODE;
+		return frozen || flag == NLPFlag.DECODE;
 	}
 	
 	public boolean isEvaluate()
 	{
-		return flag == NLPFlag.EVALUATE;
+		return !frozen && flag == NLPFlag.EVALUATE;
+	}
+	
+//	============================== FREEZE ==============================
+	
+	/**
+	 * Converts this component into an immutable decode-only model: the feature template, the label map,
+	 * and the weights become compact read-only structures, and everything used only for training is released.
+	 * A frozen component always decodes regardless of its flag, so one instance can be shared by multiple threads without locks
+	 * (e.g., through {@link #process(List, Executor)}).
+	 */
+	public void freeze()
+	{
+		feature_template.freeze();
+		optimizer.freeze();
+		hyper_parameter = null;
+		eval   = null;
+		flag   = NLPFlag.DECODE;
+		frozen = true;
+	}
+	
+	public boolean isFrozen()
+	{
+		return frozen;
+	}
+	
+//	============================== MIX ==============================
+	
+	/**
+	 * Replaces the weights of this component with the average weights of the specific components (iterative parameter mixing),
+	 * where each component is a copy of this component trained on different data.
+	 * The features and the labels added by the copies are merged into this component first so that their indices line up.
+	 */
+	public void mix(List<? extends OnlineComponent<N,S>> components)
+	{
+		FeatureMap featureMap = feature_template.getFeatureMap();
+		LabelMap   labelMap   = optimizer.getLabelMap();
+		List<OnlineOptimizer> optimizers = new ArrayList<>();
+		List<int[]> features = new ArrayList<>();
+		List<int[]> labels   = new ArrayList<>();
+		
+		for (OnlineComponent<N,S> component : components)
+		{
+			features.add(featureMap.merge(component.feature_template.getFeatureMap()));
+			labels  .add(labelMap  .merge(component.optimizer.getLabelMap()));
+			optimizers.add(component.optimizer);
+		}
+		
+		optimizer.mix(optimizers, features, labels);
+		for (int i=0; i<labelMap.size(); i++) putLabel(labelMap.getLabel(i), i);
 	}
 	
 //	============================== PROCESS ==============================
@@ -180,6 +239,61 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 		else for (N[] nodes : document) process(nodes);
 	}
 	
+	/**
+	 * Processes the document whose sentences are given by the iterator.
+	 * By default, the sentences are collected and processed by {@link #process(List)};
+	 * components returning {@code true} for {@link #isStreaming()} process them as they are read without keeping the document.
+	 */
+	public void process(Iterator<N[]> document)
+	{
+		List<N[]> list = new ArrayList<>();
+		while (document.hasNext()) list.add(document.next());
+		process(list);
+	}
+	
+	/** @return {@code true} if {@link #process(Iterator)} does not keep the whole document in memory. */
+	public boolean isStreaming()
+	{
+		return false;
+	}
+	
+	/**
+	 * Processes the nodes as {@link #process(AbstractNLPNode[])}, then puts their gold labels back unless decoding,
+	 * so the same nodes can be processed again (e.g., replayed from a cache every epoch).
+	 */
+	public void processAndRestore(N[] nodes)
+	{
+		S state = process(initState(nodes));
+		if (!isDecode()) state.resetOracle();
+	}
+	
+	/** Processes the document as {@link #process(List)}, then puts the gold labels back; see {@link #processAndRestore(AbstractNLPNode[])}. */
+	public void processAndRestore(List<N[]> document)
+	{
+		if (document_based)
+		{
+			S state = process(initState(document));
+			if (!isDecode()) state.resetOracle();
+		}
+		else
+			for (N[] nodes : document) processAndRestore(nodes);
+	}
+	
+	/**
+	 * Decodes the sentences in parallel using the executor.
+	 * While decoding, the feature template and the optimizer are only read, so the workers share them;
+	 * each sentence gets its own state, and only its nodes are modified.
+	 * @return the sentences in the input order once all of them are decoded.
+	 * @throws IllegalStateException if this component is document-based or not in the decode mode.
+	 */
+	@Override
+	public List<N[]> process(List<N[]> sentences, Executor executor)
+	{
+		if (document_based) throw new IllegalStateException("Batch decoding is not supported for document-based components.");
+		if (!isDecode())    throw new IllegalStateException("Batch decoding requires the decode flag: "+flag);
+		return NLPComponent.super.process(sentences, executor);
+	}
+	
 	/** Process the sequence of the nodes given the state. */
 	public S process(S state)
 	{
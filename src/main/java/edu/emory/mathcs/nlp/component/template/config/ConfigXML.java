@@ -42,6 +42,9 @@ public interface ConfigXML
 	String FIELD_COREF	= "coref";
 	
 	String DOCUMENT_BASED = "document_based";
+	String CACHE		= "cache";
+	String PREFETCH		= "prefetch";
+	String CONFIGURED_COLUMNS_ONLY = "configured_columns_only";
 	
 //	========================== OPTIMIZER ==========================
 
@@ -55,6 +58,14 @@ public interface ConfigXML
 	
 	String DECAYING_RATE		= "decaying_rate";
 	String THREAD_SIZE			= "thread_size";
+	String BATCH_THREAD_SIZE	= "batch_thread_size";
+	
+//	========================== WEIGHT VECTOR ==========================
+	
+	String WEIGHT_VECTOR		= "weight_vector";
+	String GAP_LIST				= "gap-list";
+	String ARRAY				= "array";
+	String DIRECT				= "direct";
 	
 //	========================== LOCALLY OPTIMAL LEARNING to SEARCH ==========================
 	
@@ -72,6 +83,7 @@ public interface ConfigXML
 
 	String ALGORITHM			= "algorithm";
 	String PERCEPTRON			= "perceptron";
+	String AVERAGED_PERCEPTRON	= "averaged-perceptron";
 	String SOFTMAX_REGRESSION	= "softmax-regression";
 	String ADAGRAD				= "adagrad";
 	String ADAGRAD_MINI_BATCH	= "adagrad-mini-batch";
@@ -92,6 +104,10 @@ public interface ConfigXML
 	String WEIGHT_GENERATOR		= "weight_generator";
 	String DROPOUT_PROB			= "dropout_prob";
 
+//	========================== DECODING ==========================
+	
+	String BEAM_SIZE			= "beam_size";
+
 //	========================== FEATURE TEMPLATE ==========================
 	
 	String FEATURE_TEMPLATE = "feature_template";	
@@ -36,15 +36,20 @@ import edu.emory.mathcs.nlp.learning.activation.SoftmaxFunction;
 import edu.emory.mathcs.nlp.learning.activation.SoftplusFunction;
 import edu.emory.mathcs.nlp.learning.initialization.RandomWeightGenerator;
 import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+import edu.emory.mathcs.nlp.learning.neural.FeedForwardNeuralNetwork;
 import edu.emory.mathcs.nlp.learning.neural.FeedForwardNeuralNetworkSoftmax;
 import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
 import edu.emory.mathcs.nlp.learning.optimization.method.AdaDeltaMiniBatch;
 import edu.emory.mathcs.nlp.learning.optimization.method.AdaGrad;
 import edu.emory.mathcs.nlp.learning.optimization.method.AdaGradMiniBatch;
 import edu.emory.mathcs.nlp.learning.optimization.method.AdaGradRegression;
+import edu.emory.mathcs.nlp.learning.optimization.method.AveragedPerceptron;
 import edu.emory.mathcs.nlp.learning.optimization.method.Perceptron;
 import edu.emory.mathcs.nlp.learning.optimization.method.SoftmaxRegression;
 import edu.emory.mathcs.nlp.learning.optimization.reguralization.RegularizedDualAveraging;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorDirectVector;
+import edu.emory.mathcs.nlp.learning.util.RowMajorArrayVector;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
@@ -89,6 +94,27 @@ public class NLPConfig<N extends AbstractNLPNode<N>> implements ConfigXML
 		return language == null ? Language.ENGLISH : Language.getType(language);
 	}
 	
+	/** @return true if the training and development files should be read once and cached in memory ({@link ConfigXML#CACHE} in {@link ConfigXML#TSV}). */
+	public boolean isCorpusCached()
+	{
+		Element eTSV = XMLUtils.getFirstElementByTagName(xml, TSV);
+		return eTSV != null && Boolean.parseBoolean(XMLUtils.getTextContentFromFirstElementByTagName(eTSV, CACHE));
+	}
+	
+	/** @return the number of input files to read ahead by background threads ({@link ConfigXML#PREFETCH} in {@link ConfigXML#TSV}); 0 if the files are read by the processing thread. */
+	public int getPrefetchSize()
+	{
+		Element eTSV = XMLUtils.getFirstElementByTagName(xml, TSV);
+		return (eTSV != null) ? Math.max(0, XMLUtils.getIntegerTextContentFromFirstElementByTagName(eTSV, PREFETCH)) : 0;
+	}
+	
+	/** @return true if only the configured columns of the input files should be decoded ({@link ConfigXML#CONFIGURED_COLUMNS_ONLY} in {@link ConfigXML#TSV}). */
+	public boolean isConfiguredColumnsOnly()
+	{
+		Element eTSV = XMLUtils.getFirstElementByTagName(xml, TSV);
+		return eTSV != null && Boolean.parseBoolean(XMLUtils.getTextContentFromFirstElementByTagName(eTSV, CONFIGURED_COLUMNS_ONLY));
+	}
+	
 	public Object2IntMap<String> getReaderFieldMap()
 	{
 		Element eTSV = XMLUtils.getFirstElementByTagName(xml, TSV);
@@ -127,6 +153,8 @@ public class NLPConfig<N extends AbstractNLPNode<N>> implements ConfigXML
 		
 		int     feautureCutoff = XMLUtils.getIntegerTextContentFromFirstElementByTagName(eOptimizer, FEATURE_CUTOFF);
 		int     batchSize      = XMLUtils.getIntegerTextContentFromFirstElementByTagName(eOptimizer, BATCH_SIZE);
+		int     threadSize     = XMLUtils.getIntegerTextContentFromFirstElementByTagName(eOptimizer, THREAD_SIZE);
+		int     batchThreads   = XMLUtils.getIntegerTextContentFromFirstElementByTagName(eOptimizer, BATCH_THREAD_SIZE);
 		int     maxEpoch       = XMLUtils.getIntegerTextContentFromFirstElementByTagName(eOptimizer, MAX_EPOCH);
 		float   learningRate   = XMLUtils.getFloatTextContentFromFirstElementByTagName  (eOptimizer, LEARNING_RATE);
 		float   decayingRate   = XMLUtils.getFloatTextContentFromFirstElementByTagName  (eOptimizer, DECAYING_RATE);
@@ -155,6 +183,8 @@ public class NLPConfig<N extends AbstractNLPNode<N>> implements ConfigXML
 		
 		hp.setFeature_cutoff(feautureCutoff);
 		hp.setBatchSize(batchSize);
+		hp.setThreadSize(threadSize);
+		hp.setBatchThreadSize(batchThreads);
 		hp.setMaxEpochs(maxEpoch);
 		hp.setLearningRate(learningRate);
 		hp.setDecayingRate(decayingRate);
@@ -175,21 +205,41 @@ public class NLPConfig<N extends AbstractNLPNode<N>> implements ConfigXML
 	{
 		Element eOptimizer = XMLUtils.getFirstElementByTagName(xml, OPTIMIZER);
 		String  algorithm  = XMLUtils.getTextContentFromFirstElementByTagName(eOptimizer, ALGORITHM);
-		WeightVector w = new WeightVector();
+		WeightVector w = getWeightVector(eOptimizer);
+		FeedForwardNeuralNetwork ffnn;
 		
 		switch (algorithm)
 		{
 		case PERCEPTRON         : return new Perceptron(w, hp.getLearningRate(), hp.getBias());
+		case AVERAGED_PERCEPTRON: return new AveragedPerceptron(w, hp.getLearningRate(), hp.getBias());
 		case SOFTMAX_REGRESSION : return new SoftmaxRegression(w, hp.getLearningRate(), hp.getBias());
 		case ADAGRAD_REGRESSION : return new AdaGradRegression(w, hp.getLearningRate(), hp.getBias());
 		case ADAGRAD            : return new AdaGrad(w, hp.getLearningRate(), hp.getBias(), hp.getL1Regularizer());
 		case ADAGRAD_MINI_BATCH : return new AdaGradMiniBatch(w, hp.getLearningRate(), hp.getBias(), hp.getL1Regularizer());
 		case ADADELTA_MINI_BATCH: return new AdaDeltaMiniBatch(w, hp.getLearningRate(), hp.getDecayingRate(), hp.getBias(), hp.getL1Regularizer());
-		case FFNN_SOFTMAX       : return new FeedForwardNeuralNetworkSoftmax(hp.getHiddenDimensions(), hp.getActivationFunctions(), hp.getLearningRate(), hp.getBias(), hp.getWeightGenerator(), hp.getDropoutProb());
+		case FFNN_SOFTMAX       :
+			ffnn = new FeedForwardNeuralNetworkSoftmax(w, hp.getHiddenDimensions(), hp.getActivationFunctions(), hp.getLearningRate(), hp.getBias(), hp.getWeightGenerator(), hp.getDropoutProb());
+			ffnn.setMiniBatch(hp.getBatchSize() > 0, hp.getBatchThreadSize());
+			return ffnn;
 		default: throw new IllegalArgumentException(algorithm+" is not a valid algorithm name."); 
 		}
 	}
 	
+	/** @return the weight vector whose storage is specified by {@link ConfigXML#WEIGHT_VECTOR} (default: {@link ConfigXML#GAP_LIST}). */
+	private WeightVector getWeightVector(Element eOptimizer)
+	{
+		String type = XMLUtils.getTextContentFromFirstElementByTagName(eOptimizer, WEIGHT_VECTOR);
+		if (type == null || type.isEmpty()) return new WeightVector();
+		
+		switch (type)
+		{
+		case GAP_LIST: return new WeightVector();
+		case ARRAY   : return new WeightVector(new ColumnMajorArrayVector(), new RowMajorArrayVector(), null);
+		case DIRECT  : return new WeightVector(new ColumnMajorDirectVector(), new RowMajorArrayVector(), null);
+		default: throw new IllegalArgumentException(type+" is not a valid weight vector type.");
+		}
+	}
+	
 	private int[] getHiddenDimensions(Element eOptimizer)
 	{
 		String hidden = XMLUtils.getTextContentFromFirstElementByTagName(eOptimizer, HIDDEN_DIMENSIONS);
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.feature;
+
+import java.util.Collection;
+
+/**
+ * 64-bit hashes used by the hashed feature extraction in {@link FeatureTemplate}.
+ * Hashes of non-null values are never 0 so that 0 can stand for a missing value.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FeatureHash
+{
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME  = 0x100000001b3L;
+	private static final long SEPARATOR  = '_';
+	
+	/** @return the hash of the specific string if not null; otherwise, 0. */
+	static public long hash(CharSequence s)
+	{
+		return (s == null) ? 0 : hash(s, 0, s.length());
+	}
+	
+	/** @return the hash of {@code s.subSequence(beginIndex, endIndex)} without creating the subsequence. */
+	static public long hash(CharSequence s, int beginIndex, int endIndex)
+	{
+		long h = FNV_OFFSET;
+		
+		for (int i=beginIndex; i<endIndex; i++)
+		{
+			h ^= s.charAt(i);
+			h *= FNV_PRIME;
+		}
+		
+		return finish(h);
+	}
+	
+	/** @return the hash of the values in the collection joined in the iteration order; 0 if the collection is null or empty. */
+	static public long hash(Collection<String> values)
+	{
+		if (values == null || values.isEmpty()) return 0;
+		long h = FNV_OFFSET;
+		
+		for (String s : values)
+		{
+			for (int i=0; i<s.length(); i++)
+			{
+				h ^= s.charAt(i);
+				h *= FNV_PRIME;
+			}
+			
+			h ^= SEPARATOR;
+			h *= FNV_PRIME;
+		}
+		
+		return finish(h);
+	}
+	
+	/** @return the hash of the specific number. */
+	static public long hash(long value)
+	{
+		return finish(value);
+	}
+	
+	/** @return the hash of the two hashes in order. */
+	static public long combine(long h1, long h2)
+	{
+		return finish(h1 * FNV_PRIME + h2);
+	}
+	
+	/** @return the murmur3 finalizer of the specific value, shifted away from 0. */
+	static private long finish(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (h == 0) ? 1 : h;
+	}
+}
@@ -37,15 +37,18 @@ import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.node.Orthographic;
 import edu.emory.mathcs.nlp.component.template.state.NLPState;
 import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
-import edu.emory.mathcs.nlp.learning.util.ColumnMajorVector;
 import edu.emory.mathcs.nlp.learning.util.FeatureMap;
 import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.MajorVector;
 import edu.emory.mathcs.nlp.learning.util.SparseVector;
 import edu.emory.mathcs.nlp.learning.util.StringPrediction;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMaps;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap.Entry;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
@@ -55,6 +58,11 @@ import it.unimi.dsi.fastutil.objects.ObjectIterator;
 public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>> implements Serializable
 {
 	private static final long serialVersionUID = -6755594173767815098L;
+	/** The orthographic features in the order they are added; see {@link #getOrthographicFlags(NLPState, AbstractNLPNode, boolean)}. */
+	static private final String[] ORTHOGRAPHIC = {Orthographic.HYPERLINK, Orthographic.ALL_UPPER, Orthographic.ALL_LOWER, Orthographic.ALL_DIGIT, Orthographic.ALL_PUNCT, Orthographic.ALL_DIGIT_OR_PUNCT, Orthographic.NO_LOWER,
+	                                              Orthographic.FST_UPPER, Orthographic.UPPER_1, Orthographic.UPPER_2, Orthographic.HAS_DIGIT, Orthographic.HAS_PERIOD, Orthographic.HAS_HYPHEN, Orthographic.HAS_OTHER_PUNCT};
+	static private final long[] ORTHOGRAPHIC_HASHES = new long[ORTHOGRAPHIC.length];
+	static {for (int i=0; i<ORTHOGRAPHIC.length; i++) ORTHOGRAPHIC_HASHES[i] = FeatureHash.hash(ORTHOGRAPHIC[i]);}
 
 	protected List<FeatureItem[]>   feature_list;
 	protected List<FeatureItem>     feature_set;
@@ -64,6 +72,14 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 	protected FeatureMap            feature_map;
 	protected int                   cutoff;
 	
+	/** If true, features are hashed to 64-bit keys instead of being looked up as strings. */
+	protected boolean               hashed;
+	protected Long2IntMap           hashed_feature_count;
+	
+	// while multiple threads train, each thread counts features on its own; see #setConcurrent(boolean)
+	protected transient ThreadLocal<FeatureCount> thread_count;
+	protected transient List<FeatureCount>        thread_counts;
+	
 	public FeatureTemplate(Element eFeatures, HyperParameter hp)
 	{
 		feature_list    = new ArrayList<>();
@@ -71,9 +87,11 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		word_embeddings = new ArrayList<>();
 
 		feature_count   = new Object2IntOpenHashMap<String>();
+		hashed_feature_count = new Long2IntOpenHashMap();
 		feature_map     = new FeatureMap();
 		
 		setCutoff(hp.getFeature_cutoff());
+		setHashed(eFeatures != null && XMLUtils.getBooleanAttribute(eFeatures, "hashed"));
 		init(eFeatures);
 	}
 	
@@ -200,6 +218,17 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		word_embeddings.add(item);
 	}
 	
+	public FeatureMap getFeatureMap()
+	{
+		return feature_map;
+	}
+	
+	/** Do not use this method unless you know what you are doing. */
+	public void setFeatureMap(FeatureMap map)
+	{
+		feature_map = map;
+	}
+	
 	public int getSparseFeatureSize()
 	{
 		return feature_map.size();
@@ -220,25 +249,48 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		this.cutoff = cutoff;
 	}
 	
+	public boolean isHashed()
+	{
+		return hashed;
+	}
+	
+	public void setHashed(boolean hashed)
+	{
+		this.hashed = hashed;
+	}
+	
+	/** Makes this template read-only for decoding; features are no longer counted or added. */
+	public void freeze()
+	{
+		feature_count = Object2IntMaps.emptyMap();
+		hashed_feature_count = Long2IntMaps.EMPTY_MAP;
+		feature_map.freeze();
+	}
+	
 	public void clearFeatureCount()
 	{
 		feature_count.clear();
+		if (hashed_feature_count != null) hashed_feature_count.clear();
 	}
 	
 	public void initFeatureCount()
 	{
 		feature_count = new Object2IntOpenHashMap<String>();
+		hashed_feature_count = new Long2IntOpenHashMap();
 	}
 	
 //	============================== EXTRACTOR ==============================
 	
 	public FeatureVector createFeatureVector(S state, boolean isTrain)
 	{
-		return new FeatureVector(createSparseVector(state, isTrain), createDenseVector(state));
+		FeatureVector x = new FeatureVector(createSparseVector(state, isTrain));
+		setDenseVector(state, x, isTrain);
+		return x;
 	}
 	
 	public SparseVector createSparseVector(S state, boolean isTrain)
 	{
+		if (hashed) return createHashedSparseVector(state, isTrain);
 		SparseVector x = new SparseVector();
 		Collection<String> t;
 		int i, type = 0;
@@ -266,7 +318,7 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 			int index;
 			
 			if (isTrain)
-				index = FastUtils.increment(feature_count, type+value) > cutoff ? feature_map.add(type, value) : -1;
+				index = addFeature(type, value);
 			else
 				index = feature_map.index(type, value);
 			
@@ -274,6 +326,247 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		}
 	}
 	
+//	============================== HASHED FEATURES ==============================
+	
+	/**
+	 * Creates the same features as {@link #createSparseVector(NLPState, boolean)}, but each feature is a 64-bit hash
+	 * of its type and values, so no feature string is created for either single or set features.
+	 */
+	protected SparseVector createHashedSparseVector(S state, boolean isTrain)
+	{
+		SparseVector x = new SparseVector();
+		int i, type = 0;
+		
+		for (i=0; i<feature_set.size(); i++,type++)
+			addFeatureHashes(x, type, state, feature_set.get(i), isTrain);
+		
+		for (i=0; i<feature_list.size(); i++,type++)
+			add(x, type, getFeatureHash(state, feature_list.get(i)), 1, isTrain);
+		
+		return x;
+	}
+	
+	/** @param value the hash of the feature value; {@code 0} if the feature does not exist. */
+	protected void add(SparseVector x, int type, long value, float weight, boolean isTrain)
+	{
+		if (value != 0)
+		{
+			long key = FeatureHash.combine(type, value);
+			int index;
+			
+			if (isTrain)
+				index = addFeature(key);
+			else
+				index = feature_map.index(key);
+			
+			if (index > 0) x.add(index, weight);
+		}
+	}
+	
+	/**
+	 * Counts the specific feature and adds it to the feature map if its count exceeds the cutoff.
+	 * @return the index of the feature if added; otherwise, {@code -1}.
+	 */
+	protected int addFeature(int type, String value)
+	{
+		int count = (thread_count != null) ? thread_count.get().increment(type, value) : FastUtils.increment(feature_count, type+value);
+		return count > cutoff ? feature_map.add(type, value) : -1;
+	}
+	
+	/** Hashed version of {@link #addFeature(int, String)}. */
+	protected int addFeature(long key)
+	{
+		Long2IntMap map = (thread_count != null) ? thread_count.get().hashes : hashed_feature_count;
+		return map.addTo(key, 1) + 1 > cutoff ? feature_map.add(key) : -1;
+	}
+	
+	/**
+	 * Lets multiple threads train with this template at once: each thread counts features on its own,
+	 * and the counts are merged when this is set back to {@code false}, adding the features whose merged counts exceed the cutoff.
+	 */
+	public void setConcurrent(boolean concurrent)
+	{
+		if (concurrent)
+		{
+			List<FeatureCount> counts = new ArrayList<>();
+			thread_counts = counts;
+			thread_count  = ThreadLocal.withInitial(() -> {FeatureCount c = new FeatureCount(); synchronized (counts) {counts.add(c);} return c;});
+		}
+		else if (thread_counts != null)
+		{
+			for (FeatureCount c : thread_counts) merge(c);
+			thread_count  = null;
+			thread_counts = null;
+		}
+	}
+	
+	private void merge(FeatureCount c)
+	{
+		String key;
+		int count;
+		
+		for (int type=0; type<c.strings.size(); type++)
+		{
+			for (Entry<String> e : c.strings.get(type).object2IntEntrySet())
+			{
+				key   = type + e.getKey();
+				count = feature_count.getInt(key) + e.getIntValue();
+				feature_count.put(key, count);
+				if (count > cutoff) feature_map.add(type, e.getKey());
+			}
+		}
+		
+		for (Long2IntMap.Entry e : c.hashes.long2IntEntrySet())
+		{
+			count = hashed_feature_count.addTo(e.getLongKey(), e.getIntValue()) + e.getIntValue();
+			if (count > cutoff) feature_map.add(e.getLongKey());
+		}
+	}
+	
+	/** Feature counts of a thread; string features are counted by their types so that they can be added to the feature map when merged. */
+	static protected class FeatureCount
+	{
+		List<Object2IntMap<String>> strings = new ArrayList<>();
+		Long2IntMap hashes = new Long2IntOpenHashMap();
+		
+		int increment(int type, String value)
+		{
+			for (int i=strings.size(); i<=type; i++)
+				strings.add(new Object2IntOpenHashMap<>());
+			
+			return FastUtils.increment(strings.get(type), value);
+		}
+	}
+	
+	/** @return the hash of the joined feature; {@code 0} if any of the features does not exist. */
+	protected long getFeatureHash(S state, FeatureItem... items)
+	{
+		if (items.length == 1)
+			return getFeatureHash(state, items[0]);
+		
+		long h = 0, f;
+		
+		for (FeatureItem item : items)
+		{
+			f = getFeatureHash(state, item);
+			if (f == 0) return 0;
+			h = FeatureHash.combine(h, f);
+		}
+		
+		return h;
+	}
+	
+	protected long getFeatureHash(S state, FeatureItem item)
+	{
+		N node = state.getNode(item);
+		return (node == null) ? 0 : getFeatureHash(state, item, node);
+	}
+	
+	/** Hashed version of {@link #getFeature(NLPState, FeatureItem, AbstractNLPNode)}; the hashes of node values are cached by the node. */
+	protected long getFeatureHash(S state, FeatureItem item, N node)
+	{
+		switch (item.field)
+		{
+		case word_form:
+		case word_form_lowercase:
+		case word_form_simplified:
+		case word_form_undigitalized:
+		case word_form_simplified_lowercase:
+		case word_shape:
+		case word_shape_lowercase:
+		case lemma:
+		case part_of_speech_tag:
+		case named_entity_tag:
+		case dependency_label:
+		case ambiguity_classes:
+		case named_entity_gazetteers: return node.getValueHash(item.field);
+		case prefix : return getPrefixHash(node, (Integer)item.attribute);
+		case suffix : return getSuffixHash(node, (Integer)item.attribute);
+		case feats  : return FeatureHash.hash(node.getFeat((String)item.attribute));
+		case valency: return getValencyHash(node, (Direction)item.attribute);
+		// fields added by subclasses are hashed from their string values
+		default: return FeatureHash.hash(getFeature(state, item, node));
+		}
+	}
+	
+	/** @see #getPrefix(AbstractNLPNode, int) */
+	protected long getPrefixHash(N node, int n)
+	{
+		String s = node.getWordFormSimplifiedLowercase();
+		return (n < s.length()) ? FeatureHash.hash(s, 0, n) : 0;
+	}
+	
+	/** @see #getSuffix(AbstractNLPNode, int) */
+	protected long getSuffixHash(N node, int n)
+	{
+		String s = node.getWordFormSimplifiedLowercase();
+		return (n < s.length()) ? FeatureHash.hash(s, s.length()-n, s.length()) : 0;
+	}
+	
+	/** Encodes {@link AbstractNLPNode#getValency(Direction)} as the numbers of left and right dependents (up to 2 each). */
+	protected long getValencyHash(N node, Direction direction)
+	{
+		int left  = (node.getLeftMostDependent()  == null) ? 0 : (node.getLeftMostDependent (1) == null) ? 1 : 2;
+		int right = (node.getRightMostDependent() == null) ? 0 : (node.getRightMostDependent(1) == null) ? 1 : 2;
+		
+		switch (direction)
+		{
+		case left : return FeatureHash.hash(left);
+		case right: return FeatureHash.hash(right);
+		case all  : return FeatureHash.hash(left * 3 + right);
+		default: return FeatureHash.hash(node.getValency(direction));
+		}
+	}
+	
+	/** Hashed version of {@link #getFeatures(NLPState, FeatureItem)}; the hash of each feature is added to {@code x}. */
+	protected void addFeatureHashes(SparseVector x, int type, S state, FeatureItem item, boolean isTrain)
+	{
+		N node = state.getNode(item);
+		if (node == null) return;
+		
+		switch (item.field)
+		{
+		case positional:
+			if      (state.isFirst(node)) add(x, type, FeatureHash.hash(0), 1, isTrain);
+			else if (state.isLast (node)) add(x, type, FeatureHash.hash(1), 1, isTrain);
+			break;
+		case orthographic:
+		case orthographic_lowercase:
+			int flags = getOrthographicFlags(state, node, item.field == Field.orthographic);
+			for (int i=0; i<ORTHOGRAPHIC.length; i++) if ((flags & (1 << i)) != 0) add(x, type, ORTHOGRAPHIC_HASHES[i], 1, isTrain);
+			break;
+		case ambiguity_classes: addFeatureHashes(x, type, node.getAmbiguityClasseList(), isTrain); break;
+		case named_entity_gazetteers: addFeatureHashes(x, type, node.getNamedEntityGazetteerSet(), isTrain); break;
+		case word_clusters: addFeatureHashes(x, type, node.getWordClusters(), isTrain); break;
+		case dependent_set: addDependentHashes(x, type, node, (Field)item.attribute, isTrain); break;
+		// fields added by subclasses are hashed from their string values
+		default: addFeatureHashes(x, type, getFeatures(state, item, node), isTrain); break;
+		}
+	}
+	
+	protected void addFeatureHashes(SparseVector x, int type, Collection<String> values, boolean isTrain)
+	{
+		if (values != null) for (String s : values) add(x, type, FeatureHash.hash(s), 1, isTrain);
+	}
+	
+	/** Hashed version of {@link AbstractNLPNode#getDependentValueSet(Field)}; each distinct value is added once. */
+	protected void addDependentHashes(SparseVector x, int type, N node, Field field, boolean isTrain)
+	{
+		List<N> dependents = node.getDependentList();
+		long h;
+		int i, j;
+		
+		outer: for (i=0; i<dependents.size(); i++)
+		{
+			h = dependents.get(i).getValueHash(field);
+			
+			for (j=0; j<i; j++)
+				if (dependents.get(j).getValueHash(field) == h) continue outer;
+			
+			add(x, type, h, 1, isTrain);
+		}
+	}
+	
 //	============================== SINGLE FEATURES ==============================
 	
 	/** Called by {@link #extractFeatures()}. */
@@ -368,22 +661,25 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 	
 	protected List<String> getOrthographicFeatures(S state, N node, boolean caseSensitive)
 	{
+		int flags = getOrthographicFlags(state, node, caseSensitive);
+		if (flags == 0) return null;
 		List<String> list = new ArrayList<>();
 		
-		if (MetaConst.HYPERLINK.equals(node.getWordFormSimplified()))
-			list.add(Orthographic.HYPERLINK);
-		else
-		{
-			char[] cs = node.getWordFormSimplified().toCharArray();
-			getOrthographicFeauturesAux(list, cs, state.isFirst(node), caseSensitive);
-		}
+		for (int i=0; i<ORTHOGRAPHIC.length; i++)
+			if ((flags & (1 << i)) != 0) list.add(ORTHOGRAPHIC[i]);
 		
-		return list.isEmpty() ? null : list;
+		return list;
 	}
 	
-	/** Called by {@link #getOrthographic(boolean)}. */
-	protected void getOrthographicFeauturesAux(List<String> list, char[] cs, boolean isFirst, boolean caseSensitive)
+	/**
+	 * Called by {@link #getOrthographicFeatures(NLPState, AbstractNLPNode, boolean)} and {@link #addFeatureHashes(SparseVector, int, NLPState, FeatureItem, boolean)}.
+	 * @return the orthographic features of the node, where the i'th bit stands for {@code ORTHOGRAPHIC[i]}.
+	 */
+	protected int getOrthographicFlags(S state, N node, boolean caseSensitive)
 	{
+		String s = node.getWordFormSimplified();
+		if (MetaConst.HYPERLINK.equals(s)) return 1;
+		
 		boolean hasDigit  = false;
 		boolean hasPeriod = false;
 		boolean hasHyphen = false;
@@ -396,14 +692,15 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		boolean noLower   = true;
 		boolean allDigitOrPunct = true;
 		int     countUpper = 0;
+		int     flags = 0;
 		
 		boolean upper, lower, punct, digit;
-		int i, size = cs.length;
+		int i, size = s.length();
 		char c;
 		
 		for (i=0; i<size; i++)
 		{
-			c = cs[i];
+			c = s.charAt(i);
 			
 			upper = CharUtils.isUpperCase(c);
 			lower = CharUtils.isLowerCase(c);
@@ -438,36 +735,38 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		}
 		
 		if (allUpper)
-			{if (caseSensitive) list.add(Orthographic.ALL_UPPER);}
+			{if (caseSensitive) flags |= 1 << 1;}
 		else if (allLower)
-			{if (caseSensitive) list.add(Orthographic.ALL_LOWER);}
+			{if (caseSensitive) flags |= 1 << 2;}
 		else if (allDigit)
-			list.add(Orthographic.ALL_DIGIT);
+			flags |= 1 << 3;
 		else if (allPunct)
-			list.add(Orthographic.ALL_PUNCT);
+			flags |= 1 << 4;
 		else if (allDigitOrPunct)
-			list.add(Orthographic.ALL_DIGIT_OR_PUNCT);
+			flags |= 1 << 5;
 		else if (noLower)
-			{if (caseSensitive) list.add(Orthographic.NO_LOWER);}
+			{if (caseSensitive) flags |= 1 << 6;}
 		
 		if (caseSensitive && !allUpper)
 		{
-			if (fstUpper && !isFirst)
-				list.add(Orthographic.FST_UPPER);
+			if (fstUpper && !state.isFirst(node))
+				flags |= 1 << 7;
 			if (countUpper == 1)
-				list.add(Orthographic.UPPER_1);
+				flags |= 1 << 8;
 			else if (countUpper > 1)
-				list.add(Orthographic.UPPER_2);
+				flags |= 1 << 9;
 		}
 		
 		if (!allDigit && hasDigit)
-			list.add(Orthographic.HAS_DIGIT);
+			flags |= 1 << 10;
 		
-		if (hasPeriod)	list.add(Orthographic.HAS_PERIOD);
-		if (hasHyphen)	list.add(Orthographic.HAS_HYPHEN);
+		if (hasPeriod)	flags |= 1 << 11;
+		if (hasHyphen)	flags |= 1 << 12;
 		
 		if (!allPunct && !hasPeriod && !hasHyphen && hasPunct)
-			list.add(Orthographic.HAS_OTHER_PUNCT);
+			flags |= 1 << 13;
+		
+		return flags;
 	}
 	
 //	============================== SET FEATURES WEIGHTED ==============================
@@ -489,12 +788,47 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		return getEmbeddings(state);
 	}
 	
+	/**
+	 * Sets the word embeddings of the nodes to {@code x} as slots instead of concatenating them (see {@link #getEmbeddings(NLPState)}).
+	 * Unless training, the slots are scored through the projection of the state so each embedding is multiplied by its weights once per sentence.
+	 * The embeddings are copied into the buffer of the state (see {@link NLPState#getWordEmbedding(AbstractNLPNode)}).
+	 * Subclasses with other dense features should override this method.
+	 */
+	protected void setDenseVector(S state, FeatureVector x, boolean isTrain)
+	{
+		if (word_embeddings == null || word_embeddings.isEmpty()) return;
+		float[][] slots = new float[word_embeddings.size()][];
+		int[] ids = new int[slots.length];
+		int k = 0, d = 0;
+		N node;
+		
+		for (FeatureItem item : word_embeddings)
+		{
+			node = state.getNode(item);
+			
+			if (node != null && node.hasWordEmbedding())
+			{
+				slots[k] = state.getWordEmbedding(node);
+				ids[k] = node.getID();
+				d = slots[k].length;
+			}
+			else
+				ids[k] = -1;
+			
+			k++;
+		}
+		
+		if (d == 0) return;
+		x.setDenseSlots(slots, ids, d);
+		if (!isTrain) x.setDenseProjection(state.getDenseProjection(slots.length));
+	}
+	
 	public float[] getEmbeddings(S state)
 	{
 		if (word_embeddings == null || word_embeddings.isEmpty()) return null;
-		float[] w, v = null;
+		float[] v = null;
+		int i = -1, d;
 		N node;
-		int i = -1;
 		
 		for (FeatureItem item : word_embeddings)
 		{
@@ -503,9 +837,9 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 			
 			if (node != null && node.hasWordEmbedding())
 			{
-				w = node.getWordEmbedding();
-				if (v == null) v = new float[w.length * word_embeddings.size()];
-				System.arraycopy(w, 0, v, w.length*i, w.length);
+				d = node.getWordEmbeddingDimension();
+				if (v == null) v = new float[d * word_embeddings.size()];
+				node.copyWordEmbedding(v, d*i);
 			}
 		}
 		
@@ -556,7 +890,7 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 				indexMap[i] = count++;
 		}
 		
-		MajorVector newSparse = new ColumnMajorVector();
+		MajorVector newSparse = oldSparse.createInstance();
 		ObjectIterator<Entry<String>> it;
 		int oldIndex, newIndex;
 		Entry<String> e;
@@ -591,6 +925,31 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 			}
 		}
 		
+		if (feature_map.getHashMap() != null)
+		{
+			ObjectIterator<Long2IntMap.Entry> ht = feature_map.getHashMap().long2IntEntrySet().iterator();
+			Long2IntMap.Entry h;
+			
+			while (ht.hasNext())
+			{
+				h = ht.next();
+				oldIndex = h.getIntValue();
+				newIndex = (oldIndex < indexMap.length) ? indexMap[oldIndex] : -1;
+				
+				if (newIndex > 0)
+				{
+					h.setValue(newIndex);
+					k = oldIndex * L;
+					l = newIndex * L;
+					
+					for (j=0; j<L; j++)
+						newSparse.set(l+j, oldSparse.get(k+j));
+				}
+				else
+					ht.remove();
+			}
+		}
+		
 		weights.setSparseWeightVector(newSparse);
 		feature_map.setSize(count);
 		return count;
@@ -37,8 +37,10 @@ import edu.emory.mathcs.nlp.common.util.Joiner;
 import edu.emory.mathcs.nlp.common.util.StringUtils;
 import edu.emory.mathcs.nlp.component.dep.DEPArc;
 import edu.emory.mathcs.nlp.component.template.feature.Direction;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureHash;
 import edu.emory.mathcs.nlp.component.template.feature.Field;
 import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
+import edu.emory.mathcs.nlp.component.template.util.EmbeddingStore;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
@@ -72,6 +74,10 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	protected String word_form_undigitalized;
 	protected String word_form_simplified_lowercase;
 	protected SortedArrayList<N> dependent_list;
+	protected transient String word_shape;
+	protected transient String word_shape_lowercase;
+	protected transient long[] form_hashes;
+	protected transient long[] tag_hashes;
 	
 	// lexica
 	protected Set<String>  named_entity_gazetteers;
@@ -79,6 +85,8 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	protected Set<String>  word_clusters;
 	protected float[]      word_embedding;
 	protected boolean      stop_word;
+	protected transient EmbeddingStore embedding_store;
+	protected transient int            embedding_row;
 	
 	public abstract N self();
 	
@@ -149,35 +157,54 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 		return word_form;
 	}
 	
+	/** The derived forms and shapes are computed on the first call and kept until {@link #setWordForm(String)}. */
 	public String getWordFormLowercase()
 	{
+		if (word_form_lowercase == null && word_form != null)
+			word_form_lowercase = StringUtils.toLowerCase(word_form);
+		
 		return word_form_lowercase;
 	}
 	
 	/** @see StringUtils#toSimplifiedForm(String). */
 	public String getWordFormSimplified()
 	{
+		if (word_form_simplified == null && word_form != null)
+			word_form_simplified = StringUtils.toSimplifiedForm(word_form);
+		
 		return word_form_simplified;
 	}
 	
 	public String getWordFormSimplifiedLowercase()
 	{
+		if (word_form_simplified_lowercase == null && word_form != null)
+			word_form_simplified_lowercase = StringUtils.toLowerCase(getWordFormSimplified());
+		
 		return word_form_simplified_lowercase;
 	}
 	
 	public String getWordFormUndigitalized()
 	{
+		if (word_form_undigitalized == null && word_form != null)
+			word_form_undigitalized = StringUtils.toUndigitalizedForm(word_form);
+		
 		return word_form_undigitalized;
 	}
 	
 	public String getWordShape()
 	{
-		return StringUtils.getShape(word_form_simplified, 2);
+		if (word_shape == null && word_form != null)
+			word_shape = StringUtils.getShape(getWordFormSimplified(), 2);
+		
+		return word_shape;
 	}
 	
 	public String getWordShapeLowercase()
 	{
-		return StringUtils.getShape(word_form_simplified_lowercase, 2);
+		if (word_shape_lowercase == null && word_form != null)
+			word_shape_lowercase = StringUtils.getShape(getWordFormSimplifiedLowercase(), 2);
+		
+		return word_shape_lowercase;
 	}
 	
 	public String getLemma()
@@ -227,16 +254,107 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 		}
 	}
 	
+	/**
+	 * @return the hash of the value of the specific word-form field (word forms and shapes), which is computed once per node;
+	 * {@code 0} if the field is not a word-form field or its value is null.
+	 * @see FeatureHash#hash(CharSequence)
+	 */
+	public long getFormHash(Field field)
+	{
+		int index;
+		
+		switch (field)
+		{
+		case word_form: index = 0; break;
+		case word_form_lowercase: index = 1; break;
+		case word_form_simplified: index = 2; break;
+		case word_form_undigitalized: index = 3; break;
+		case word_form_simplified_lowercase: index = 4; break;
+		case word_shape: index = 5; break;
+		case word_shape_lowercase: index = 6; break;
+		default: return 0;
+		}
+		
+		if (form_hashes == null) form_hashes = new long[7];
+		if (form_hashes[index] == 0) form_hashes[index] = FeatureHash.hash(getValue(field));
+		return form_hashes[index];
+	}
+	
+	/**
+	 * @return the hash of the value of the specific field in {@link #getValue(Field)} without joining collections into strings;
+	 * {@code 0} if the value is null. The hashes of the tags are computed once and kept until the tags are set.
+	 * @see #getFormHash(Field)
+	 */
+	public long getValueHash(Field field)
+	{
+		switch (field)
+		{
+		case lemma: return getTagHash(0, lemma);
+		case part_of_speech_tag: return getTagHash(1, pos_tag);
+		case named_entity_tag: return getTagHash(2, nament_tag);
+		case dependency_label: return getTagHash(3, dependency_label);
+		case ambiguity_classes: return FeatureHash.hash(ambiguity_classes);
+		case named_entity_gazetteers: return FeatureHash.hash(named_entity_gazetteers);
+		default: return getFormHash(field);
+		}
+	}
+	
+	/** Called by {@link #getValueHash(Field)}. */
+	private long getTagHash(int index, String tag)
+	{
+		if (tag_hashes == null) tag_hashes = new long[4];
+		if (tag_hashes[index] == 0) tag_hashes[index] = FeatureHash.hash(tag);
+		return tag_hashes[index];
+	}
+	
+	/** Called by the setters of the tags in {@link #getValueHash(Field)}. */
+	private void resetTagHash(int index)
+	{
+		if (tag_hashes != null) tag_hashes[index] = 0;
+	}
+	
 	public Set<String> getWordClusters()
 	{
 		return word_clusters;
 	}
 	
+	/** If the embedding is a row in {@link EmbeddingStore}, it is copied to the heap on the first call. */
 	public float[] getWordEmbedding()
 	{
+		if (word_embedding == null && embedding_store != null)
+			word_embedding = embedding_store.get(embedding_row);
+		
 		return word_embedding;
 	}
 	
+	/** @return the dimension of the word embedding if exists; otherwise, 0. */
+	public int getWordEmbeddingDimension()
+	{
+		if (word_embedding != null) return word_embedding.length;
+		return (embedding_store != null) ? embedding_store.getDimension() : 0;
+	}
+	
+	/** Copies the word embedding to {@code dest[offset:]} without materializing it on this node. */
+	public void copyWordEmbedding(float[] dest, int offset)
+	{
+		if (word_embedding != null)
+			System.arraycopy(word_embedding, 0, dest, offset, word_embedding.length);
+		else if (embedding_store != null)
+			embedding_store.copy(embedding_row, dest, offset);
+	}
+	
+	/** Adds the word embedding to {@code dest} without materializing it on this node. */
+	public void addWordEmbedding(float[] dest)
+	{
+		if (word_embedding != null)
+		{
+			for (int i=0; i<word_embedding.length; i++)
+				dest[i] += word_embedding[i];
+		}
+		else if (embedding_store != null)
+			embedding_store.add(embedding_row, dest);
+	}
+	
 	public String getAmbiguityClass(int index)
 	{
 		return ambiguity_classes != null && DSUtils.isRange(ambiguity_classes, index) ? ambiguity_classes.get(index) : null;
@@ -292,20 +410,25 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	public void setWordForm(String form)
 	{
 		word_form                      = form;
-		word_form_lowercase            = StringUtils.toLowerCase(word_form);
-		word_form_simplified           = StringUtils.toSimplifiedForm(form);
-		word_form_undigitalized        = StringUtils.toUndigitalizedForm(form);
-		word_form_simplified_lowercase = StringUtils.toLowerCase(word_form_simplified);
+		word_form_lowercase            = null;
+		word_form_simplified           = null;
+		word_form_undigitalized        = null;
+		word_form_simplified_lowercase = null;
+		word_shape                     = null;
+		word_shape_lowercase           = null;
+		form_hashes                    = null;
 	}
 	
 	public void setLemma(String lemma)
 	{
 		this.lemma = lemma;
+		resetTagHash(0);
 	}
 	
 	public void setPartOfSpeechTag(String tag)
 	{
 		pos_tag = tag;
+		resetTagHash(1);
 	}
 	
     public void setStartOffset(int offset)
@@ -336,6 +459,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	public void setNamedEntityTag(String tag)
 	{
 		nament_tag = tag;
+		resetTagHash(2);
 	}
 	
 	public void setAmbiguityClasses(List<String> classes)
@@ -350,7 +474,16 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 	public void setWordEmbedding(float[] embedding)
 	{
-		word_embedding = embedding;
+		word_embedding  = embedding;
+		embedding_store = null;
+	}
+	
+	/** Points the word embedding to the specific row of the store; if {@code row < 0}, the embedding is cleared. */
+	public void setWordEmbedding(EmbeddingStore store, int row)
+	{
+		word_embedding  = null;
+		embedding_store = (row < 0) ? null : store;
+		embedding_row   = row;
 	}
 	
 	public void setNamedEntityGazetteers(Set<String> gazetteers)
@@ -385,7 +518,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 	public boolean isSimplifiedWordForm(String form)
 	{
-		return form.equals(word_form_simplified);
+		return form.equals(getWordFormSimplified());
 	}
 	
 	public boolean isLemma(String lemma)
@@ -415,7 +548,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 	public boolean hasWordEmbedding()
 	{
-		return word_embedding != null;
+		return word_embedding != null || embedding_store != null;
 	}
 	
 //	============================== DEPENDENCY GETTERS ==============================
@@ -1194,6 +1327,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	public void setDependencyLabel(String label)
 	{
 		dependency_label = label;
+		resetTagHash(3);
 	}
 	
 	/** Sets the dependency head. */
@@ -1243,6 +1377,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 		dependency_head  = null;
 		dependency_label = null;
 		dependent_list.clear();
+		resetTagHash(3);
 		return arc;
 	}
 	
@@ -19,7 +19,9 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import edu.emory.mathcs.nlp.common.constant.StringConst;
@@ -27,15 +29,32 @@ import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.common.util.Splitter;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.node.FeatMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 
 /**
+ * Reads sentences from tab-separated files, where sentences are separated by blank lines.
+ * The input is scanned as UTF-8 bytes instead of being decoded line by line;
+ * see {@link #setConfiguredColumnsOnly(boolean)} to skip decoding the columns not read by this reader.
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
 public abstract class TSVReader<N extends AbstractNLPNode<N>>
 {
 	static public String BLANK = StringConst.UNDERSCORE;
+	static private final int NO_HEAD = Integer.MIN_VALUE;
 	protected BufferedReader reader;
+	protected InputStream input;
+	
+	// byte buffer of the input
+	private byte[] buffer = new byte[1 << 16];
+	private int buffer_begin;
+	private int buffer_end;
+	private boolean configured_only;
+	
+	// head IDs parsed from the bytes of the lines being converted by next()
+	private IntArrayList line_heads = new IntArrayList();
+	private IntArrayList head_ids;
+	private int line_head;
 	
 	public int form   = -1;
 	public int lemma  = -1;
@@ -72,9 +91,15 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 		nament = map.getOrDefault("nament", -1);
 	}
 	
+	/**
+	 * {@link #reader} is kept for subclasses reading lines by themselves, whereas {@link #next()} scans {@link #input};
+	 * the two must not be mixed on the same input.
+	 */
 	public void open(InputStream in)
 	{
-		reader = IOUtils.createBufferedReader(in);		
+		input  = in;
+		reader = IOUtils.createBufferedReader(in);
+		buffer_begin = buffer_end = 0;
 	}
 	
 	public void close()
@@ -87,6 +112,21 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 		catch (IOException e) {e.printStackTrace();}
 	}
 	
+	/**
+	 * @param configuredOnly if true, only the configured columns (e.g., {@link #form}, {@link #dhead}) are decoded,
+	 * and the other values passed to {@link #create(int, String[])} are {@code null}; false by default.
+	 * Enable this only if no subclass reads the other columns.
+	 */
+	public void setConfiguredColumnsOnly(boolean configuredOnly)
+	{
+		configured_only = configuredOnly;
+	}
+	
+	public boolean isConfiguredColumnsOnly()
+	{
+		return configured_only;
+	}
+	
 	public List<N[]> readDocument() throws Exception
 	{
 		List<N[]> document = new ArrayList<>();
@@ -101,22 +141,123 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 	public N[] next() throws IOException
 	{
 		List<String[]> list = new ArrayList<>();
-		String line;
+		int end;
+		line_heads.clear();
 		
-		while ((line = reader.readLine()) != null)
+		while ((end = readLine()) >= 0)
 		{
-			line = line.trim();
-			
-			if (line.isEmpty())
+			if (isBlank(buffer_begin, end))
 			{
+				buffer_begin = end + 1;
 				if (list.isEmpty()) continue;
 				break;
 			}
 			
-			list.add(Splitter.splitTabs(line));
+			list.add(split(buffer_begin, end));
+			line_heads.add(line_head);
+			buffer_begin = end + 1;
+		}
+		
+		if (list.isEmpty()) return null;
+		head_ids = line_heads;
+		
+		try
+		{
+			return toNodeList(list);
+		}
+		finally
+		{
+			head_ids = null;
 		}
+	}
+	
+	/**
+	 * Finds the next line, refilling the buffer if needed; the line begins at {@link #buffer_begin}.
+	 * @return the index of the line break (or the end of the input) in the buffer if exists; otherwise, {@code -1}.
+	 */
+	private int readLine() throws IOException
+	{
+		int i = buffer_begin, n;
 		
-		return list.isEmpty() ? null : toNodeList(list);
+		while (true)
+		{
+			for (; i<buffer_end; i++)
+				if (buffer[i] == '\n') return i;
+			
+			// move the partial line to the front and fill the rest
+			i -= buffer_begin;
+			System.arraycopy(buffer, buffer_begin, buffer, 0, i);
+			buffer_end -= buffer_begin;
+			buffer_begin = 0;
+			if (buffer_end == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			n = input.read(buffer, buffer_end, buffer.length - buffer_end);
+			
+			if (n < 0)
+			{
+				if (buffer_end == 0) return -1;
+				if (buffer_end == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length + 1);
+				buffer[buffer_end++] = '\n';
+				return buffer_end - 1;
+			}
+			
+			buffer_end += n;
+		}
+	}
+	
+	/** @return {@code true} if the line contains only whitespaces. */
+	private boolean isBlank(int begin, int end)
+	{
+		for (int i=begin; i<end; i++)
+			if ((buffer[i] & 0xff) > ' ') return false;
+		
+		return true;
+	}
+	
+	/**
+	 * Splits the trimmed line by tabs; if {@link #configured_only}, the columns not configured remain {@code null}.
+	 * The head ID in {@link #dhead} is parsed from the bytes into {@link #line_head}.
+	 */
+	private String[] split(int begin, int end)
+	{
+		while ((buffer[begin] & 0xff) <= ' ') begin++;
+		while ((buffer[end-1] & 0xff) <= ' ') end--;
+		
+		int i, size = 1, col = 0;
+		for (i=begin; i<end; i++) if (buffer[i] == '\t') size++;
+		String[] values = new String[size];
+		line_head = NO_HEAD;
+		
+		for (i=begin; i<=end; i++)
+		{
+			if (i < end && buffer[i] != '\t') continue;
+			if (!configured_only || isConfigured(col)) values[col] = new String(buffer, begin, i - begin, StandardCharsets.UTF_8);
+			if (col == dhead) line_head = parseHead(begin, i, values[col]);
+			begin = i + 1;
+			col++;
+		}
+		
+		return values;
+	}
+	
+	/** @return the head ID in {@code buffer[begin:end]}; {@link #NO_HEAD} if it is {@link #BLANK}. */
+	private int parseHead(int begin, int end, String value)
+	{
+		if (end - begin == 1 && buffer[begin] == '_') return NO_HEAD;
+		if (end == begin || end - begin > 9) return Integer.parseInt(value);
+		int id = 0;
+		
+		for (int i=begin; i<end; i++)
+		{
+			if (buffer[i] < '0' || buffer[i] > '9') return Integer.parseInt(value);
+			id = id * 10 + buffer[i] - '0';
+		}
+		
+		return id;
+	}
+	
+	private boolean isConfigured(int col)
+	{
+		return col == form || col == lemma || col == pos || col == nament || col == feats || col == dhead || col == deprel || col == sheads;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -153,7 +294,7 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 		String  l = (lemma  >= 0) ? values[lemma]  : null;
 		String  p = (pos    >= 0) ? values[pos]    : null;
 		String  n = (nament >= 0) ? values[nament] : null;
-		FeatMap t = (feats  >= 0) ? new FeatMap(values[feats]) : new FeatMap();
+		FeatMap t = (feats  >= 0 && !BLANK.equals(values[feats])) ? new FeatMap(values[feats]) : new FeatMap();
 		
 		N node = create();
 		node.set(id, f, l, p, n, t, null, null);
@@ -171,11 +312,18 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 	
 	protected void initDependencyHead(int id, String[] values, N[] nodes)
 	{
-		if (BLANK.equals(values[dhead])) return;
-		int headID = Integer.parseInt(values[dhead]);
+		int headID = getDependencyHeadID(id, values);
+		if (headID == NO_HEAD) return;
 		nodes[id].setDependencyHead(nodes[headID], values[deprel]);
 	}
 	
+	/** @return the head ID of the id'th node, parsed from the line by {@link #next()} if available; {@link #NO_HEAD} if blank. */
+	private int getDependencyHeadID(int id, String[] values)
+	{
+		if (head_ids != null && dhead < values.length) return head_ids.getInt(id-1);
+		return BLANK.equals(values[dhead]) ? NO_HEAD : Integer.parseInt(values[dhead]);
+	}
+	
 	protected void initSemanticHeads(int id, String value, N[] nodes)
 	{
 		if (BLANK.equals(value)) return;
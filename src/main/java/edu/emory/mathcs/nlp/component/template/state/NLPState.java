@@ -24,6 +24,7 @@ import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
 import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
 import edu.emory.mathcs.nlp.component.template.feature.Relation;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.learning.util.DenseProjection;
 import edu.emory.mathcs.nlp.learning.util.LabelMap;
 
 /**
@@ -34,6 +35,8 @@ public abstract class NLPState<N extends AbstractNLPNode<N>>
 {
 	protected List<N[]> document;
 	protected N[] nodes;
+	protected DenseProjection dense_projection;
+	protected float[][] word_embeddings;
 
 	/**
 	 * For sentence-based NLP components.
@@ -96,6 +99,7 @@ public abstract class NLPState<N extends AbstractNLPNode<N>>
 	public void setNodes(N[] nodes)
 	{
 		this.nodes = nodes;
+		word_embeddings = null;
 	}
 	
 	public List<N[]> getDocument()
@@ -108,6 +112,44 @@ public abstract class NLPState<N extends AbstractNLPNode<N>>
 		this.document = document;
 	}
 	
+	/**
+	 * @return the projection of the dense slots of the sentence, created on the first call, or {@code null} for document-based states.
+	 * The projection is valid only while the weights do not change; see {@link DenseProjection}.
+	 */
+	public DenseProjection getDenseProjection(int slotSize)
+	{
+		if (dense_projection == null && nodes != null)
+			dense_projection = new DenseProjection(nodes.length, slotSize);
+		
+		return dense_projection;
+	}
+	
+	/**
+	 * @return the word embedding of the node, copied into a buffer of this state on the first call so it is copied once per sentence
+	 * without being kept by the node (see {@link AbstractNLPNode#copyWordEmbedding(float[], int)}); {@code null} if the node has no embedding.
+	 */
+	public float[] getWordEmbedding(N node)
+	{
+		if (!node.hasWordEmbedding()) return null;
+		int id = node.getID();
+		float[] v;
+		
+		// nodes outside of this sentence (e.g., document-based states) are copied at every call
+		if (nodes == null || id < 0 || nodes.length <= id || nodes[id] != node)
+			return copyWordEmbedding(node);
+		
+		if (word_embeddings == null) word_embeddings = new float[nodes.length][];
+		if ((v = word_embeddings[id]) == null) v = word_embeddings[id] = copyWordEmbedding(node);
+		return v;
+	}
+	
+	private float[] copyWordEmbedding(N node)
+	{
+		float[] v = new float[node.getWordEmbeddingDimension()];
+		node.copyWordEmbedding(v, 0);
+		return v;
+	}
+	
 	public N getNode(int index)
 	{
 		return getNode(index, 0, false);
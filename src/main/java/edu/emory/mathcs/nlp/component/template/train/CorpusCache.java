@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.train;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
+import edu.emory.mathcs.nlp.component.template.util.GlobalLexica;
+
+/**
+ * Keeps the sentences of each file in memory once they are read and processed by the global lexica,
+ * so every epoch after the first one replays them instead of parsing the file and looking up the lexica again.
+ * The sentences must be processed by {@link edu.emory.mathcs.nlp.component.template.OnlineComponent#processAndRestore(List)}
+ * so their gold labels remain for the next epoch.
+ * Files can be requested by multiple threads at once; if two threads read the same file, the first sentences cached are returned to both.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class CorpusCache<N extends AbstractNLPNode<N>>
+{
+	private ConcurrentMap<String,List<N[]>> cache;
+	
+	public CorpusCache()
+	{
+		cache = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * @param document if true, the file is read as one document; otherwise, as a list of sentences.
+	 * @return the sentences in the specific file, which is read only the first time.
+	 */
+	public List<N[]> get(String filename, TSVReader<N> reader, GlobalLexica<N> lexica, boolean document) throws Exception
+	{
+		List<N[]> sentences = cache.get(filename);
+		if (sentences != null) return sentences;
+		reader.open(IOUtils.createFileInputStream(filename));
+		
+		try
+		{
+			if (document)
+				sentences = reader.readDocument();
+			else
+			{
+				sentences = new ArrayList<>();
+				N[] nodes;
+				while ((nodes = reader.next()) != null) sentences.add(nodes);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		
+		lexica.process(sentences);
+		List<N[]> previous = cache.putIfAbsent(filename, sentences);
+		return (previous != null) ? previous : sentences;
+	}
+	
+	/** @return the number of cached files. */
+	public int size()
+	{
+		return cache.size();
+	}
+	
+	public void clear()
+	{
+		cache.clear();
+	}
+}
@@ -25,6 +25,8 @@ import edu.emory.mathcs.nlp.learning.optimization.reguralization.Regularizer;
 public class HyperParameter
 {
 	private int         batch_size;
+	private int         thread_size;
+	private int         batch_thread_size;
 	private int         max_epoch;
 	private float       learning_rate;
 	private float       decaying_rate;
@@ -63,6 +65,32 @@ public class HyperParameter
 		batch_size = size;
 	}
 	
+//	========================== THREAD SIZE ==========================
+
+	/** @return the number of threads used for training; training is sequential if this is less than 2. */
+	public int getThreadSize()
+	{
+		return thread_size;
+	}
+
+	public void setThreadSize(int size)
+	{
+		thread_size = size;
+	}
+	
+//	========================== BATCH THREAD SIZE ==========================
+
+	/** @return the number of threads used within each mini-batch (e.g., feed-forward neural networks); mini-batches are sequential if this is less than 2. */
+	public int getBatchThreadSize()
+	{
+		return batch_thread_size;
+	}
+
+	public void setBatchThreadSize(int size)
+	{
+		batch_thread_size = size;
+	}
+	
 //	========================== MAX EPOCH ==========================
 	
 	public int getMaxEpochs()
@@ -185,6 +213,8 @@ public class HyperParameter
 		
 		build.append(String.format("%s%s: %d\n", prefix, "Max epoch", max_epoch));
 		if (batch_size > 0) build.append(String.format("%s%s: %d\n", prefix, "Mini-batch", batch_size));
+		if (thread_size > 1) build.append(String.format("%s%s: %d\n", prefix, "Threads", thread_size));
+		if (batch_thread_size > 1) build.append(String.format("%s%s: %d\n", prefix, "Mini-batch threads", batch_thread_size));
 		if (feature_cutoff > 0) build.append(String.format("%s%s: %d\n", prefix, "Feature cutoff", feature_cutoff));
 		build.append(String.format("%s%s: %s\n", prefix, "Learning rate", learning_rate));
 		if (decaying_rate > 0) build.append(String.format("%s%s: %s\n", prefix, "Decaying rate", decaying_rate));
@@ -29,6 +29,7 @@ public class LOLS
 	private double decaying_rate;
 	private double gold_probability;
 	private Random random;
+	private ThreadLocal<Random> thread_random;
 	
 	public LOLS(int fixedStage, double decayingRate)
 	{
@@ -41,6 +42,7 @@ public class LOLS
 		decaying_rate    = decayingRate;
 		gold_probability = 1d;
 		random           = new XORShiftRandom(9);
+		thread_random    = new ThreadLocal<>();
 	}
 	
 	public void updateGoldProbability()
@@ -58,7 +60,18 @@ public class LOLS
 	
 	public boolean chooseGold()
 	{
-		return (gold_probability > 0) && (gold_probability >= 1 || gold_probability > random.nextDouble());
+		Random r = thread_random.get();
+		return (gold_probability > 0) && (gold_probability >= 1 || gold_probability > ((r != null) ? r : random).nextDouble());
+	}
+	
+	/**
+	 * Lets the current thread (e.g., a worker of parallel training) draw from its own generator instead of the shared one.
+	 * @param random {@code null} to draw from the shared generator again.
+	 */
+	public void setThreadRandom(Random random)
+	{
+		if (random != null) thread_random.set(random);
+		else thread_random.remove();
 	}
 	
 	@Override
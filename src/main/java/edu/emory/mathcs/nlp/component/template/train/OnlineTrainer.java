@@ -15,19 +15,30 @@
  */
 package edu.emory.mathcs.nlp.component.template.train;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 
 import org.w3c.dom.Element;
 
@@ -112,6 +123,14 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 	public abstract TSVReader<N> createTSVReader(Object2IntMap<String> map);
 	public abstract GlobalLexica<N> createGlobalLexica(InputStream config);
 	
+	/** @return the reader created by {@link #createTSVReader(Object2IntMap)} with the columns and the options in the specific configuration. */
+	public TSVReader<N> initTSVReader(NLPConfig<N> config)
+	{
+		TSVReader<N> reader = createTSVReader(config.getReaderFieldMap());
+		reader.setConfiguredColumnsOnly(config.isConfiguredColumnsOnly());
+		return reader;
+	}
+	
 //	=================================== TRAIN ===================================
 	
 	public double crossValidate(NLPMode mode, List<String> filenames, String configurationFile, String modelFile, String previousModelFile, int k)
@@ -200,7 +219,7 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 		GlobalLexica<N> lexica = createGlobalLexica(IOUtils.createFileInputStream(configurationFile));
 		String name = (modelFile != null) ? FileUtils.getBaseName(modelFile) : null;
 		OnlineComponent<N,S> component = initComponent(mode, IOUtils.createFileInputStream(configurationFile), previousModelStream, name);
-		TSVReader<N> reader = createTSVReader(component.getConfiguration().getReaderFieldMap());
+		TSVReader<N> reader = initTSVReader(component.getConfiguration());
 		ObjectDoublePair<OnlineComponent<N,S>> p = null;
 		
 		try
@@ -220,6 +239,10 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 		HyperParameter hp = component.getHyperParameter();
 		int bestEpoch = -1, bestNZW = -1, NZW, L, SF;
 		Random rand = new XORShiftRandom(9);
+		boolean cached = component.getConfiguration().isCorpusCached();
+		// the training and development files are cached separately so that their sentences are never shared
+		CorpusCache<N> trainCache   = cached ? new CorpusCache<>() : null;
+		CorpusCache<N> developCache = cached ? new CorpusCache<>() : null;
 		byte[] bestComponent = null;
 		double bestScore = 0, score;
 		DoubleIntPair p;
@@ -234,7 +257,8 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 			component.setFlag(NLPFlag.TRAIN);
 			Collections.shuffle(trainFiles, rand);
 			hp.getLOLS().updateGoldProbability();
-			iterate(reader, trainFiles, component, lexica, false);
+			iterate(reader, trainFiles, component, lexica, false, trainCache);
+			optimizer.sparsify();
 
 			// info
 			L   = optimizer.getLabelSize();
@@ -242,7 +266,7 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 			NZW = optimizer.getWeightVector().countNonZeroWeights();
 			component.getFeatureTemplate().initFeatureCount();
 			
-			p = evaluate(developFiles, component, lexica, reader);
+			p = evaluate(developFiles, component, lexica, reader, developCache);
 			score = p.d;
 			eval = component.getEval().toString();
 			BinUtils.LOG.info(String.format("%2d:%5d: %s, L = %3d, SF = %7d, NZW = %8d, N/S = %6d\n", index, epoch, eval, L, SF, NZW, p.i));
@@ -264,18 +288,167 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 	}
 	
 	public DoubleIntPair evaluate(List<String> developFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, TSVReader<N> reader)
+	{
+		return evaluate(developFiles, component, lexica, reader, null);
+	}
+	
+	/** @param cache if not null, the development files are read from the cache. */
+	public DoubleIntPair evaluate(List<String> developFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, TSVReader<N> reader, CorpusCache<N> cache)
 	{
 		component.setFlag(NLPFlag.EVALUATE);
 		Eval eval = component.getEval();
 		eval.clear();
-		double time = iterate(reader, developFiles, component, lexica, true);
+		double time = iterate(reader, developFiles, component, lexica, true, cache);
 		return new DoubleIntPair(eval.score(), (int)Math.round(time));
 	}
 	
+//	=================================== ITERATIVE PARAMETER MIXING ===================================
+	
+	/**
+	 * Trains the component by iterative parameter mixing: the training files are split into {@code k} shards,
+	 * each worker trains a copy of the component on its shard for one epoch, and the copies are mixed into the component
+	 * by {@link OnlineComponent#mix(List)} at the end of every epoch.
+	 * The workers exchange the models through files in the specific directory, so they can run in separate processes.
+	 * @param command returns the command running {@link #trainShard(NLPMode, String, String, int, int)} in a local process
+	 * for the specific epoch and shard; if {@code null}, the workers run as threads in this process.
+	 * @return the best score on the development files.
+	 */
+	public double trainMixing(NLPMode mode, List<String> trainFiles, List<String> developFiles, String configurationFile, String modelFile, String previousModelFile, int k, String directory, BiFunction<Integer,Integer,List<String>> command)
+	{
+		InputStream previousModelStream = (previousModelFile != null) ? IOUtils.createFileInputStream(previousModelFile) : null;
+		GlobalLexica<N> lexica = createGlobalLexica(IOUtils.createFileInputStream(configurationFile));
+		OnlineComponent<N,S> component = initComponent(mode, IOUtils.createFileInputStream(configurationFile), previousModelStream, null);
+		TSVReader<N> reader = initTSVReader(component.getConfiguration());
+		HyperParameter hp = component.getHyperParameter();
+		List<OnlineComponent<N,S>> workers;
+		int bestEpoch = -1, bestNZW = -1, NZW;
+		byte[] bestComponent = null;
+		double bestScore = 0, score;
+		DoubleIntPair p;
+		
+		BinUtils.LOG.info(component.getOptimizer().toString()+"\n"+hp.toString("- ")+"\n");
+		BinUtils.LOG.info("Parameter mixing: "+k+" "+(command != null ? "processes" : "threads")+"\n");
+		
+		try
+		{
+			for (int i=0; i<k; i++)
+				Files.write(Paths.get(getShardFile(directory, i)), split(trainFiles, k, i).o2);
+			
+			for (int epoch=1; epoch<=hp.getMaxEpochs(); epoch++)
+			{
+				saveModel(component, IOUtils.createFileOutputStream(getModelFile(directory, epoch, -1)));
+				if (command != null) runProcesses(command, k, epoch);
+				else runThreads(mode, configurationFile, directory, k, epoch);
+				
+				workers = new ArrayList<>();
+				for (int i=0; i<k; i++) workers.add(loadModel(getModelFile(directory, epoch, i)));
+				component.mix(workers);
+				component.getFeatureTemplate().initFeatureCount();
+				
+				NZW = component.getOptimizer().getWeightVector().countNonZeroWeights();
+				p = evaluate(developFiles, component, lexica, reader);
+				score = p.d;
+				BinUtils.LOG.info(String.format("%5d: %s, L = %3d, SF = %7d, NZW = %8d, N/S = %6d\n", epoch, component.getEval().toString(), component.getOptimizer().getLabelSize(), component.getFeatureTemplate().getSparseFeatureSize(), NZW, p.i));
+				
+				if (bestScore < score || (bestScore == score && NZW < bestNZW))
+				{
+					bestNZW   = NZW;
+					bestEpoch = epoch;
+					bestScore = score;
+					bestComponent = IOUtils.toByteArray(component);
+				}
+			}
+			
+			if (bestComponent != null && modelFile != null)
+				saveModel(loadModel(bestComponent), IOUtils.createFileOutputStream(modelFile));
+		}
+		catch (Exception e) {e.printStackTrace();}
+		
+		BinUtils.LOG.info(String.format("Best: %5.2f, epoch = %d\n", bestScore, bestEpoch));
+		return bestScore;
+	}
+	
+	/**
+	 * Trains the model saved for the specific epoch on the specific shard for one epoch,
+	 * and saves it for {@link #trainMixing(NLPMode, List, List, String, String, String, int, String, BiFunction)}.
+	 */
+	public void trainShard(NLPMode mode, String configurationFile, String directory, int epoch, int shard) throws IOException
+	{
+		InputStream modelStream = IOUtils.createFileInputStream(getModelFile(directory, epoch, -1));
+		GlobalLexica<N> lexica = createGlobalLexica(IOUtils.createFileInputStream(configurationFile));
+		OnlineComponent<N,S> component = initComponent(mode, IOUtils.createFileInputStream(configurationFile), modelStream, null);
+		TSVReader<N> reader = initTSVReader(component.getConfiguration());
+		List<String> trainFiles = Files.readAllLines(Paths.get(getShardFile(directory, shard)));
+		
+		for (int i=0; i<epoch; i++) component.getHyperParameter().getLOLS().updateGoldProbability();
+		Collections.shuffle(trainFiles, new XORShiftRandom(epoch));
+		component.setFlag(NLPFlag.TRAIN);
+		iterate(reader, trainFiles, component, lexica, false);
+		component.getOptimizer().sparsify();
+		saveModel(component, IOUtils.createFileOutputStream(getModelFile(directory, epoch, shard)));
+	}
+	
+	protected void runThreads(NLPMode mode, String configurationFile, String directory, int k, int epoch) throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(k);
+		List<Future<?>> futures = new ArrayList<>();
+		
+		for (int i=0; i<k; i++)
+		{
+			final int shard = i;
+			futures.add(executor.submit(() -> {trainShard(mode, configurationFile, directory, epoch, shard); return null;}));
+		}
+		
+		executor.shutdown();
+		for (Future<?> f : futures) f.get();
+	}
+	
+	protected void runProcesses(BiFunction<Integer,Integer,List<String>> command, int k, int epoch) throws Exception
+	{
+		List<Process> processes = new ArrayList<>();
+		
+		for (int i=0; i<k; i++)
+			processes.add(new ProcessBuilder(command.apply(epoch, i)).inheritIO().start());
+		
+		for (int i=0; i<k; i++)
+		{
+			if (processes.get(i).waitFor() != 0)
+				throw new IllegalStateException("Worker "+i+" failed at epoch "+epoch);
+		}
+	}
+	
+	/** @param shard the index of the worker; {@code -1} for the model mixed from the previous epoch. */
+	static public String getModelFile(String directory, int epoch, int shard)
+	{
+		String filename = "model."+epoch;
+		if (shard >= 0) filename += "."+shard;
+		return new File(directory, filename).getPath();
+	}
+	
+	static public String getShardFile(String directory, int shard)
+	{
+		return new File(directory, "shard."+shard).getPath();
+	}
+	
 //	=================================== HELPERS ===================================
 	
 	protected double iterate(TSVReader<N> reader, List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean evaluate)
 	{
+		return iterate(reader, inputFiles, component, lexica, evaluate, null);
+	}
+	
+	/**
+	 * @param cache if not null, each file is read and processed by the global lexica only once,
+	 * and its sentences are replayed from the cache afterwards.
+	 * @return the number of nodes processed per second.
+	 */
+	protected double iterate(TSVReader<N> reader, List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean evaluate, CorpusCache<N> cache)
+	{
+		int threadSize = component.getHyperParameter().getThreadSize();
+		if (!evaluate && threadSize > 1) return iterate(reader, inputFiles, component, lexica, threadSize, cache);
+		if (cache != null) return iterateCache(reader, inputFiles, component, lexica, evaluate, cache);
+		int prefetch = component.getConfiguration().getPrefetchSize();
+		if (prefetch > 0 && !component.isStreaming()) return iteratePrefetch(inputFiles, component, lexica, evaluate, prefetch);
 		long st, et, time = 0, unit = 0;
 		List<N[]> document;
 		N[] nodes;
@@ -287,7 +460,16 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 			
 			try
 			{
-				if (component.isDocumentBased())
+				if (component.isStreaming())
+				{
+					st = System.currentTimeMillis();
+					component.process(new SentenceIterator(reader, lexica));
+					et = System.currentTimeMillis();
+					if (!evaluate) count = update(component, count, false);
+					time += et - st;
+					unit++;
+				}
+				else if (component.isDocumentBased())
 				{
 					document = reader.readDocument();
 					lexica.process(document);
@@ -320,6 +502,380 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 		return 1000d * unit / time;
 	}
 	
+	private double iterateCache(TSVReader<N> reader, List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean evaluate, CorpusCache<N> cache)
+	{
+		boolean document = component.isDocumentBased();
+		long st, et, time = 0, unit = 0;
+		List<N[]> sentences;
+		int count = 0;
+		
+		for (String inputFile : inputFiles)
+		{
+			try
+			{
+				sentences = cache.get(inputFile, reader, lexica, document);
+				
+				if (document)
+				{
+					st = System.currentTimeMillis();
+					component.processAndRestore(sentences);
+					et = System.currentTimeMillis();
+					if (!evaluate) count = update(component, count, false);
+					time += et - st;
+					unit++;
+				}
+				else
+				{
+					for (N[] nodes : sentences)
+					{
+						st = System.currentTimeMillis();
+						component.processAndRestore(nodes);
+						et = System.currentTimeMillis();
+						if (!evaluate) count = update(component, count, false);
+						time += et - st;
+						unit += nodes.length - 1;
+					}
+				}
+			}
+			catch (Exception e) {e.printStackTrace();}
+		}
+		
+		if (!evaluate) update(component, count, true);
+		return 1000d * unit / time;
+	}
+	
+	/**
+	 * Processes the units (documents or sentences) read ahead by {@link PrefetchIterator}
+	 * so reading and the global lexica overlap with processing.
+	 * @return the number of nodes processed per second.
+	 */
+	private double iteratePrefetch(List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean evaluate, int prefetch)
+	{
+		long st, et, time = 0, unit = 0;
+		List<N[]> document;
+		int count = 0;
+		
+		try (PrefetchIterator it = new PrefetchIterator(inputFiles, component, lexica, prefetch))
+		{
+			while (it.hasNext())
+			{
+				document = it.next();
+				st = System.currentTimeMillis();
+				component.process(document);
+				et = System.currentTimeMillis();
+				if (!evaluate) count = update(component, count, false);
+				time += et - st;
+				
+				if (component.isDocumentBased()) unit++;
+				else for (N[] nodes : document) unit += nodes.length - 1;
+			}
+		}
+		
+		if (!evaluate) update(component, count, true);
+		return 1000d * unit / time;
+	}
+	
+	/**
+	 * Trains the component using multiple threads (Hogwild): the reader puts sentences (or documents) to a shared queue,
+	 * and each worker takes them from the queue and updates the shared weights without locking.
+	 * Each worker keeps its own mini-batch, which is applied by {@link OnlineOptimizer#updateMiniBatch()}.
+	 * @param cache if not null, the sentences are taken from the cache instead of the reader.
+	 * @return the number of nodes processed per second.
+	 * @throws IllegalStateException if the optimizer does not support concurrent training.
+	 */
+	protected double iterate(TSVReader<N> reader, List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, int threadSize, CorpusCache<N> cache)
+	{
+		List<N[]> end = Collections.emptyList();
+		BlockingQueue<List<N[]>> queue = new ArrayBlockingQueue<>(threadSize * 64);
+		ExecutorService executor = Executors.newFixedThreadPool(threadSize);
+		OnlineOptimizer optimizer = component.getOptimizer();
+		List<Future<Long>> futures = new ArrayList<>();
+		int prefetch = component.getConfiguration().getPrefetchSize();
+		long st, et, unit = 0;
+		N[] nodes;
+		
+		// the weights are expanded for the known features beforehand so that the workers rarely need to expand them
+		optimizer.expand(component.getFeatureTemplate().getSparseFeatureSize(), optimizer.getLabelSize());
+		optimizer.setConcurrent(true);
+		component.getFeatureTemplate().setConcurrent(true);
+		st = System.currentTimeMillis();
+		
+		for (int i=0; i<threadSize; i++)
+			futures.add(executor.submit(new HogwildTask(queue, end, component, (cache != null || prefetch > 0) ? null : lexica, cache != null, i)));
+		
+		try
+		{
+			if (cache == null && prefetch > 0)
+			{
+				try (PrefetchIterator it = new PrefetchIterator(inputFiles, component, lexica, prefetch))
+				{
+					while (it.hasNext()) queue.put(it.next());
+				}
+			}
+			else
+			{
+				for (String inputFile : inputFiles)
+				{
+					if (cache != null)
+					{
+						try
+						{
+							if (component.isDocumentBased())
+								queue.put(cache.get(inputFile, reader, lexica, true));
+							else
+								for (N[] cached : cache.get(inputFile, reader, lexica, false)) queue.put(Collections.singletonList(cached));
+						}
+						catch (InterruptedException e) {throw e;}
+						catch (Exception e) {e.printStackTrace();}
+						continue;
+					}
+				
+					reader.open(IOUtils.createFileInputStream(inputFile));
+				
+					try
+					{
+						if (component.isDocumentBased())
+							queue.put(reader.readDocument());
+						else
+							while ((nodes = reader.next()) != null) queue.put(Collections.singletonList(nodes));
+					}
+					catch (Exception e) {e.printStackTrace();}
+					reader.close();
+				}
+			}
+			
+			for (int i=0; i<threadSize; i++) queue.put(end);
+			for (Future<Long> f : futures) unit += f.get();
+		}
+		catch (Exception e) {e.printStackTrace();}
+		finally
+		{
+			executor.shutdownNow();
+			optimizer.setConcurrent(false);
+			component.getFeatureTemplate().setConcurrent(false);
+		}
+		
+		et = System.currentTimeMillis();
+		return 1000d * unit / Math.max(1, et - st);
+	}
+	
+	/**
+	 * Reads the input files in background threads, up to {@code size} files ahead of the processing thread,
+	 * and returns their units (a document per file for document-based components; otherwise, a sentence per unit) in the order of the files.
+	 * Each file is read by its own reader and processed by the global lexica, and its units are passed through a bounded queue
+	 * so reading blocks when processing falls behind.
+	 */
+	class PrefetchIterator implements Iterator<List<N[]>>, AutoCloseable
+	{
+		static private final int QUEUE_SIZE = 256;
+		private final List<N[]> end = Collections.emptyList();
+		private Deque<BlockingQueue<List<N[]>>> queues;
+		private ExecutorService executor;
+		private Iterator<String> files;
+		private OnlineComponent<N,S> component;
+		private GlobalLexica<N> lexica;
+		private List<N[]> next;
+		
+		public PrefetchIterator(List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, int size)
+		{
+			this.component = component;
+			this.lexica = lexica;
+			files    = inputFiles.iterator();
+			queues   = new ArrayDeque<>(size);
+			executor = Executors.newFixedThreadPool(size);
+			
+			// one thread per file in the window, so the file being processed is never waiting for a thread
+			for (int i=0; i<size; i++) submit();
+			next = take();
+		}
+		
+		private void submit()
+		{
+			if (!files.hasNext()) return;
+			String inputFile = files.next();
+			BlockingQueue<List<N[]>> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+			queues.add(queue);
+			executor.execute(() -> read(inputFile, queue));
+		}
+		
+		private void read(String inputFile, BlockingQueue<List<N[]>> queue)
+		{
+			TSVReader<N> reader = initTSVReader(component.getConfiguration());
+			List<N[]> document;
+			N[] nodes;
+			
+			try
+			{
+				reader.open(IOUtils.createFileInputStream(inputFile));
+				
+				if (component.isDocumentBased())
+				{
+					document = reader.readDocument();
+					lexica.process(document);
+					queue.put(document);
+				}
+				else
+				{
+					while ((nodes = reader.next()) != null)
+					{
+						lexica.process(nodes);
+						queue.put(Collections.singletonList(nodes));
+					}
+				}
+			}
+			catch (InterruptedException e) {return;}
+			catch (Exception e) {e.printStackTrace();}
+			finally {reader.close();}
+			
+			// the end must be put even if reading failed with the queue full; otherwise, the processing thread waits forever
+			try {queue.put(end);}
+			catch (InterruptedException e) {}
+		}
+		
+		/** @return the next unit in the order of the files if exists; otherwise, {@code null}. */
+		private List<N[]> take()
+		{
+			List<N[]> unit;
+			
+			try
+			{
+				while (!queues.isEmpty())
+				{
+					unit = queues.peek().take();
+					if (unit != end) return unit;
+					queues.poll();
+					submit();
+				}
+			}
+			catch (InterruptedException e) {Thread.currentThread().interrupt();}
+			
+			return null;
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			return next != null;
+		}
+		
+		@Override
+		public List<N[]> next()
+		{
+			if (next == null) throw new NoSuchElementException();
+			List<N[]> curr = next;
+			next = take();
+			return curr;
+		}
+		
+		@Override
+		public void close()
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	/** Reads the sentences one at a time and processes them by the global lexica; see {@link OnlineComponent#process(Iterator)}. */
+	class SentenceIterator implements Iterator<N[]>
+	{
+		private TSVReader<N> reader;
+		private GlobalLexica<N> lexica;
+		private N[] nodes;
+		
+		public SentenceIterator(TSVReader<N> reader, GlobalLexica<N> lexica)
+		{
+			this.reader = reader;
+			this.lexica = lexica;
+			nodes = read();
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			return nodes != null;
+		}
+		
+		@Override
+		public N[] next()
+		{
+			if (nodes == null) throw new NoSuchElementException();
+			N[] curr = nodes;
+			nodes = read();
+			return curr;
+		}
+		
+		private N[] read()
+		{
+			try
+			{
+				N[] next = reader.next();
+				if (next != null) lexica.process(next);
+				return next;
+			}
+			catch (IOException e) {throw new UncheckedIOException(e);}
+		}
+	}
+	
+	class HogwildTask implements Callable<Long>
+	{
+		private BlockingQueue<List<N[]>> queue;
+		private List<N[]> end;
+		private OnlineComponent<N,S> component;
+		private GlobalLexica<N> lexica;
+		private boolean cached;
+		private int id;
+		
+		/**
+		 * @param lexica {@code null} if the sentences are already processed by the global lexica.
+		 * @param cached if true, the sentences come from {@link CorpusCache} and their gold labels are restored after processing.
+		 * @param id the index of this worker, which seeds its own random generator for LOLS.
+		 */
+		public HogwildTask(BlockingQueue<List<N[]>> queue, List<N[]> end, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean cached, int id)
+		{
+			this.queue = queue;
+			this.end = end;
+			this.component = component;
+			this.lexica = lexica;
+			this.cached = cached;
+			this.id = id;
+		}
+		
+		/** @return the number of nodes processed by this task. */
+		@Override
+		public Long call() throws InterruptedException
+		{
+			LOLS lols = component.getHyperParameter().getLOLS();
+			List<N[]> document;
+			long unit = 0;
+			int count = 0;
+			
+			if (lols != null) lols.setThreadRandom(new XORShiftRandom(9 + id));
+			
+			try
+			{
+				while ((document = queue.take()) != end)
+				{
+					try
+					{
+						if (lexica != null) lexica.process(document);
+						if (cached) component.processAndRestore(document);
+						else component.process(document);
+						
+						count = update(component, count, false);
+						for (N[] nodes : document) unit += nodes.length - 1;
+					}
+					catch (Exception e) {e.printStackTrace();}
+				}
+			}
+			finally
+			{
+				if (lols != null) lols.setThreadRandom(null);
+			}
+			
+			update(component, count, true);
+			return unit;
+		}
+	}
+	
 	protected int update(OnlineComponent<N,S> component, int count, boolean last)
 	{
 		OnlineOptimizer optimizer = component.getOptimizer();
@@ -334,6 +890,21 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 		return count;
 	}
 	
+	@SuppressWarnings("unchecked")
+	protected OnlineComponent<N,S> loadModel(String modelFile) throws Exception
+	{
+		ObjectInputStream in = IOUtils.createObjectXZBufferedInputStream(IOUtils.createFileInputStream(modelFile));
+		OnlineComponent<N,S> component = (OnlineComponent<N,S>)in.readObject();
+		in.close();
+		return component;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected OnlineComponent<N,S> loadModel(byte[] bytes)
+	{
+		return (OnlineComponent<N,S>)IOUtils.fromByteArray(bytes);
+	}
+	
 	public void saveModel(OnlineComponent<N,S> component, OutputStream stream)
 	{
 		ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(stream);
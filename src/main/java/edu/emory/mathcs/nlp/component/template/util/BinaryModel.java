@@ -0,0 +1,239 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
+import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.component.template.state.NLPState;
+import edu.emory.mathcs.nlp.learning.util.ChannelOutput;
+import edu.emory.mathcs.nlp.learning.util.FeatureMap;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.MappedFloatArray;
+import edu.emory.mathcs.nlp.learning.util.MappedHashTable;
+import edu.emory.mathcs.nlp.learning.util.MappedStringTable;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+/**
+ * Flat binary format of a frozen component whose weights and features are memory-mapped when loaded
+ * instead of being deserialized. The file consists of a header, a table of the weight sections,
+ * and sections aligned to {@link #ALIGNMENT} bytes: the serialized component without its weights and features,
+ * the tables of the hashed and the string features, and the sparse and dense weights of each weight vector in the optimizer.
+ * The weights are mapped in pages so that a weight section can exceed 2GB; each feature table must fit in 2GB.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class BinaryModel
+{
+	static public final long MAGIC     = 0x4E4C50344A42494EL;	// NLP4JBIN
+	static public final int  VERSION   = 2;
+	static public final int  ALIGNMENT = 64;
+	static private final int HEADER    = 64;
+
+//	=================================== SAVE ===================================
+	
+	/** Saves the specific component, which must be frozen, to the file; the component may have been loaded by {@link #load(String)}. */
+	static public void save(OnlineComponent<?,?> component, String filename) throws IOException
+	{
+		if (!component.isFrozen()) throw new IllegalStateException("Only frozen components can be saved in the binary format.");
+		List<WeightVector> weights = component.getOptimizer().getWeightVectors();
+		FeatureTemplate<?,?> template = component.getFeatureTemplate();
+		FeatureMap map = template.getFeatureMap();
+		MajorVector[] vectors = new MajorVector[weights.size() * 2];
+		byte[] bytes;
+		
+		// serialize the component without its weights and features
+		try
+		{
+			for (int i=0; i<weights.size(); i++)
+			{
+				vectors[i*2  ] = weights.get(i).getSparseWeightVector();
+				vectors[i*2+1] = weights.get(i).getDenseWeightVector();
+				weights.get(i).setSparseWeightVector(null);
+				weights.get(i).setDenseWeightVector (null);
+			}
+			
+			template.setFeatureMap(new FeatureMap(map.size()));
+			bytes = IOUtils.toByteArray(component);
+		}
+		finally
+		{
+			for (int i=0; i<weights.size(); i++)
+			{
+				weights.get(i).setSparseWeightVector(vectors[i*2  ]);
+				weights.get(i).setDenseWeightVector (vectors[i*2+1]);
+			}
+			
+			template.setFeatureMap(map);
+		}
+		
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ChannelOutput out = new ChannelOutput(channel);
+			ByteBuffer header = ByteBuffer.allocate(HEADER + vectors.length * 16).order(ChannelOutput.BYTE_ORDER);
+			
+			header.putLong(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(vectors.length);
+			
+			// component
+			header.putLong(align(channel, header.capacity()));
+			header.putLong(bytes.length);
+			write(channel, ByteBuffer.wrap(bytes));
+			
+			// hashed features, which are already in a table if the component was loaded from a binary model
+			MappedHashTable hashTable = map.getHashTable();
+			Long2IntMap hashMap = map.getHashMap();
+			
+			if (hashTable != null)
+			{
+				header.putLong(align(channel, channel.position()));
+				header.putLong(hashTable.byteSize());
+				hashTable.write(out);
+			}
+			else if (hashMap != null)
+			{
+				header.putLong(align(channel, channel.position()));
+				header.putLong(MappedHashTable.byteSize(hashMap));
+				MappedHashTable.write(hashMap, out);
+				out.flush();
+			}
+			else
+				header.putLong(0).putLong(0);
+			
+			// string features
+			MappedStringTable indexTable = map.getIndexTable();
+			List<Object2IntMap<String>> indexMaps = map.getIndexMaps();
+			
+			if (indexTable != null)
+			{
+				header.putLong(align(channel, channel.position()));
+				header.putLong(indexTable.byteSize());
+				indexTable.write(out);
+			}
+			else if (indexMaps.stream().anyMatch(m -> !m.isEmpty()))
+			{
+				header.putLong(align(channel, channel.position()));
+				header.putLong(MappedStringTable.byteSize(indexMaps));
+				MappedStringTable.write(indexMaps, out);
+				out.flush();
+			}
+			
+			// weights
+			header.position(HEADER);
+			
+			for (MajorVector vector : vectors)
+			{
+				if (vector != null)
+				{
+					header.putLong(align(channel, channel.position()));
+					header.putLong(MajorVector.byteSize(vector));
+					MajorVector.write(vector, out);
+					out.flush();
+				}
+				else
+					header.putLong(0).putLong(0);
+			}
+			
+			header.clear();
+			channel.position(0);
+			write(channel, header);
+		}
+	}
+	
+	/** Moves the position of the channel to the next multiple of {@link #ALIGNMENT} from the specific position. */
+	static private long align(FileChannel channel, long position) throws IOException
+	{
+		position = (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+		channel.position(position);
+		return position;
+	}
+	
+	static private void write(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining()) channel.write(buffer);
+	}
+
+//	=================================== LOAD ===================================
+	
+	/**
+	 * Loads the component saved by {@link #save(OnlineComponent, String)}.
+	 * The weights and the features are read directly from the mapped file, which is shared through the page cache;
+	 * only the rest of the component (e.g., the configuration and the labels) is deserialized.
+	 */
+	@SuppressWarnings("unchecked")
+	static public <N extends AbstractNLPNode<N>, S extends NLPState<N>>OnlineComponent<N,S> load(String filename) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+		{
+			ByteBuffer header = map(channel, 0, HEADER);
+			
+			if (header.getLong(0) != MAGIC) throw new IllegalArgumentException(filename+" is not a binary model.");
+			if (header.getInt(8) < 1 || header.getInt(8) > VERSION) throw new IllegalArgumentException("Unsupported version: "+header.getInt(8));
+			
+			// component
+			ByteBuffer buffer = map(channel, header.getLong(16), header.getLong(24));
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			OnlineComponent<N,S> component = (OnlineComponent<N,S>)IOUtils.fromByteArray(bytes);
+			FeatureMap map = component.getFeatureTemplate().getFeatureMap();
+			
+			// hashed and string features; the string features of version 1 are in the component
+			if (header.getLong(32) > 0)
+				map.setHashTable(new MappedHashTable(map(channel, header.getLong(32), header.getLong(40))));
+			
+			if (header.getLong(48) > 0)
+				map.setIndexTable(new MappedStringTable(map(channel, header.getLong(48), header.getLong(56))));
+			
+			// weights
+			List<WeightVector> weights = component.getOptimizer().getWeightVectors();
+			ByteBuffer table = map(channel, HEADER, header.getInt(12) * 16L);
+			MajorVector vector;
+			
+			for (int i=0; i<weights.size(); i++)
+			{
+				vector = map(channel, table, i*2);
+				if (vector != null) weights.get(i).setSparseWeightVector(vector);
+				vector = map(channel, table, i*2+1);
+				if (vector != null) weights.get(i).setDenseWeightVector(vector);
+			}
+			
+			return component;
+		}
+	}
+	
+	static private MajorVector map(FileChannel channel, ByteBuffer table, int index) throws IOException
+	{
+		long offset = table.getLong(index * 16);
+		return (offset > 0) ? MajorVector.map(channel, offset, MappedFloatArray.DEFAULT_PAGE_BITS) : null;
+	}
+	
+	static private ByteBuffer map(FileChannel channel, long offset, long length) throws IOException
+	{
+		if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("A feature table cannot exceed 2GB: "+length);
+		return channel.map(MapMode.READ_ONLY, offset, length).order(ChannelOutput.BYTE_ORDER);
+	}
+}
@@ -0,0 +1,342 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Predicate;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.common.util.Splitter;
+import edu.emory.mathcs.nlp.learning.util.QuantizationUtils;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Word embeddings stored in a binary file that is memory-mapped instead of deserialized,
+ * so the vectors stay off the heap and loading takes no time regardless of the vocabulary size.
+ * The file consists of a header, the {@code V x D} matrix, the string hash of each row,
+ * the UTF-8 bytes of the words with their offsets, and an open-addressing table from words to rows.
+ * The matrix is in 32-bit floats, 16-bit floats, or 8-bit integers followed by the scale of each row;
+ * quantized values are converted to floats when they are copied.
+ * Files are created by {@link #convert(InputStream, String, Predicate, int)}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class EmbeddingStore
+{
+	static private final int MAGIC = 0x454d4231;	// "EMB1"
+	static private final int HEADER_SIZE = 32;
+	
+	private int vocab_size;
+	private int dimension;
+	private int bits;
+	private int row_bytes;
+	private int rows_per_segment;
+	private ByteBuffer[] matrix;
+	private FloatBuffer  scales;
+	private IntBuffer  hashes;
+	private IntBuffer  key_offsets;
+	private ByteBuffer key_bytes;
+	private IntBuffer  table;
+	
+	/** Memory-maps the specific file created by {@link #convert(InputStream, String, Predicate, int)}. */
+	public EmbeddingStore(String filename) throws IOException
+	{
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r"))
+		{
+			FileChannel channel = file.getChannel();
+			if (file.readInt() != MAGIC) throw new IOException("Not an embedding store: "+filename);
+			vocab_size = file.readInt();
+			dimension  = file.readInt();
+			int  tableSize = file.readInt();
+			long keyLength = file.readLong();
+			bits = file.readInt();
+			if (bits == 0) bits = Float.SIZE;
+			
+			// the matrix can exceed 2GB, the limit of a mapped buffer, so it is mapped by segments of whole rows
+			long offset = HEADER_SIZE;
+			row_bytes = dimension * bits / Byte.SIZE;
+			rows_per_segment = Math.max(1, Integer.MAX_VALUE / Math.max(1, row_bytes));
+			matrix = new ByteBuffer[(vocab_size + rows_per_segment - 1) / rows_per_segment];
+			
+			for (int i=0, rows; i<matrix.length; i++)
+			{
+				rows = Math.min(rows_per_segment, vocab_size - i * rows_per_segment);
+				matrix[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)rows * row_bytes);
+				offset += (long)rows * row_bytes;
+			}
+			
+			if (bits == Byte.SIZE)
+			{
+				scales  = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)vocab_size * Float.BYTES).asFloatBuffer();
+				offset += (long)vocab_size * Float.BYTES;
+			}
+			
+			hashes      = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)vocab_size * Integer.BYTES).asIntBuffer();
+			offset     += (long)vocab_size * Integer.BYTES;
+			key_offsets = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)(vocab_size+1) * Integer.BYTES).asIntBuffer();
+			offset     += (long)(vocab_size+1) * Integer.BYTES;
+			key_bytes   = channel.map(FileChannel.MapMode.READ_ONLY, offset, keyLength);
+			offset     += keyLength;
+			table       = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)tableSize * Integer.BYTES).asIntBuffer();
+		}
+	}
+	
+	/** @return {@code true} if the specific path is a file created by {@link #convert(InputStream, String, Predicate, int)}. */
+	static public boolean isEmbeddingStore(String path)
+	{
+		if (!Files.isRegularFile(Paths.get(path))) return false;
+		
+		try (DataInputStream in = new DataInputStream(new FileInputStream(path)))
+		{
+			return in.readInt() == MAGIC;
+		}
+		catch (IOException e) {return false;}
+	}
+	
+//	============================== LOOKUP ==============================
+	
+	/** @return the row of the specific word if exists; otherwise, -1. */
+	public int getRow(String word)
+	{
+		if (word == null) return -1;
+		int h = word.hashCode(), mask = table.capacity() - 1, i, row;
+		byte[] bytes = null;
+		
+		for (i=mix(h)&mask; (row = table.get(i) - 1) >= 0; i=(i+1)&mask)
+		{
+			if (hashes.get(row) != h) continue;
+			if (bytes == null) bytes = word.getBytes(StandardCharsets.UTF_8);
+			if (equals(row, bytes)) return row;
+		}
+		
+		return -1;
+	}
+	
+	private boolean equals(int row, byte[] bytes)
+	{
+		int begin = key_offsets.get(row), end = key_offsets.get(row+1);
+		if (end - begin != bytes.length) return false;
+		
+		for (int i=0; i<bytes.length; i++)
+			if (key_bytes.get(begin+i) != bytes[i]) return false;
+		
+		return true;
+	}
+	
+	/** Copies the vector of the specific row to {@code dest[offset:offset+D]}. */
+	public void copy(int row, float[] dest, int offset)
+	{
+		ByteBuffer segment = matrix[row / rows_per_segment];
+		int i, begin = (row % rows_per_segment) * row_bytes;
+		
+		switch (bits)
+		{
+		case Float.SIZE:
+			for (i=0; i<dimension; i++) dest[offset+i] = segment.getFloat(begin + i*Float.BYTES);
+			break;
+		case Short.SIZE:
+			for (i=0; i<dimension; i++) dest[offset+i] = QuantizationUtils.fromHalf(segment.getShort(begin + i*Short.BYTES));
+			break;
+		default:
+			float scale = scales.get(row);
+			for (i=0; i<dimension; i++) dest[offset+i] = segment.get(begin+i) * scale;
+		}
+	}
+	
+	/** Adds the vector of the specific row to {@code dest}. */
+	public void add(int row, float[] dest)
+	{
+		ByteBuffer segment = matrix[row / rows_per_segment];
+		int i, begin = (row % rows_per_segment) * row_bytes;
+		
+		switch (bits)
+		{
+		case Float.SIZE:
+			for (i=0; i<dimension; i++) dest[i] += segment.getFloat(begin + i*Float.BYTES);
+			break;
+		case Short.SIZE:
+			for (i=0; i<dimension; i++) dest[i] += QuantizationUtils.fromHalf(segment.getShort(begin + i*Short.BYTES));
+			break;
+		default:
+			float scale = scales.get(row);
+			for (i=0; i<dimension; i++) dest[i] += segment.get(begin+i) * scale;
+		}
+	}
+	
+	/** @return a copy of the vector of the specific row. */
+	public float[] get(int row)
+	{
+		float[] v = new float[dimension];
+		copy(row, v, 0);
+		return v;
+	}
+	
+	/** @return the number of rows. */
+	public int size()
+	{
+		return vocab_size;
+	}
+	
+	public int getDimension()
+	{
+		return dimension;
+	}
+	
+	/** @return the number of bits per value in the matrix: 32, 16, or 8. */
+	public int getBits()
+	{
+		return bits;
+	}
+	
+//	============================== CONVERSION ==============================
+	
+	/** Calls {@link #convert(InputStream, String, Predicate, int)} with 32 bits. */
+	static public int convert(InputStream in, String outputFile, Predicate<String> skip) throws IOException
+	{
+		return convert(in, outputFile, skip, Float.SIZE);
+	}
+	
+	/**
+	 * Converts the word embeddings in the word2vec text format (the first line gives the vocabulary size and the dimension)
+	 * to the binary format, writing each vector as it is read.
+	 * If a word appears more than once, its last vector is used.
+	 * @param skip returns {@code true} for words to be discarded.
+	 * @param bits the number of bits per value: 32 (floats), 16 (half-precision floats), or 8 (integers with a scale per row).
+	 * @return the number of rows written.
+	 */
+	static public int convert(InputStream in, String outputFile, Predicate<String> skip, int bits) throws IOException
+	{
+		if (bits != Float.SIZE && bits != Short.SIZE && bits != Byte.SIZE)
+			throw new IllegalArgumentException("Unsupported number of bits: "+bits);
+		
+		BufferedReader reader = IOUtils.createBufferedReader(in);
+		Object2IntMap<String> rows = new Object2IntOpenHashMap<>();
+		String[] t = Splitter.splitSpace(reader.readLine());
+		final int V = Integer.parseInt(t[0]);
+		final int D = Integer.parseInt(t[1]);
+		float[] vector = new float[D], scales = null;
+		int i, j, size = 0, tableSize;
+		long keyLength = 0;
+		String[] words;
+		String line;
+		
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile), 1 << 16)))
+		{
+			out.write(new byte[HEADER_SIZE]);
+			words = new String[V];
+			if (bits == Byte.SIZE) scales = new float[V];
+			
+			for (i=0; i<V; i++)
+			{
+				if ((line = reader.readLine()) == null)
+					throw new IOException("The header gives "+V+" words, but only "+i+" vectors are found.");
+				
+				t = Splitter.splitSpace(line);
+				if (t.length <= D) throw new IOException("The vector of \""+t[0]+"\" has "+(t.length-1)+" values instead of "+D+".");
+				if (skip.test(t[0])) continue;
+				
+				for (j=0; j<D; j++)
+					vector[j] = Float.parseFloat(t[j+1]);
+				
+				switch (bits)
+				{
+				case Float.SIZE: for (j=0; j<D; j++) out.writeFloat(vector[j]); break;
+				case Short.SIZE: for (j=0; j<D; j++) out.writeShort(QuantizationUtils.toHalf(vector[j])); break;
+				default:
+					scales[size] = QuantizationUtils.getByteScale(vector, 0, D);
+					for (j=0; j<D; j++) out.writeByte(QuantizationUtils.toByte(vector[j], scales[size]));
+				}
+				
+				rows.put(t[0], size);
+				words[size++] = t[0];
+			}
+			
+			if (scales != null)
+			{
+				for (i=0; i<size; i++)
+					out.writeFloat(scales[i]);
+			}
+			
+			// hashes and words
+			byte[][] bytes = new byte[size][];
+			
+			for (i=0; i<size; i++)
+			{
+				out.writeInt(words[i].hashCode());
+				bytes[i] = words[i].getBytes(StandardCharsets.UTF_8);
+				keyLength += bytes[i].length;
+			}
+			
+			if (keyLength > Integer.MAX_VALUE) throw new IOException("Too many bytes in the vocabulary: "+keyLength);
+			for (i=0, j=0; i<=size; j+=(i<size)?bytes[i].length:0, i++) out.writeInt(j);
+			for (i=0; i<size; i++) out.write(bytes[i]);
+			
+			// the table is at most half full; duplicate words point to their last rows
+			int[] table = new int[Integer.highestOneBit(Math.max(1, rows.size()) * 2) << 1];
+			int mask = table.length - 1;
+			
+			for (Object2IntMap.Entry<String> e : rows.object2IntEntrySet())
+			{
+				for (j=mix(e.getKey().hashCode())&mask; table[j] != 0; j=(j+1)&mask);
+				table[j] = e.getIntValue() + 1;
+			}
+			
+			for (int row : table) out.writeInt(row);
+			tableSize = table.length;
+		}
+		
+		// the header is written once the rest of the file is flushed and closed
+		try (RandomAccessFile file = new RandomAccessFile(outputFile, "rw"))
+		{
+			file.writeInt(MAGIC);
+			file.writeInt(size);
+			file.writeInt(D);
+			file.writeInt(tableSize);
+			file.writeLong(keyLength);
+			file.writeInt(bits);
+		}
+		
+		return size;
+	}
+	
+	/** Spreads the string hash over the lower bits used by the table. */
+	static private int mix(int h)
+	{
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "EmbeddingStore: V = "+vocab_size+", D = "+dimension+", bits = "+bits+", table = "+table.capacity();
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Gazetteer stored as a trie over interned token IDs in flat int arrays, an alternative to
+ * {@code PrefixTree<String,Set<String>>} that loads without rebuilding an object graph and takes a few ints per trie node.
+ * Nodes are numbered in breadth-first order so the children of each node are contiguous and sorted by their token IDs;
+ * the children of the root are indexed directly by token ID, and the others are found by binary search.
+ * Entity types are stored as bit sets (up to 32 types), and their BILOU tags are created once.
+ * Entries are added by {@link #add(String[], String)}, and the trie is built by {@link #freeze()}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class GazetteerTrie implements Serializable
+{
+	private static final long serialVersionUID = -4617339409436781585L;
+	static private final int MAX_TYPES = Integer.SIZE;
+	
+	private String[] tokens;
+	private List<String> type_names;
+	private int[] root_children;
+	private int[] child_begin;
+	private int[] child_tokens;
+	private int[] node_types;
+	
+	private transient Object2IntMap<String> token_map;
+	private transient String[][] bilou_tags;
+	private transient List<int[]> entries;
+	
+	public GazetteerTrie()
+	{
+		token_map  = createTokenMap();
+		type_names = new ArrayList<>();
+		entries    = new ArrayList<>();
+	}
+	
+	/**
+	 * Adds the entry consisting of the tokens with the entity type.
+	 * @throws IllegalStateException if this trie is frozen.
+	 * @throws IllegalArgumentException if there are more than 32 entity types.
+	 */
+	public void add(String[] entry, String type)
+	{
+		if (isFrozen()) throw new IllegalStateException("Entries cannot be added to a frozen gazetteer.");
+		int i, t = type_names.indexOf(type);
+		
+		if (t < 0)
+		{
+			if (type_names.size() == MAX_TYPES) throw new IllegalArgumentException("Too many entity types: "+type);
+			t = type_names.size();
+			type_names.add(type);
+		}
+		
+		// the last element is the entity type
+		int[] ids = new int[entry.length+1];
+		
+		for (i=0; i<entry.length; i++)
+		{
+			ids[i] = token_map.getInt(entry[i]);
+			
+			if (ids[i] < 0)
+			{
+				ids[i] = token_map.size();
+				token_map.put(entry[i], ids[i]);
+			}
+		}
+		
+		ids[i] = t;
+		entries.add(ids);
+	}
+	
+	/** Builds the trie from the added entries; no more entries can be added afterwards. */
+	public void freeze()
+	{
+		if (isFrozen()) return;
+		entries.sort(GazetteerTrie::compare);
+		IntArrayList begins = new IntArrayList(), labels = new IntArrayList(), types = new IntArrayList();
+		IntArrayList lows = new IntArrayList(), highs = new IntArrayList(), depths = new IntArrayList();
+		int n, lo, hi, d, k, t, mask;
+		
+		// each node covers the entries sharing the same prefix
+		lows.add(0); highs.add(entries.size()); depths.add(0); labels.add(-1);
+		
+		for (n=0; n<lows.size(); n++)
+		{
+			lo = lows.getInt(n); hi = highs.getInt(n); d = depths.getInt(n);
+			begins.add(lows.size());
+			
+			for (mask=0; lo<hi && entries.get(lo).length-1 == d; lo++)
+				mask |= 1 << entries.get(lo)[d];
+			
+			types.add(mask);
+			
+			for (; lo<hi; lo=k)
+			{
+				t = entries.get(lo)[d];
+				for (k=lo+1; k<hi && entries.get(k)[d] == t; k++);
+				lows.add(lo); highs.add(k); depths.add(d+1); labels.add(t);
+			}
+		}
+		
+		begins.add(lows.size());
+		child_begin  = begins.toIntArray();
+		child_tokens = labels.toIntArray();
+		node_types   = types.toIntArray();
+		tokens       = new String[token_map.size()];
+		for (Object2IntMap.Entry<String> e : token_map.object2IntEntrySet()) tokens[e.getIntValue()] = e.getKey();
+		
+		root_children = new int[tokens.length];
+		Arrays.fill(root_children, -1);
+		for (n=child_begin[0]; n<child_begin[1]; n++) root_children[child_tokens[n]] = n;
+		
+		entries = null;
+		initBILOUTags();
+	}
+	
+	public boolean isFrozen()
+	{
+		return child_begin != null;
+	}
+	
+	/** @return the number of trie nodes including the root. */
+	public int size()
+	{
+		return node_types.length;
+	}
+	
+	public List<String> getTypeList()
+	{
+		return type_names;
+	}
+	
+//	============================== PROCESS ==============================
+	
+	/**
+	 * Adds the BILOU gazetteer tags of every entry matching a span of the nodes, where entries may overlap.
+	 * @param key returns the key of each node used to match the tokens (e.g., the simplified word form).
+	 */
+	public <N extends AbstractNLPNode<N>>void process(N[] nodes, Function<N,String> key)
+	{
+		int[] ids = new int[nodes.length];
+		int i, j, node;
+		
+		for (i=1; i<nodes.length; i++)
+			ids[i] = token_map.getInt(key.apply(nodes[i]));
+		
+		for (i=1; i<nodes.length; i++)
+		{
+			node = (ids[i] < 0) ? -1 : root_children[ids[i]];
+			
+			for (j=i; node >= 0; node=getChild(node, ids[j]))
+			{
+				if (node_types[node] != 0) addTags(nodes, i, j, node_types[node]);
+				if (++j == nodes.length || ids[j] < 0) break;
+			}
+		}
+	}
+	
+	/** @return the child of the node by the token ID if exists; otherwise, -1. */
+	private int getChild(int node, int token)
+	{
+		int lo = child_begin[node], hi = child_begin[node+1] - 1, mid;
+		
+		while (lo <= hi)
+		{
+			mid = (lo + hi) >>> 1;
+			if      (child_tokens[mid] < token) lo = mid + 1;
+			else if (child_tokens[mid] > token) hi = mid - 1;
+			else return mid;
+		}
+		
+		return -1;
+	}
+	
+	/** Adds the BILOU tags of the entity types in the mask to the nodes between the begin and end indices (inclusive). */
+	private <N extends AbstractNLPNode<N>>void addTags(N[] nodes, int begin, int end, int mask)
+	{
+		for (int t=0; mask != 0; t++, mask>>>=1)
+		{
+			if ((mask & 1) == 0) continue;
+			
+			if (begin == end)
+				nodes[begin].addNamedEntityGazetteer(bilou_tags[BILOU.U.ordinal()][t]);
+			else
+			{
+				nodes[begin].addNamedEntityGazetteer(bilou_tags[BILOU.B.ordinal()][t]);
+				nodes[end  ].addNamedEntityGazetteer(bilou_tags[BILOU.L.ordinal()][t]);
+				
+				for (int j=begin+1; j<end; j++)
+					nodes[j].addNamedEntityGazetteer(bilou_tags[BILOU.I.ordinal()][t]);
+			}
+		}
+	}
+	
+//	============================== HELPERS ==============================
+	
+	static private int compare(int[] a, int[] b)
+	{
+		int i, size = Math.min(a.length, b.length) - 1;
+		
+		for (i=0; i<size; i++)
+			if (a[i] != b[i]) return Integer.compare(a[i], b[i]);
+		
+		return Integer.compare(a.length, b.length);
+	}
+	
+	static private Object2IntMap<String> createTokenMap()
+	{
+		Object2IntMap<String> map = new Object2IntOpenHashMap<>();
+		map.defaultReturnValue(-1);
+		return map;
+	}
+	
+	private void initBILOUTags()
+	{
+		bilou_tags = new String[BILOU.values().length][type_names.size()];
+		
+		for (BILOU b : BILOU.values())
+			for (int t=0; t<type_names.size(); t++)
+				bilou_tags[b.ordinal()][t] = BILOU.toBILOUTag(b, type_names.get(t));
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		if (!isFrozen()) throw new IllegalStateException("The gazetteer must be frozen before it is saved.");
+		out.defaultWriteObject();
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		token_map = createTokenMap();
+		for (int i=0; i<tokens.length; i++) token_map.put(tokens[i], i);
+		initBILOUTags();
+	}
+}
@@ -15,6 +15,7 @@
  */
 package edu.emory.mathcs.nlp.component.template.util;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.util.List;
@@ -44,7 +45,9 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	protected Pair<Map<String,List<String>>,Field>       ambiguity_classes;
 	protected Pair<Map<String,Set<String>>,Field>        word_clusters;	
 	protected Pair<Map<String,float[]>,Field>            word_embeddings;
+	protected Pair<EmbeddingStore,Field>                 embedding_store;
 	protected Pair<PrefixTree<String,Set<String>>,Field> named_entity_gazetteers;
+	protected Pair<GazetteerTrie,Field>                  named_entity_trie;
 	protected Pair<Set<String>,Field>                    stop_words;
 	
 //	=================================== CONSTRUCTOR ===================================
@@ -62,11 +65,46 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 		
 		setAmbiguityClasses     (getLexiconFieldPair(eLexica, "ambiguity_classes"      , "Loading ambiguity classes"));
 		setWordClusters         (getLexiconFieldPair(eLexica, "word_clusters"          , "Loading word clusters"));
-		setWordEmbeddings       (getLexiconFieldPair(eLexica, "word_embeddings"        , "Loading word embeddings"));
-		setNamedEntityGazetteers(getLexiconFieldPair(eLexica, "named_entity_gazetteers", "Loading named entity gazetteers"));
+		loadWordEmbeddings(eLexica);
+		loadNamedEntityGazetteers(eLexica);
 		setStopWords            (getLexiconFieldPair(eLexica, "stop_words"             , "Loading stop words"));
 	}
 	
+	/** Memory-maps {@link EmbeddingStore} if the file is in its binary format; otherwise, deserializes the map of embeddings. */
+	protected void loadWordEmbeddings(Element eLexica)
+	{
+		Element element = XMLUtils.getFirstElementByTagName(eLexica, "word_embeddings");
+		if (element == null) return;
+		String path = XMLUtils.getTrimmedTextContent(element);
+		
+		if (EmbeddingStore.isEmbeddingStore(path))
+		{
+			BinUtils.LOG.info("Mapping word embeddings\n");
+			Field field = Field.valueOf(XMLUtils.getTrimmedAttribute(element, FIELD));
+			
+			try
+			{
+				setEmbeddingStore(new Pair<>(new EmbeddingStore(path), field));
+			}
+			catch (IOException e) {e.printStackTrace();}
+		}
+		else
+			setWordEmbeddings(getLexiconFieldPair(element, "Loading word embeddings"));
+	}
+	
+	/** Loads either {@link GazetteerTrie} or {@link PrefixTree}, depending on the type of the serialized object. */
+	@SuppressWarnings("unchecked")
+	protected void loadNamedEntityGazetteers(Element eLexica)
+	{
+		Pair<Object,Field> p = getLexiconFieldPair(eLexica, "named_entity_gazetteers", "Loading named entity gazetteers");
+		if (p == null || p.o1 == null) return;
+		
+		if (p.o1 instanceof GazetteerTrie)
+			setNamedEntityTrie(new Pair<>((GazetteerTrie)p.o1, p.o2));
+		else
+			setNamedEntityGazetteers(new Pair<>((PrefixTree<String,Set<String>>)p.o1, p.o2));
+	}
+	
 	protected <T>Pair<T,Field> getLexiconFieldPair(Element eLexica, String tag, String message)
 	{
 		return getLexiconFieldPair(XMLUtils.getFirstElementByTagName(eLexica, tag), message);
@@ -125,6 +163,16 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 		word_embeddings = embeddings;
 	}
 	
+	public Pair<EmbeddingStore,Field> getEmbeddingStore()
+	{
+		return embedding_store;
+	}
+	
+	public void setEmbeddingStore(Pair<EmbeddingStore,Field> store)
+	{
+		embedding_store = store;
+	}
+	
 	public Pair<PrefixTree<String,Set<String>>,Field> getNamedEntityGazetteers()
 	{
 		return named_entity_gazetteers;
@@ -135,6 +183,16 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 		named_entity_gazetteers = gazetteers;
 	}
 	
+	public Pair<GazetteerTrie,Field> getNamedEntityTrie()
+	{
+		return named_entity_trie;
+	}
+	
+	public void setNamedEntityTrie(Pair<GazetteerTrie,Field> trie)
+	{
+		named_entity_trie = trie;
+	}
+	
 	public Pair<Set<String>,Field> getStopWords()
 	{
 		return stop_words;
@@ -194,6 +252,12 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	
 	public void processWordEmbeddings(N[] nodes)
 	{
+		if (embedding_store != null)
+		{
+			for (int i=1; i<nodes.length; i++)
+				nodes[i].setWordEmbedding(embedding_store.o1, embedding_store.o1.getRow(getKey(nodes[i], embedding_store.o2)));
+		}
+		
 		if (word_embeddings == null) return;
 		float[] embedding;
 		N node;
@@ -208,6 +272,7 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	
 	public void processNamedEntityGazetteers(N[] nodes)
 	{
+		if (named_entity_trie != null) named_entity_trie.o1.process(nodes, n -> getKey(n, named_entity_trie.o2));
 		if (named_entity_gazetteers == null) return;
 		List<ObjectIntIntTriple<Set<String>>> list = named_entity_gazetteers.o1.getAll(nodes, 1, n -> getKey(n, named_entity_gazetteers.o2), false, false);
 		
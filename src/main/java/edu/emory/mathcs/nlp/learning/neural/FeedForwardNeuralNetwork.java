@@ -15,10 +15,20 @@
  */
 package edu.emory.mathcs.nlp.learning.neural;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
 import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
 import edu.emory.mathcs.nlp.learning.activation.ActivationFunction;
+import edu.emory.mathcs.nlp.learning.activation.SoftmaxFunction;
 import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
 import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
 import edu.emory.mathcs.nlp.learning.optimization.reguralization.Regularizer;
@@ -50,6 +60,11 @@ public abstract class FeedForwardNeuralNetwork extends OnlineOptimizer
 	protected WeightVector[]  w_h2h;
 	protected WeightGenerator generator;
 	
+	// mini-batch training
+	protected transient List<Instance>  batch_instances;
+	protected transient List<float[][]> batch_layers;
+	protected transient ForkJoinPool    batch_pool;
+	
 //	============================== CONSTRUCTORS ==============================
 	
 	public FeedForwardNeuralNetwork(int[] hiddenDimensions, ActivationFunction[] functions, float learningRate, float bias, WeightGenerator generator, float[] dropout_prob)
@@ -72,7 +87,17 @@ public abstract class FeedForwardNeuralNetwork extends OnlineOptimizer
 	 */
 	public FeedForwardNeuralNetwork(int[] hiddenDimensions, ActivationFunction[] functions, float learningRate, float bias, WeightGenerator generator, Regularizer l1, float[] dropout_prob)
 	{
-		super(new WeightVector(functions[0]), learningRate, bias, l1);
+		this(new WeightVector(), hiddenDimensions, functions, learningRate, bias, generator, l1, dropout_prob);
+	}
+	
+	/**
+	 * @param vector the weights between the input and the first hidden layers;
+	 * the weights of the other layers are backed by the same kinds of major vectors.
+	 */
+	public FeedForwardNeuralNetwork(WeightVector vector, int[] hiddenDimensions, ActivationFunction[] functions, float learningRate, float bias, WeightGenerator generator, Regularizer l1, float[] dropout_prob)
+	{
+		super(vector, learningRate, bias, l1);
+		vector.setActivationFunction(functions[0]);
 		
 		// dimensions
 		hidden_dimensions = hiddenDimensions;
@@ -87,33 +112,117 @@ public abstract class FeedForwardNeuralNetwork extends OnlineOptimizer
 		
 		for (int i=1; i<hiddenDimensions.length; i++)
 		{
-			w_h2h[i-1] = new WeightVector(functions[i]);
+			w_h2h[i-1] = vector.createEmptyVector(functions[i]);
 			w_h2h[i-1].expand(sparseFeatureSize, hiddenDimensions[i-1], hiddenDimensions[i], generator);
 		}
 		
-		w_h2o = new WeightVector(createActivationFunctionH2O());
+		w_h2o = vector.createEmptyVector(createActivationFunctionH2O());
 		this.generator = generator;
 	}
 	
+	@Override
+	public List<WeightVector> getWeightVectors()
+	{
+		List<WeightVector> list = new ArrayList<>(w_h2h.length + 2);
+		list.add(weight_vector);
+		list.addAll(Arrays.asList(w_h2h));
+		list.add(w_h2o);
+		return list;
+	}
+	
+	@Override
+	public void freeze()
+	{
+		super.freeze();
+		for (WeightVector w : w_h2h) w.freeze();
+		w_h2o.freeze();
+		sampled_thinned_network = null;
+		setMiniBatch(false, 0);
+	}
+	
 	/** @return the activation function between the last hidden layer to the output layer. */
 	protected abstract ActivationFunction createActivationFunctionH2O();
 	
+	@Override
+	public boolean isProbabilistic()
+	{
+		return w_h2o.getActivationFunction() instanceof SoftmaxFunction;
+	}
+	
 //	=================================== OVERRIDE ===================================
 
 	@Override
 	public void train(Instance instance)
 	{
 		augment(instance);
-		sampleThinnedNetwork(instance);
+		if (!isMiniBatch()) sampleThinnedNetwork(instance);
 		expand(instance.getFeatureVector());
-		float[][] layers = forwardPropagation(instance.getFeatureVector(), NLPFlag.TRAIN);
+		// no dropout is applied while mini-batch training
+		float[][] layers = forwardPropagation(instance.getFeatureVector(), isMiniBatch() ? NLPFlag.EVALUATE : NLPFlag.TRAIN);
 		instance.setScores(layers[layers.length-1]);
 		int yhat = getPredictedLabel(instance);
 		instance.setPredictedLabel(yhat);
-		if (!instance.isGoldLabel(yhat)) backwardPropagation(instance, layers);
+		
+		if (!instance.isGoldLabel(yhat))
+		{
+			if (isMiniBatch())
+			{
+				batch_instances.add(instance);
+				batch_layers.add(layers);
+			}
+			else
+				backwardPropagation(instance, layers);
+		}
+		
 		steps++;
 	}
 	
+	/**
+	 * Trains the instances as one mini-batch: they are predicted by forward propagating their vectors stacked as matrices,
+	 * and the errors of the mispredicted instances are propagated back together before the weights are updated once.
+	 * This is for instances known beforehand; the components predict each instance from the state left by the previous one,
+	 * so they train through {@link #train(Instance)} in mini-batch mode, which batches the backward propagation only.
+	 * @throws IllegalStateException if dropout is used.
+	 */
+	public void train(List<Instance> instances)
+	{
+		if (dropout_prob != null) throw new IllegalStateException("Mini-batch training is not supported with dropout.");
+		FeatureVector[] xs = new FeatureVector[instances.size()];
+		int b, yhat, size = 0;
+		Instance instance;
+		
+		for (b=0; b<xs.length; b++)
+		{
+			instance = instances.get(b);
+			augment(instance);
+			expand(instance.getFeatureVector());
+			xs[b] = instance.getFeatureVector();
+		}
+		
+		float[][][] layers = forwardPropagation(xs);
+		float[][][] mispredictedLayers = new float[layers.length][xs.length][];
+		Instance[] mispredicted = new Instance[xs.length];
+		
+		for (b=0; b<xs.length; b++)
+		{
+			instance = instances.get(b);
+			instance.setScores(layers[layers.length-1][b]);
+			yhat = getPredictedLabel(instance);
+			instance.setPredictedLabel(yhat);
+			steps++;
+			
+			if (!instance.isGoldLabel(yhat))
+			{
+				for (int i=0; i<layers.length; i++) mispredictedLayers[i][size] = layers[i][b];
+				mispredicted[size++] = instance;
+			}
+		}
+		
+		if (size == 0) return;
+		for (int i=0; i<layers.length; i++) mispredictedLayers[i] = Arrays.copyOf(mispredictedLayers[i], size);
+		backwardPropagation(Arrays.copyOf(mispredicted, size), mispredictedLayers);
+	}
+	
 	@Override
 	protected void expand(FeatureVector x)
 	{
@@ -141,6 +250,110 @@ public abstract class FeedForwardNeuralNetwork extends OnlineOptimizer
 	{
 		return forwardPropagation(x, NLPFlag.EVALUATE)[hidden_dimensions.length];
 	}
+	
+	@Override
+	public float[][] scores(FeatureVector[] xs)
+	{
+		return forwardPropagation(xs)[hidden_dimensions.length];
+	}
+	
+//	============================== MINI-BATCH ==============================
+	
+	/** Mini-batch training is enabled if {@link HyperParameter#getBatchSize()} is greater than 0; see {@link #setMiniBatch(boolean, int)}. */
+	@Override
+	public void adapt(HyperParameter hp)
+	{
+		super.adapt(hp);
+		setMiniBatch(hp.getBatchSize() > 0, hp.getBatchThreadSize());
+	}
+	
+	/**
+	 * While mini-batch training, {@link #train(Instance)} predicts each instance by the weights at the beginning of the mini-batch
+	 * and keeps its layers if mispredicted, and {@link #updateMiniBatch()} propagates the errors of all kept instances back as matrices
+	 * and updates the weights once. Mini-batch training is ignored with dropout, which samples a thinned network per instance.
+	 * @param threadSize the number of threads used within each mini-batch; each mini-batch is processed sequentially if this is less than 2.
+	 */
+	public void setMiniBatch(boolean miniBatch, int threadSize)
+	{
+		if (batch_pool != null) batch_pool.shutdown();
+		miniBatch &= dropout_prob == null;
+		
+		batch_instances = miniBatch ? new ArrayList<>() : null;
+		batch_layers    = miniBatch ? new ArrayList<>() : null;
+		batch_pool      = (threadSize > 1) ? new ForkJoinPool(threadSize) : null;
+	}
+	
+	public boolean isMiniBatch()
+	{
+		return batch_instances != null;
+	}
+	
+	@Override
+	public void updateMiniBatch()
+	{
+		if (!isMiniBatch() || batch_instances.isEmpty()) return;
+		Instance[] instances = batch_instances.toArray(new Instance[batch_instances.size()]);
+		float[][][] layers = new float[hidden_dimensions.length+1][instances.length][];
+		
+		for (int b=0; b<instances.length; b++)
+			for (int i=0; i<layers.length; i++)
+				layers[i][b] = batch_layers.get(b)[i];
+		
+		batch_instances.clear();
+		batch_layers.clear();
+		backwardPropagation(instances, layers);
+	}
+	
+	/** @return the number of parts that a mini-batch is divided into, which is the number of its threads. */
+	protected int getPartSize()
+	{
+		return (batch_pool != null) ? batch_pool.getParallelism() : 1;
+	}
+	
+	/** Calls {@code task} for every part in [0, {@link #getPartSize()}), where the parts are processed by different threads if any. */
+	protected void forEachPart(IntConsumer task)
+	{
+		int parts = getPartSize();
+		
+		if (parts == 1)
+		{
+			task.accept(0);
+			return;
+		}
+		
+		List<Callable<Object>> tasks = new ArrayList<>(parts);
+		
+		for (int part=0; part<parts; part++)
+		{
+			int p = part;
+			tasks.add(Executors.callable(() -> task.accept(p)));
+		}
+		
+		try
+		{
+			for (Future<Object> future : batch_pool.invokeAll(tasks)) future.get();
+		}
+		catch (InterruptedException | ExecutionException e) {throw new IllegalStateException(e);}
+	}
+	
+	/** Adds the transposed scores of the vectors divided into parts; see {@link MajorVector#addTransposedScores(float[][], float[][])}. */
+	protected void addTransposedScores(MajorVector weights, float[][] x, float[][] scores)
+	{
+		int size = x.length, parts = getPartSize();
+		
+		forEachPart(part ->
+		{
+			int begin = size * part / parts, end = size * (part+1) / parts;
+			weights.addTransposedScores(Arrays.copyOfRange(x, begin, end), Arrays.copyOfRange(scores, begin, end));
+		});
+	}
+	
+	/** Adds the outer products to the weights divided into parts; see {@link MajorVector#addOuterProducts(float, float[][], float[][], int, int)}. */
+	protected void addOuterProducts(MajorVector weights, float alpha, float[][] g, float[][] x)
+	{
+		int parts = getPartSize();
+		forEachPart(part -> weights.addOuterProducts(alpha, g, x, part, parts));
+	}
 
 //	============================== PROPAGATION ==============================
 	
@@ -194,6 +407,49 @@ public abstract class FeedForwardNeuralNetwork extends OnlineOptimizer
 		return layers;
 	}
 
+	/**
+	 * Forward propagates the vectors stacked as matrices, which are divided into parts; dropout is not applied.
+	 * @return {@code layers[i][b]} is the {@code i}'th layer of {@code xs[b]}; see {@link #forwardPropagation(FeatureVector, NLPFlag)}.
+	 */
+	public float[][][] forwardPropagation(FeatureVector[] xs)
+	{
+		float[][][] layers = new float[hidden_dimensions.length+1][xs.length][];
+		int size = xs.length, parts = getPartSize();
+		
+		forEachPart(part ->
+		{
+			int begin = size * part / parts, end = size * (part+1) / parts;
+			float[][][] sub = forwardPropagationAux(Arrays.copyOfRange(xs, begin, end));
+			for (int i=0; i<sub.length; i++) System.arraycopy(sub[i], 0, layers[i], begin, end - begin);
+		});
+		
+		return layers;
+	}
+	
+	private float[][][] forwardPropagationAux(FeatureVector[] xs)
+	{
+		float[][][] layers = new float[hidden_dimensions.length+1][][];
+		FeatureVector[] inputs = new FeatureVector[xs.length];
+		int i, b;
+		
+		// input -> hidden
+		layers[0] = weight_vector.scores(xs, 0);
+		
+		// hidden -> hidden, hidden -> output
+		for (i=1; i<layers.length; i++)
+		{
+			for (b=0; b<xs.length; b++)
+			{
+				inputs[b] = new FeatureVector(layers[i-1][b]);
+				augment(inputs[b]);
+			}
+			
+			layers[i] = (i < hidden_dimensions.length ? w_h2h[i-1] : w_h2o).scores(inputs, 0);
+		}
+		
+		return layers;
+	}
+
 	// back-propagation
 	public void backwardPropagation(Instance instance, float[][] layers)
 	{
@@ -215,6 +471,29 @@ public abstract class FeedForwardNeuralNetwork extends OnlineOptimizer
 	protected abstract float[] backwardPropagationH2H(MajorVector weights, float[] gradients, float[] input, float[] output, int layer);
 	protected abstract void    backwardPropagationH2I(FeatureVector input, float[] gradients, float[] output);
 	
+	/** Propagates the errors of the instances back together, where {@code layers[i][b]} is the {@code i}'th layer of {@code instances[b]}. */
+	public void backwardPropagation(Instance[] instances, float[][][] layers)
+	{
+		FeatureVector[] xs = new FeatureVector[instances.length];
+		int i = layers.length - 2;
+		float[][] errors;
+		
+		// output -> hidden
+		errors = backwardPropagationO2H(instances, layers[i]);
+		
+		// hidden -> hidden
+		for (i--; i>=0; i--)
+			errors = backwardPropagationH2H(w_h2h[i].getDenseWeightVector(), errors, layers[i]);
+		
+		// hidden -> input
+		for (i=0; i<xs.length; i++) xs[i] = instances[i].getFeatureVector();
+		backwardPropagationH2I(xs, errors);
+	}
+	
+	protected abstract float[][] backwardPropagationO2H(Instance[] instances, float[][] inputs);
+	protected abstract float[][] backwardPropagationH2H(MajorVector weights, float[][] gradients, float[][] inputs);
+	protected abstract void      backwardPropagationH2I(FeatureVector[] inputs, float[][] gradients);
+	
 	@Override
 	public String toString()
 	{
@@ -24,6 +24,7 @@ import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.Instance;
 import edu.emory.mathcs.nlp.learning.util.MajorVector;
 import edu.emory.mathcs.nlp.learning.util.SparseItem;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -43,6 +44,11 @@ public class FeedForwardNeuralNetworkSoftmax extends FeedForwardNeuralNetwork
 		super(hiddenDimensions, functions, learningRate, bias, initializer, dropout_prob);
 	}
 	
+	public FeedForwardNeuralNetworkSoftmax(WeightVector vector, int[] hiddenDimensions, ActivationFunction[] functions, float learningRate, float bias, WeightGenerator initializer, float [] dropout_prob)
+	{
+		super(vector, hiddenDimensions, functions, learningRate, bias, initializer, null, dropout_prob);
+	}
+	
 //	============================== OVERRIDE ==============================
 	
 	@Override
@@ -63,11 +69,11 @@ public class FeedForwardNeuralNetworkSoftmax extends FeedForwardNeuralNetwork
 		return learning_rate;
 	}
 	
-	@Override
-	public void updateMiniBatch() {}
-	
 //	============================== BACKWARD PROPAGATION ==============================
 	/**
+	 * Without dropout, every unit is retained and the learning rate is the same for all weights,
+	 * so the errors and the updates of the dense weights are computed as whole matrix operations
+	 * ({@link MajorVector#addTransposedScores(float[], float[])}, {@link MajorVector#addOuterProduct(float, float[], float[])}).<br>
 	 * Found a minor bug:<br>
 	 * Need to check if the weights of the connections from bias units get updated in back propagation or not.<br>
 	 */
@@ -85,6 +91,15 @@ public class FeedForwardNeuralNetworkSoftmax extends FeedForwardNeuralNetwork
 		
 		MajorVector weights = w_h2o.getDenseWeightVector();
 		
+		if (dropout_prob == null)
+		{
+			float[] g = new float[gradients.length];
+			for (int y=0; y<g.length; y++) g[y] = gradients[y] * output[y];
+			weights.addTransposedScores(g, errors);
+			weights.addOuterProduct(-learning_rate, gradients, input);
+			return errors;
+		}
+		
 		for (int y=0; y<gradients.length; y++)
 		{
 			for (int xi=0; xi<input.length; xi++)
@@ -107,6 +122,13 @@ public class FeedForwardNeuralNetworkSoftmax extends FeedForwardNeuralNetwork
 		float[] errors = new float[input.length];
 		int index;
 		
+		if (dropout_prob == null)
+		{
+			weights.addTransposedScores(gradients, errors);
+			weights.addOuterProduct(-learning_rate, gradients, input);
+			return errors;
+		}
+		
 		for (int y=0; y<gradients.length; y++)
 		{
 			for (int xi=0; xi<input.length; xi++)
@@ -150,6 +172,12 @@ public class FeedForwardNeuralNetworkSoftmax extends FeedForwardNeuralNetwork
 			weights = weight_vector.getDenseWeightVector();
 			float[] x = input.getDenseVector();
 			
+			if (dropout_prob == null)
+			{
+				weights.addOuterProduct(-learning_rate, gradients, x);
+				return;
+			}
+			
 			for (int y=0; y<gradients.length; y++)
 			{
 				for (int xi=0; xi<x.length; xi++)
@@ -162,4 +190,75 @@ public class FeedForwardNeuralNetworkSoftmax extends FeedForwardNeuralNetwork
 			}
 		}
 	}
+	
+//	============================== MINI-BATCH BACKWARD PROPAGATION ==============================
+	/**
+	 * The same updates as the ones without dropout, except that the errors of all instances are computed by the weights before the updates,
+	 * and the gradients of all instances are added to the weights at once.
+	 */
+	
+	@Override
+	protected float[][] backwardPropagationO2H(Instance[] instances, float[][] inputs)
+	{
+		MajorVector weights = w_h2o.getDenseWeightVector();
+		float[][] gradients = new float[instances.length][];
+		float[][] g = new float[instances.length][];
+		float[][] errors = new float[instances.length][];
+		float[] output;
+		int b, y;
+		
+		for (b=0; b<instances.length; b++)
+		{
+			output = Arrays.copyOf(instances[b].getScores(), getLabelSize());
+			gradients[b] = getGradientsRegression(instances[b]);
+			g[b] = new float[gradients[b].length];
+			
+			for (y=0; y<g[b].length; y++)
+			{
+				gradients[b][y] = -1 * gradients[b][y];
+				g[b][y] = gradients[b][y] * output[y];
+			}
+			
+			errors[b] = new float[inputs[b].length];
+		}
+		
+		addTransposedScores(weights, g, errors);
+		addOuterProducts(weights, -learning_rate, gradients, inputs);
+		return errors;
+	}
+	
+	@Override
+	protected float[][] backwardPropagationH2H(MajorVector weights, float[][] gradients, float[][] inputs)
+	{
+		float[][] errors = new float[inputs.length][];
+		
+		for (int b=0; b<inputs.length; b++)
+			errors[b] = new float[inputs[b].length];
+		
+		addTransposedScores(weights, gradients, errors);
+		addOuterProducts(weights, -learning_rate, gradients, inputs);
+		return errors;
+	}
+	
+	@Override
+	protected void backwardPropagationH2I(FeatureVector[] inputs, float[][] gradients)
+	{
+		MajorVector weights = weight_vector.getSparseWeightVector();
+		float[][] dense = new float[inputs.length][];
+		
+		for (int b=0; b<inputs.length; b++)
+		{
+			// sparse layer
+			if (inputs[b].hasSparseVector())
+			{
+				for (SparseItem p : inputs[b].getSparseVector())
+					for (int y=0; y<gradients[b].length; y++)
+						weights.add(weights.indexOf(y, p.getIndex()), gradients[b][y] * p.getValue());
+			}
+			
+			if (inputs[b].hasDenseVector()) dense[b] = inputs[b].getDenseVector();
+		}
+		
+		addOuterProducts(weight_vector.getDenseWeightVector(), -learning_rate, gradients, dense);
+	}
 }
@@ -16,6 +16,7 @@
 package edu.emory.mathcs.nlp.learning.optimization;
 
 import edu.emory.mathcs.nlp.common.util.MathUtils;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
 import edu.emory.mathcs.nlp.learning.optimization.reguralization.Regularizer;
 import edu.emory.mathcs.nlp.learning.util.MajorVector;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
@@ -40,6 +41,20 @@ public abstract class AdaptiveGradientDescent extends StochasticGradientDescent
 		diagonals = weight_vector.createZeroVector();
 	}
 	
+	@Override
+	public void adapt(HyperParameter hp)
+	{
+		super.adapt(hp);
+		if (diagonals == null) diagonals = weight_vector.createZeroVector();
+	}
+	
+	@Override
+	public void freeze()
+	{
+		super.freeze();
+		diagonals = null;
+	}
+	
 	@Override
 	protected boolean expand(int sparseFeatureSize, int denseFeatureSize, int labelSize)
 	{
@@ -17,11 +17,14 @@ package edu.emory.mathcs.nlp.learning.optimization;
 
 import java.util.Arrays;
 
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
 import edu.emory.mathcs.nlp.learning.optimization.reguralization.Regularizer;
 import edu.emory.mathcs.nlp.learning.util.MajorVector;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2FloatMap;
+import it.unimi.dsi.fastutil.longs.Long2FloatOpenHashMap;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -34,6 +37,9 @@ public abstract class AdaptiveGradientDescentMiniBatch extends AdaptiveGradientD
 	protected transient IntSet       dense_updated_indices;
 	protected transient int          batch_steps;
 	
+	// for concurrent training
+	protected transient ThreadLocal<Long2FloatMap[]> thread_gradients;
+	
 	public AdaptiveGradientDescentMiniBatch(WeightVector vector, float learningRate, float bias)
 	{
 		this(vector, learningRate, bias, null);
@@ -49,6 +55,37 @@ public abstract class AdaptiveGradientDescentMiniBatch extends AdaptiveGradientD
 		dense_updated_indices  = new IntOpenHashSet();
 	}
 	
+	@Override
+	public void adapt(HyperParameter hp)
+	{
+		super.adapt(hp);
+		
+		if (gradients == null)
+		{
+			batch_steps = 1;
+			gradients = weight_vector.createZeroVector();
+			sparse_updated_indices = new IntOpenHashSet();
+			dense_updated_indices  = new IntOpenHashSet();
+		}
+	}
+	
+	@Override
+	public void freeze()
+	{
+		super.freeze();
+		gradients = null;
+		sparse_updated_indices = null;
+		dense_updated_indices  = null;
+	}
+	
+	/** While concurrent, each thread accumulates its own gradients and applies them by {@link #updateMiniBatch()}. */
+	@Override
+	public void setConcurrent(boolean concurrent)
+	{
+		super.setConcurrent(concurrent);
+		thread_gradients = concurrent ? ThreadLocal.withInitial(() -> new Long2FloatMap[]{new Long2FloatOpenHashMap(), new Long2FloatOpenHashMap()}) : null;
+	}
+	
 	@Override
 	protected boolean expand(int sparseFeatureSize, int denseFeatureSize, int labelSize)
 	{
@@ -60,6 +97,12 @@ public abstract class AdaptiveGradientDescentMiniBatch extends AdaptiveGradientD
 	@Override
 	protected void updateWeight(int y, int xi, float gradient, boolean sparse)
  	{
+		if (isConcurrent())
+		{
+			getThreadGradients(sparse).addTo(getKey(y, xi), gradient);
+			return;
+		}
+		
 		MajorVector g = gradients.getMajorVector(sparse);
 		int index = g.indexOf(y, xi);
 
@@ -71,11 +114,75 @@ public abstract class AdaptiveGradientDescentMiniBatch extends AdaptiveGradientD
 	@Override
 	public void updateMiniBatch()
 	{
+		if (isConcurrent())
+		{
+			updateConcurrent();
+			return;
+		}
+		
 		update(true);
 		update(false);
 		batch_steps++;
 	}
 	
+	/** Applies the gradients accumulated by the current thread; the weights are updated without locking. */
+	protected void updateConcurrent()
+	{
+		long stamp = lock.readLock();
+		
+		try
+		{
+			update(getThreadGradients(true) , true);
+			update(getThreadGradients(false), false);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	protected void update(Long2FloatMap gradients, boolean sparse)
+	{
+		MajorVector w = weight_vector.getMajorVector(sparse);
+		MajorVector d = diagonals    .getMajorVector(sparse);
+		int index;
+		float g;
+		long key;
+		
+		for (Long2FloatMap.Entry e : gradients.long2FloatEntrySet())
+		{
+			key   = e.getLongKey();
+			g     = e.getFloatValue();
+			index = w.indexOf((int)key, (int)(key >>> 32));
+			d.set(index, getDiagonal(d.get(index), g));
+			
+			if (isL1Regularization())
+				l1_regularizer.updateWeight(index, g, getLearningRate(index, sparse), batch_steps, sparse);
+			else
+				w.add(index, g * getLearningRate(index, sparse));
+		}
+		
+		gradients.clear();
+	}
+	
+	/** @return the gradients accumulated by the current thread. */
+	protected Long2FloatMap getThreadGradients(boolean sparse)
+	{
+		return thread_gradients.get()[sparse ? 0 : 1];
+	}
+	
+	/** @return the key of the weight for the label {@code y} and the feature {@code xi}, which stays the same when the weights are expanded. */
+	protected long getKey(int y, int xi)
+	{
+		return ((long)xi << 32) | (y & 0xFFFFFFFFL);
+	}
+	
+	@Override
+	protected int getRegularizationSteps()
+	{
+		return batch_steps;
+	}
+	
 	protected void update(boolean sparse)
 	{
 		IntSet s = sparse ? sparse_updated_indices : dense_updated_indices;
@@ -18,15 +18,20 @@ package edu.emory.mathcs.nlp.learning.optimization;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.locks.StampedLock;
 
 import edu.emory.mathcs.nlp.common.util.MathUtils;
 import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.learning.activation.SoftmaxFunction;
 import edu.emory.mathcs.nlp.learning.optimization.reguralization.Regularizer;
 import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.Instance;
 import edu.emory.mathcs.nlp.learning.util.LabelMap;
 import edu.emory.mathcs.nlp.learning.util.MLUtils;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
 import edu.emory.mathcs.nlp.learning.util.SparseVector;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
 
@@ -45,6 +50,9 @@ public abstract class OnlineOptimizer implements Serializable
 	protected transient float       learning_rate;
 	protected transient int         steps;
 	
+	// for concurrent training
+	protected transient StampedLock lock;
+	
 //	=================================== CONSTRUCTORS ===================================
 	
 	public OnlineOptimizer(WeightVector vector, float learningRate, float bias)
@@ -63,10 +71,12 @@ public abstract class OnlineOptimizer implements Serializable
 		steps = 1;
 	}
 	
+	/** Adapts the hyper-parameters; also restores the training state if this optimizer was deserialized. */
 	public void adapt(HyperParameter hp)
 	{
 		setL1Regularizer(hp.getL1Regularizer());
 		setLearningRate(hp.getLearningRate());
+		if (steps == 0) steps = 1;
 	}
 	
 //	=================================== GETTERS & SETTERS ===================================
@@ -81,6 +91,12 @@ public abstract class OnlineOptimizer implements Serializable
 		weight_vector = vector;
 	}
 	
+	/** @return all weight vectors of this optimizer, in a fixed order. */
+	public List<WeightVector> getWeightVectors()
+	{
+		return Collections.singletonList(weight_vector);
+	}
+	
 	public float getLearningRate()
 	{
 		return learning_rate;
@@ -117,6 +133,115 @@ public abstract class OnlineOptimizer implements Serializable
 		return l1_regularizer != null;
 	}
 	
+	/** @return true if the scores are probabilities over the labels (e.g., softmax); override if necessary. */
+	public boolean isProbabilistic()
+	{
+		return weight_vector.getActivationFunction() instanceof SoftmaxFunction;
+	}
+	
+	/**
+	 * Applies the regularization pending on the weights that have not been updated recently,
+	 * so the weights are final and truncated weights become zeros (e.g., at the end of each epoch).
+	 */
+	public void sparsify()
+	{
+		if (isL1Regularization()) l1_regularizer.updateWeights(getRegularizationSteps());
+	}
+	
+	/** @return the number of steps used by the regularization (override if necessary). */
+	protected int getRegularizationSteps()
+	{
+		return steps;
+	}
+	
+	/**
+	 * Converts this optimizer into a read-only model for decoding: the weights become compact arrays,
+	 * the label map becomes immutable, and the structures used only for training are released.
+	 * Once frozen, this optimizer can be shared by multiple threads for {@link #scores(FeatureVector)} but cannot be trained.
+	 */
+	public void freeze()
+	{
+		sparsify();
+		weight_vector.freeze();
+		label_map.freeze();
+		l1_regularizer = null;
+	}
+	
+//	=================================== MIX ===================================
+	
+	/**
+	 * Replaces the weights of this optimizer with the average weights of the specific optimizers (iterative parameter mixing).
+	 * @param features {@code features.get(i)[j]} is the index in this optimizer of the {@code j}'th sparse feature in the {@code i}'th optimizer.
+	 * @param labels {@code labels.get(i)[j]} is the index in this optimizer of the {@code j}'th label in the {@code i}'th optimizer.
+	 * @throws IllegalStateException if this optimizer has more than one weight vector (e.g., neural networks).
+	 */
+	public void mix(List<OnlineOptimizer> optimizers, List<int[]> features, List<int[]> labels)
+	{
+		if (getWeightVectors().size() > 1) throw new IllegalStateException(this+" does not support parameter mixing.");
+		WeightVector mixed = weight_vector.createZeroVector();
+		int sparseFeatureSize = 0, denseFeatureSize = 0;
+		float rate = 1f / optimizers.size();
+		
+		for (int i=0; i<optimizers.size(); i++)
+		{
+			for (int index : features.get(i)) sparseFeatureSize = Math.max(sparseFeatureSize, index+1);
+			denseFeatureSize = Math.max(denseFeatureSize, optimizers.get(i).weight_vector.getDenseWeightVector().getFeatureSize());
+		}
+		
+		mixed.expand(sparseFeatureSize, denseFeatureSize, getLabelSize());
+		
+		for (int i=0; i<optimizers.size(); i++)
+		{
+			WeightVector w = optimizers.get(i).weight_vector;
+			mix(mixed.getSparseWeightVector(), w.getSparseWeightVector(), features.get(i), labels.get(i), rate);
+			mix(mixed.getDenseWeightVector() , w.getDenseWeightVector() , null           , labels.get(i), rate);
+		}
+		
+		setWeightVector(mixed);
+		setL1Regularizer(l1_regularizer);
+	}
+	
+	/** Adds {@code source * rate} to {@code target}; if {@code features} is null, the feature indices stay the same. */
+	private void mix(MajorVector target, MajorVector source, int[] features, int[] labels, float rate)
+	{
+		int labelSize = Math.min(source.getLabelSize(), labels.length);
+		int featureSize = (features != null) ? Math.min(source.getFeatureSize(), features.length) : source.getFeatureSize();
+		float w;
+		
+		for (int y=0; y<labelSize; y++)
+		{
+			for (int xi=0; xi<featureSize; xi++)
+			{
+				w = source.get(y, xi);
+				if (w != 0) target.add(labels[y], (features != null) ? features[xi] : xi, w * rate);
+			}
+		}
+	}
+	
+//	=================================== CONCURRENCY ===================================
+	
+	/** @return true if this optimizer can be trained by multiple threads at once (override if necessary). */
+	public boolean isConcurrentTrainable()
+	{
+		return false;
+	}
+	
+	/**
+	 * Lets multiple threads call {@link #train(Instance)} at once (Hogwild): the weights are updated without locking,
+	 * and only the expansion of the weights is made exclusive because it moves them.
+	 * @throws IllegalStateException if this optimizer is not {@link #isConcurrentTrainable()}.
+	 */
+	public void setConcurrent(boolean concurrent)
+	{
+		if (concurrent && !isConcurrentTrainable()) throw new IllegalStateException(this+" does not support concurrent training.");
+		lock = concurrent ? new StampedLock() : null;
+	}
+	
+	public boolean isConcurrent()
+	{
+		return lock != null;
+	}
+	
 //	=================================== LABEL & FEATURE ===================================
 
 	public void setLabelMap(LabelMap map)
@@ -170,9 +295,33 @@ public abstract class OnlineOptimizer implements Serializable
 	public void train(Instance instance, boolean augment)
 	{
 		if (augment) augment(instance);
-		expand(instance.getFeatureVector());
+		
+		if (isConcurrent())
+		{
+			long stamp = lockExpand(instance.getFeatureVector());
+			
+			try
+			{
+				trainExpanded(instance);
+			}
+			finally
+			{
+				lock.unlockRead(stamp);
+			}
+		}
+		else
+		{
+			expand(instance.getFeatureVector());
+			trainExpanded(instance);
+		}
+	}
+	
+	/** Trains the instance once its features are augmented with the bias and the weights are expanded for them. */
+	protected void trainExpanded(Instance instance)
+	{
+		if (isL1Regularization()) l1_regularizer.updateWeights(instance.getFeatureVector(), getRegularizationSteps());
 		if (instance.hasScores() && instance.getScores().length == getLabelSize()) addScores(instance.getFeatureVector(), instance.getScores());
-		else instance.setScores(scores(instance.getFeatureVector()));
+		else instance.setScores(weight_vector.scores(instance.getFeatureVector()));
 		int yhat = getPredictedLabel(instance);
 		instance.setPredictedLabel(yhat);
 		if (!instance.isGoldLabel(yhat)) trainAux(instance);
@@ -215,6 +364,49 @@ public abstract class OnlineOptimizer implements Serializable
 		expand(sparseFeatureSize, denseFeatureSize, labelSize);
 	}
 	
+	/**
+	 * Expands the weights for {@code x} under the write lock if necessary.
+	 * The sizes only grow, so whether to expand is checked without locking.
+	 * @return the stamp of the read lock, held so that the weights are not moved until it is released.
+	 */
+	protected long lockExpand(FeatureVector x)
+	{
+		if (!requiresExpansion(x)) return lock.readLock();
+		long stamp = lock.writeLock();
+		
+		try
+		{
+			expand(x);
+		}
+		catch (RuntimeException e)
+		{
+			lock.unlockWrite(stamp);
+			throw e;
+		}
+		
+		return lock.tryConvertToReadLock(stamp);
+	}
+	
+	/**
+	 * Expands the weights for the specific numbers of sparse features and labels.
+	 * Called before multiple threads train so that they rarely need to expand the weights.
+	 */
+	public void expand(int sparseFeatureSize, int labelSize)
+	{
+		expand(sparseFeatureSize, 0, labelSize);
+	}
+	
+	/** @return true if the weights need to be expanded for {@code x} or for new labels. */
+	protected boolean requiresExpansion(FeatureVector x)
+	{
+		int sparseFeatureSize = x.hasSparseVector() ? x.getSparseVector().maxIndex()+1 : 0;
+		int denseFeatureSize  = x.hasDenseVector()  ? x.getDenseVector().length : 0;
+		
+		return weight_vector.getLabelSize() < getLabelSize() ||
+			   weight_vector.getSparseWeightVector().getFeatureSize() < sparseFeatureSize ||
+			   weight_vector.getDenseWeightVector ().getFeatureSize() < denseFeatureSize;
+	}
+	
 	protected boolean expand(int sparseFeatureSize, int denseFeatureSize, int labelSize)
 	{
 		boolean b = weight_vector.expand(sparseFeatureSize, denseFeatureSize, labelSize);
@@ -262,7 +454,7 @@ public abstract class OnlineOptimizer implements Serializable
  	
 	protected int argmax(float[] scores)
  	{
- 		int yhat = MLUtils.argmax(scores, getLabelSize());
+ 		int yhat = MLUtils.argmax(scores, Math.min(scores.length, getLabelSize()));
  		return (scores[yhat] == 0 && yhat > 0) ? MLUtils.argmax(scores, yhat) : yhat;
  	}
  	
@@ -278,11 +470,22 @@ public abstract class OnlineOptimizer implements Serializable
 	
 //	=================================== PREDICT ===================================
 	
+	/**
+	 * Returns the scores of {@code x} including the bias, without modifying {@code x} or this optimizer,
+	 * so it can be called by multiple threads at once.
+	 */
 	public float[] scores(FeatureVector x)
 	{
-		return scores(x, true);
+		return weight_vector.scores(x, bias);
+	}
+	
+	/** @return {@code scores[i]} for {@code xs[i]}, computed in one pass over the weights; see {@link #scores(FeatureVector)}. */
+	public float[][] scores(FeatureVector[] xs)
+	{
+		return weight_vector.scores(xs, bias);
 	}
 	
+	/** @param augment if true, the bias is added to {@code x} as in {@link #augment(FeatureVector)}. */
 	public float[] scores(FeatureVector x, boolean augment)
 	{
 		if (augment) augment(x);
@@ -75,6 +75,12 @@ public class AdaGrad extends AdaptiveGradientDescent
 	@Override
 	public void updateMiniBatch() {}
 	
+	@Override
+	public boolean isConcurrentTrainable()
+	{
+		return true;
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -56,6 +56,12 @@ public class AdaGradMiniBatch extends AdaptiveGradientDescentMiniBatch
 		return previousDiagonal + (float)MathUtils.sq(gradient);
 	}
 	
+	@Override
+	public boolean isConcurrentTrainable()
+	{
+		return true;
+	}
+	
 	@Override
 	public String toString()
 	{
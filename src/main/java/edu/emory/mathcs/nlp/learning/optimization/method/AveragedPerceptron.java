@@ -0,0 +1,183 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.optimization.method;
+
+import java.io.ObjectStreamException;
+
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * Perceptron whose model is the average of the weights over all training steps.
+ * The average is kept lazily: each update {@code d} at step {@code c} is also added to {@code sums} as {@code c*d},
+ * so the average {@code w - sums/c} costs nothing per step and is materialized only when this optimizer is used for scoring,
+ * serialized, or frozen. Training resumes from the raw weights.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class AveragedPerceptron extends Perceptron
+{
+	private static final long serialVersionUID = -3404707302935524817L;
+	/** The sums of the updates weighted by their steps. */
+	protected transient WeightVector sums;
+	/** The raw weights while {@link #weight_vector} holds their average; otherwise, {@code null}. */
+	protected transient WeightVector weights;
+	/** True while {@link #weight_vector} holds the average; read without locking so that scoring does not synchronize. */
+	protected transient volatile boolean averaged;
+
+	public AveragedPerceptron(WeightVector vector, float learningRate, float bias)
+	{
+		super(vector, learningRate, bias);
+		sums = weight_vector.createZeroVector();
+	}
+	
+	/** The sums restart for the specific weights. */
+	@Override
+	public void setWeightVector(WeightVector vector)
+	{
+		super.setWeightVector(vector);
+		weights  = null;
+		averaged = false;
+		if (sums != null) sums = vector.createZeroVector();
+	}
+	
+//	=================================== TRAIN ===================================
+	
+	@Override
+	public void adapt(HyperParameter hp)
+	{
+		super.adapt(hp);
+		if (sums == null) sums = weight_vector.createZeroVector();
+	}
+	
+	/** The steps and the sums are shared by all updates, so they cannot be trained by multiple threads. */
+	@Override
+	public boolean isConcurrentTrainable()
+	{
+		return false;
+	}
+	
+	@Override
+	public void train(Instance instance, boolean augment)
+	{
+		restore();
+		super.train(instance, augment);
+	}
+	
+	@Override
+	protected boolean expand(int sparseFeatureSize, int denseFeatureSize, int labelSize)
+	{
+		boolean b = super.expand(sparseFeatureSize, denseFeatureSize, labelSize);
+		if (b) sums.expand(sparseFeatureSize, denseFeatureSize, labelSize);
+		return b;
+	}
+	
+	@Override
+	protected void updateWeight(int y, int xi, float gradient, boolean sparse)
+ 	{
+		MajorVector w = weight_vector.getMajorVector(sparse);
+		int index = w.indexOf(y, xi);
+		float update = gradient * learning_rate;
+		
+		w.add(index, update);
+		sums.getMajorVector(sparse).add(index, update * steps);
+ 	}
+	
+//	=================================== AVERAGE ===================================
+	
+	/** Replaces the raw weights with their average if they are being trained; returns without locking once averaged or frozen. */
+	protected void average()
+	{
+		if (averaged || sums == null) return;
+		
+		synchronized (this)
+		{
+			if (averaged) return;
+			WeightVector average = weight_vector.createZeroVector();
+			average(average.getSparseWeightVector(), weight_vector.getSparseWeightVector(), sums.getSparseWeightVector());
+			average(average.getDenseWeightVector() , weight_vector.getDenseWeightVector() , sums.getDenseWeightVector());
+			weights = weight_vector;
+			weight_vector = average;
+			averaged = true;
+		}
+	}
+	
+	private void average(MajorVector averaged, MajorVector w, MajorVector s)
+	{
+		for (int i=0; i<w.size(); i++)
+			averaged.set(i, w.get(i) - s.get(i) / steps);
+	}
+	
+	/** Puts back the raw weights for training if they have been averaged; returns without locking otherwise. */
+	protected void restore()
+	{
+		if (!averaged) return;
+		
+		synchronized (this)
+		{
+			if (!averaged) return;
+			weight_vector = weights;
+			weights  = null;
+			averaged = false;
+		}
+	}
+	
+	@Override
+	public WeightVector getWeightVector()
+	{
+		average();
+		return weight_vector;
+	}
+	
+	@Override
+	public float[] scores(FeatureVector x)
+	{
+		average();
+		return super.scores(x);
+	}
+	
+	@Override
+	public float[][] scores(FeatureVector[] xs)
+	{
+		average();
+		return super.scores(xs);
+	}
+	
+	@Override
+	public void freeze()
+	{
+		average();
+		super.freeze();
+		sums     = null;
+		weights  = null;
+		averaged = false;
+	}
+	
+	/** Saves the average as the model. */
+	private Object writeReplace() throws ObjectStreamException
+	{
+		average();
+		return this;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Averaged Perceptron";
+	}
+}
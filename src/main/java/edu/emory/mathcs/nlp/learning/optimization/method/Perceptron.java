@@ -53,6 +53,12 @@ public class Perceptron extends StochasticGradientDescent
 	@Override
 	public void updateMiniBatch() {}
 
+	@Override
+	public boolean isConcurrentTrainable()
+	{
+		return true;
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -15,10 +15,19 @@
  */
 package edu.emory.mathcs.nlp.learning.optimization.reguralization;
 
+import java.util.Arrays;
+
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.SparseItem;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
 
 /**
+ * Each weight is a closed form of its cumulative penalty, the number of steps, and its learning rate when it was last updated,
+ * so the shrinkage of the weights that have not been updated since is applied lazily by {@link #updateWeights(FeatureVector, int)}
+ * before they are read, and by {@link #updateWeights(int)} for all weights at once.
+ * The steps at which each feature was last caught up are kept so that features shared by the instances of a mini-batch,
+ * whose steps stay the same, are caught up once.
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
 public class RegularizedDualAveraging extends Regularizer
@@ -26,6 +35,9 @@ public class RegularizedDualAveraging extends Regularizer
 	private static final long serialVersionUID = 743778452022307338L;
 	private WeightVector weight_vector;
 	private WeightVector cumulative_penalty;
+	private WeightVector learning_rates;
+	private int[] sparse_steps;
+	private int[] dense_steps;
 	
 	public RegularizedDualAveraging(float rate)
 	{
@@ -47,12 +59,23 @@ public class RegularizedDualAveraging extends Regularizer
 	{
 		weight_vector = vector;
 		cumulative_penalty = vector.createZeroVector();
+		learning_rates     = vector.createZeroVector();
+		sparse_steps = new int[vector.getSparseWeightVector().getFeatureSize()];
+		dense_steps  = new int[vector.getDenseWeightVector ().getFeatureSize()];
 	}
 	
 	@Override
 	public void expand(int sparseFeatureSize, int denseFeatureSize, int labelSize)
 	{
 		cumulative_penalty.expand(sparseFeatureSize, denseFeatureSize, labelSize);
+		learning_rates    .expand(sparseFeatureSize, denseFeatureSize, labelSize);
+		sparse_steps = expand(sparse_steps, weight_vector.getSparseWeightVector().getFeatureSize());
+		dense_steps  = expand(dense_steps , weight_vector.getDenseWeightVector ().getFeatureSize());
+	}
+	
+	private int[] expand(int[] steps, int featureSize)
+	{
+		return (steps.length < featureSize) ? Arrays.copyOf(steps, featureSize) : steps;
 	}
 	
 	@Override
@@ -60,18 +83,72 @@ public class RegularizedDualAveraging extends Regularizer
  	{
 		MajorVector cum = cumulative_penalty.getMajorVector(sparse);
 		cum.add(index, gradient);
+		learning_rates.getMajorVector(sparse).set(index, learningRate);
+		weight_vector.getMajorVector(sparse).set(index, getWeight(cum.get(index), learningRate, steps));
+ 	}
+	
+	@Override
+	public void updateWeights(FeatureVector x, int steps)
+	{
+		for (SparseItem xi : x.getSparseVector())
+			updateFeature(xi.getIndex(), steps, true);
 		
-		float penalty = cum.get(index);
-		float l1 = rate * steps;
-		float value;
+		// the weights of zero dense features do not change the scores, so they are caught up when the features become non-zero
+		if (x.hasDenseVector())
+		{
+			float[] d = x.getDenseVector();
+			
+			for (int xi=0; xi<d.length; xi++)
+				if (d[xi] != 0) updateFeature(xi, steps, false);
+		}
+	}
+	
+	/** Applies the shrinkage for the specific steps to the weights of the feature for all labels unless they are already caught up. */
+	private void updateFeature(int feature, int steps, boolean sparse)
+	{
+		int[] stamps = sparse ? sparse_steps : dense_steps;
+		if (stamps[feature] == steps) return;
+		stamps[feature] = steps;
 		
-		if (Math.abs(penalty) <= l1)
-			value = 0;
-		else
-			value = learningRate * (penalty - Math.signum(penalty) * l1);
+		MajorVector w = weight_vector.getMajorVector(sparse);
+		int labelSize = w.getLabelSize();
 		
-		weight_vector.getMajorVector(sparse).set(index, value);
- 	}
+		for (int y=0; y<labelSize; y++)
+			updateWeight(w.indexOf(y, feature), steps, sparse);
+	}
+	
+	@Override
+	public void updateWeights(int steps)
+	{
+		updateWeights(steps, true);
+		updateWeights(steps, false);
+	}
+	
+	private void updateWeights(int steps, boolean sparse)
+	{
+		int size = weight_vector.getMajorVector(sparse).size();
+		
+		for (int index=0; index<size; index++)
+			updateWeight(index, steps, sparse);
+		
+		Arrays.fill(sparse ? sparse_steps : dense_steps, steps);
+	}
+	
+	/** Applies the shrinkage for the specific steps to the index'th weight unless it has never been updated. */
+	private void updateWeight(int index, int steps, boolean sparse)
+	{
+		float learningRate = learning_rates.getMajorVector(sparse).get(index);
+		
+		if (learningRate != 0)
+			weight_vector.getMajorVector(sparse).set(index, getWeight(cumulative_penalty.getMajorVector(sparse).get(index), learningRate, steps));
+	}
+	
+	/** @return the weight given the cumulative penalty, the learning rate, and the number of steps. */
+	private float getWeight(float penalty, float learningRate, int steps)
+	{
+		float l1 = rate * steps;
+		return (Math.abs(penalty) <= l1) ? 0 : learningRate * (penalty - Math.signum(penalty) * l1);
+	}
 	
 	@Override
 	public String toString()
@@ -17,6 +17,7 @@ package edu.emory.mathcs.nlp.learning.optimization.reguralization;
 
 import java.io.Serializable;
 
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
 
 /**
@@ -49,4 +50,10 @@ public abstract class Regularizer implements Serializable
 	
 	/** Updates the index'th weight of the weight vector with respect to the regularization. */
 	public abstract void updateWeight(int index, float gradient, float learningRate, int steps, boolean sparse);
+	
+	/** Applies the regularization pending since the last updates to the weights of the features in {@code x} before they are read (override if necessary). */
+	public void updateWeights(FeatureVector x, int steps) {}
+	
+	/** Applies the regularization pending since the last updates to all weights (override if necessary). */
+	public void updateWeights(int steps) {}
 }
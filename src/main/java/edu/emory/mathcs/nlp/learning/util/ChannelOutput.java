@@ -0,0 +1,79 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes primitives to a channel in little-endian order through a fixed-size buffer,
+ * so large weight vectors and tables can be saved without being copied into one byte array.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class ChannelOutput
+{
+	static public final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+	
+	public ChannelOutput(WritableByteChannel channel)
+	{
+		this.channel = channel;
+		buffer = ByteBuffer.allocate(1 << 16).order(BYTE_ORDER);
+	}
+	
+	public void putInt(int value) throws IOException
+	{
+		if (buffer.remaining() < Integer.BYTES) flush();
+		buffer.putInt(value);
+	}
+	
+	public void putLong(long value) throws IOException
+	{
+		if (buffer.remaining() < Long.BYTES) flush();
+		buffer.putLong(value);
+	}
+	
+	public void putFloat(float value) throws IOException
+	{
+		if (buffer.remaining() < Float.BYTES) flush();
+		buffer.putFloat(value);
+	}
+	
+	public void putChar(char value) throws IOException
+	{
+		if (buffer.remaining() < Character.BYTES) flush();
+		buffer.putChar(value);
+	}
+	
+	/** Writes the remaining bytes of the specific buffer as they are. */
+	public void put(ByteBuffer bytes) throws IOException
+	{
+		flush();
+		bytes = bytes.duplicate();
+		while (bytes.hasRemaining()) channel.write(bytes);
+	}
+	
+	/** Writes all buffered bytes to the channel. */
+	public void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.util.Arrays;
+
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+
+/**
+ * Column-major vector backed by a primitive float array instead of a gap list.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class ColumnMajorArrayVector extends ColumnMajorVector
+{
+	private static final long serialVersionUID = 3370914812497212683L;
+	private FloatArray values;
+	
+	public ColumnMajorArrayVector()
+	{
+		weights = null;
+		values  = new FloatArray();
+	}
+	
+	@Override
+	public MajorVector createInstance()
+	{
+		return new ColumnMajorArrayVector();
+	}
+	
+	@Override
+	protected void expandColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		values.insertColumns(rowSize, oldColumnSize, newColumnSize, generator);
+	}
+	
+	@Override
+	protected void append(int length, WeightGenerator generator)
+	{
+		values.append(length, generator);
+	}
+	
+	@Override
+	public float get(int index)
+	{
+		return values.get(index);
+	}
+
+	@Override
+	public void set(int index, float value)
+	{
+		values.set(index, value);
+	}
+	
+	@Override
+	public void add(int index, float value)
+	{
+		values.add(index, value);
+	}
+	
+	@Override
+	public int size()
+	{
+		return values.size();
+	}
+	
+	@Override
+	public void addScores(SparseVector x, float[] scores)
+	{
+		float[] w = values.array();
+		int i, index;
+		float v;
+		
+		for (SparseItem p : x)
+		{
+			if (p.getIndex() < feature_size)
+			{
+				index = p.getIndex() * label_size;
+				v = p.getValue();
+				
+				for (i=0; i<scores.length; i++)
+					scores[i] += w[index++] * v;
+			}
+		}
+	}
+
+	/** The weights are the transpose of a row-major matrix, so the scores are the sum of its rows weighted by {@code x}. */
+	@Override
+	public void addScores(float[] x, float[] scores)
+	{
+		DenseKernels.gemvT(values.array(), 0, label_size, x.length, scores.length, x, scores);
+	}
+	
+	@Override
+	public void addTransposedScores(float[] x, float[] scores)
+	{
+		DenseKernels.gemv(values.array(), 0, label_size, Math.min(scores.length, feature_size), Math.min(x.length, label_size), x, scores);
+	}
+	
+	@Override
+	public void addOuterProduct(float alpha, float[] g, float[] x)
+	{
+		DenseKernels.ger(alpha, x, g, values.array(), 0, label_size, Math.min(x.length, feature_size), Math.min(g.length, label_size));
+	}
+	
+	@Override
+	public void addTransposedScores(float[][] x, float[][] scores)
+	{
+		int features = feature_size;
+		
+		for (float[] s : scores)
+			if (s != null) features = Math.min(features, s.length);
+		
+		DenseKernels.gemm(values.array(), 0, label_size, features, label_size, x, scores);
+	}
+	
+	/** The portions are ranges of features, each of which is a contiguous block of the weights. */
+	@Override
+	public void addOuterProducts(float alpha, float[][] g, float[][] x, int part, int parts)
+	{
+		DenseKernels.ger(alpha, x, g, values.array(), 0, label_size, feature_size * part / parts, feature_size * (part+1) / parts, label_size);
+	}
+	
+	/**
+	 * Visits the features of all vectors in the order of their indices so that
+	 * the weights of a feature shared by multiple vectors are read once.
+	 */
+	@Override
+	public void addScores(SparseVector[] x, float[][] scores)
+	{
+		int i, j, k = 0, index, size = 0;
+		float[] w = values.array();
+		
+		for (SparseVector v : x)
+			if (v != null) size += v.size();
+		
+		long[]  keys   = new long [size];
+		float[] weight = new float[size];
+		int[]   vector = new int  [size];
+		
+		for (i=0; i<x.length; i++)
+		{
+			if (x[i] == null) continue;
+			
+			for (SparseItem p : x[i])
+			{
+				if (p.getIndex() < feature_size)
+				{
+					keys  [k] = ((long)p.getIndex() << 32) | k;
+					weight[k] = p.getValue();
+					vector[k] = i;
+					k++;
+				}
+			}
+		}
+		
+		Arrays.sort(keys, 0, k);
+		float[] s;
+		float v;
+		
+		for (j=0; j<k; j++)
+		{
+			i = (int)keys[j];
+			index = (int)(keys[j] >>> 32) * label_size;
+			s = scores[vector[i]];
+			v = weight[i];
+			
+			for (int y=0; y<s.length; y++)
+				s[y] += w[index+y] * v;
+		}
+	}
+	
+	@Override
+	public String toString()
+	{
+		return values.toString();
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+
+/**
+ * Column-major vector whose weights are stored off-heap ({@link DirectFloatArray}),
+ * which keeps large sparse models out of the garbage-collected heap.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class ColumnMajorDirectVector extends ColumnMajorVector
+{
+	private static final long serialVersionUID = -4610374225872305963L;
+	private DirectFloatArray values;
+	
+	public ColumnMajorDirectVector()
+	{
+		this(DirectFloatArray.DEFAULT_PAGE_BITS);
+	}
+	
+	/** @param pageBits each page of the weights holds {@code 2^pageBits} floats. */
+	public ColumnMajorDirectVector(int pageBits)
+	{
+		weights = null;
+		values  = new DirectFloatArray(pageBits);
+	}
+	
+	@Override
+	public MajorVector createInstance()
+	{
+		return new ColumnMajorDirectVector();
+	}
+	
+	/** @return this vector after releasing its unused capacity; the weights stay off-heap. */
+	@Override
+	public MajorVector compact()
+	{
+		values.trim();
+		return this;
+	}
+	
+	@Override
+	protected void expandColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		values.insertColumns(rowSize, oldColumnSize, newColumnSize, generator);
+	}
+	
+	@Override
+	protected void append(int length, WeightGenerator generator)
+	{
+		values.append(length, generator);
+	}
+	
+	@Override
+	public float get(int index)
+	{
+		return values.get(index);
+	}
+
+	@Override
+	public void set(int index, float value)
+	{
+		values.set(index, value);
+	}
+	
+	@Override
+	public void add(int index, float value)
+	{
+		values.add(index, value);
+	}
+	
+	@Override
+	public int size()
+	{
+		return values.size();
+	}
+	
+	@Override
+	public void addScores(SparseVector x, float[] scores)
+	{
+		for (SparseItem p : x)
+		{
+			if (p.getIndex() < feature_size)
+				values.addScores(p.getIndex() * label_size, scores, p.getValue());
+		}
+	}
+	
+	@Override
+	public String toString()
+	{
+		return values.toString();
+	}
+}
@@ -37,11 +37,17 @@ public class ColumnMajorVector extends MajorVector
 	}
 	
 	@Override
-	protected MajorVector createInstance()
+	public MajorVector createInstance()
 	{
 		return new ColumnMajorVector();
 	}
 	
+	@Override
+	public MajorVector compact()
+	{
+		return copyTo(new ColumnMajorArrayVector());
+	}
+	
 	@Override
 	public void addScores(SparseVector x, float[] scores)
 	{
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2016, Emory University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+/**
+ * Dense linear algebra over raw float arrays used by the array-backed major vectors and the neural networks.
+ * A matrix is given by an array, the offset of its first row, and the stride between rows (e.g., the row capacity of {@link RowMajorArrayVector}).
+ * Element-wise loops ({@link #axpy}) are left simple so that the JIT compiler can vectorize them;
+ * reductions ({@link #dot}) are unrolled with independent accumulators since the compiler does not reorder float additions.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DenseKernels
+{
+	/** The number of rows whose weights are visited together by {@link #gemm}, small enough for the rows to stay in cache. */
+	static private final int ROW_BLOCK = 16;
+
+	private DenseKernels() {}
+
+//	=================================== VECTOR ===================================
+
+	/** @return {@code a[aOffset:aOffset+length] . b[bOffset:bOffset+length]}. */
+	static public float dot(float[] a, int aOffset, float[] b, int bOffset, int length)
+	{
+		float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = 0, end = length & ~3;
+
+		for (; i<end; i+=4)
+		{
+			s0 += a[aOffset+i  ] * b[bOffset+i  ];
+			s1 += a[aOffset+i+1] * b[bOffset+i+1];
+			s2 += a[aOffset+i+2] * b[bOffset+i+2];
+			s3 += a[aOffset+i+3] * b[bOffset+i+3];
+		}
+
+		for (; i<length; i++)
+			s0 += a[aOffset+i] * b[bOffset+i];
+
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/** {@code y[yOffset:yOffset+length] += alpha * x[xOffset:xOffset+length]}. */
+	static public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length)
+	{
+		for (int i=0; i<length; i++)
+			y[yOffset+i] += alpha * x[xOffset+i];
+	}
+
+//	=================================== MATRIX ===================================
+
+	/**
+	 * {@code y[r] += W[r,:] . x} for {@code r < rows}, where {@code W[r,c] = w[offset + r*stride + c]} and {@code c < columns}.
+	 * Four rows are visited at a time so that each value of {@code x} is loaded once for them.
+	 */
+	static public void gemv(float[] w, int offset, int stride, int rows, int columns, float[] x, float[] y)
+	{
+		int r = 0, c, i0, i1, i2, i3;
+		float s0, s1, s2, s3, v;
+
+		for (; r+4<=rows; r+=4)
+		{
+			i0 = offset + r * stride;
+			i1 = i0 + stride;
+			i2 = i1 + stride;
+			i3 = i2 + stride;
+			s0 = s1 = s2 = s3 = 0;
+
+			for (c=0; c<columns; c++)
+			{
+				v = x[c];
+				s0 += w[i0+c] * v;
+				s1 += w[i1+c] * v;
+				s2 += w[i2+c] * v;
+				s3 += w[i3+c] * v;
+			}
+
+			y[r  ] += s0;
+			y[r+1] += s1;
+			y[r+2] += s2;
+			y[r+3] += s3;
+		}
+
+		for (; r<rows; r++)
+			y[r] += dot(w, offset + r * stride, x, 0, columns);
+	}
+
+	/** {@code y[c] += sum_r W[r,c] * x[r]}, i.e., the transpose of {@code W} multiplied by {@code x}; see {@link #gemv}. */
+	static public void gemvT(float[] w, int offset, int stride, int rows, int columns, float[] x, float[] y)
+	{
+		for (int r=0; r<rows; r++)
+			if (x[r] != 0) axpy(x[r], w, offset + r * stride, y, 0, columns);
+	}
+
+	/**
+	 * {@code ys[b][r] += W[r,:] . xs[b]} for every {@code b}; see {@link #gemv}.
+	 * Rows are visited by blocks of {@link #ROW_BLOCK} across the whole batch so each block is read from memory once per batch.
+	 * Null vectors are skipped.
+	 */
+	static public void gemm(float[] w, int offset, int stride, int rows, int columns, float[][] xs, float[][] ys)
+	{
+		int b, r, end, length;
+
+		for (int begin=0; begin<rows; begin+=ROW_BLOCK)
+		{
+			end = Math.min(begin + ROW_BLOCK, rows);
+
+			for (b=0; b<xs.length; b++)
+			{
+				if (xs[b] == null) continue;
+				length = Math.min(columns, xs[b].length);
+
+				for (r=begin; r<end; r++)
+					ys[b][r] += dot(w, offset + r * stride, xs[b], 0, length);
+			}
+		}
+	}
+
+	/**
+	 * {@code ys[b][c] += sum_r W[r,c] * xs[b][r]} for every {@code b}; see {@link #gemvT} and {@link #gemm}.
+	 * Null vectors are skipped.
+	 */
+	static public void gemmT(float[] w, int offset, int stride, int rows, int columns, float[][] xs, float[][] ys)
+	{
+		int b, r, end;
+
+		for (int begin=0; begin<rows; begin+=ROW_BLOCK)
+		{
+			end = Math.min(begin + ROW_BLOCK, rows);
+
+			for (b=0; b<xs.length; b++)
+			{
+				if (xs[b] == null) continue;
+
+				for (r=begin; r<Math.min(end, xs[b].length); r++)
+					if (xs[b][r] != 0) axpy(xs[b][r], w, offset + r * stride, ys[b], 0, columns);
+			}
+		}
+	}
+
+	/** {@code W[r,c] += alpha * g[r] * x[c]} for {@code r < rows} and {@code c < columns} (rank-1 update); see {@link #gemv}. */
+	static public void ger(float alpha, float[] g, float[] x, float[] w, int offset, int stride, int rows, int columns)
+	{
+		for (int r=0; r<rows; r++)
+			if (g[r] != 0) axpy(alpha * g[r], x, 0, w, offset + r * stride, columns);
+	}
+
+	/**
+	 * {@code W[r,c] += alpha * sum_b gs[b][r] * xs[b][c]} for {@code beginRow <= r < endRow} and {@code c < columns} (rank-B update); see {@link #gemm}.
+	 * The rank-1 updates of the whole batch are applied to a block of rows before moving to the next block.
+	 * Vectors where either {@code gs[b]} or {@code xs[b]} is null are skipped.
+	 */
+	static public void ger(float alpha, float[][] gs, float[][] xs, float[] w, int offset, int stride, int beginRow, int endRow, int columns)
+	{
+		int b, r, end;
+
+		for (int begin=beginRow; begin<endRow; begin+=ROW_BLOCK)
+		{
+			end = Math.min(begin + ROW_BLOCK, endRow);
+
+			for (b=0; b<gs.length; b++)
+			{
+				if (gs[b] == null || xs[b] == null) continue;
+
+				for (r=begin; r<Math.min(end, gs[b].length); r++)
+					if (gs[b][r] != 0) axpy(alpha * gs[b][r], xs[b], 0, w, offset + r * stride, Math.min(columns, xs[b].length));
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2016, Emory University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+/**
+ * Caches the scores of the dense slots of a sentence, where the scores of the token {@code i} in the slot {@code k}
+ * are its vector multiplied by the {@code k}'th block of the dense weights.
+ * Since a token appears in the same slot across many transitions (e.g., dependency parsing), each product is computed once per sentence.
+ * The cache is valid only while the weights do not change, so it must not be used for training.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DenseProjection
+{
+	private float[][] projections;	// projections[i * slot_size + k]
+	private int slot_size;
+
+	/** @param tokenSize the IDs of the tokens must be in [0, tokenSize). */
+	public DenseProjection(int tokenSize, int slotSize)
+	{
+		projections = new float[tokenSize * slotSize][];
+		slot_size   = slotSize;
+	}
+
+	/** Adds the scores of the dense slots in {@code x} given the dense weights. */
+	public void addScores(MajorVector weights, FeatureVector x, float[] scores)
+	{
+		float[][] slots = x.getDenseSlots();
+		int[] ids = x.getDenseSlotIDs();
+		int i, k, y, d = x.getDenseSlotDimension();
+		float[] p;
+
+		for (k=0; k<slots.length; k++)
+		{
+			if (slots[k] == null) continue;
+			i = ids[k];
+
+			if (k >= slot_size || i < 0 || (i+1) * slot_size > projections.length)
+			{
+				weights.addScores(slots[k], k * d, scores);
+				continue;
+			}
+
+			p = projections[i * slot_size + k];
+
+			if (p == null || p.length != scores.length)
+			{
+				p = new float[scores.length];
+				weights.addScores(slots[k], k * d, p);
+				projections[i * slot_size + k] = p;
+			}
+
+			for (y=0; y<scores.length; y++)
+				scores[y] += p[y];
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+
+/**
+ * Growable array of floats stored off-heap in direct buffers, paged so that it is not bound by the size of one buffer.
+ * The first page grows by doubling until it reaches the page size; more full pages are added afterwards.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DirectFloatArray implements Serializable
+{
+	private static final long serialVersionUID = 5265031187434452915L;
+	static public final int DEFAULT_PAGE_BITS = 24;
+	static private final int COPY_SIZE = 1 << 13;
+	private final int page_bits;
+	private final int page_mask;
+	private transient FloatBuffer[] pages;
+	private transient int size;
+	
+	public DirectFloatArray()
+	{
+		this(DEFAULT_PAGE_BITS);
+	}
+	
+	/** @param pageBits each page holds {@code 2^pageBits} floats. */
+	public DirectFloatArray(int pageBits)
+	{
+		page_bits = pageBits;
+		page_mask = (1 << pageBits) - 1;
+		pages = new FloatBuffer[0];
+		size  = 0;
+	}
+	
+//	=================================== GETTERS & SETTERS ===================================
+	
+	public float get(int index)
+	{
+		return pages[index >>> page_bits].get(index & page_mask);
+	}
+	
+	public void set(int index, float value)
+	{
+		pages[index >>> page_bits].put(index & page_mask, value);
+	}
+	
+	public void add(int index, float value)
+	{
+		FloatBuffer page = pages[index >>> page_bits];
+		index &= page_mask;
+		page.put(index, page.get(index) + value);
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	/** Adds {@code get(index+i) * value} to {@code scores[i]} for all {@code i < scores.length}. */
+	public void addScores(int index, float[] scores, float value)
+	{
+		int i, offset = index & page_mask;
+		
+		if (offset + scores.length <= pages[index >>> page_bits].limit())
+		{
+			FloatBuffer page = pages[index >>> page_bits];
+			for (i=0; i<scores.length; i++) scores[i] += page.get(offset+i) * value;
+		}
+		else
+		{
+			for (i=0; i<scores.length; i++) scores[i] += get(index+i) * value;
+		}
+	}
+	
+//	=================================== EXPAND ===================================
+	
+	/** Appends the specific number of weights drawn from the generator (0 if the generator is {@code null}). */
+	public void append(int length, WeightGenerator generator)
+	{
+		ensureCapacity((long)size + length);
+		for (int i=0; i<length; i++) set(size+i, MajorVector.nextWeight(generator));
+		size += length;
+	}
+	
+	/**
+	 * Same as {@link FloatArray#insertColumns(int, int, int, WeightGenerator)}.
+	 * The rows are moved in bulk through a buffer, chunk by chunk from their ends, across the pages.
+	 */
+	public void insertColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		long capacity = size + (long)rowSize * (newColumnSize - oldColumnSize);
+		ensureCapacity(capacity);
+		float[] buffer = new float[Math.max(1, Math.min(oldColumnSize, COPY_SIZE))];
+		int i, j;
+		
+		for (i=rowSize-1; i>0; i--)
+			move(i*oldColumnSize, i*newColumnSize, oldColumnSize, buffer);
+		
+		for (i=0; i<rowSize; i++)
+			for (j=oldColumnSize; j<newColumnSize; j++)
+				set(i*newColumnSize+j, MajorVector.nextWeight(generator));
+		
+		size = (int)capacity;
+	}
+	
+	/** Moves the weights in {@code [from, from+length)} to {@code [to, to+length)} where {@code to >= from}; the ranges may overlap. */
+	private void move(int from, int to, int length, float[] buffer)
+	{
+		for (int n, end=length; end>0; end-=n)
+		{
+			n = Math.min(end, buffer.length);
+			transfer(from+end-n, buffer, n, false);
+			transfer(to  +end-n, buffer, n, true);
+		}
+	}
+	
+	/** Copies the specific number of weights starting at the index to the buffer, or from the buffer if {@code put}. */
+	private void transfer(int index, float[] buffer, int length, boolean put)
+	{
+		FloatBuffer page;
+		
+		for (int n, i=0; i<length; i+=n)
+		{
+			page = pages[(index+i) >>> page_bits].duplicate();
+			page.position((index+i) & page_mask);
+			n = Math.min(length - i, page.remaining());
+			if (put) page.put(buffer, i, n);
+			else     page.get(buffer, i, n);
+		}
+	}
+	
+	/** Releases the capacity beyond {@link #size()}. */
+	public void trim()
+	{
+		int count = (size + page_mask) >>> page_bits, last = size - ((count - 1) << page_bits);
+		if (count < pages.length) pages = Arrays.copyOf(pages, count);
+		if (count > 0 && pages[count-1].capacity() > last) pages[count-1] = resize(pages[count-1], last);
+	}
+	
+	private void ensureCapacity(long capacity)
+	{
+		if (capacity > Integer.MAX_VALUE) throw new IllegalStateException("The weights cannot exceed "+Integer.MAX_VALUE+" floats: "+capacity);
+		int pageSize = page_mask + 1, last = pages.length - 1;
+		if (last >= 0 && ((long)last << page_bits) + pages[last].capacity() >= capacity) return;
+		
+		// grow the last page by doubling until it is full
+		if (last < 0)
+			pages = new FloatBuffer[]{allocate((int)Math.min(pageSize, capacity))};
+		else if (pages[last].capacity() < pageSize)
+			pages[last] = resize(pages[last], (int)Math.min(pageSize, Math.max(capacity - (last << page_bits), pages[last].capacity() * 2L)));
+		
+		for (int count=pages.length; ((long)count << page_bits) < capacity; count++)
+		{
+			pages = Arrays.copyOf(pages, count + 1);
+			pages[count] = allocate(pageSize);
+		}
+	}
+	
+	private FloatBuffer resize(FloatBuffer page, int capacity)
+	{
+		FloatBuffer buffer = allocate(capacity);
+		page = page.duplicate();
+		page.limit(Math.min(page.capacity(), capacity));
+		buffer.put(page);
+		buffer.clear();
+		return buffer;
+	}
+	
+	private FloatBuffer allocate(int capacity)
+	{
+		return ByteBuffer.allocateDirect(capacity * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+	
+//	=================================== SERIALIZATION ===================================
+	
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i=0; i<size; i++) out.writeFloat(get(i));
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		int length = in.readInt();
+		pages = new FloatBuffer[0];
+		size  = 0;
+		ensureCapacity(length);
+		for (int i=0; i<length; i++) set(i, in.readFloat());
+		size = length;
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringJoiner join = new StringJoiner(", ", "[", "]");
+		for (int i=0; i<size; i++) join.add(Float.toString(get(i)));
+		return join.toString();
+	}
+}
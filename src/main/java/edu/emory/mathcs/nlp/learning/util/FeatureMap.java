@@ -15,12 +15,21 @@
  */
 package edu.emory.mathcs.nlp.learning.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.locks.StampedLock;
 
 import edu.emory.mathcs.nlp.common.util.DSUtils;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMaps;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
 /**
@@ -30,8 +39,14 @@ public class FeatureMap implements Serializable
 {
 	private static final long serialVersionUID = 6496256881514652478L;
 	private List<Object2IntMap<String>> index_map;
+	private Long2IntMap hash_map;
+	private transient MappedStringTable index_table;
+	private transient MappedHashTable hash_table;
 	private int feature_size;
 	
+	// features are looked up without locking and inserted under the write lock
+	private transient StampedLock lock;
+	
 	public FeatureMap()
 	{
 		this(1);
@@ -41,47 +56,230 @@ public class FeatureMap implements Serializable
 	{
 		index_map = new ArrayList<>();
 		feature_size = beginIndex;
+		lock = new StampedLock();
 	}
 	
 	/**
-	 * Adds the specific feature to this map.
+	 * Adds the specific feature to this map; multiple threads may add and look up features at once.
 	 * @param type the type of the feature (starting at 0).
 	 * @param value the value of the feature.
 	 * @return the index of the specific feature.
 	 */
 	public int add(int type, String value)
 	{
-		// expand types
-		for (int i=index_map.size(); i<=type; i++)
-			index_map.add(new Object2IntOpenHashMap<>());
-		
-		Object2IntMap<String> map = index_map.get(type);
-		int index = map.getOrDefault(value, -1);
+		if (index_table != null) throw new IllegalStateException("Features cannot be added to a mapped feature map.");
+		int index = index(type, value);
+		if (index >= 0) return index;
+		long stamp = lock.writeLock();
 		
-		if (index < 0)
+		try
 		{
-			index = feature_size++;
-			map.put(value, index);
+			// expand types
+			for (int i=index_map.size(); i<=type; i++)
+				index_map.add(new Object2IntOpenHashMap<>());
+			
+			Object2IntMap<String> map = index_map.get(type);
+			index = map.getOrDefault(value, -1);
+			
+			if (index < 0)
+			{
+				index = feature_size++;
+				map.put(value, index);
+			}
+			
+			return index;
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
 		}
-		
-		return index;
 	}
 	
 	/** @return the index of the specific feature if exists; otherwise, {@code -1}. */
 	public int index(int type, String value)
+	{
+		if (index_table != null) return index_table.get(type, value);
+		long stamp = lock.tryOptimisticRead();
+		
+		try
+		{
+			int index = getIndex(type, value);
+			if (lock.validate(stamp)) return index;
+		}
+		catch (RuntimeException e)
+		{
+			// a read that overlaps an insertion may fail; any other failure is real
+			if (lock.validate(stamp)) throw e;
+		}
+		
+		stamp = lock.readLock();
+		
+		try
+		{
+			return getIndex(type, value);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	private int getIndex(int type, String value)
 	{
 		return DSUtils.isRange(index_map, type) ? index_map.get(type).getOrDefault(value, -1) : -1;
 	}
 	
+	/**
+	 * Adds the specific hashed feature to this map; see {@link #add(int, String)}.
+	 * @param key the hash of the feature type and value.
+	 * @return the index of the specific feature.
+	 */
+	public int add(long key)
+	{
+		if (hash_table != null) throw new IllegalStateException("Features cannot be added to a mapped feature map.");
+		int index = index(key);
+		if (index >= 0) return index;
+		long stamp = lock.writeLock();
+		
+		try
+		{
+			if (hash_map == null) hash_map = createHashMap();
+			index = hash_map.get(key);
+			
+			if (index < 0)
+			{
+				index = feature_size++;
+				hash_map.put(key, index);
+			}
+			
+			return index;
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/** @return the index of the specific hashed feature if exists; otherwise, {@code -1}. */
+	public int index(long key)
+	{
+		if (hash_table != null) return hash_table.get(key);
+		long stamp = lock.tryOptimisticRead();
+		
+		try
+		{
+			int index = getIndex(key);
+			if (lock.validate(stamp)) return index;
+		}
+		catch (RuntimeException e)
+		{
+			// a read that overlaps an insertion may fail; any other failure is real
+			if (lock.validate(stamp)) throw e;
+		}
+		
+		stamp = lock.readLock();
+		
+		try
+		{
+			return getIndex(key);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	private int getIndex(long key)
+	{
+		Long2IntMap map = hash_map;
+		return (map != null) ? map.get(key) : -1;
+	}
+	
+	/**
+	 * Adds the features in the specific map to this map.
+	 * @return the indices of the features in this map, indexed by their indices in the specific map.
+	 */
+	public int[] merge(FeatureMap map)
+	{
+		int[] indices = new int[map.size()];
+		
+		// features without keys (e.g., bias) keep their indices
+		for (int i=0; i<indices.length; i++)
+			indices[i] = i;
+		
+		List<Object2IntMap<String>> indexMaps = map.getIndexMaps();
+		Long2IntMap hashMap = (map.hash_table != null) ? map.hash_table.toMap() : map.hash_map;
+		
+		for (int type=0; type<indexMaps.size(); type++)
+		{
+			for (Object2IntMap.Entry<String> e : indexMaps.get(type).object2IntEntrySet())
+				indices[e.getIntValue()] = add(type, e.getKey());
+		}
+		
+		if (hashMap != null)
+		{
+			for (Long2IntMap.Entry e : hashMap.long2IntEntrySet())
+				indices[e.getIntValue()] = add(e.getLongKey());
+		}
+		
+		return indices;
+	}
+	
 	/** @return the total number of features. */
 	public int size()
 	{
 		return feature_size;
 	}
 	
+	/** @return the maps from string features to their indices, indexed by their types; heap copies if the features are mapped. */
 	public List<Object2IntMap<String>> getIndexMaps()
 	{
-		return index_map;
+		return (index_table != null) ? index_table.toMaps() : index_map;
+	}
+	
+	/** @return the map from hashed features to their indices if any feature has been hashed; otherwise, {@code null}. */
+	public Long2IntMap getHashMap()
+	{
+		return hash_map;
+	}
+	
+	/** Do not use this method unless you know what you are doing. */
+	public void setHashMap(Long2IntMap map)
+	{
+		hash_map = map;
+	}
+	
+	/** @return the read-only table of the string features if set by {@link #setIndexTable(MappedStringTable)}; otherwise, {@code null}. */
+	public MappedStringTable getIndexTable()
+	{
+		return index_table;
+	}
+	
+	/** Replaces the string features with the specific read-only table (e.g., mapped from a binary model). */
+	public void setIndexTable(MappedStringTable table)
+	{
+		index_table = table;
+		index_map   = new ArrayList<>();
+	}
+	
+	/** @return the read-only table of the hashed features if set by {@link #setHashTable(MappedHashTable)}; otherwise, {@code null}. */
+	public MappedHashTable getHashTable()
+	{
+		return hash_table;
+	}
+	
+	/** Replaces the hashed features with the specific read-only table (e.g., mapped from a binary model). */
+	public void setHashTable(MappedHashTable table)
+	{
+		hash_table = table;
+		hash_map   = null;
+	}
+	
+	private Long2IntMap createHashMap()
+	{
+		Long2IntMap map = new Long2IntOpenHashMap();
+		map.defaultReturnValue(-1);
+		return map;
 	}
 	
 	/** Do not use this method unless you know what you are doing. */
@@ -100,9 +298,58 @@ public class FeatureMap implements Serializable
 				max = Math.max(max, index);
 		}
 		
+		if (hash_map != null)
+		{
+			for (int index : hash_map.values())
+				max = Math.max(max, index);
+		}
+		
+		if (index_table != null)
+			max = Math.max(max, index_table.getMaxValue());
+		
+		if (hash_table != null)
+			max = Math.max(max, hash_table.getMaxValue());
+		
 		return max;
 	}
 	
+	/** Makes this map read-only; features can no longer be added. */
+	public void freeze()
+	{
+		List<Object2IntMap<String>> list = new ArrayList<>(index_map.size());
+		
+		for (Object2IntMap<String> map : index_map)
+		{
+			if (map instanceof Object2IntOpenHashMap) ((Object2IntOpenHashMap<String>)map).trim();
+			list.add(Object2IntMaps.unmodifiable(map));
+		}
+		
+		index_map = Collections.unmodifiableList(list);
+		
+		if (hash_map != null)
+		{
+			if (hash_map instanceof Long2IntOpenHashMap) ((Long2IntOpenHashMap)hash_map).trim();
+			hash_map = Long2IntMaps.unmodifiable(hash_map);
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		lock = new StampedLock();
+	}
+	
+	/** Copies the mapped tables to the heap since they cannot be serialized. */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		List<Object2IntMap<String>> indexMap = index_map;
+		if (index_table != null) index_map = index_table.toMaps();
+		if (hash_table  != null) hash_map  = hash_table.toMap();
+		out.defaultWriteObject();
+		index_map = indexMap;
+		if (hash_table  != null) hash_map  = null;
+	}
+	
 	@Override
 	public String toString()
 	{
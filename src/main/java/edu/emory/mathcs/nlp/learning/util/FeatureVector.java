@@ -25,6 +25,10 @@ public class FeatureVector implements Serializable
 	private static final long serialVersionUID = -5213368916106070872L;
 	private SparseVector sparse_vector;
 	private float[]      dense_vector;
+	private float[][]    dense_slots;
+	private int[]        dense_slot_ids;
+	private int          dense_slot_dimension;
+	private transient DenseProjection dense_projection;
 	
 //	=================================== CONSTRUCTORS ===================================
 
@@ -57,11 +61,44 @@ public class FeatureVector implements Serializable
 		return sparse_vector;
 	}
 	
+	/** If the dense vector is given by slots, they are concatenated on the first call. */
 	public float[] getDenseVector()
 	{
+		if (dense_vector == null && dense_slots != null)
+		{
+			float[] v = new float[dense_slots.length * dense_slot_dimension];
+			
+			for (int k=0; k<dense_slots.length; k++)
+				if (dense_slots[k] != null) System.arraycopy(dense_slots[k], 0, v, k * dense_slot_dimension, dense_slot_dimension);
+			
+			dense_vector = v;
+		}
+		
 		return dense_vector;
 	}
 	
+	/** @return {@code slots[k]} is the {@code k}'th block of the dense vector, or {@code null} if the block is all 0s. */
+	public float[][] getDenseSlots()
+	{
+		return dense_slots;
+	}
+	
+	/** @return the ID of the token that each slot comes from, or -1 if unknown; see {@link DenseProjection}. */
+	public int[] getDenseSlotIDs()
+	{
+		return dense_slot_ids;
+	}
+	
+	public int getDenseSlotDimension()
+	{
+		return dense_slot_dimension;
+	}
+	
+	public DenseProjection getDenseProjection()
+	{
+		return dense_projection;
+	}
+	
 	public void setSparseVector(SparseVector vector)
 	{
 		sparse_vector = vector;
@@ -70,6 +107,27 @@ public class FeatureVector implements Serializable
 	public void setDenseVector(float[] vector)
 	{
 		dense_vector = vector;
+		dense_slots  = null;
+	}
+	
+	/**
+	 * Sets the dense vector as the concatenation of the slots without copying them.
+	 * The slots are scored block by block (e.g., one word embedding per slot) and concatenated only when {@link #getDenseVector()} is called.
+	 * @param ids the ID of the token that each slot comes from, or -1 if unknown.
+	 * @param dimension the dimension of every slot.
+	 */
+	public void setDenseSlots(float[][] slots, int[] ids, int dimension)
+	{
+		dense_vector = null;
+		dense_slots  = slots;
+		dense_slot_ids = ids;
+		dense_slot_dimension = dimension;
+	}
+	
+	/** The projection is used for scoring the slots as long as the weights do not change. */
+	public void setDenseProjection(DenseProjection projection)
+	{
+		dense_projection = projection;
 	}
 	
 	public void set(SparseVector sparseVector, float[] denseVector)
@@ -85,7 +143,13 @@ public class FeatureVector implements Serializable
 	
 	public boolean hasDenseVector()
 	{
-		return dense_vector != null;
+		return dense_vector != null || dense_slots != null;
+	}
+	
+	/** @return {@code true} if the dense vector is given by slots that have not been concatenated. */
+	public boolean hasDenseSlots()
+	{
+		return dense_slots != null && dense_vector == null;
 	}
 	
 //	=================================== STRING VECTOR ===================================	
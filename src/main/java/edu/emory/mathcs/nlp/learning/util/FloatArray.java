@@ -0,0 +1,124 @@
+/**
+ * Copyright 2015, Emory University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+
+/**
+ * Growable array of primitive floats used as the storage of array-backed major vectors.
+ * The capacity is doubled whenever it runs out so that appending is amortized constant time.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FloatArray implements Serializable
+{
+	private static final long serialVersionUID = -2739461620316722071L;
+	private float[] values;
+	private int     size;
+
+	public FloatArray()
+	{
+		values = new float[0];
+		size   = 0;
+	}
+
+//	=================================== GETTERS & SETTERS ===================================
+
+	public float get(int index)
+	{
+		return values[index];
+	}
+
+	public void set(int index, float value)
+	{
+		values[index] = value;
+	}
+
+	public void add(int index, float value)
+	{
+		values[index] += value;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/** @return the backing array, which is valid until this array is expanded; its length may exceed {@link #size()}. */
+	public float[] array()
+	{
+		return values;
+	}
+
+//	=================================== EXPAND ===================================
+
+	/** Appends the specific number of weights drawn from the generator (0 if the generator is {@code null}). */
+	public void append(int length, WeightGenerator generator)
+	{
+		ensureCapacity(size + length);
+
+		if (generator != null)
+		{
+			for (int i=0; i<length; i++)
+				values[size+i] = generator.next();
+		}
+
+		size += length;
+	}
+
+	/**
+	 * Treats this array as {@code rowSize} rows of {@code oldColumnSize} weights and widens every row to {@code newColumnSize}.
+	 * Rows are shifted in place from the last to the first so each weight is moved at most once.
+	 * The new weights are drawn from the generator row by row (0 if the generator is {@code null}).
+	 */
+	public void insertColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		int i, j, diff = newColumnSize - oldColumnSize;
+		ensureCapacity(size + rowSize * diff);
+
+		for (i=rowSize-1; i>0; i--)
+			System.arraycopy(values, i*oldColumnSize, values, i*newColumnSize, oldColumnSize);
+
+		for (i=0; i<rowSize; i++)
+			for (j=i*newColumnSize+oldColumnSize; j<(i+1)*newColumnSize; j++)
+				values[j] = MajorVector.nextWeight(generator);
+
+		size += rowSize * diff;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity > values.length)
+			values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+	}
+
+	/** Drops the unused capacity before serialization so saved models are not padded. */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		if (values.length > size) values = Arrays.copyOf(values, size);
+		out.defaultWriteObject();
+	}
+
+	@Override
+	public String toString()
+	{
+		return Arrays.toString(Arrays.copyOf(values, size));
+	}
+}
@@ -17,21 +17,24 @@ package edu.emory.mathcs.nlp.learning.util;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
 /**
+ * Labels are added by copying the map so that it can be read by multiple threads without locking while another thread adds labels.
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
 public class LabelMap implements Serializable
 {
 	private static final long serialVersionUID = 6353276311284514969L;
-	private Object2IntMap<String> index_map;
-	private List<String> labels;
+	private volatile Object2IntMap<String> index_map;
+	private volatile List<String> labels;
 	
 	public LabelMap()
 	{
@@ -43,17 +46,42 @@ public class LabelMap implements Serializable
 	public int add(String label)
 	{
 		int index = index(label);
+		return (index < 0) ? put(label) : index;
+	}
+	
+	private synchronized int put(String label)
+	{
+		int index = index(label);
+		if (index >= 0) return index;
+		if (!(index_map instanceof Object2IntOpenHashMap)) throw new UnsupportedOperationException("Labels cannot be added to a frozen map.");
 		
-		if (index < 0)
-		{
-			index = labels.size();
-			index_map.put(label, index);
-			labels.add(label);
-		}
+		Object2IntMap<String> map = new Object2IntOpenHashMap<>(index_map);
+		List<String> list = new ArrayList<>(labels);
+		index = list.size();
+		map.put(label, index);
+		list.add(label);
 		
+		// the label must exist before its index can be found
+		labels    = list;
+		index_map = map;
 		return index;
 	}
 	
+	/**
+	 * Adds the labels in the specific map to this map.
+	 * @return the indices of the labels in this map, indexed by their indices in the specific map.
+	 */
+	public int[] merge(LabelMap map)
+	{
+		List<String> list = map.getLabelList();
+		int[] indices = new int[list.size()];
+		
+		for (int i=0; i<indices.length; i++)
+			indices[i] = add(list.get(i));
+		
+		return indices;
+	}
+	
 	/** @return the index of the specific label if exists; otherwise, {@code -1}. */
 	public int index(String label)
 	{
@@ -78,6 +106,14 @@ public class LabelMap implements Serializable
 		return labels.size();
 	}
 	
+	/** Makes this map read-only; {@link #add(String)} and {@link #remap(Int2IntMap)} are no longer supported. */
+	public void freeze()
+	{
+		if (index_map instanceof Object2IntOpenHashMap) ((Object2IntOpenHashMap<String>)index_map).trim();
+		index_map = Object2IntMaps.unmodifiable(index_map);
+		labels    = Collections.unmodifiableList(new ArrayList<>(labels));
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -136,4 +136,45 @@ public class MLUtils
 		
 		return max;
 	}
+	
+	/**
+	 * @param labels the candidate labels; if null or empty, all labels are considered.
+	 * @return the indices of the top-k scores among the candidate labels in descending order of their scores.
+	 */
+	static public int[] argmaxK(float[] scores, IntCollection labels, int k)
+	{
+		boolean all = labels == null || labels.isEmpty();
+		int[] max = new int[Math.min(k, all ? scores.length : labels.size())];
+		int size = 0;
+		
+		if (all)
+		{
+			for (int i=0; i<scores.length; i++)
+				size = insert(max, size, scores, i);
+		}
+		else
+		{
+			IntIterator it = labels.iterator();
+			
+			while (it.hasNext())
+				size = insert(max, size, scores, it.nextInt());
+		}
+		
+		return max;
+	}
+	
+	/** Called by {@link #argmaxK(float[], IntCollection, int)}. */
+	static private int insert(int[] max, int size, float[] scores, int index)
+	{
+		if (size == max.length && scores[max[size-1]] >= scores[index])
+			return size;
+		
+		int i = (size < max.length) ? size++ : size-1;
+		
+		for (; i>0 && scores[max[i-1]] < scores[index]; i--)
+			max[i] = max[i-1];
+		
+		max[i] = index;
+		return size;
+	}
 }
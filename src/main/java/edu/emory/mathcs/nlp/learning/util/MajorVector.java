@@ -15,7 +15,12 @@
  */
 package edu.emory.mathcs.nlp.learning.util;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 
 import org.magicwerk.brownies.collections.primitive.FloatGapList;
 
@@ -30,17 +35,17 @@ public abstract class MajorVector implements Serializable
 	protected FloatGapList weights;
 	protected int feature_size;
 	protected int label_size;	
-	
-//	=================================== CONSTRUCTORS ===================================
 
+//	=================================== CONSTRUCTORS ===================================
+	
 	public MajorVector()
 	{
 		weights = new FloatGapList();
 		setSizes(0, 0);
 	}
-	
-//	=================================== GETTERS & SETTERS ===================================
 
+//	=================================== GETTERS & SETTERS ===================================
+	
 	public int getFeatureSize()
 	{
 		return feature_size;
@@ -50,7 +55,7 @@ public abstract class MajorVector implements Serializable
 	{
 		return label_size;
 	}
-	
+
 //	=================================== EXPAND ===================================
 	
 	/**
@@ -70,14 +75,14 @@ public abstract class MajorVector implements Serializable
 		if (newColumnSize < oldColumnSize) newColumnSize = oldColumnSize;
 		boolean expanded = false;
 		
+		// weights are indexed by int (see indexOf), which would overflow silently past this size
+		if ((long)newRowSize * newColumnSize > Integer.MAX_VALUE)
+			throw new IllegalStateException("A weight vector cannot exceed "+Integer.MAX_VALUE+" weights: "+newRowSize+" x "+newColumnSize);
+		
 		// expand columns
 		if (oldColumnSize < newColumnSize)
 		{
-			int i, j, diff = newColumnSize - oldColumnSize, size = oldRowSize * newColumnSize;
-			
-			for (i=oldColumnSize; i<size; i+=newColumnSize)
-				for (j=0; j<diff; j++) weights.add(i+j, generator == null ? 0 : generator.next());
-			
+			expandColumns(oldRowSize, oldColumnSize, newColumnSize, generator);
 			setColumnSize(newColumnSize);
 			expanded = true;
 		}
@@ -85,9 +90,7 @@ public abstract class MajorVector implements Serializable
 		// expand label dimension
 		if (oldRowSize < newRowSize)
 		{
-			int i, size = newRowSize * newColumnSize;
-			for (i=weights.size(); i<size; i++) weights.add(generator == null ? 0 : generator.next());
-			
+			expandRows(oldRowSize, newRowSize, newColumnSize, generator);
 			setRowSize(newRowSize);
 			expanded = true;
 		}
@@ -95,16 +98,45 @@ public abstract class MajorVector implements Serializable
 		return expanded;
 	}
 	
+	/**
+	 * Inserts {@code newColumnSize - oldColumnSize} weights at the end of each row.
+	 * Weights are drawn from the generator row by row; 0 is used if the generator is {@code null}.
+	 */
+	protected void expandColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		int i, j, diff = newColumnSize - oldColumnSize, size = rowSize * newColumnSize;
+		
+		for (i=oldColumnSize; i<size; i+=newColumnSize)
+			for (j=0; j<diff; j++) weights.add(i+j, nextWeight(generator));
+	}
+	
+	/** Appends {@code newRowSize - oldRowSize} rows of {@code columnSize} weights. */
+	protected void expandRows(int oldRowSize, int newRowSize, int columnSize, WeightGenerator generator)
+	{
+		append((newRowSize - oldRowSize) * columnSize, generator);
+	}
+	
+	/** Appends the specific number of weights drawn from the generator (0 if the generator is {@code null}). */
+	protected void append(int length, WeightGenerator generator)
+	{
+		for (int i=0; i<length; i++) weights.add(nextWeight(generator));
+	}
+	
+	static float nextWeight(WeightGenerator generator)
+	{
+		return generator == null ? 0 : generator.next();
+	}
+	
 	protected abstract void setRowSize   (int size);
 	protected abstract void setColumnSize(int size);
-	
-//	=================================== VECTOR OPERATIONS ===================================
 
+//	=================================== VECTOR OPERATIONS ===================================
+	
 	public float get(int index)
 	{
 		return weights.get(index);
 	}
-
+	
 	public void set(int index, float value)
 	{
 		weights.set(index, value);
@@ -139,9 +171,9 @@ public abstract class MajorVector implements Serializable
 	{
 		return weights.size();
 	}
-	
-//	=================================== X/Y OPERATIONS ===================================
 
+//	=================================== X/Y OPERATIONS ===================================
+	
 	/**
 	 * @param y  the index of the label.
 	 * @param xi the index of the feature.
@@ -168,27 +200,137 @@ public abstract class MajorVector implements Serializable
 	{
 		multiply(indexOf(y, xi), value);
 	}
-	
-//	=================================== SCORES ===================================
 
+//	=================================== SCORES ===================================
+	
 	public abstract void addScores(SparseVector x, float[] scores);
 	public abstract void addScores(float[] x, float[] scores);
 	
+	/**
+	 * Adds the scores of {@code x} as a block of the dense features starting at the specific column,
+	 * i.e., as if {@code x} were placed in {@code [column, column + x.length)} of a vector whose other values are 0.
+	 * Features beyond {@link #getFeatureSize()} are ignored.
+	 */
+	public void addScores(float[] x, int column, float[] scores)
+	{
+		int y, j, length = Math.min(x.length, feature_size - column);
+		
+		for (y=0; y<scores.length; y++)
+			for (j=0; j<length; j++)
+				scores[y] += get(y, column+j) * x[j];
+	}
+	
+	/** Adds the scores of the concatenation of the slots without concatenating them, where {@code null} slots are 0s; see {@link FeatureVector#setDenseSlots(float[][], int[], int)}. */
+	public void addScores(float[][] slots, int dimension, float[] scores)
+	{
+		for (int k=0; k<slots.length; k++)
+			if (slots[k] != null) addScores(slots[k], k * dimension, scores);
+	}
+	
+	/** Adds the scores of multiple dense vectors at once, where {@code scores[i]} is for {@code x[i]}; null vectors are skipped. */
+	public void addScores(float[][] x, float[][] scores)
+	{
+		for (int i=0; i<x.length; i++)
+			if (x[i] != null) addScores(x[i], scores[i]);
+	}
+	
+	/**
+	 * Adds the scores of {@code x} given the transpose of this vector, where {@code x} is indexed by labels and {@code scores} by features:
+	 * {@code scores[xi] += sum_y get(y, xi) * x[y]} (e.g., errors propagated back through the weights).
+	 */
+	public void addTransposedScores(float[] x, float[] scores)
+	{
+		int y, xi, labels = Math.min(x.length, label_size), features = Math.min(scores.length, feature_size);
+		
+		for (y=0; y<labels; y++)
+		{
+			if (x[y] == 0) continue;
+			
+			for (xi=0; xi<features; xi++)
+				scores[xi] += get(y, xi) * x[y];
+		}
+	}
+	
+	/** Adds {@code alpha * g[y] * x[xi]} to every weight {@code (y, xi)} (e.g., the gradients of a layer). */
+	public void addOuterProduct(float alpha, float[] g, float[] x)
+	{
+		int y, xi, labels = Math.min(g.length, label_size), features = Math.min(x.length, feature_size);
+		
+		for (y=0; y<labels; y++)
+		{
+			if (g[y] == 0) continue;
+			
+			for (xi=0; xi<features; xi++)
+				add(y, xi, alpha * g[y] * x[xi]);
+		}
+	}
+	
+	/** Adds the transposed scores of multiple vectors at once, where {@code scores[i]} is for {@code x[i]}; null vectors are skipped; see {@link #addTransposedScores(float[], float[])}. */
+	public void addTransposedScores(float[][] x, float[][] scores)
+	{
+		for (int i=0; i<x.length; i++)
+			if (x[i] != null) addTransposedScores(x[i], scores[i]);
+	}
+	
+	/**
+	 * Adds {@code alpha * sum_i g[i][y] * x[i][xi]} to every weight {@code (y, xi)} (e.g., the gradients of a mini-batch); see {@link #addOuterProduct(float, float[], float[])}.
+	 * The weights are divided into {@code parts} disjoint portions and only the {@code part}'th portion is updated,
+	 * so that different portions can be updated by different threads at once.
+	 */
+	public void addOuterProducts(float alpha, float[][] g, float[][] x, int part, int parts)
+	{
+		int i, y, xi, labels, features;
+		int begin = label_size * part / parts, end = label_size * (part+1) / parts;
+		
+		for (i=0; i<g.length; i++)
+		{
+			if (g[i] == null || x[i] == null) continue;
+			labels   = Math.min(g[i].length, end);
+			features = Math.min(x[i].length, feature_size);
+			
+			for (y=begin; y<labels; y++)
+			{
+				if (g[i][y] == 0) continue;
+				
+				for (xi=0; xi<features; xi++)
+					add(y, xi, alpha * g[i][y] * x[i][xi]);
+			}
+		}
+	}
+	
+	/** Adds the scores of multiple sparse vectors at once, where {@code scores[i]} is for {@code x[i]}. */
+	public void addScores(SparseVector[] x, float[][] scores)
+	{
+		for (int i=0; i<x.length; i++)
+			if (x[i] != null) addScores(x[i], scores[i]);
+	}
+
 //	=================================== UTILITIES ===================================
 	
-	protected abstract MajorVector createInstance();
+	/** @return an empty vector backed by the same kind of storage as this vector. */
+	public abstract MajorVector createInstance();
+	
+	/** @return a compact array-backed copy of this vector with no room reserved for expansion. */
+	public abstract MajorVector compact();
+	
+	/** Copies the weights of this vector to the specific empty vector. */
+	protected MajorVector copyTo(MajorVector vector)
+	{
+		vector.expand(label_size, feature_size);
+		
+		for (int y=0; y<label_size; y++)
+			for (int xi=0; xi<feature_size; xi++)
+				vector.set(y, xi, get(y, xi));
+		
+		return vector;
+	}
 	
 	/** @return a copy of this vector where all the values are initialized to 0. */
 	public MajorVector createZeroVector()
 	{
 		MajorVector vector = createInstance();
-
 		vector.setSizes(label_size, feature_size);
-		vector.weights = new FloatGapList();
-
-		for (int i=0; i<weights.size(); i++)
-			vector.weights.add(0);
-		
+		vector.append(size(), null);
 		return vector;
 	}
 	
@@ -202,6 +344,77 @@ public abstract class MajorVector implements Serializable
 		
 		return count;
 	}
+
+//	=================================== MAPPING ===================================
+	
+	static private final int MAPPED_HEADER = 16;
+	
+	/** @return the number of bytes taken by {@link #write(MajorVector, ChannelOutput)}. */
+	static public long byteSize(MajorVector vector)
+	{
+		return MAPPED_HEADER + (long)vector.label_size * vector.feature_size * Float.BYTES;
+	}
+	
+	/**
+	 * Writes the orientation, the label and feature sizes, and the weights of the specific vector
+	 * in the order of a compact vector so that {@link #map(ByteBuffer)} can read them in place.
+	 */
+	static public void write(MajorVector vector, ChannelOutput out) throws IOException
+	{
+		boolean column = vector instanceof ColumnMajorVector;
+		int y, xi;
+		
+		out.putInt(column ? 0 : 1);
+		out.putInt(vector.label_size);
+		out.putInt(vector.feature_size);
+		out.putInt(0);
+		
+		if (column)
+		{
+			for (xi=0; xi<vector.feature_size; xi++)
+				for (y=0; y<vector.label_size; y++)
+					out.putFloat(vector.get(y, xi));
+		}
+		else
+		{
+			for (y=0; y<vector.label_size; y++)
+				for (xi=0; xi<vector.feature_size; xi++)
+					out.putFloat(vector.get(y, xi));
+		}
+	}
+	
+	/** @return a read-only vector backed by the bytes written by {@link #write(MajorVector, ChannelOutput)}. */
+	static public MajorVector map(ByteBuffer buffer)
+	{
+		buffer = buffer.duplicate().order(ChannelOutput.BYTE_ORDER);
+		int labelSize   = buffer.getInt(4);
+		int featureSize = buffer.getInt(8);
+		
+		buffer.position(MAPPED_HEADER);
+		FloatBuffer values = buffer.slice().order(ChannelOutput.BYTE_ORDER).asFloatBuffer();
+		values.limit(labelSize * featureSize);
+		return map(new MappedFloatArray(values), buffer.getInt(0) == 0, labelSize, featureSize);
+	}
+	
+	/**
+	 * @param offset the position of the bytes written by {@link #write(MajorVector, ChannelOutput)} in the channel.
+	 * @param pageBits the weights are mapped in pages of {@code 2^pageBits} floats so that they can exceed 2GB.
+	 * @return a read-only vector backed by the mapped pages of the channel.
+	 */
+	static public MajorVector map(FileChannel channel, long offset, int pageBits) throws IOException
+	{
+		ByteBuffer buffer = channel.map(MapMode.READ_ONLY, offset, MAPPED_HEADER).order(ChannelOutput.BYTE_ORDER);
+		int labelSize   = buffer.getInt(4);
+		int featureSize = buffer.getInt(8);
+		
+		MappedFloatArray values = new MappedFloatArray(channel, offset + MAPPED_HEADER, labelSize * featureSize, pageBits);
+		return map(values, buffer.getInt(0) == 0, labelSize, featureSize);
+	}
+	
+	static private MajorVector map(MappedFloatArray values, boolean column, int labelSize, int featureSize)
+	{
+		return column ? new ColumnMajorMappedVector(values, labelSize, featureSize) : new RowMajorMappedVector(values, labelSize, featureSize);
+	}
 	
 	protected void setSizes(int labelSize, int featureSize)
 	{
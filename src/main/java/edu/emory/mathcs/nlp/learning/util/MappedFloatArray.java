@@ -0,0 +1,96 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Read-only array of floats mapped from a file in pages, so that it is not bound by the 2GB limit of one mapped buffer.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class MappedFloatArray
+{
+	static public final int DEFAULT_PAGE_BITS = 28;
+	private final FloatBuffer[] pages;
+	private final int page_bits;
+	private final int page_mask;
+	private final int size;
+	
+	/** @param buffer holds all floats in one page. */
+	public MappedFloatArray(FloatBuffer buffer)
+	{
+		pages = new FloatBuffer[]{buffer};
+		page_bits = 31;
+		page_mask = Integer.MAX_VALUE;
+		size = buffer.limit();
+	}
+	
+	/**
+	 * Maps the specific number of floats starting at the offset of the channel.
+	 * @param pageBits each page holds {@code 2^pageBits} floats.
+	 */
+	public MappedFloatArray(FileChannel channel, long offset, int size, int pageBits) throws IOException
+	{
+		int i, count = (int)(((long)size + (1L << pageBits) - 1) >>> pageBits);
+		long begin, length;
+		
+		pages = new FloatBuffer[count];
+		page_bits = pageBits;
+		page_mask = (1 << pageBits) - 1;
+		this.size = size;
+		
+		for (i=0; i<count; i++)
+		{
+			begin  = (long)i << pageBits;
+			length = Math.min(size - begin, 1L << pageBits);
+			pages[i] = channel.map(MapMode.READ_ONLY, offset + begin * Float.BYTES, length * Float.BYTES).order(ChannelOutput.BYTE_ORDER).asFloatBuffer();
+		}
+	}
+	
+	public float get(int index)
+	{
+		return pages[index >>> page_bits].get(index & page_mask);
+	}
+	
+	public void set(int index, float value)
+	{
+		pages[index >>> page_bits].put(index & page_mask, value);
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	/** Same as {@link DirectFloatArray#addScores(int, float[], float)}. */
+	public void addScores(int index, float[] scores, float value)
+	{
+		FloatBuffer page = pages[index >>> page_bits];
+		int i, offset = index & page_mask;
+		
+		if (offset + scores.length <= page.limit())
+		{
+			for (i=0; i<scores.length; i++) scores[i] += page.get(offset+i) * value;
+		}
+		else
+		{
+			for (i=0; i<scores.length; i++) scores[i] += get(index+i) * value;
+		}
+	}
+}
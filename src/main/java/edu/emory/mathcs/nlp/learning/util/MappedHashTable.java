@@ -0,0 +1,153 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * Read-only open-addressing table from hashed features to their indices, laid out flat so that it can be used
+ * directly from a memory-mapped file: the capacity and the size followed by all keys and then all values.
+ * Empty slots have the key {@code 0}, which {@code FeatureHash} never returns.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class MappedHashTable
+{
+	static private final int HEADER = 8;
+	private ByteBuffer bytes;
+	private LongBuffer keys;
+	private IntBuffer  values;
+	private int        mask;
+	private int        size;
+	
+	/** @param buffer the bytes written by {@link #write(Long2IntMap, ChannelOutput)}. */
+	public MappedHashTable(ByteBuffer buffer)
+	{
+		buffer = buffer.duplicate().order(ChannelOutput.BYTE_ORDER);
+		int capacity = buffer.getInt(0);
+		size = buffer.getInt(4);
+		mask = capacity - 1;
+		
+		bytes = buffer.duplicate();
+		bytes.limit((int)byteSize(capacity)).position(0);
+		
+		buffer.position(HEADER);
+		keys = buffer.slice().order(ChannelOutput.BYTE_ORDER).asLongBuffer();
+		keys.limit(capacity);
+		buffer.position(HEADER + capacity * Long.BYTES);
+		values = buffer.slice().order(ChannelOutput.BYTE_ORDER).asIntBuffer();
+		values.limit(capacity);
+	}
+	
+	/** @return the index of the specific hashed feature if exists; otherwise, {@code -1}. */
+	public int get(long key)
+	{
+		long k;
+		
+		for (int i=slot(key, mask); (k = keys.get(i)) != 0; i=(i+1)&mask)
+			if (k == key) return values.get(i);
+		
+		return -1;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public int getMaxValue()
+	{
+		int max = -1;
+		
+		for (int i=0; i<=mask; i++)
+			if (keys.get(i) != 0) max = Math.max(max, values.get(i));
+		
+		return max;
+	}
+	
+	/** @return a heap copy of this table. */
+	public Long2IntMap toMap()
+	{
+		Long2IntMap map = new Long2IntOpenHashMap(size);
+		map.defaultReturnValue(-1);
+		
+		for (int i=0; i<=mask; i++)
+			if (keys.get(i) != 0) map.put(keys.get(i), values.get(i));
+		
+		return map;
+	}
+
+//	=================================== WRITE ===================================
+	
+	/** @return the number of bytes taken by this table. */
+	public long byteSize()
+	{
+		return bytes.remaining();
+	}
+	
+	/** Writes this table as it is, so a mapped table can be saved again without being copied to the heap. */
+	public void write(ChannelOutput out) throws IOException
+	{
+		out.put(bytes);
+	}
+	
+	/** @return the number of bytes taken by the table of the specific map. */
+	static public long byteSize(Long2IntMap map)
+	{
+		return byteSize(capacity(map.size()));
+	}
+	
+	static private long byteSize(int capacity)
+	{
+		return HEADER + (long)capacity * (Long.BYTES + Integer.BYTES);
+	}
+	
+	/** Writes the specific map as a table whose load factor is at most 0.5. */
+	static public void write(Long2IntMap map, ChannelOutput out) throws IOException
+	{
+		int capacity = capacity(map.size()), mask = capacity - 1, i;
+		long[] keys   = new long[capacity];
+		int [] values = new int [capacity];
+		
+		for (Long2IntMap.Entry e : map.long2IntEntrySet())
+		{
+			if (e.getLongKey() == 0) throw new IllegalArgumentException("The key 0 is reserved for empty slots.");
+			for (i=slot(e.getLongKey(), mask); keys[i] != 0; i=(i+1)&mask);
+			keys  [i] = e.getLongKey();
+			values[i] = e.getIntValue();
+		}
+		
+		out.putInt(capacity);
+		out.putInt(map.size());
+		for (long k : keys)  out.putLong(k);
+		for (int  v : values) out.putInt(v);
+	}
+	
+	static private int capacity(int size)
+	{
+		return Math.max(2, Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1);
+	}
+	
+	static private int slot(long key, int mask)
+	{
+		return (int)(key ^ (key >>> 32)) & mask;
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Read-only open-addressing table from string features to their indices, laid out flat so that it can be used
+ * directly from a memory-mapped file: the capacity, the size, and the number of characters followed by
+ * the types, the indices, the character offsets, and the lengths of all slots, and then the characters of all features.
+ * Empty slots have the type {@code -1}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class MappedStringTable
+{
+	static private final int HEADER = 12;
+	private ByteBuffer bytes;
+	private IntBuffer  types;
+	private IntBuffer  values;
+	private IntBuffer  offsets;
+	private IntBuffer  lengths;
+	private CharBuffer chars;
+	private int        mask;
+	private int        size;
+	
+	/** @param buffer the bytes written by {@link #write(List, ChannelOutput)}. */
+	public MappedStringTable(ByteBuffer buffer)
+	{
+		buffer = buffer.duplicate().order(ChannelOutput.BYTE_ORDER);
+		int capacity = buffer.getInt(0);
+		int count    = buffer.getInt(8);
+		size = buffer.getInt(4);
+		mask = capacity - 1;
+		
+		bytes = buffer.duplicate();
+		bytes.limit((int)byteSize(capacity, count)).position(0);
+		types   = slice(buffer, 0, capacity).asIntBuffer();
+		values  = slice(buffer, 1, capacity).asIntBuffer();
+		offsets = slice(buffer, 2, capacity).asIntBuffer();
+		lengths = slice(buffer, 3, capacity).asIntBuffer();
+		buffer.position(HEADER + capacity * Integer.BYTES * 4);
+		chars   = buffer.slice().order(ChannelOutput.BYTE_ORDER).asCharBuffer();
+		chars.limit(count);
+	}
+	
+	/** @return the bytes of the specific column of ints. */
+	static private ByteBuffer slice(ByteBuffer buffer, int column, int capacity)
+	{
+		buffer.position(HEADER + column * capacity * Integer.BYTES);
+		ByteBuffer b = buffer.slice().order(ChannelOutput.BYTE_ORDER);
+		b.limit(capacity * Integer.BYTES);
+		return b;
+	}
+	
+	/** @return the index of the specific feature if exists; otherwise, {@code -1}. */
+	public int get(int type, String value)
+	{
+		int t;
+		
+		for (int i=slot(type, value, mask); (t = types.get(i)) >= 0; i=(i+1)&mask)
+			if (t == type && equals(i, value)) return values.get(i);
+		
+		return -1;
+	}
+	
+	private boolean equals(int slot, String value)
+	{
+		int offset = offsets.get(slot), length = lengths.get(slot);
+		if (length != value.length()) return false;
+		
+		for (int i=0; i<length; i++)
+			if (chars.get(offset+i) != value.charAt(i)) return false;
+		
+		return true;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public int getMaxValue()
+	{
+		int max = -1;
+		
+		for (int i=0; i<=mask; i++)
+			if (types.get(i) >= 0) max = Math.max(max, values.get(i));
+		
+		return max;
+	}
+	
+	/** @return heap copies of the maps of this table, indexed by their types. */
+	public List<Object2IntMap<String>> toMaps()
+	{
+		List<Object2IntMap<String>> maps = new ArrayList<>();
+		int i, type, offset;
+		
+		for (i=0; i<=mask; i++)
+		{
+			if ((type = types.get(i)) < 0) continue;
+			while (maps.size() <= type) maps.add(new Object2IntOpenHashMap<>());
+			offset = offsets.get(i);
+			char[] c = new char[lengths.get(i)];
+			for (int j=0; j<c.length; j++) c[j] = chars.get(offset+j);
+			maps.get(type).put(new String(c), values.get(i));
+		}
+		
+		return maps;
+	}
+
+//	=================================== WRITE ===================================
+	
+	/** @return the number of bytes taken by this table. */
+	public long byteSize()
+	{
+		return bytes.remaining();
+	}
+	
+	/** Writes this table as it is, so a mapped table can be saved again without being copied to the heap. */
+	public void write(ChannelOutput out) throws IOException
+	{
+		out.put(bytes);
+	}
+	
+	/** @return the number of bytes taken by the table of the specific maps. */
+	static public long byteSize(List<Object2IntMap<String>> maps)
+	{
+		int size = 0, count = 0;
+		
+		for (Object2IntMap<String> map : maps)
+		{
+			size += map.size();
+			for (String s : map.keySet()) count += s.length();
+		}
+		
+		return byteSize(capacity(size), count);
+	}
+	
+	static private long byteSize(int capacity, int count)
+	{
+		return HEADER + (long)capacity * Integer.BYTES * 4 + (long)count * Character.BYTES;
+	}
+	
+	/** Writes the specific maps, indexed by their types, as a table whose load factor is at most 0.5. */
+	static public void write(List<Object2IntMap<String>> maps, ChannelOutput out) throws IOException
+	{
+		int type, size = 0, count = 0, i;
+		
+		for (Object2IntMap<String> map : maps)
+			size += map.size();
+		
+		int capacity = capacity(size), mask = capacity - 1;
+		int[] types   = new int[capacity];
+		int[] values  = new int[capacity];
+		int[] offsets = new int[capacity];
+		int[] lengths = new int[capacity];
+		Arrays.fill(types, -1);
+		
+		for (type=0; type<maps.size(); type++)
+		{
+			for (Object2IntMap.Entry<String> e : maps.get(type).object2IntEntrySet())
+			{
+				for (i=slot(type, e.getKey(), mask); types[i] >= 0; i=(i+1)&mask);
+				types  [i] = type;
+				values [i] = e.getIntValue();
+				offsets[i] = count;
+				lengths[i] = e.getKey().length();
+				count += lengths[i];
+			}
+		}
+		
+		out.putInt(capacity);
+		out.putInt(size);
+		out.putInt(count);
+		for (int v : types)   out.putInt(v);
+		for (int v : values)  out.putInt(v);
+		for (int v : offsets) out.putInt(v);
+		for (int v : lengths) out.putInt(v);
+		
+		// the characters in the order of their offsets
+		for (Object2IntMap<String> map : maps)
+			for (Object2IntMap.Entry<String> e : map.object2IntEntrySet())
+				for (i=0; i<e.getKey().length(); i++) out.putChar(e.getKey().charAt(i));
+	}
+	
+	static private int capacity(int size)
+	{
+		return Math.max(2, Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1);
+	}
+	
+	static private int slot(int type, String value, int mask)
+	{
+		int h = value.hashCode() * 31 + type;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016, Emory University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+/**
+ * Conversions between 32-bit floats and 16-bit floats (IEEE half precision) or 8-bit integers with a per-row scale.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class QuantizationUtils
+{
+	/** {@code HALF_TO_FLOAT[h & 0xffff]} is the 32-bit value of the 16-bit float {@code h}. */
+	static private final float[] HALF_TO_FLOAT = new float[1 << 16];
+
+	static
+	{
+		for (int i=0; i<HALF_TO_FLOAT.length; i++)
+			HALF_TO_FLOAT[i] = toFloat(i);
+	}
+
+	private QuantizationUtils() {}
+
+//	=================================== 16 BITS ===================================
+
+	static public float fromHalf(short h)
+	{
+		return HALF_TO_FLOAT[h & 0xffff];
+	}
+
+	/** @return the 16-bit float closest to {@code f} (rounded to nearest even); values out of range become infinity. */
+	static public short toHalf(float f)
+	{
+		int bits = Float.floatToIntBits(f);
+		int sign = (bits >>> 16) & 0x8000;
+		int exp  = ((bits >>> 23) & 0xff) - 127 + 15;
+		int mantissa = bits & 0x7fffff;
+
+		if (((bits >>> 23) & 0xff) == 0xff)	// NaN or infinity
+			return (short)(sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+
+		if (exp >= 0x1f) return (short)(sign | 0x7c00);
+
+		if (exp <= 0)	// subnormal or zero
+		{
+			if (exp < -10) return (short)sign;
+			mantissa |= 0x800000;
+			int shift = 14 - exp;
+			int half  = mantissa >> shift;
+			int rest  = mantissa & ((1 << shift) - 1);
+			int mid   = 1 << (shift - 1);
+			if (rest > mid || (rest == mid && (half & 1) == 1)) half++;
+			return (short)(sign | half);
+		}
+
+		int half = sign | (exp << 10) | (mantissa >> 13);
+		int rest = mantissa & 0x1fff;
+		if (rest > 0x1000 || (rest == 0x1000 && (half & 1) == 1)) half++;	// may carry into the exponent, which is still correct
+		return (short)half;
+	}
+
+	static private float toFloat(int h)
+	{
+		int sign = (h & 0x8000) << 16;
+		int exp  = (h >>> 10) & 0x1f;
+		int mantissa = h & 0x3ff;
+
+		if (exp == 0x1f) return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+		if (exp == 0)
+		{
+			float f = mantissa * (1f / (1 << 24));
+			return sign == 0 ? f : -f;
+		}
+
+		return Float.intBitsToFloat(sign | ((exp - 15 + 127) << 23) | (mantissa << 13));
+	}
+
+//	=================================== 8 BITS ===================================
+
+	/** @return the scale mapping {@code values[begin:end]} to [-127, 127], which is 0 if all the values are 0. */
+	static public float getByteScale(float[] values, int begin, int end)
+	{
+		float max = 0;
+
+		for (int i=begin; i<end; i++)
+			max = Math.max(max, Math.abs(values[i]));
+
+		return max / 127;
+	}
+
+	static public byte toByte(float f, float scale)
+	{
+		return (scale == 0) ? 0 : (byte)Math.round(f / scale);
+	}
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.util.Arrays;
+
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+
+/**
+ * Row-major vector backed by a primitive float array instead of a gap list.
+ * Each row reserves room for more features than it currently has ({@link #getRowCapacity()}),
+ * so adding features only writes the new weights; rows are relaid out only when the capacity is doubled.
+ * Since weight indices include the reserved room, {@link #size()} counts all allocated weights.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class RowMajorArrayVector extends RowMajorVector
+{
+	private static final long serialVersionUID = -8465319276308822411L;
+	private FloatArray values;
+	private int row_capacity;
+	
+	public RowMajorArrayVector()
+	{
+		weights = null;
+		values  = new FloatArray();
+		row_capacity = 0;
+	}
+	
+	/** @return the number of weights reserved for each row (label), which is at least the feature size. */
+	public int getRowCapacity()
+	{
+		return row_capacity;
+	}
+	
+	@Override
+	public int indexOf(int y, int xi)
+	{
+		return y * row_capacity + xi;
+	}
+	
+	@Override
+	public MajorVector createInstance()
+	{
+		return new RowMajorArrayVector();
+	}
+	
+	@Override
+	public MajorVector createZeroVector()
+	{
+		RowMajorArrayVector vector = new RowMajorArrayVector();
+		vector.setSizes(label_size, feature_size);
+		vector.row_capacity = row_capacity;
+		vector.values.append(values.size(), null);
+		return vector;
+	}
+	
+//	=================================== EXPAND ===================================
+	
+	@Override
+	protected void expandColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		int i, j;
+		
+		if (row_capacity < newColumnSize)
+		{
+			int capacity = Math.max(newColumnSize, row_capacity * 2);
+			values.insertColumns(rowSize, row_capacity, capacity, null);
+			row_capacity = capacity;
+		}
+		
+		// the reserved weights are always 0
+		if (generator != null)
+		{
+			for (i=0; i<rowSize; i++)
+				for (j=oldColumnSize; j<newColumnSize; j++)
+					values.set(indexOf(i, j), generator.next());
+		}
+	}
+	
+	@Override
+	protected void expandRows(int oldRowSize, int newRowSize, int columnSize, WeightGenerator generator)
+	{
+		int i, j;
+		values.append((newRowSize - oldRowSize) * row_capacity, null);
+		
+		if (generator != null)
+		{
+			for (i=oldRowSize; i<newRowSize; i++)
+				for (j=0; j<columnSize; j++)
+					values.set(indexOf(i, j), generator.next());
+		}
+	}
+	
+	@Override
+	protected void append(int length, WeightGenerator generator)
+	{
+		values.append(length, generator);
+	}
+	
+//	=================================== VECTOR OPERATIONS ===================================
+	
+	@Override
+	public float get(int index)
+	{
+		return values.get(index);
+	}
+
+	@Override
+	public void set(int index, float value)
+	{
+		values.set(index, value);
+	}
+	
+	@Override
+	public void add(int index, float value)
+	{
+		values.add(index, value);
+	}
+	
+	@Override
+	public void add(float value)
+	{
+		float[] w = values.array();
+		int i, j, index;
+		
+		for (i=0; i<label_size; i++)
+		{
+			index = i * row_capacity;
+			for (j=0; j<feature_size; j++) w[index++] += value;
+		}
+	}
+	
+	@Override
+	public void multiply(float value)
+	{
+		float[] w = values.array();
+		int i, j, index;
+		
+		for (i=0; i<label_size; i++)
+		{
+			index = i * row_capacity;
+			for (j=0; j<feature_size; j++) w[index++] *= value;
+		}
+	}
+	
+	@Override
+	public void fill(float value)
+	{
+		float[] w = values.array();
+		
+		for (int i=0; i<label_size; i++)
+			Arrays.fill(w, i * row_capacity, i * row_capacity + feature_size, value);
+	}
+	
+	@Override
+	public int size()
+	{
+		return values.size();
+	}
+	
+	@Override
+	public int countNonZeroWeights()
+	{
+		float[] w = values.array();
+		int i, j, index, count = 0;
+		
+		for (i=0; i<label_size; i++)
+		{
+			index = i * row_capacity;
+			
+			for (j=0; j<feature_size; j++)
+				if (w[index++] != 0) count++;
+		}
+		
+		return count;
+	}
+	
+//	=================================== SCORES ===================================
+	
+	@Override
+	public void addScores(SparseVector x, float[] scores)
+	{
+		float[] w = values.array();
+		int i, index;
+		
+		for (i=0; i<scores.length; i++)
+		{
+			index = i * row_capacity;
+			
+			for (SparseItem p : x)
+			{
+				if (p.getIndex() < feature_size)
+					scores[i] += w[index+p.getIndex()] * p.getValue();
+			}
+		}
+	}
+	
+	@Override
+	public void addScores(float[] x, float[] scores)
+	{
+		DenseKernels.gemv(values.array(), 0, row_capacity, scores.length, x.length, x, scores);
+	}
+	
+	@Override
+	public void addScores(float[] x, int column, float[] scores)
+	{
+		DenseKernels.gemv(values.array(), column, row_capacity, scores.length, Math.min(x.length, feature_size - column), x, scores);
+	}
+	
+	@Override
+	public void addScores(float[][] x, float[][] scores)
+	{
+		int columns = 0;
+		
+		for (float[] v : x)
+			if (v != null) columns = Math.max(columns, v.length);
+		
+		if (columns == 0 || scores.length == 0) return;
+		DenseKernels.gemm(values.array(), 0, row_capacity, scores[0].length, Math.min(columns, feature_size), x, scores);
+	}
+	
+	@Override
+	public void addTransposedScores(float[] x, float[] scores)
+	{
+		DenseKernels.gemvT(values.array(), 0, row_capacity, Math.min(x.length, label_size), Math.min(scores.length, feature_size), x, scores);
+	}
+	
+	@Override
+	public void addOuterProduct(float alpha, float[] g, float[] x)
+	{
+		DenseKernels.ger(alpha, g, x, values.array(), 0, row_capacity, Math.min(g.length, label_size), Math.min(x.length, feature_size));
+	}
+	
+	@Override
+	public void addTransposedScores(float[][] x, float[][] scores)
+	{
+		int features = feature_size;
+		
+		for (float[] s : scores)
+			if (s != null) features = Math.min(features, s.length);
+		
+		DenseKernels.gemmT(values.array(), 0, row_capacity, label_size, features, x, scores);
+	}
+	
+	/** The portions are ranges of labels, each of which is a contiguous block of rows. */
+	@Override
+	public void addOuterProducts(float alpha, float[][] g, float[][] x, int part, int parts)
+	{
+		DenseKernels.ger(alpha, g, x, values.array(), 0, row_capacity, label_size * part / parts, label_size * (part+1) / parts, feature_size);
+	}
+	
+	@Override
+	public String toString()
+	{
+		float[] w = new float[label_size * feature_size];
+		
+		for (int i=0; i<label_size; i++)
+			System.arraycopy(values.array(), i * row_capacity, w, i * feature_size, feature_size);
+		
+		return Arrays.toString(w);
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.ObjectStreamException;
+
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+
+/**
+ * Read-only row-major vector whose weights are read directly from (memory-mapped) buffers.
+ * It cannot be expanded and is serialized as a {@link RowMajorArrayVector}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class RowMajorMappedVector extends RowMajorVector
+{
+	private static final long serialVersionUID = 5930475283107662419L;
+	private transient MappedFloatArray values;
+	
+	public RowMajorMappedVector(MappedFloatArray values, int labelSize, int featureSize)
+	{
+		weights = null;
+		this.values = values;
+		setSizes(labelSize, featureSize);
+	}
+	
+	@Override
+	public MajorVector createInstance()
+	{
+		return new RowMajorArrayVector();
+	}
+	
+	/** @return this vector, which is already compact and read-only. */
+	@Override
+	public MajorVector compact()
+	{
+		return this;
+	}
+	
+	@Override
+	protected void expandColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		throw new IllegalStateException("Mapped vectors cannot be expanded.");
+	}
+	
+	@Override
+	protected void append(int length, WeightGenerator generator)
+	{
+		throw new IllegalStateException("Mapped vectors cannot be expanded.");
+	}
+	
+	@Override
+	public float get(int index)
+	{
+		return values.get(index);
+	}
+	
+	@Override
+	public void set(int index, float value)
+	{
+		values.set(index, value);
+	}
+	
+	@Override
+	public int size()
+	{
+		return values.size();
+	}
+	
+	protected Object writeReplace() throws ObjectStreamException
+	{
+		return copyTo(new RowMajorArrayVector());
+	}
+	
+	@Override
+	public String toString()
+	{
+		return label_size+" x "+feature_size+" mapped weights";
+	}
+}
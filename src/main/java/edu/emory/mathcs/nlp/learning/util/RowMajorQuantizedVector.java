@@ -0,0 +1,195 @@
+/**
+ * Copyright 2016, Emory University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+
+/**
+ * Read-only row-major vector whose weights are stored in 8 bits (integers with a scale per row) or 16 bits (half-precision floats).
+ * Weights are dequantized on the fly while scoring, so this vector takes 1/4 or 1/2 of the memory of a float vector.
+ * It cannot be expanded or updated; it is created from a trained vector by {@link WeightVector#quantize(int)}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class RowMajorQuantizedVector extends RowMajorVector
+{
+	private static final long serialVersionUID = -1458127635609270447L;
+	private byte[]  bytes;	// 8 bits
+	private short[] halfs;	// 16 bits
+	private float[] scales;
+
+	/** @param bits either 8 or 16. */
+	public RowMajorQuantizedVector(MajorVector vector, int bits)
+	{
+		weights = null;
+		setSizes(vector.getLabelSize(), vector.getFeatureSize());
+		float[] row = new float[feature_size];
+		int y, xi, index;
+
+		switch (bits)
+		{
+		case 8 : bytes = new byte [label_size * feature_size]; scales = new float[label_size]; break;
+		case 16: halfs = new short[label_size * feature_size]; break;
+		default: throw new IllegalArgumentException("Unsupported number of bits: "+bits);
+		}
+
+		for (y=0; y<label_size; y++)
+		{
+			for (xi=0; xi<feature_size; xi++)
+				row[xi] = vector.get(y, xi);
+
+			index = y * feature_size;
+
+			if (bytes != null)
+			{
+				scales[y] = QuantizationUtils.getByteScale(row, 0, feature_size);
+				for (xi=0; xi<feature_size; xi++) bytes[index+xi] = QuantizationUtils.toByte(row[xi], scales[y]);
+			}
+			else
+			{
+				for (xi=0; xi<feature_size; xi++) halfs[index+xi] = QuantizationUtils.toHalf(row[xi]);
+			}
+		}
+	}
+
+	/** @return the number of bits per weight. */
+	public int getBits()
+	{
+		return (bytes != null) ? 8 : 16;
+	}
+
+	@Override
+	public MajorVector createInstance()
+	{
+		return new RowMajorArrayVector();
+	}
+
+	/** @return this vector, which is already compact and read-only. */
+	@Override
+	public MajorVector compact()
+	{
+		return this;
+	}
+
+	@Override
+	protected void expandColumns(int rowSize, int oldColumnSize, int newColumnSize, WeightGenerator generator)
+	{
+		throw new IllegalStateException("Quantized vectors cannot be expanded.");
+	}
+
+	@Override
+	protected void append(int length, WeightGenerator generator)
+	{
+		throw new IllegalStateException("Quantized vectors cannot be expanded.");
+	}
+
+//	=================================== VECTOR OPERATIONS ===================================
+
+	@Override
+	public float get(int index)
+	{
+		return (bytes != null) ? bytes[index] * scales[index / feature_size] : QuantizationUtils.fromHalf(halfs[index]);
+	}
+
+	@Override
+	public void set(int index, float value)
+	{
+		throw new IllegalStateException("Quantized vectors are read-only.");
+	}
+
+	@Override
+	public int size()
+	{
+		return label_size * feature_size;
+	}
+
+//	=================================== SCORES ===================================
+
+	@Override
+	public void addScores(SparseVector x, float[] scores)
+	{
+		int i, index;
+		float sum;
+
+		for (i=0; i<scores.length; i++)
+		{
+			index = i * feature_size;
+			sum = 0;
+
+			for (SparseItem p : x)
+			{
+				if (p.getIndex() < feature_size)
+					sum += get(index+p.getIndex()) * p.getValue();
+			}
+
+			scores[i] += sum;
+		}
+	}
+
+	/** The integer weights of each row are multiplied by {@code x} first and scaled once per row. */
+	@Override
+	public void addScores(float[] x, float[] scores)
+	{
+		int i, j, index, length = Math.min(x.length, feature_size);
+		float sum;
+
+		for (i=0; i<scores.length; i++)
+		{
+			index = i * feature_size;
+			sum = 0;
+
+			if (bytes != null)
+			{
+				for (j=0; j<length; j++) sum += bytes[index++] * x[j];
+				scores[i] += sum * scales[i];
+			}
+			else
+			{
+				for (j=0; j<length; j++) sum += QuantizationUtils.fromHalf(halfs[index++]) * x[j];
+				scores[i] += sum;
+			}
+		}
+	}
+
+	@Override
+	public void addScores(float[] x, int column, float[] scores)
+	{
+		int i, j, index, length = Math.min(x.length, feature_size - column);
+		float sum;
+
+		for (i=0; i<scores.length; i++)
+		{
+			index = i * feature_size + column;
+			sum = 0;
+
+			if (bytes != null)
+			{
+				for (j=0; j<length; j++) sum += bytes[index++] * x[j];
+				scores[i] += sum * scales[i];
+			}
+			else
+			{
+				for (j=0; j<length; j++) sum += QuantizationUtils.fromHalf(halfs[index++]) * x[j];
+				scores[i] += sum;
+			}
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return label_size+" x "+feature_size+" weights in "+getBits()+" bits";
+	}
+}
@@ -37,11 +37,17 @@ public class RowMajorVector extends MajorVector
 	}
 	
 	@Override
-	protected MajorVector createInstance()
+	public MajorVector createInstance()
 	{
 		return new RowMajorVector();
 	}
 	
+	@Override
+	public MajorVector compact()
+	{
+		return copyTo(new RowMajorArrayVector());
+	}
+	
 	@Override
 	public void addScores(SparseVector x, float[] scores)
 	{
@@ -69,6 +75,20 @@ public class RowMajorVector extends MajorVector
 				scores[i] += get(index++) * x[j];
 	}
 	
+	@Override
+	public void addScores(float[] x, int column, float[] scores)
+	{
+		int i, j, index, length = Math.min(x.length, feature_size - column);
+		
+		for (i=0; i<scores.length; i++)
+		{
+			index = indexOf(i, column);
+			
+			for (j=0; j<length; j++)
+				scores[i] += get(index++) * x[j];
+		}
+	}
+	
 	@Override
 	protected void setRowSize(int size)
 	{
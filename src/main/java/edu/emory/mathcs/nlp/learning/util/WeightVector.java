@@ -42,8 +42,17 @@ public class WeightVector implements Serializable
 	
 	public WeightVector(ActivationFunction function)
 	{
-		setSparseWeightVector(new ColumnMajorVector());
-		setDenseWeightVector (new RowMajorVector());
+		this(new ColumnMajorVector(), new RowMajorVector(), function);
+	}
+	
+	/**
+	 * @param sparse the column major vector for sparse features.
+	 * @param dense  the row major vector for dense features.
+	 */
+	public WeightVector(MajorVector sparse, MajorVector dense, ActivationFunction function)
+	{
+		setSparseWeightVector(sparse);
+		setDenseWeightVector (dense);
 		setActivationFunction(function);
 	}
 	
@@ -116,10 +125,33 @@ public class WeightVector implements Serializable
 	/** @return a copy of this vector where all the values are initialized to 0. */
 	public WeightVector createZeroVector()
 	{
-		WeightVector vector = new WeightVector(activation_function);
-		vector.setSparseWeightVector(sparse_weight_vector.createZeroVector());
-		vector.setDenseWeightVector (dense_weight_vector .createZeroVector());
-		return vector;
+		return new WeightVector(sparse_weight_vector.createZeroVector(), dense_weight_vector.createZeroVector(), activation_function);
+	}
+	
+	/** @return an empty vector backed by the same kinds of major vectors as this vector. */
+	public WeightVector createEmptyVector(ActivationFunction function)
+	{
+		return new WeightVector(sparse_weight_vector.createInstance(), dense_weight_vector.createInstance(), function);
+	}
+	
+	/** Replaces the major vectors with compact array-backed copies for decoding. */
+	public void freeze()
+	{
+		setSparseWeightVector(sparse_weight_vector.compact());
+		setDenseWeightVector (dense_weight_vector .compact());
+	}
+	
+	/**
+	 * Replaces the dense weights with a {@link RowMajorQuantizedVector} in the specific number of bits (8 or 16).
+	 * The sparse weights are kept in floats; once quantized, this vector can only be used for decoding.
+	 * Column-major dense weights (e.g., the hidden layers of neural networks) are not quantized.
+	 * @return true if the dense weights are quantized; false if they are column-major or already quantized.
+	 */
+	public boolean quantize(int bits)
+	{
+		if (!(dense_weight_vector instanceof RowMajorVector) || dense_weight_vector instanceof RowMajorQuantizedVector) return false;
+		setDenseWeightVector(new RowMajorQuantizedVector(dense_weight_vector, bits));
+		return true;
 	}
 	
 	public int countNonZeroWeights()
@@ -166,9 +198,80 @@ public class WeightVector implements Serializable
 	}
 	
 	public void addScores(FeatureVector x, float[] scores)
+	{
+		addScores(x, scores, 0);
+	}
+	
+	/** @return the scores of {@code x} as if the bias feature (index 0) with the specific value were in its sparse vector. */
+	public float[] scores(FeatureVector x, float bias)
+	{
+		float[] scores = new float[getLabelSize()];
+		addScores(x, scores, bias);
+		return scores;
+	}
+	
+	/**
+	 * Scores multiple vectors in one pass over the sparse weights; see {@link #scores(FeatureVector, float)}.
+	 * @return {@code scores[i]} for {@code xs[i]}.
+	 */
+	public float[][] scores(FeatureVector[] xs, float bias)
+	{
+		float[][] scores = new float[xs.length][getLabelSize()];
+		SparseVector[] sparse = new SparseVector[xs.length];
+		float[][] dense = new float[xs.length][];
+		int i, y;
+		
+		for (i=0; i<xs.length; i++)
+		{
+			if (xs[i].hasSparseVector()) sparse[i] = xs[i].getSparseVector();
+			if (xs[i].hasDenseVector() && !xs[i].hasDenseSlots()) dense[i] = xs[i].getDenseVector();
+		}
+		
+		sparse_weight_vector.addScores(sparse, scores);
+		
+		if (bias > 0 && sparse_weight_vector.getFeatureSize() > 0)
+		{
+			for (i=0; i<xs.length; i++)
+				for (y=0; y<scores[i].length; y++)
+					scores[i][y] += sparse_weight_vector.get(y, 0) * bias;
+		}
+		
+		// dense vectors are scored as one matrix; slots are scored individually
+		dense_weight_vector.addScores(dense, scores);
+		
+		for (i=0; i<xs.length; i++)
+		{
+			if (xs[i].hasDenseSlots())   addDenseScores(xs[i], scores[i]);
+			if (hasActivationFunction()) activation_function.apply(scores[i]);
+		}
+		
+		return scores;
+	}
+	
+	/**
+	 * Adds the scores of {@code x} as if the bias feature (index 0) with the specific value were in its sparse vector.
+	 * Unlike {@link SparseVector#addBias(float)}, this does not modify {@code x}.
+	 */
+	public void addScores(FeatureVector x, float[] scores, float bias)
 	{
 		if (x.hasSparseVector())     sparse_weight_vector.addScores(x.getSparseVector(), scores);
-		if (x.hasDenseVector())      dense_weight_vector .addScores(x.getDenseVector() , scores);
+		if (bias > 0 && sparse_weight_vector.getFeatureSize() > 0)
+		{
+			for (int y=0; y<scores.length; y++)
+				scores[y] += sparse_weight_vector.get(y, 0) * bias;
+		}
+		if (x.hasDenseVector())      addDenseScores(x, scores);
 		if (hasActivationFunction()) activation_function .apply(scores);
 	}
+	
+	/** Scores the dense slots of {@code x} block by block (through its projection if any) unless they have been concatenated. */
+	protected void addDenseScores(FeatureVector x, float[] scores)
+	{
+		if (!x.hasDenseSlots())
+			dense_weight_vector.addScores(x.getDenseVector(), scores);
+		else if (x.getDenseProjection() != null)
+			x.getDenseProjection().addScores(dense_weight_vector, x, scores);
+		else
+			dense_weight_vector.addScores(x.getDenseSlots(), x.getDenseSlotDimension(), scores);
+	}
 }
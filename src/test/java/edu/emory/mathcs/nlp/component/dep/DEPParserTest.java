@@ -0,0 +1,350 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.feature.Relation;
+import edu.emory.mathcs.nlp.component.template.feature.Source;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.component.template.train.LOLS;
+import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
+import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
+import edu.emory.mathcs.nlp.learning.optimization.method.AdaGrad;
+import edu.emory.mathcs.nlp.learning.optimization.method.SoftmaxRegression;
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
+import edu.emory.mathcs.nlp.learning.util.MLTestUtils;
+import edu.emory.mathcs.nlp.learning.util.MLUtils;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPParserTest
+{
+	static private final String[][] SENTENCES =
+	{
+		{"John NNP 2 nsubj", "saw VBD 0 root", "a DT 4 det", "dog NN 2 dobj", ". . 2 punct"},
+		{"The DT 2 det", "dog NN 3 nsubj", "barked VBD 0 root", ". . 3 punct"},
+		{"Mary NNP 2 nsubj", "gave VBD 0 root", "John NNP 2 iobj", "a DT 6 det", "big JJ 6 amod", "book NN 2 dobj", ". . 2 punct"},
+		{"He PRP 2 nsubj", "read VBD 0 root", "the DT 4 det", "book NN 2 dobj", "in IN 2 prep", "the DT 7 det", "park NN 5 pobj", ". . 2 punct"},
+	};
+	
+	@Test
+	public void testBeamOfOne()
+	{
+		DEPParser<NLPNode> parser = train(new AdaGrad(MLTestUtils.createWeightVector(), 0.02f, 0f));
+		parser.setBeamSize(1);
+		
+		for (String[] sentence : SENTENCES)
+		{
+			NLPNode[] greedy = createNodes(sentence, false);
+			parser.process(greedy);
+			
+			// beam search keeping one state must make the same transitions as greedy decoding
+			NLPNode[] nodes = createNodes(sentence, false);
+			List<DEPState<NLPNode>> beam = Collections.singletonList(new DEPState<>(nodes));
+			while (!beam.get(0).isTerminate()) beam = parser.nextBeam(beam);
+			assertEquals(1, beam.size());
+			beam.get(0).install();
+			parser.postProcess(beam.get(0));
+			
+			for (int i=1; i<nodes.length; i++)
+			{
+				assertEquals(greedy[i].getDependencyHead().getID(), nodes[i].getDependencyHead().getID());
+				assertEquals(greedy[i].getDependencyLabel(), nodes[i].getDependencyLabel());
+			}
+		}
+	}
+	
+	@Test
+	public void testBeam()
+	{
+		DEPParser<NLPNode> parser = train(new AdaGrad(MLTestUtils.createWeightVector(), 0.02f, 0f));
+		parser.setBeamSize(4);
+		
+		for (String[] sentence : SENTENCES)
+		{
+			NLPNode[] nodes = createNodes(sentence, false);
+			parser.process(nodes);
+			for (int i=1; i<nodes.length; i++) assertTrue(nodes[i].hasDependencyHead());
+		}
+	}
+	
+	@Test
+	public void testLogProbabilities()
+	{
+		DEPParser<NLPNode> parser = train(new SoftmaxRegression(MLTestUtils.createWeightVector(), 0.1f, 0f));
+		assertTrue(parser.getOptimizer().isProbabilistic());
+		parser.setBeamSize(3);
+		
+		DEPState<NLPNode> state = new DEPState<>(createNodes(SENTENCES[2], false));
+		float[] scores = parser.getOptimizer().scores(parser.getFeatureTemplate().createFeatureVector(state, false));
+		int[] top = MLUtils.argmaxK(scores, parser.getLabelCandidates().get(state.getStack(), state.getInput()), 3);
+		List<DEPState<NLPNode>> beam = parser.nextBeam(Collections.singletonList(state));
+		
+		// the score of a state is the sum of the log-probabilities of its transitions
+		assertEquals(top.length, beam.size());
+		for (int i=0; i<top.length; i++)
+			assertEquals(Math.log(scores[top[i]]), beam.get(i).getScore(), 1e-5);
+		
+		float best = beam.get(0).getScore();
+		beam = parser.nextBeam(beam);
+		for (DEPState<NLPNode> s : beam) assertTrue(s.getScore() <= best);
+	}
+	
+	@Test
+	public void testCopy()
+	{
+		NLPNode[] nodes = createNodes(SENTENCES[1], false);
+		DEPState<NLPNode> state = new DEPState<>(nodes);
+		LabelMap map = new LabelMap();
+		
+		// shift, then left-arc (det) from the copy only
+		next(state, map, DEPState.ARC_NO, DEPState.LIST_SHIFT, "");
+		DEPState<NLPNode> copy = state.copy();
+		next(copy, map, DEPState.ARC_LEFT, DEPState.LIST_REDUCE, "det");
+		assertSame(nodes[2], nodes[1].getDependencyHead());
+		
+		state.install();
+		assertNull(nodes[1].getDependencyHead());
+		assertNull(nodes[1].getDependencyLabel());
+		
+		copy.install();
+		assertSame(nodes[2], nodes[1].getDependencyHead());
+		assertEquals("det", nodes[1].getDependencyLabel());
+		assertEquals(state.getScore(), copy.getScore(), 0);
+	}
+	
+	@Test
+	public void testMix()
+	{
+		DEPParser<NLPNode> parser = train(new AdaGrad(MLTestUtils.createWeightVector(), 0.02f, 0f), SENTENCES[0]);
+		DEPParser<NLPNode> p1 = copy(parser), p2 = copy(parser);
+		int labelSize = parser.getOptimizer().getLabelSize();
+		
+		// each copy adds its own features and labels (iobj, amod vs. prep, pobj), which get the same indices in both copies
+		train(p1, SENTENCES[2]);
+		train(p2, SENTENCES[3]);
+		assertEquals(p1.getOptimizer().getLabelSize(), p2.getOptimizer().getLabelSize());
+		assertTrue(labelSize < p1.getOptimizer().getLabelSize());
+		parser.mix(Arrays.asList(p1, p2));
+		
+		LabelMap labels = parser.getOptimizer().getLabelMap();
+		assertEquals(2 * p1.getOptimizer().getLabelSize() - labelSize, labels.size());
+		List<Object2IntMap<String>> features = parser.getFeatureTemplate().getFeatureMap().getIndexMaps();
+		MajorVector w = parser.getOptimizer().getWeightVector().getSparseWeightVector();
+		String label;
+		int y;
+		
+		for (y=0; y<labels.size(); y++)
+		{
+			label = labels.getLabel(y);
+			assertEquals((getWeight(p1, label, -1, null) + getWeight(p2, label, -1, null)) / 2, w.get(y, 0), 1e-6);
+			
+			for (int type=0; type<features.size(); type++)
+			{
+				for (Object2IntMap.Entry<String> e : features.get(type).object2IntEntrySet())
+					assertEquals((getWeight(p1, label, type, e.getKey()) + getWeight(p2, label, type, e.getKey())) / 2, w.get(y, e.getIntValue()), 1e-6);
+			}
+		}
+		
+		// the label candidates are rebuilt with the merged label indices
+		DEPLabelCandidate<NLPNode> candidates = parser.getLabelCandidates();
+		
+		for (y=0; y<labels.size(); y++)
+		{
+			DEPLabel lb = new DEPLabel(labels.getLabel(y));
+			assertTrue(candidates.contains(y));
+			assertEquals(lb.isArc(DEPState.ARC_LEFT) , candidates.getLeftArcs ().contains(y));
+			assertEquals(lb.isArc(DEPState.ARC_RIGHT), candidates.getRightArcs().contains(y));
+		}
+		
+		assertTrue(candidates.getLeftArcs().contains(labels.index(new DEPLabel(DEPState.ARC_LEFT, DEPState.LIST_REDUCE, "amod").toString())));
+		assertTrue(candidates.getRightArcs().contains(labels.index(new DEPLabel(DEPState.ARC_RIGHT, DEPState.LIST_SHIFT, "pobj").toString())));
+	}
+	
+	@Test
+	public void testFreeze() throws Exception
+	{
+		DEPParser<NLPNode> parser = train(new AdaGrad(MLTestUtils.createWeightVector(), 0.02f, 0f));
+		DEPParser<NLPNode> frozen = copy(parser);
+		frozen.freeze();
+		assertTrue(frozen.isFrozen());
+		
+		List<String[]> sentences = new ArrayList<>(Arrays.asList(SENTENCES));
+		sentences.add(new String[]{"Sue NNP 2 nsubj", "read VBD 0 root", "a DT 5 det", "big JJ 5 amod", "cat NN 2 dobj", ". . 2 punct"});
+		List<NLPNode[]> batch = new ArrayList<>();
+		for (String[] sentence : sentences) batch.add(createNodes(sentence, false));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		
+		try
+		{
+			frozen.process(batch, executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		
+		// the frozen model decodes exactly as the model it was frozen from, one at a time or in batch
+		for (int k=0; k<sentences.size(); k++)
+		{
+			NLPNode[] expected = createNodes(sentences.get(k), false);
+			NLPNode[] actual   = createNodes(sentences.get(k), false);
+			parser.process(expected);
+			frozen.process(actual);
+			
+			for (int i=1; i<expected.length; i++)
+			{
+				assertEquals(expected[i].getDependencyHead().getID(), actual[i].getDependencyHead().getID());
+				assertEquals(expected[i].getDependencyLabel(), actual[i].getDependencyLabel());
+				assertEquals(expected[i].getDependencyHead().getID(), batch.get(k)[i].getDependencyHead().getID());
+				assertEquals(expected[i].getDependencyLabel(), batch.get(k)[i].getDependencyLabel());
+			}
+		}
+		
+		// a frozen model can only decode
+		for (NLPFlag flag : new NLPFlag[]{NLPFlag.TRAIN, NLPFlag.EVALUATE})
+		{
+			try
+			{
+				frozen.setFlag(flag);
+				fail();
+			}
+			catch (IllegalStateException e) {}
+		}
+		
+		frozen.setFlag(NLPFlag.DECODE);
+		assertEquals(NLPFlag.DECODE, frozen.getFlag());
+	}
+	
+	/** @return a copy of the specific parser, loaded the way a worker loads it to train a shard. */
+	@SuppressWarnings("unchecked")
+	private DEPParser<NLPNode> copy(DEPParser<NLPNode> parser)
+	{
+		DEPParser<NLPNode> copy = (DEPParser<NLPNode>)IOUtils.fromByteArray(IOUtils.toByteArray(parser));
+		copy.setHyperParameter(parser.getHyperParameter());
+		copy.getOptimizer().adapt(parser.getHyperParameter());
+		return copy;
+	}
+	
+	/** @return the weight of the specific label and feature in the parser; 0 if either does not exist, the bias if {@code type < 0}. */
+	private float getWeight(DEPParser<NLPNode> parser, String label, int type, String value)
+	{
+		int y  = parser.getOptimizer().getLabelIndex(label);
+		int xi = (type < 0) ? 0 : parser.getFeatureTemplate().getFeatureMap().index(type, value);
+		return (y < 0 || xi < 0) ? 0 : parser.getOptimizer().getWeightVector().getSparseWeightVector().get(y, xi);
+	}
+	
+	private void next(DEPState<NLPNode> state, LabelMap map, String arc, String list, String deprel)
+	{
+		state.next(map, new int[]{map.add(new DEPLabel(arc, list, deprel).toString()), -1}, null);
+	}
+	
+	private DEPParser<NLPNode> train(OnlineOptimizer optimizer)
+	{
+		return train(optimizer, SENTENCES);
+	}
+	
+	private DEPParser<NLPNode> train(OnlineOptimizer optimizer, String[]... sentences)
+	{
+		HyperParameter hp = new HyperParameter();
+		hp.setFeature_cutoff(0);
+		hp.setLearningRate(0.02f);
+		hp.setLOLS(new LOLS(0, 0));
+		
+		DEPParser<NLPNode> parser = new DEPParser<>(new ByteArrayInputStream("<configuration/>".getBytes(StandardCharsets.UTF_8)));
+		parser.setHyperParameter(hp);
+		parser.setFeatureTemplate(createFeatureTemplate(hp));
+		parser.setOptimizer(optimizer);
+		return train(parser, sentences);
+	}
+	
+	private DEPParser<NLPNode> train(DEPParser<NLPNode> parser, String[]... sentences)
+	{
+		parser.setFlag(NLPFlag.TRAIN);
+		
+		for (int epoch=0; epoch<10; epoch++)
+			for (String[] sentence : sentences)
+				parser.process(createNodes(sentence, true));
+		
+		parser.setFlag(NLPFlag.DECODE);
+		return parser;
+	}
+	
+	private FeatureTemplate<NLPNode,DEPState<NLPNode>> createFeatureTemplate(HyperParameter hp)
+	{
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = new FeatureTemplate<>(null, hp);
+		
+		template.add(new FeatureItem(Source.i, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.j, null, 1, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.part_of_speech_tag, null), new FeatureItem(Source.j, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.i, Relation.lmd, 0, Field.dependency_label, null));
+		template.add(new FeatureItem(Source.j, Relation.lmd, 0, Field.dependency_label, null));
+		
+		return template;
+	}
+	
+	/**
+	 * @param sentence each token is "form pos head deprel".
+	 * @param gold if true, the dependencies are set to the nodes.
+	 */
+	private NLPNode[] createNodes(String[] sentence, boolean gold)
+	{
+		NLPNode[] nodes = new NLPNode[sentence.length+1];
+		String[] t;
+		nodes[0] = new NLPNode();
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			t = sentence[i-1].split(" ");
+			nodes[i] = new NLPNode(i, t[0], t[1]);
+		}
+		
+		for (int i=1; gold && i<nodes.length; i++)
+		{
+			t = sentence[i-1].split(" ");
+			nodes[i].setDependencyHead(nodes[Integer.parseInt(t[2])], t[3]);
+		}
+		
+		return nodes;
+	}
+}
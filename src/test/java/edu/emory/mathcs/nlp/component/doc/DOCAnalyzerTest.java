@@ -0,0 +1,215 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.doc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.collection.tuple.ObjectFloatPair;
+import edu.emory.mathcs.nlp.component.template.config.NLPConfig;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.component.template.train.LOLS;
+import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
+import edu.emory.mathcs.nlp.learning.optimization.method.AdaGrad;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.RowMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DOCAnalyzerTest
+{
+	static private final String FEAT_KEY = "topic";
+	static private final String CONFIGURATION =
+		"<configuration>\n"+
+		"  <doc_feat_key>"+FEAT_KEY+"</doc_feat_key>\n"+
+		"  <feature_template>\n"+
+		"    <feature t=\"bag_of_words\" f0=\"i:word_form\"/>\n"+
+		"    <feature t=\"bag_of_words_norm\" f0=\"i:word_form\" f1=\"i1:part_of_speech_tag\"/>\n"+
+		"    <feature t=\"bag_of_words_stopwords_count\" f0=\"i:word_form\"/>\n"+
+		"    <feature t=\"bag_of_clusters_count\" f0=\"i:word_clusters\"/>\n"+
+		"    <feature t=\"bag_of_clusters_stopwords\" f0=\"i:word_clusters\"/>\n"+
+		"    <feature t=\"word_embedding\" f0=\"i:word_embedding\"/>\n"+
+		"  </feature_template>\n"+
+		"</configuration>";
+	
+	static private final String[][] DOCUMENT =
+	{
+		{"The DT", "dog NN", "barked VBD", ". ."},
+		{"A DT", "cat NN", "saw VBD", "the DT", "dog NN", ". ."},
+		{"the DT", ". ."},
+		{"John NNP", "saw VBD", "a DT", "big JJ", "dog NN", ". ."},
+	};
+	
+	@Test
+	public void testStreaming()
+	{
+		for (NLPFlag flag : new NLPFlag[]{NLPFlag.TRAIN, NLPFlag.EVALUATE})
+		{
+			RecordingTemplate memory = new RecordingTemplate(), stream = new RecordingTemplate();
+			process(memory, false, flag);
+			process(stream, true , flag);
+			
+			// every bag, including the ones excluding the stop words, must be built the same from the streamed sentences
+			Collections.sort(memory.features);
+			Collections.sort(stream.features);
+			assertEquals(memory.features, stream.features);
+			assertTrue(memory.features.stream().anyMatch(f -> f.startsWith("2:")));
+			assertTrue(memory.features.stream().anyMatch(f -> f.startsWith("4:")));
+			
+			// the averaged embedding of the non-stop words
+			assertArrayEquals(memory.embedding, stream.embedding, 0);
+			assertArrayEquals(new float[]{16f/15, 1f/15}, stream.embedding, 1e-6f);
+			
+			// the label must not be visible to the features
+			assertTrue(memory.features.stream().noneMatch(f -> f.contains("sports")));
+		}
+	}
+	
+	@Test
+	public void testEmpty()
+	{
+		DOCAnalyzer<NLPNode> analyzer = createAnalyzer(new RecordingTemplate(), true);
+		analyzer.setFlag(NLPFlag.TRAIN);
+		analyzer.process(Collections.<NLPNode[]>emptyIterator());
+		assertNull(((RecordingTemplate)analyzer.getFeatureTemplate()).embedding);
+	}
+	
+	private void process(RecordingTemplate template, boolean streaming, NLPFlag flag)
+	{
+		DOCAnalyzer<NLPNode> analyzer = createAnalyzer(template, streaming);
+		List<NLPNode[]> document = createDocument();
+		
+		if (flag == NLPFlag.EVALUATE)
+		{
+			// the optimizer must know the label before evaluating
+			analyzer.setFlag(NLPFlag.TRAIN);
+			analyzer.process(createDocument().iterator());
+			template.clear();
+		}
+		
+		analyzer.setFlag(flag);
+		analyzer.process(document.iterator());
+		assertEquals(1, template.count);
+		
+		if (flag != NLPFlag.TRAIN)
+			assertEquals("sports", document.get(0)[1].getFeat(FEAT_KEY));
+	}
+	
+	private DOCAnalyzer<NLPNode> createAnalyzer(RecordingTemplate template, boolean streaming)
+	{
+		DOCAnalyzer<NLPNode> analyzer = new DOCAnalyzer<>(createConfiguration());
+		analyzer.setHyperParameter(createHyperParameter());
+		analyzer.setOptimizer(new AdaGrad(new WeightVector(new ColumnMajorArrayVector(), new RowMajorArrayVector(), null), 0.02f, 0f));
+		analyzer.setFeatureTemplate(template);
+		analyzer.setStreaming(streaming);
+		return analyzer;
+	}
+	
+	/** Stop words are the determiners and the punctuation; only the nouns and the determiners have word embeddings. */
+	private List<NLPNode[]> createDocument()
+	{
+		List<NLPNode[]> document = new ArrayList<>();
+		NLPNode[] nodes;
+		String[] t;
+		
+		for (String[] sentence : DOCUMENT)
+		{
+			nodes = new NLPNode[sentence.length+1];
+			nodes[0] = new NLPNode();
+			
+			for (int i=1; i<nodes.length; i++)
+			{
+				t = sentence[i-1].split(" ");
+				nodes[i] = new NLPNode(i, t[0], t[1]);
+				nodes[i].setStopWord(t[1].equals("DT") || t[1].equals("."));
+				nodes[i].setWordClusters(new HashSet<>(Arrays.asList(t[1], t[1]+"_"+t[0].length())));
+				if (t[1].startsWith("NN") || t[1].equals("DT")) nodes[i].setWordEmbedding(new float[]{t[0].length() / 3f, t[0].length() % 3 / 3f});
+			}
+			
+			document.add(nodes);
+		}
+		
+		document.get(0)[1].putFeat(FEAT_KEY, "sports");
+		return document;
+	}
+	
+	private HyperParameter createHyperParameter()
+	{
+		HyperParameter hp = new HyperParameter();
+		hp.setFeature_cutoff(0);
+		hp.setLOLS(new LOLS(0, 0));
+		return hp;
+	}
+	
+	private InputStream createConfiguration()
+	{
+		return new ByteArrayInputStream(CONFIGURATION.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/** Records the weighted features and the dense vector built for the document. */
+	private class RecordingTemplate extends DOCFeatureTemplate<NLPNode,DOCState<NLPNode>>
+	{
+		private static final long serialVersionUID = 1L;
+		List<String> features;
+		float[] embedding;
+		int count;
+		
+		public RecordingTemplate()
+		{
+			super(new NLPConfig<NLPNode>(createConfiguration()).getFeatureTemplateElement(), createHyperParameter());
+			features = new ArrayList<>();
+		}
+		
+		public void clear()
+		{
+			features.clear();
+			embedding = null;
+			count = 0;
+		}
+		
+		@Override
+		protected Collection<ObjectFloatPair<String>> getWeightedFeatures(DOCState<NLPNode> state, int index)
+		{
+			Collection<ObjectFloatPair<String>> t = super.getWeightedFeatures(state, index);
+			if (index == 0) count++;
+			if (t != null) for (ObjectFloatPair<String> p : t) features.add(index+":"+p.o+":"+p.f);
+			return t;
+		}
+		
+		@Override
+		public float[] createDenseVector(DOCState<NLPNode> state)
+		{
+			return embedding = super.createDenseVector(state);
+		}
+	}
+}
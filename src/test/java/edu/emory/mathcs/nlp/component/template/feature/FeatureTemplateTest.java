@@ -0,0 +1,285 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.feature;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.dep.DEPState;
+import edu.emory.mathcs.nlp.component.template.node.FeatMap;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.component.template.util.EmbeddingStore;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
+import edu.emory.mathcs.nlp.learning.util.SparseItem;
+import edu.emory.mathcs.nlp.learning.util.SparseVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FeatureTemplateTest
+{
+	@Test
+	public void testHashed()
+	{
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> strings = createTemplate(false);
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> hashes  = createTemplate(true);
+		List<SparseVector> sx = new ArrayList<>(), hx = new ArrayList<>();
+		DEPState<NLPNode> state = new DEPState<>(createSentence());
+		LabelMap map = new LabelMap();
+		state.saveOracle();
+		
+		while (!state.isTerminate())
+		{
+			sx.add(strings.createSparseVector(state, true));
+			hx.add(hashes .createSparseVector(state, true));
+			state.next(map, new int[]{map.add(state.getOracle()), -1}, null);
+		}
+		
+		for (int i=0; i<sx.size(); i++)
+			assertEquals(sx.get(i).size(), hx.get(i).size());
+		
+		// the same features must occur in the same states
+		assertEquals(strings.getSparseFeatureSize(), hashes.getSparseFeatureSize());
+		assertEquals(getCooccurrences(sx), getCooccurrences(hx));
+		assertTrue(strings.getSparseFeatureSize() > 50);
+	}
+	
+	@Test
+	public void testHashedFallback()
+	{
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> strings = createDistanceTemplate(false);
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> hashes  = createDistanceTemplate(true);
+		List<SparseVector> sx = new ArrayList<>(), hx = new ArrayList<>();
+		DEPState<NLPNode> state = new DEPState<>(createSentence());
+		LabelMap map = new LabelMap();
+		state.saveOracle();
+		
+		while (!state.isTerminate())
+		{
+			sx.add(strings.createSparseVector(state, true));
+			hx.add(hashes .createSparseVector(state, true));
+			state.next(map, new int[]{map.add(state.getOracle()), -1}, null);
+		}
+		
+		// the fields only known to the subclass are hashed from their strings instead of becoming the null feature
+		assertEquals(getCooccurrences(sx), getCooccurrences(hx));
+		assertEquals(strings.getSparseFeatureSize(), hashes.getSparseFeatureSize());
+		assertEquals(3 + 2 + 1, hashes.getSparseFeatureSize());
+	}
+	
+	@Test
+	public void testConcurrentCount() throws Exception
+	{
+		HyperParameter hp = new HyperParameter();
+		hp.setFeature_cutoff(1);
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = new FeatureTemplate<>(null, hp);
+		template.setConcurrent(true);
+		
+		// each thread sees every feature once, so no feature exceeds the cutoff until the counts are merged
+		Thread[] threads = new Thread[2];
+		
+		for (int i=0; i<threads.length; i++)
+		{
+			threads[i] = new Thread(() -> {template.addFeature(0, "a"); template.addFeature(1, "b"); template.addFeature(7L);});
+			threads[i].start();
+		}
+		
+		for (Thread thread : threads) thread.join();
+		assertEquals(-1, template.feature_map.index(0, "a"));
+		assertEquals(-1, template.feature_map.index(7L));
+		
+		template.setConcurrent(false);
+		assertTrue(template.feature_map.index(0, "a") > 0);
+		assertTrue(template.feature_map.index(1, "b") > 0);
+		assertTrue(template.feature_map.index(7L) > 0);
+		assertEquals(-1, template.feature_map.index(1, "a"));
+		assertEquals(4, template.getSparseFeatureSize());
+	}
+	
+	@Test
+	public void testDenseSlots() throws Exception
+	{
+		File file = File.createTempFile("embedding", ".bin");
+		file.deleteOnExit();
+		EmbeddingStore.convert(new ByteArrayInputStream("3 2\nJohn 1 2\nsaw 3 4\ncars -1 0.5\n".getBytes(StandardCharsets.UTF_8)), file.getPath(), w -> false);
+		EmbeddingStore store = new EmbeddingStore(file.getPath());
+		
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = createTemplate(false);
+		template.addWordEmbedding(new FeatureItem(Source.i, null, 0, Field.word_embedding, null));
+		template.addWordEmbedding(new FeatureItem(Source.j, null, 0, Field.word_embedding, null));
+		NLPNode[] nodes = createSentence();
+		for (NLPNode node : nodes) node.setWordEmbedding(store, store.getRow(node.getWordForm()));
+		DEPState<NLPNode> state = new DEPState<>(nodes);
+		LabelMap map = new LabelMap();
+		state.saveOracle();
+		int count = 0;
+		
+		while (!state.isTerminate())
+		{
+			// the slots read the embeddings copied into the state, and give the concatenated vector
+			FeatureVector x = template.createFeatureVector(state, false);
+			float[] expected = template.getEmbeddings(state);
+			
+			if (expected == null)
+				assertFalse(x.hasDenseVector());
+			else
+			{
+				assertTrue(x.hasDenseSlots());
+				assertArrayEquals(expected, x.getDenseVector(), 0);
+				count++;
+			}
+			
+			state.next(map, new int[]{map.add(state.getOracle()), -1}, null);
+		}
+		
+		// each embedding is copied once per sentence
+		assertTrue(count > 0);
+		assertSame(state.getWordEmbedding(nodes[2]), state.getWordEmbedding(nodes[2]));
+		assertArrayEquals(new float[]{3, 4}, state.getWordEmbedding(nodes[2]), 0);
+		assertNull(state.getWordEmbedding(nodes[3]));
+	}
+	
+	/** @return the sorted list of the states where each feature occurs. */
+	List<String> getCooccurrences(List<SparseVector> xs)
+	{
+		Map<Integer,TreeSet<Integer>> map = new HashMap<>();
+		List<String> list = new ArrayList<>();
+		
+		for (int i=0; i<xs.size(); i++)
+			for (SparseItem item : xs.get(i))
+				map.computeIfAbsent(item.getIndex(), k -> new TreeSet<>()).add(i);
+		
+		for (TreeSet<Integer> set : map.values()) list.add(set.toString());
+		list.sort(null);
+		return list;
+	}
+	
+	/** @return the template whose features are defined only by the subclass. */
+	FeatureTemplate<NLPNode,DEPState<NLPNode>> createDistanceTemplate(boolean hashed)
+	{
+		HyperParameter hp = new HyperParameter();
+		hp.setFeature_cutoff(0);
+		
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = new FeatureTemplate<NLPNode,DEPState<NLPNode>>(null, hp)
+		{
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected String getFeature(DEPState<NLPNode> state, FeatureItem item, NLPNode node)
+			{
+				return (item.field == Field.distance) ? Integer.toString(node.getID() % 3) : super.getFeature(state, item, node);
+			}
+			
+			@Override
+			protected Collection<String> getFeatures(DEPState<NLPNode> state, FeatureItem item, NLPNode node)
+			{
+				return (item.field == Field.distance) ? Arrays.asList("odd", node.getID() % 2 == 0 ? "even" : "odd") : super.getFeatures(state, item, node);
+			}
+		};
+		
+		template.setHashed(hashed);
+		template.add(new FeatureItem(Source.i, null, 0, Field.distance, null));
+		template.addSet(new FeatureItem(Source.j, null, 0, Field.distance, null));
+		return template;
+	}
+	
+	FeatureTemplate<NLPNode,DEPState<NLPNode>> createTemplate(boolean hashed)
+	{
+		HyperParameter hp = new HyperParameter();
+		hp.setFeature_cutoff(0);
+		
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = new FeatureTemplate<>(null, hp);
+		template.setHashed(hashed);
+		
+		template.add(new FeatureItem(Source.i, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.word_form_lowercase, null));
+		template.add(new FeatureItem(Source.j, null, 1, Field.word_form_simplified_lowercase, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.word_shape, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.part_of_speech_tag, null), new FeatureItem(Source.j, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.i, Relation.h, 0, Field.lemma, null));
+		template.add(new FeatureItem(Source.i, Relation.lmd, 0, Field.dependency_label, null), new FeatureItem(Source.j, null, 0, Field.lemma, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.named_entity_tag, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.prefix, 2));
+		template.add(new FeatureItem(Source.j, null, 0, Field.suffix, 3));
+		template.add(new FeatureItem(Source.i, null, 0, Field.valency, Direction.all));
+		template.add(new FeatureItem(Source.j, null, 0, Field.feats, "num"));
+		template.add(new FeatureItem(Source.i, null, 0, Field.ambiguity_classes, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.named_entity_gazetteers, null));
+		
+		template.addSet(new FeatureItem(Source.j, null, 0, Field.orthographic, null));
+		template.addSet(new FeatureItem(Source.i, null, 0, Field.orthographic_lowercase, null));
+		template.addSet(new FeatureItem(Source.i, null, 0, Field.positional, null));
+		template.addSet(new FeatureItem(Source.j, null, 0, Field.positional, null));
+		template.addSet(new FeatureItem(Source.j, null, 0, Field.word_clusters, null));
+		template.addSet(new FeatureItem(Source.j, null, 0, Field.ambiguity_classes, null));
+		template.addSet(new FeatureItem(Source.i, null, 0, Field.named_entity_gazetteers, null));
+		template.addSet(new FeatureItem(Source.i, null, 0, Field.dependent_set, Field.part_of_speech_tag));
+		template.addSet(new FeatureItem(Source.i, null, 0, Field.dependent_set, Field.dependency_label));
+		
+		return template;
+	}
+	
+	NLPNode[] createSentence()
+	{
+		NLPNode[] nodes = new NLPNode[8];
+		nodes[0] = new NLPNode();
+		nodes[1] = new NLPNode(1, "John"   , "john"   , "NNP", "U-PER", new FeatMap("num=sg"));
+		nodes[2] = new NLPNode(2, "saw"    , "see"    , "VBD", "O"    , new FeatMap());
+		nodes[3] = new NLPNode(3, "a"      , "a"      , "DT" , "O"    , new FeatMap());
+		nodes[4] = new NLPNode(4, "new"    , "new"    , "JJ" , "O"    , new FeatMap());
+		nodes[5] = new NLPNode(5, "U.S.-2" , "u.s.-2" , "NNP", "U-ORG", new FeatMap("num=sg"));
+		nodes[6] = new NLPNode(6, "cars"   , "car"    , "NNS", "O"    , new FeatMap("num=pl"));
+		nodes[7] = new NLPNode(7, "."      , "."      , "."  , "O"    , new FeatMap());
+		
+		nodes[1].setDependencyHead(nodes[2], "nsubj");
+		nodes[2].setDependencyHead(nodes[0], "root");
+		nodes[3].setDependencyHead(nodes[6], "det");
+		nodes[4].setDependencyHead(nodes[6], "amod");
+		nodes[5].setDependencyHead(nodes[6], "compound");
+		nodes[6].setDependencyHead(nodes[2], "dobj");
+		nodes[7].setDependencyHead(nodes[2], "punct");
+		
+		nodes[1].addNamedEntityGazetteer("U-PER");
+		nodes[5].addNamedEntityGazetteer("U-ORG");
+		nodes[5].addNamedEntityGazetteer("U-LOC");
+		nodes[2].setAmbiguityClasses(Arrays.asList("VBD", "VBN"));
+		nodes[6].setAmbiguityClasses(Arrays.asList("NNS", "VBZ"));
+		nodes[1].setWordClusters(new HashSet<>(Arrays.asList("01", "0110")));
+		nodes[6].setWordClusters(new HashSet<>(Arrays.asList("10", "1011")));
+		
+		return nodes;
+	}
+}
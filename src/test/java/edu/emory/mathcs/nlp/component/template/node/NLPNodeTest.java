@@ -15,9 +15,15 @@
  */
 package edu.emory.mathcs.nlp.component.template.node;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import org.junit.Test;
 
 import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.common.util.StringUtils;
 import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
 import edu.emory.mathcs.nlp.component.template.util.NLPLib;
 import junit.framework.Assert;
@@ -82,5 +88,40 @@ public class NLPNodeTest
 		
 		System.out.println(NLPLib.join(nodes, " ", AbstractNLPNode::getWordForm));
 	}
-
+	
+	@Test
+	public void testDerivedForms() throws Exception
+	{
+		NLPNode node = new NLPNode(1, "McDonald's-2016", "NNP");
+		
+		// computed on demand before any other derived form
+		Assert.assertTrue(node.isSimplifiedWordForm(StringUtils.toSimplifiedForm("McDonald's-2016")));
+		assertDerivedForms("McDonald's-2016", node);
+		
+		// cached until the word form changes
+		Assert.assertSame(node.getWordShape(), node.getWordShape());
+		Assert.assertSame(node.getWordShapeLowercase(), node.getWordShapeLowercase());
+		node.setWordForm("U.S.A.");
+		assertDerivedForms("U.S.A.", node);
+		
+		// the shapes are not serialized but computed again
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bout);
+		out.writeObject(node);
+		out.close();
+		assertDerivedForms("U.S.A.", (NLPNode)new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray())).readObject());
+	}
+	
+	private void assertDerivedForms(String form, NLPNode node)
+	{
+		String simplified = StringUtils.toSimplifiedForm(form);
+		String lowercase  = StringUtils.toLowerCase(simplified);
+		
+		Assert.assertEquals(StringUtils.toLowerCase(form)        , node.getWordFormLowercase());
+		Assert.assertEquals(simplified                           , node.getWordFormSimplified());
+		Assert.assertEquals(lowercase                            , node.getWordFormSimplifiedLowercase());
+		Assert.assertEquals(StringUtils.toUndigitalizedForm(form), node.getWordFormUndigitalized());
+		Assert.assertEquals(StringUtils.getShape(simplified, 2)  , node.getWordShape());
+		Assert.assertEquals(StringUtils.getShape(lowercase , 2)  , node.getWordShapeLowercase());
+	}
 }
@@ -0,0 +1,433 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.train;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.dep.DEPParser;
+import edu.emory.mathcs.nlp.component.dep.DEPState;
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.config.NLPConfig;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.feature.Relation;
+import edu.emory.mathcs.nlp.component.template.feature.Source;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
+import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
+import edu.emory.mathcs.nlp.component.template.util.GlobalLexica;
+import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
+import edu.emory.mathcs.nlp.component.template.util.NLPMode;
+import edu.emory.mathcs.nlp.learning.optimization.method.AdaGrad;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.FeatureMap;
+import edu.emory.mathcs.nlp.learning.util.RowMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class OnlineTrainerTest
+{
+	static private final String CONFIGURATION = "<configuration><tsv/></configuration>";
+	
+	static private final String[] SENTENCES =
+	{
+		"1\tJohn\tjohn\tNNP\t_\t2\tnsubj\n2\tsaw\tsee\tVBD\t_\t0\troot\n3\ta\ta\tDT\t_\t4\tdet\n4\tdog\tdog\tNN\t_\t2\tdobj\n5\t.\t.\t.\t_\t2\tpunct\n",
+		"1\tThe\tthe\tDT\t_\t2\tdet\n2\tdog\tdog\tNN\t_\t3\tnsubj\n3\tbarked\tbark\tVBD\t_\t0\troot\n4\t.\t.\t.\t_\t3\tpunct\n",
+		"1\tMary\tmary\tNNP\t_\t2\tnsubj\n2\tgave\tgive\tVBD\t_\t0\troot\n3\tJohn\tjohn\tNNP\t_\t2\tiobj\n4\ta\ta\tDT\t_\t6\tdet\n5\tbig\tbig\tJJ\t_\t6\tamod\n6\tbook\tbook\tNN\t_\t2\tdobj\n7\t.\t.\t.\t_\t2\tpunct\n",
+		"1\tHe\the\tPRP\t_\t2\tnsubj\n2\tread\tread\tVBD\t_\t0\troot\n3\tthe\tthe\tDT\t_\t4\tdet\n4\tbook\tbook\tNN\t_\t2\tdobj\n5\tin\tin\tIN\t_\t2\tprep\n6\tthe\tthe\tDT\t_\t7\tdet\n7\tpark\tpark\tNN\t_\t5\tpobj\n8\t.\t.\t.\t_\t2\tpunct\n",
+	};
+	
+	@Test
+	public void testConcurrent() throws Exception
+	{
+		OnlineTrainer<NLPNode,DEPState<NLPNode>> trainer = createTrainer();
+		OnlineComponent<NLPNode,DEPState<NLPNode>> parser = createParser(1), single = createParser(1);
+		GlobalLexica<NLPNode> lexica = trainer.createGlobalLexica(createConfiguration());
+		TSVReader<NLPNode> reader = trainer.createTSVReader(null);
+		List<String> files = createFiles(6, 2);
+		
+		for (int epoch=0; epoch<10; epoch++)
+		{
+			parser.setFlag(NLPFlag.TRAIN);
+			trainer.iterate(reader, files, parser, lexica, 4, null);
+			assertFalse(parser.getOptimizer().isConcurrent());
+			
+			single.setFlag(NLPFlag.TRAIN);
+			trainer.iterate(reader, files, single, lexica, false, null);
+		}
+		
+		// the features counted by different threads are merged, and the model learns about as well as the one trained by a single thread;
+		// the order of the updates depends on the scheduling, so the scores may differ a little
+		double expected = trainer.evaluate(files, single, lexica, reader).d;
+		assertTrue(parser.getFeatureTemplate().getSparseFeatureSize() > 10);
+		assertTrue(expected > 90);
+		assertEquals(expected, trainer.evaluate(files, parser, lexica, reader).d, 10);
+	}
+	
+	@Test
+	public void testTSVReader()
+	{
+		OnlineTrainer<NLPNode,DEPState<NLPNode>> trainer = createTrainer();
+		String tsv = "<tsv><column index=\"1\" field=\"form\"/><column index=\"5\" field=\"dhead\"/>%s</tsv>";
+		NLPConfig<NLPNode> config = new NLPConfig<>(new ByteArrayInputStream(("<configuration>"+String.format(tsv, "")+"</configuration>").getBytes(StandardCharsets.UTF_8)));
+		TSVReader<NLPNode> reader = trainer.initTSVReader(config);
+		assertEquals(1, reader.form);
+		assertEquals(5, reader.dhead);
+		assertFalse(reader.isConfiguredColumnsOnly());
+		
+		config = new NLPConfig<>(new ByteArrayInputStream(("<configuration>"+String.format(tsv, "<configured_columns_only>true</configured_columns_only>")+"</configuration>").getBytes(StandardCharsets.UTF_8)));
+		assertTrue(trainer.initTSVReader(config).isConfiguredColumnsOnly());
+	}
+	
+	@Test
+	public void testMixing() throws Exception
+	{
+		OnlineTrainer<NLPNode,DEPState<NLPNode>> trainer = createTrainer();
+		File dir = Files.createTempDirectory("nlp4j").toFile();
+		String config = createFile("<configuration><tsv/><optimizer><max_epoch>1</max_epoch><learning_rate>0.02</learning_rate></optimizer></configuration>");
+		String previous = new File(dir, "previous").getPath(), model = new File(dir, "model").getPath();
+		List<String> files = createFiles(2, 2);
+		
+		// each shard trains on one file, which has sentences the other does not
+		trainer.saveModel(createParser(0), IOUtils.createFileOutputStream(previous));
+		trainer.trainMixing(NLPMode.dep, files, files, config, model, previous, 2, dir.getPath(), null);
+		
+		List<OnlineComponent<NLPNode,DEPState<NLPNode>>> shards = new ArrayList<>();
+		for (int i=0; i<2; i++) shards.add(trainer.loadModel(OnlineTrainer.getModelFile(dir.getPath(), 1, i)));
+		OnlineComponent<NLPNode,DEPState<NLPNode>> mixed = trainer.loadModel(model);
+		FeatureMap map = mixed.getFeatureTemplate().getFeatureMap();
+		List<Object2IntMap<String>> features = map.getIndexMaps();
+		assertTrue(map.size() > shards.get(0).getFeatureTemplate().getSparseFeatureSize());
+		assertTrue(map.size() > shards.get(1).getFeatureTemplate().getSparseFeatureSize());
+		float expected;
+		int count = 0;
+		
+		// every weight of the mixed model is the average of the weights of the same label and feature in the shards
+		for (int y=0; y<mixed.getOptimizer().getLabelSize(); y++)
+		{
+			String label = mixed.getOptimizer().getLabel(y);
+			assertEquals((getWeight(shards.get(0), label, -1, null) + getWeight(shards.get(1), label, -1, null)) / 2, getWeight(mixed, label, -1, null), 1e-6);
+			
+			for (int type=0; type<features.size(); type++)
+			{
+				for (String value : features.get(type).keySet())
+				{
+					expected = (getWeight(shards.get(0), label, type, value) + getWeight(shards.get(1), label, type, value)) / 2;
+					assertEquals(expected, getWeight(mixed, label, type, value), 1e-6);
+					if (expected != 0) count++;
+				}
+			}
+		}
+		
+		assertTrue(count > 10);
+	}
+	
+	/** @return the weight of the specific label and feature in the component; 0 if either does not exist, the bias if {@code type < 0}. */
+	private float getWeight(OnlineComponent<NLPNode,DEPState<NLPNode>> component, String label, int type, String value)
+	{
+		int y  = component.getOptimizer().getLabelIndex(label);
+		int xi = (type < 0) ? 0 : component.getFeatureTemplate().getFeatureMap().index(type, value);
+		return (y < 0 || xi < 0) ? 0 : component.getOptimizer().getWeightVector().getSparseWeightVector().get(y, xi);
+	}
+	
+	@Test
+	public void testCache() throws Exception
+	{
+		OnlineTrainer<NLPNode,DEPState<NLPNode>> trainer = createTrainer();
+		OnlineComponent<NLPNode,DEPState<NLPNode>> parser = createParser(0);
+		GlobalLexica<NLPNode> lexica = trainer.createGlobalLexica(createConfiguration());
+		TSVReader<NLPNode> reader = trainer.createTSVReader(null);
+		CorpusCache<NLPNode> cache = new CorpusCache<>();
+		List<String> files = createFiles(2, 2);
+		List<String> gold = new ArrayList<>();
+		
+		for (String file : files)
+			for (NLPNode[] nodes : cache.get(file, reader, lexica, false))
+				gold.add(toDependencyString(nodes));
+		
+		for (int epoch=0; epoch<3; epoch++)
+		{
+			// the same cached sentences are processed twice per epoch, and their gold heads and labels must survive both passes
+			parser.setFlag(NLPFlag.TRAIN);
+			trainer.iterate(reader, files, parser, lexica, false, cache);
+			assertCache(gold, files, cache, reader, lexica);
+			
+			trainer.evaluate(files, parser, lexica, reader, cache);
+			assertCache(gold, files, cache, reader, lexica);
+		}
+		
+		NLPNode[] nodes = cache.get(files.get(0), reader, lexica, false).get(0);
+		
+		for (NLPFlag flag : new NLPFlag[]{NLPFlag.TRAIN, NLPFlag.EVALUATE, NLPFlag.TRAIN})
+		{
+			parser.setFlag(flag);
+			parser.processAndRestore(nodes);
+			assertEquals(gold.get(0), toDependencyString(nodes));
+		}
+	}
+	
+	@Test
+	public void testPrefetch() throws Exception
+	{
+		OnlineTrainer<NLPNode,DEPState<NLPNode>> trainer = createTrainer();
+		OnlineComponent<NLPNode,DEPState<NLPNode>> parser = createParser(0);
+		GlobalLexica<NLPNode> lexica = trainer.createGlobalLexica(createConfiguration());
+		TSVReader<NLPNode> reader = trainer.createTSVReader(null);
+		List<String> files = createFiles(7, 3);
+		files.add(3, createFile(""));
+		
+		// fewer files are read ahead than there are files, so the window has to slide
+		for (boolean document : new boolean[]{false, true})
+		{
+			parser.setDocumentBased(document);
+			assertPrefetch(trainer, parser, lexica, files, read(reader, files, document));
+		}
+	}
+	
+	@Test
+	public void testPrefetchError() throws Exception
+	{
+		OnlineTrainer<NLPNode,DEPState<NLPNode>> trainer = createTrainer();
+		OnlineComponent<NLPNode,DEPState<NLPNode>> parser = createParser(0);
+		GlobalLexica<NLPNode> lexica = trainer.createGlobalLexica(createConfiguration());
+		TSVReader<NLPNode> reader = trainer.createTSVReader(null);
+		StringBuilder build = new StringBuilder();
+		String bad = SENTENCES[1].replace("\t3\tnsubj", "\tx\tnsubj");
+		
+		// the reader of the second file fails right after filling its queue, while nothing is taken from it
+		for (int i=0; i<256; i++) build.append(SENTENCES[0]).append("\n");
+		String full = createFile(build.toString() + bad + "\n" + SENTENCES[2]);
+		List<String> files = new ArrayList<>(createFiles(3, 2));
+		files.add(1, full);
+		files.add(2, createFile(SENTENCES[3] + "\n" + bad + "\n" + SENTENCES[2]));
+		files.add(3, files.get(0)+".missing");
+		
+		// the units read before the error are kept, and the remaining files are still read in order
+		List<String> expected = new ArrayList<>();
+		expected.addAll(read(reader, files.subList(0, 1), false));
+		expected.addAll(Collections.nCopies(256, toFormString(Collections.singletonList(createNodes(reader, SENTENCES[0])))));
+		expected.add(toFormString(Collections.singletonList(createNodes(reader, SENTENCES[3]))));
+		expected.addAll(read(reader, files.subList(4, 6), false));
+		assertPrefetch(trainer, parser, lexica, files, expected);
+	}
+	
+	private void assertPrefetch(OnlineTrainer<NLPNode,DEPState<NLPNode>> trainer, OnlineComponent<NLPNode,DEPState<NLPNode>> parser, GlobalLexica<NLPNode> lexica, List<String> files, List<String> expected) throws Exception
+	{
+		List<String> actual = new ArrayList<>();
+		
+		try (OnlineTrainer<NLPNode,DEPState<NLPNode>>.PrefetchIterator it = trainer.new PrefetchIterator(files, parser, lexica, 2))
+		{
+			// give the readers time to fill their queues before anything is taken
+			Thread.sleep(100);
+			while (it.hasNext()) actual.add(toFormString(it.next()));
+			assertFalse(it.hasNext());
+			
+			try
+			{
+				it.next();
+				fail();
+			}
+			catch (NoSuchElementException e) {}
+		}
+		
+		assertEquals(expected, actual);
+	}
+	
+	/** @return the units of the files read one at a time by the reader. */
+	private List<String> read(TSVReader<NLPNode> reader, List<String> files, boolean document) throws Exception
+	{
+		List<String> units = new ArrayList<>();
+		List<NLPNode[]> sentences;
+		
+		for (String file : files)
+		{
+			reader.open(new FileInputStream(file));
+			sentences = reader.readDocument();
+			reader.close();
+			
+			if (document)
+				units.add(toFormString(sentences));
+			else
+				for (NLPNode[] nodes : sentences) units.add(toFormString(Collections.singletonList(nodes)));
+		}
+		
+		return units;
+	}
+	
+	private NLPNode[] createNodes(TSVReader<NLPNode> reader, String sentence) throws IOException
+	{
+		reader.open(new ByteArrayInputStream(sentence.getBytes(StandardCharsets.UTF_8)));
+		NLPNode[] nodes = reader.next();
+		reader.close();
+		return nodes;
+	}
+	
+	/** @return the word forms of the sentences, separated by "|". */
+	private String toFormString(List<NLPNode[]> sentences)
+	{
+		StringBuilder build = new StringBuilder();
+		
+		for (NLPNode[] nodes : sentences)
+		{
+			for (int i=1; i<nodes.length; i++)
+				build.append(nodes[i].getWordForm()).append(" ");
+			
+			build.append("|");
+		}
+		
+		return build.toString();
+	}
+	
+	private void assertCache(List<String> gold, List<String> files, CorpusCache<NLPNode> cache, TSVReader<NLPNode> reader, GlobalLexica<NLPNode> lexica) throws Exception
+	{
+		List<String> actual = new ArrayList<>();
+		List<NLPNode[]> sentences;
+		
+		for (String file : files)
+		{
+			sentences = cache.get(file, reader, lexica, false);
+			assertSame(sentences, cache.get(file, reader, lexica, false));
+			for (NLPNode[] nodes : sentences) actual.add(toDependencyString(nodes));
+		}
+		
+		assertEquals(files.size(), cache.size());
+		assertEquals(gold, actual);
+	}
+	
+	/** @return the heads and the labels of the nodes, excluding the artificial root. */
+	private String toDependencyString(NLPNode[] nodes)
+	{
+		StringBuilder build = new StringBuilder();
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			NLPNode head = nodes[i].getDependencyHead();
+			build.append(i).append(":").append(head == null ? -1 : head.getID()).append(":").append(nodes[i].getDependencyLabel()).append(" ");
+		}
+		
+		return build.toString();
+	}
+	
+	OnlineTrainer<NLPNode,DEPState<NLPNode>> createTrainer()
+	{
+		return new OnlineTrainer<NLPNode,DEPState<NLPNode>>()
+		{
+			@Override
+			public OnlineComponent<NLPNode,DEPState<NLPNode>> createComponent(NLPMode mode, InputStream config)
+			{
+				return new DEPParser<>(config);
+			}
+			
+			@Override
+			public TSVReader<NLPNode> createTSVReader(Object2IntMap<String> map)
+			{
+				return new NLPReader(1, 2, 3, 4, 5, 6, -1, -1);
+			}
+			
+			@Override
+			public GlobalLexica<NLPNode> createGlobalLexica(InputStream config)
+			{
+				return new GlobalLexica<>(config);
+			}
+		};
+	}
+	
+	OnlineComponent<NLPNode,DEPState<NLPNode>> createParser(int cutoff)
+	{
+		HyperParameter hp = new HyperParameter();
+		hp.setFeature_cutoff(cutoff);
+		hp.setLOLS(new LOLS(0, 0));
+		
+		DEPParser<NLPNode> parser = new DEPParser<>(createConfiguration());
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = new FeatureTemplate<>(null, hp);
+		parser.setHyperParameter(hp);
+		parser.setOptimizer(new AdaGrad(new WeightVector(new ColumnMajorArrayVector(), new RowMajorArrayVector(), null), 0.02f, 0f));
+		
+		template.add(new FeatureItem(Source.i, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.j, null, 1, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.part_of_speech_tag, null), new FeatureItem(Source.j, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.i, Relation.lmd, 0, Field.dependency_label, null));
+		template.add(new FeatureItem(Source.j, Relation.lmd, 0, Field.dependency_label, null));
+		parser.setFeatureTemplate(template);
+		
+		return parser;
+	}
+	
+	InputStream createConfiguration()
+	{
+		return new ByteArrayInputStream(CONFIGURATION.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	String createFile(String text) throws IOException
+	{
+		File file = File.createTempFile("nlp4j", ".tsv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file.getPath();
+	}
+	
+	/** @return the paths of the files, each containing the specific number of sentences. */
+	List<String> createFiles(int fileSize, int sentenceSize) throws IOException
+	{
+		File dir = Files.createTempDirectory("nlp4j").toFile();
+		List<String> files = new ArrayList<>();
+		StringBuilder build;
+		File file;
+		
+		for (int i=0; i<fileSize; i++)
+		{
+			build = new StringBuilder();
+			
+			for (int j=0; j<sentenceSize; j++)
+				build.append(SENTENCES[(i * sentenceSize + j) % SENTENCES.length]).append("\n");
+			
+			file = new File(dir, "file"+i+".tsv");
+			file.deleteOnExit();
+			Files.write(file.toPath(), Arrays.asList(build.toString()), StandardCharsets.UTF_8);
+			files.add(file.getPath());
+		}
+		
+		dir.deleteOnExit();
+		return files;
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.dep.DEPParser;
+import edu.emory.mathcs.nlp.component.dep.DEPState;
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.feature.Relation;
+import edu.emory.mathcs.nlp.component.template.feature.Source;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.component.template.train.LOLS;
+import edu.emory.mathcs.nlp.learning.optimization.method.AdaGrad;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.FeatureMap;
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
+import edu.emory.mathcs.nlp.learning.util.RowMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class BinaryModelTest
+{
+	static private final String[][] SENTENCES =
+	{
+		{"John NNP 2 nsubj", "saw VBD 0 root", "a DT 4 det", "dog NN 2 dobj", ". . 2 punct"},
+		{"The DT 2 det", "dog NN 3 nsubj", "barked VBD 0 root", ". . 3 punct"},
+		{"Mary NNP 2 nsubj", "gave VBD 0 root", "John NNP 2 iobj", "a DT 6 det", "big JJ 6 amod", "book NN 2 dobj", ". . 2 punct"},
+		{"Zoë NNP 2 nsubj", "ate VBD 0 root", "寿司 NN 2 dobj", ". . 2 punct"},
+	};
+	
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		testRoundTrip(false);
+		testRoundTrip(true);
+	}
+	
+	void testRoundTrip(boolean hashed) throws Exception
+	{
+		DEPParser<NLPNode> parser = train(hashed);
+		parser.freeze();
+		File first = createFile(), second = createFile();
+		
+		// save -> load -> save -> load
+		BinaryModel.save(parser, first.getPath());
+		OnlineComponent<NLPNode,DEPState<NLPNode>> loaded = BinaryModel.load(first.getPath());
+		BinaryModel.save(loaded, second.getPath());
+		OnlineComponent<NLPNode,DEPState<NLPNode>> reloaded = BinaryModel.load(second.getPath());
+		
+		// the features of a loaded model are mapped from the file and saved again as they are
+		FeatureMap map = loaded.getFeatureTemplate().getFeatureMap();
+		assertNotNull(hashed ? map.getHashTable() : map.getIndexTable());
+		assertNull(hashed ? map.getIndexTable() : map.getHashTable());
+		assertEquals(parser.getFeatureTemplate().getSparseFeatureSize(), reloaded.getFeatureTemplate().getSparseFeatureSize());
+		assertEquals(first.length(), second.length());
+		
+		List<float[]> expected = scores(parser);
+		assertScores(expected, scores(loaded));
+		assertScores(expected, scores(reloaded));
+		
+		// a loaded model is serialized with its features and weights copied to the heap
+		@SuppressWarnings("unchecked")
+		OnlineComponent<NLPNode,DEPState<NLPNode>> copy = (OnlineComponent<NLPNode,DEPState<NLPNode>>)IOUtils.fromByteArray(IOUtils.toByteArray(reloaded));
+		assertScores(expected, scores(copy));
+	}
+	
+	private void assertScores(List<float[]> expected, List<float[]> actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		
+		for (int i=0; i<expected.size(); i++)
+			assertArrayEquals(expected.get(i), actual.get(i), 0);
+	}
+	
+	/** @return the scores of every state on the gold transitions of the sentences, including an unseen word. */
+	private List<float[]> scores(OnlineComponent<NLPNode,DEPState<NLPNode>> component)
+	{
+		List<String[]> sentences = new ArrayList<>();
+		for (String[] sentence : SENTENCES) sentences.add(sentence);
+		sentences.add(new String[]{"Sue NNP 2 nsubj", "saw VBD 0 root", "寿司 NN 2 dobj"});
+		
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = component.getFeatureTemplate();
+		LabelMap labels = component.getOptimizer().getLabelMap();
+		List<float[]> scores = new ArrayList<>();
+		DEPState<NLPNode> state;
+		
+		for (String[] sentence : sentences)
+		{
+			state = new DEPState<>(createNodes(sentence, true));
+			state.saveOracle();
+			
+			while (!state.isTerminate())
+			{
+				scores.add(component.getOptimizer().scores(template.createFeatureVector(state, false)));
+				state.next(labels, new int[]{labels.index(state.getOracle()), -1}, null);
+			}
+		}
+		
+		return scores;
+	}
+	
+	private DEPParser<NLPNode> train(boolean hashed)
+	{
+		HyperParameter hp = new HyperParameter();
+		hp.setFeature_cutoff(0);
+		hp.setLearningRate(0.02f);
+		hp.setLOLS(new LOLS(0, 0));
+		
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = new FeatureTemplate<>(null, hp);
+		template.setHashed(hashed);
+		template.add(new FeatureItem(Source.i, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.j, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.part_of_speech_tag, null), new FeatureItem(Source.j, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.j, Relation.lmd, 0, Field.dependency_label, null));
+		
+		DEPParser<NLPNode> parser = new DEPParser<>(new ByteArrayInputStream("<configuration/>".getBytes(StandardCharsets.UTF_8)));
+		parser.setHyperParameter(hp);
+		parser.setFeatureTemplate(template);
+		parser.setOptimizer(new AdaGrad(new WeightVector(new ColumnMajorArrayVector(), new RowMajorArrayVector(), null), 0.02f, 0f));
+		parser.setFlag(NLPFlag.TRAIN);
+		
+		for (int epoch=0; epoch<5; epoch++)
+			for (String[] sentence : SENTENCES)
+				parser.process(createNodes(sentence, true));
+		
+		parser.setFlag(NLPFlag.DECODE);
+		return parser;
+	}
+	
+	/** @param sentence each token is "form pos head deprel". */
+	private NLPNode[] createNodes(String[] sentence, boolean gold)
+	{
+		NLPNode[] nodes = new NLPNode[sentence.length+1];
+		String[] t;
+		nodes[0] = new NLPNode();
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			t = sentence[i-1].split(" ");
+			nodes[i] = new NLPNode(i, t[0], t[1]);
+		}
+		
+		for (int i=1; gold && i<nodes.length; i++)
+		{
+			t = sentence[i-1].split(" ");
+			nodes[i].setDependencyHead(nodes[Integer.parseInt(t[2])], t[3]);
+		}
+		
+		return nodes;
+	}
+	
+	private File createFile() throws Exception
+	{
+		File file = File.createTempFile("model", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+}
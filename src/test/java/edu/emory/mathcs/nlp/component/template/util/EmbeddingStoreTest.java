@@ -0,0 +1,114 @@
+/**
+ * Copyright 2016, Emory University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class EmbeddingStoreTest
+{
+	@Test
+	public void test() throws Exception
+	{
+		String s = "4 3\nthe 1 2 3\ncafé 4 5 6\nskip 0 0 0\nthe 7 8 9\n";
+		File file = File.createTempFile("embedding", ".bin");
+		file.deleteOnExit();
+
+		assertEquals(3, EmbeddingStore.convert(new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)), file.getPath(), w -> w.equals("skip")));
+		assertTrue (EmbeddingStore.isEmbeddingStore(file.getPath()));
+
+		EmbeddingStore store = new EmbeddingStore(file.getPath());
+		assertEquals(3, store.size());
+		assertEquals(3, store.getDimension());
+		assertEquals( 2, store.getRow("the"));
+		assertEquals( 1, store.getRow("café"));
+		assertEquals(-1, store.getRow("skip"));
+		assertEquals(-1, store.getRow("The"));
+		assertArrayEquals(new float[]{4, 5, 6}, store.get(1), 0);
+
+		NLPNode node = new NLPNode(1, "the");
+		node.setWordEmbedding(store, store.getRow("the"));
+		assertTrue(node.hasWordEmbedding());
+
+		float[] v = new float[6];
+		node.copyWordEmbedding(v, 3);
+		assertArrayEquals(new float[]{0, 0, 0, 7, 8, 9}, v, 0);
+		assertArrayEquals(new float[]{7, 8, 9}, node.getWordEmbedding(), 0);
+
+		node.setWordEmbedding(store, store.getRow("none"));
+		assertFalse(node.hasWordEmbedding());
+	}
+	
+	@Test
+	public void testQuantized() throws Exception
+	{
+		String s = "2 3\nthe 1 2 3\ncafé -4 5 0.5\n";
+		
+		for (int bits : new int[]{16, 8})
+		{
+			File file = File.createTempFile("embedding", ".bin");
+			file.deleteOnExit();
+			EmbeddingStore.convert(new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)), file.getPath(), w -> false, bits);
+			
+			EmbeddingStore store = new EmbeddingStore(file.getPath());
+			assertEquals(bits, store.getBits());
+			
+			// 8 bits are off by at most half the scale of each row (max/127)
+			float delta = (bits == 16) ? 0 : 5f / 254;
+			assertArrayEquals(new float[]{1, 2, 3}, store.get(store.getRow("the")), delta);
+			assertArrayEquals(new float[]{-4, 5, 0.5f}, store.get(store.getRow("café")), delta);
+			
+			float[] v = {1, 1, 1};
+			store.add(store.getRow("café"), v);
+			assertArrayEquals(new float[]{-3, 6, 1.5f}, v, delta);
+		}
+	}
+	
+	@Test
+	public void testTruncated() throws Exception
+	{
+		File file = File.createTempFile("embedding", ".bin");
+		file.deleteOnExit();
+		
+		// fewer vectors than the header gives, and fewer values than the dimension
+		String[][] inputs = {{"3 3\nthe 1 2 3\ncafé 4 5 6\n", "only 2 vectors"}, {"2 3\nthe 1 2 3\ncafé 4 5\n", "has 2 values instead of 3"}};
+		
+		for (String[] input : inputs)
+		{
+			try
+			{
+				EmbeddingStore.convert(new ByteArrayInputStream(input[0].getBytes(StandardCharsets.UTF_8)), file.getPath(), w -> false);
+				fail();
+			}
+			catch (IOException e) {assertTrue(e.getMessage(), e.getMessage().contains(input[1]));}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class GazetteerTrieTest
+{
+	@Test
+	public void test() throws Exception
+	{
+		GazetteerTrie trie = new GazetteerTrie();
+		trie.add(new String[]{"New", "York"}, "LOC");
+		trie.add(new String[]{"New", "York", "Times"}, "ORG");
+		trie.add(new String[]{"York"}, "LOC");
+		trie.add(new String[]{"York"}, "PER");
+		trie.add(new String[]{"Times"}, "ORG");
+		trie.add(new String[]{"New", "Jersey"}, "LOC");
+		trie.freeze();
+		assertEquals(7, trie.size());
+		
+		check(trie);
+		
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bout);
+		out.writeObject(trie);
+		out.close();
+		
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray()));
+		check((GazetteerTrie)in.readObject());
+	}
+	
+	private void check(GazetteerTrie trie)
+	{
+		NLPNode[] nodes = {new NLPNode(), new NLPNode(1, "the"), new NLPNode(2, "New"), new NLPNode(3, "York"), new NLPNode(4, "Times"), new NLPNode(5, "New")};
+		trie.process(nodes, NLPNode::getWordForm);
+		
+		assertNull(nodes[1].getNamedEntityGazetteerSet());
+		assertEquals(new TreeSet<>(Arrays.asList("B-LOC", "B-ORG")), nodes[2].getNamedEntityGazetteerSet());
+		assertEquals(new TreeSet<>(Arrays.asList("L-LOC", "I-ORG", "U-LOC", "U-PER")), nodes[3].getNamedEntityGazetteerSet());
+		assertEquals(new TreeSet<>(Arrays.asList("L-ORG", "U-ORG")), nodes[4].getNamedEntityGazetteerSet());
+		assertNull(nodes[5].getNamedEntityGazetteerSet());
+	}
+}
@@ -15,6 +15,19 @@
  */
 package edu.emory.mathcs.nlp.component.template.util;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
 import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.component.template.node.NLPNode;
 import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
@@ -25,6 +38,12 @@ import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
  */
 public class TSVReaderTest
 {
+	static private final String[] SENTENCES =
+	{
+		"1\tJohn\tjohn\tNNP\t_\t2\tnsubj\n2\tsaw\tsee\tVBD\tk=v\t0\troot\n3\tMary\tmary\tNNP\t_\t2\tdobj\n",
+		"1\tZoë\tzoë\tNNP\t_\t2\tnsubj\n2\tmangea\tmanger\tVBD\t_\t0\troot\n3\t寿司\t寿司\tNN\tk=😀\t2\tdobj\n",
+	};
+
 //	@Test
 	public void test() throws Exception
 	{
@@ -48,7 +67,198 @@ public class TSVReaderTest
 		{
 			System.out.println("----------- "+i+" "+nodes[i].dependent_id+" "+nodes[i].getWordForm()+"\n"+nodes[i].getLeftNearestSibling()+"\n"+nodes[i].getRightNearestSibling());
 		}
-				
+		
+		reader.close();
+	}
+	
+	@Test
+	public void testLineBreaks() throws Exception
+	{
+		String lf = SENTENCES[0] + "\n" + SENTENCES[1];
+		List<String> expected = read(createReader(), lf);
+		assertEquals(Arrays.asList("1 John john NNP null 2 nsubj", "2 saw see VBD v 0 root", "3 Mary mary NNP null 2 dobj", "",
+		                           "1 Zoë zoë NNP null 2 nsubj", "2 mangea manger VBD null 0 root", "3 寿司 寿司 NN 😀 2 dobj", ""), expected);
+		
+		// CRLF
+		assertEquals(expected, read(createReader(), lf.replace("\n", "\r\n")));
+		
+		// no final newline
+		assertEquals(expected, read(createReader(), SENTENCES[0] + "\n" + SENTENCES[1].trim()));
+		
+		// whitespace-only lines before, between, and after the sentences, and whitespaces around the lines
+		assertEquals(expected, read(createReader(), " \t\n\n" + SENTENCES[0] + "  \n\t \r\n\n" + SENTENCES[1].replace("\n", " \n") + "\t\n \n"));
+	}
+	
+	@Test
+	public void testLongLine() throws Exception
+	{
+		// a line longer than the buffer, made of multibyte characters that cross every refill
+		String form = new String(new char[40000]).replace('\0', 'é') + "x" + new String(new char[10000]).replace('\0', '寿');
+		String text = "1\ta\ta\tDT\t_\t2\tdet\n2\t"+form+"\tb\tNN\t_\t0\troot\n";
+		List<String> actual = read(createReader(), text + "\n" + SENTENCES[1]);
+		
+		assertEquals(7, actual.size());
+		assertEquals("2 "+form+" b NN null 0 root", actual.get(1));
+		assertEquals("3 寿司 寿司 NN 😀 2 dobj", actual.get(5));
+	}
+	
+	@Test
+	public void testMultibyte() throws Exception
+	{
+		// enough sentences that the multibyte characters land on the boundaries of the buffer
+		StringBuilder build = new StringBuilder();
+		int i, size = 1000;
+		
+		for (i=0; i<size; i++)
+			build.append(SENTENCES[1]).append("\n");
+		
+		TSVReader<NLPNode> reader = createReader();
+		reader.open(new ByteArrayInputStream(build.toString().getBytes(StandardCharsets.UTF_8)));
+		NLPNode[] nodes;
+		
+		for (i=0; (nodes = reader.next()) != null; i++)
+		{
+			assertEquals("Zoë", nodes[1].getWordForm());
+			assertEquals("寿司", nodes[3].getLemma());
+			assertEquals("😀" , nodes[3].getFeat("k"));
+			assertEquals(nodes[2], nodes[3].getDependencyHead());
+		}
+		
+		reader.close();
+		assertEquals(size, i);
+	}
+	
+	@Test
+	public void testConfiguredColumnsOnly() throws Exception
+	{
+		List<String[]> values = new ArrayList<>();
+		TSVReader<NLPNode> reader = new NLPReader(1, 2, 3, 4, 5, 6, -1, -1)
+		{
+			@Override
+			protected NLPNode create(int id, String[] v)
+			{
+				values.add(v);
+				return super.create(id, v);
+			}
+		};
+		
+		// every column is decoded by default
+		String text = "1\tJohn\tjohn\tNNP\t_\t0\troot\textra\n";
+		read(reader, text);
+		assertEquals("1"    , values.get(0)[0]);
+		assertEquals("extra", values.get(0)[7]);
+		
+		reader.setConfiguredColumnsOnly(true);
+		read(reader, text);
+		assertNull(values.get(1)[0]);
+		assertNull(values.get(1)[7]);
+		assertEquals("John", values.get(1)[1]);
+		assertEquals("0"   , values.get(1)[5]);
+	}
+	
+	@Test
+	public void testHeads() throws Exception
+	{
+		StringBuilder build = new StringBuilder();
+		int i, size = 12;
+		
+		// multi-digit heads and a blank head
+		for (i=1; i<=size; i++)
+			build.append(i).append("\tw").append(i).append("\t_\tNN\t_\t").append(i == 1 ? "0" : i == 5 ? "_" : Integer.toString(size + 1 - i)).append("\tdep\n");
+		
+		TSVReader<NLPNode> reader = createReader();
+		reader.open(new ByteArrayInputStream(build.toString().getBytes(StandardCharsets.UTF_8)));
+		NLPNode[] nodes = reader.next();
+		reader.close();
+		
+		assertEquals(nodes[0] , nodes[1].getDependencyHead());
+		assertEquals(nodes[11], nodes[2].getDependencyHead());
+		assertEquals(nodes[10], nodes[3].getDependencyHead());
+		assertEquals(nodes[1] , nodes[12].getDependencyHead());
+		assertNull(nodes[5].getDependencyHead());
+		
+		// the same heads from the strings when the lines are given by the caller
+		List<String[]> lines = new ArrayList<>();
+		for (String line : build.toString().split("\n")) lines.add(line.split("\t"));
+		NLPNode[] copies = reader.toNodeList(lines);
+		
+		for (i=1; i<=size; i++)
+			assertEquals(nodes[i].hasDependencyHead() ? nodes[i].getDependencyHead().getID() : -1, copies[i].hasDependencyHead() ? copies[i].getDependencyHead().getID() : -1);
+		
+		// heads that are not integers are rejected as before
+		for (String head : new String[]{"x", "1x", "+", "12345678901"})
+		{
+			try
+			{
+				read(createReader(), "1\tJohn\tjohn\tNNP\t_\t"+head+"\troot\n");
+				fail();
+			}
+			catch (NumberFormatException e) {}
+		}
+	}
+	
+	@Test
+	public void testSubclass() throws Exception
+	{
+		List<String> heads = new ArrayList<>();
+		TSVReader<NLPNode> reader = new NLPReader(1, 2, 3, 4, 5, 6, -1, -1)
+		{
+			@Override
+			protected void initDependencyHead(int id, String[] values, NLPNode[] nodes)
+			{
+				heads.add(values[dhead]);
+				super.initDependencyHead(id, values, nodes);
+			}
+		};
+		
+		read(reader, SENTENCES[0]);
+		assertEquals(Arrays.asList("2", "0", "2"), heads);
+		
+		// the line reader is still available to subclasses reading the input by themselves
+		List<String> lines = new ArrayList<>();
+		reader = new NLPReader()
+		{
+			@Override
+			public NLPNode[] next() throws IOException
+			{
+				String line = reader.readLine();
+				if (line == null) return null;
+				lines.add(line);
+				return new NLPNode[]{new NLPNode()};
+			}
+		};
+		
+		reader.open(new ByteArrayInputStream(SENTENCES[1].getBytes(StandardCharsets.UTF_8)));
+		reader.readDocument();
+		reader.close();
+		assertEquals(Arrays.asList(SENTENCES[1].split("\n")), lines);
+	}
+	
+	/** @return each node as "id form lemma pos feat head label", where sentences are separated by empty strings. */
+	private List<String> read(TSVReader<NLPNode> reader, String text) throws IOException
+	{
+		reader.open(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+		List<String> list = new ArrayList<>();
+		NLPNode[] nodes;
+		NLPNode node;
+		
+		while ((nodes = reader.next()) != null)
+		{
+			for (int i=1; i<nodes.length; i++)
+			{
+				node = nodes[i];
+				list.add(node.getID()+" "+node.getWordForm()+" "+node.getLemma()+" "+node.getPartOfSpeechTag()+" "+node.getFeat("k")+" "+node.getDependencyHead().getID()+" "+node.getDependencyLabel());
+			}
+			
+			list.add("");
+		}
+		
 		reader.close();
+		return list;
+	}
+	
+	private TSVReader<NLPNode> createReader()
+	{
+		return new NLPReader(1, 2, 3, 4, 5, 6, -1, -1);
 	}
 }
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.neural;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learning.activation.ActivationFunction;
+import edu.emory.mathcs.nlp.learning.activation.SigmoidFunction;
+import edu.emory.mathcs.nlp.learning.initialization.RandomWeightGenerator;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.MLTestUtils;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FeedForwardNeuralNetworkTest
+{
+	static private final String[] LABELS = {"A", "B", "C", "B", "A", "C"};
+	
+	@Test
+	public void testMiniBatch()
+	{
+		FeedForwardNeuralNetwork online = create(), batch = create(), threads = create();
+		
+		// kept by train(Instance) and applied by updateMiniBatch()
+		online.setMiniBatch(true, 0);
+		assertTrue(online.isMiniBatch());
+		for (Instance instance : createInstances()) online.train(instance);
+		float[] before = online.scores(createFeatureVector(0));
+		online.updateMiniBatch();
+		assertFalse(Arrays.equals(before, online.scores(createFeatureVector(0))));
+		
+		// stacked by train(List)
+		batch.train(createInstances());
+		threads.setMiniBatch(false, 3);
+		threads.train(createInstances());
+		
+		for (int i=0; i<LABELS.length; i++)
+		{
+			float[] expected = online.scores(createFeatureVector(i));
+			assertArrayEquals(expected, batch  .scores(createFeatureVector(i)), 1e-5f);
+			assertArrayEquals(expected, threads.scores(createFeatureVector(i)), 1e-5f);
+		}
+		
+		FeatureVector[] xs = new FeatureVector[LABELS.length];
+		for (int i=0; i<xs.length; i++) xs[i] = createFeatureVector(i);
+		float[][] scores = threads.scores(xs);
+		for (int i=0; i<xs.length; i++) assertArrayEquals(threads.scores(createFeatureVector(i)), scores[i], 1e-5f);
+	}
+	
+	@Test
+	public void testMiniBatchOfOne()
+	{
+		FeedForwardNeuralNetwork online = create(), batch = create();
+		batch.setMiniBatch(true, 0);
+		
+		for (int i=0; i<LABELS.length; i++)
+		{
+			online.train(createInstances().get(i));
+			batch .train(createInstances().get(i));
+			batch .updateMiniBatch();
+		}
+		
+		for (int i=0; i<LABELS.length; i++)
+			assertArrayEquals(online.scores(createFeatureVector(i)), batch.scores(createFeatureVector(i)), 1e-5f);
+	}
+	
+	FeedForwardNeuralNetwork create()
+	{
+		WeightVector vector = MLTestUtils.createWeightVector();
+		ActivationFunction[] functions = {new SigmoidFunction(), new SigmoidFunction()};
+		FeedForwardNeuralNetwork network = new FeedForwardNeuralNetworkSoftmax(vector, new int[]{5, 4}, functions, 0.1f, 1f, new RandomWeightGenerator(-0.5f, 0.5f), null);
+		// all labels are known beforehand so that every instance is predicted over the same labels
+		network.addLabels(Arrays.asList(LABELS));
+		return network;
+	}
+	
+	List<Instance> createInstances()
+	{
+		List<Instance> instances = new ArrayList<>();
+		
+		for (int i=0; i<LABELS.length; i++)
+			instances.add(new Instance(LABELS[i], createFeatureVector(i)));
+		
+		return instances;
+	}
+	
+	/** @return the sparse features shared with the other optimizer tests, plus dense features that differ in every instance. */
+	FeatureVector createFeatureVector(int i)
+	{
+		return new FeatureVector(MLTestUtils.createSparseVector(i), new float[]{i * 0.1f, 1 - i * 0.2f, (i % 2) - 0.5f});
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.optimization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learning.optimization.method.Perceptron;
+import edu.emory.mathcs.nlp.learning.optimization.method.SoftmaxRegression;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.MLTestUtils;
+import edu.emory.mathcs.nlp.learning.util.MLUtils;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class OnlineOptimizerTest
+{
+	static private final String[] LABELS = {"A", "B", "C", "A", "B", "A", "C", "C", "B", "A"};
+	
+	@Test
+	public void testBias()
+	{
+		OnlineOptimizer optimizer = new Perceptron(MLTestUtils.createWeightVector(), 1f, 1f);
+		
+		for (int i=0; i<LABELS.length; i++)
+			optimizer.train(new Instance(LABELS[i], MLTestUtils.createSparseVector(i)));
+		
+		MajorVector w = optimizer.getWeightVector().getSparseWeightVector();
+		assertTrue(w.get(0, 0) != 0 || w.get(1, 0) != 0 || w.get(2, 0) != 0);
+		
+		// the scores at training, where the bias is in the features, must be the scores at decoding
+		for (int i=0; i<LABELS.length; i++)
+		{
+			float[] scores = optimizer.scores(new FeatureVector(MLTestUtils.createSparseVector(i)));
+			Instance instance = new Instance(optimizer.getLabel(MLUtils.argmax(scores)), MLTestUtils.createSparseVector(i));
+			optimizer.train(instance);
+			assertArrayEquals(scores, instance.getScores(), 1e-6f);
+		}
+	}
+	
+	@Test
+	public void testBatchScores()
+	{
+		testBatchScores(new Perceptron(MLTestUtils.createWeightVector(), 1f, 1f));
+		testBatchScores(new SoftmaxRegression(MLTestUtils.createWeightVector(), 0.1f, 1f));
+	}
+	
+	private void testBatchScores(OnlineOptimizer optimizer)
+	{
+		FeatureVector[] xs = new FeatureVector[LABELS.length];
+		
+		for (int i=0; i<LABELS.length; i++)
+		{
+			optimizer.train(new Instance(LABELS[i], MLTestUtils.createSparseVector(i)));
+			xs[i] = new FeatureVector(MLTestUtils.createSparseVector(i));
+		}
+		
+		float[][] scores = optimizer.scores(xs);
+		
+		for (int i=0; i<xs.length; i++)
+			assertArrayEquals(optimizer.scores(new FeatureVector(MLTestUtils.createSparseVector(i))), scores[i], 1e-6f);
+	}
+	
+	@Test
+	public void testMix()
+	{
+		OnlineOptimizer optimizer = createPerceptron(), o1 = createPerceptron(), o2 = createPerceptron();
+		optimizer.addLabel("A");
+		o1.addLabels(Arrays.asList("A", "C"));
+		o2.addLabels(Arrays.asList("D", "A"));
+		o1.expand(3, 2);
+		o2.expand(3, 2);
+		
+		for (int y=0; y<2; y++)
+		{
+			for (int xi=0; xi<3; xi++)
+			{
+				o1.getWeightVector().getSparseWeightVector().set(y, xi, 1 + 10*y + xi);
+				o2.getWeightVector().getSparseWeightVector().set(y, xi, 100 + 10*y + xi);
+			}
+		}
+		
+		// the features 1 and 2 of the second optimizer are new to the mixed one (3 and 4), whereas the bias keeps its index
+		List<int[]> labels = Arrays.asList(optimizer.getLabelMap().merge(o1.getLabelMap()), optimizer.getLabelMap().merge(o2.getLabelMap()));
+		List<int[]> features = Arrays.asList(new int[]{0, 1, 2}, new int[]{0, 3, 4});
+		optimizer.mix(Arrays.asList(o1, o2), features, labels);
+		
+		MajorVector w = optimizer.getWeightVector().getSparseWeightVector();
+		int a = optimizer.getLabelIndex("A"), c = optimizer.getLabelIndex("C"), d = optimizer.getLabelIndex("D");
+		assertEquals(3, optimizer.getLabelSize());
+		assertEquals(5, w.getFeatureSize());
+		
+		assertEquals((1 + 110) / 2f, w.get(a, 0), 0);
+		assertEquals(  2       / 2f, w.get(a, 1), 0);
+		assertEquals(  3       / 2f, w.get(a, 2), 0);
+		assertEquals(  111     / 2f, w.get(a, 3), 0);
+		assertEquals(  112     / 2f, w.get(a, 4), 0);
+		assertEquals(  11      / 2f, w.get(c, 0), 0);
+		assertEquals(  12      / 2f, w.get(c, 1), 0);
+		assertEquals(  0           , w.get(c, 3), 0);
+		assertEquals(  100     / 2f, w.get(d, 0), 0);
+		assertEquals(  0           , w.get(d, 2), 0);
+		assertEquals(  101     / 2f, w.get(d, 3), 0);
+	}
+	
+	private OnlineOptimizer createPerceptron()
+	{
+		return new Perceptron(MLTestUtils.createWeightVector(), 1f, 1f);
+	}
+}
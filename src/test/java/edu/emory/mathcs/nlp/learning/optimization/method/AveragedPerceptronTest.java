@@ -0,0 +1,111 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.optimization.method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.MLTestUtils;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class AveragedPerceptronTest
+{
+	@Test
+	public void test()
+	{
+		AveragedPerceptron averaged = new AveragedPerceptron(MLTestUtils.createWeightVector(), 1f, 0f);
+		Perceptron perceptron = new Perceptron(MLTestUtils.createWeightVector(), 1f, 0f);
+		String[] labels = {"A", "B", "C", "A", "B", "A", "C", "C", "B", "A"};
+		float[][] sums = new float[3][8];
+		MajorVector w;
+		
+		for (int epoch=0; epoch<2; epoch++)
+		{
+			for (int i=0; i<labels.length; i++)
+			{
+				averaged  .train(new Instance(labels[i], MLTestUtils.createSparseVector(i)));
+				perceptron.train(new Instance(labels[i], MLTestUtils.createSparseVector(i)));
+				w = perceptron.getWeightVector().getSparseWeightVector();
+				
+				for (int y=0; y<w.getLabelSize(); y++)
+					for (int xi=0; xi<w.getFeatureSize(); xi++)
+						sums[y][xi] += w.get(y, xi);
+			}
+			
+			// the average includes the initial weights (all zeros)
+			w = averaged.getWeightVector().getSparseWeightVector();
+			int steps = labels.length * (epoch+1) + 1;
+			assertEquals(3, w.getLabelSize());
+			assertEquals(8, w.getFeatureSize());
+			
+			for (int y=0; y<w.getLabelSize(); y++)
+				for (int xi=0; xi<w.getFeatureSize(); xi++)
+					assertEquals(sums[y][xi] / steps, w.get(y, xi), 1e-4);
+		}
+	}
+	
+	@Test
+	public void testAverageOnce()
+	{
+		AveragedPerceptron averaged = new AveragedPerceptron(MLTestUtils.createWeightVector(), 1f, 0f);
+		String[] labels = {"A", "B", "C", "A", "B", "A"};
+		
+		for (int i=0; i<labels.length; i++)
+			averaged.train(new Instance(labels[i], MLTestUtils.createSparseVector(i)));
+		
+		// the average is computed once until training resumes
+		WeightVector w = averaged.getWeightVector();
+		float[] scores = averaged.scores(new FeatureVector(MLTestUtils.createSparseVector(0)));
+		assertSame(w, averaged.getWeightVector());
+		averaged.scores(new FeatureVector[]{new FeatureVector(MLTestUtils.createSparseVector(1))});
+		assertSame(w, averaged.getWeightVector());
+		
+		averaged.train(new Instance("B", MLTestUtils.createSparseVector(0)));
+		assertNotSame(w, averaged.getWeightVector());
+		
+		averaged.freeze();
+		w = averaged.getWeightVector();
+		assertSame(w, averaged.getWeightVector());
+		assertFalse(Arrays.equals(scores, averaged.scores(new FeatureVector(MLTestUtils.createSparseVector(0)))));
+	}
+	
+	@Test
+	public void testConcurrent()
+	{
+		AveragedPerceptron averaged = new AveragedPerceptron(MLTestUtils.createWeightVector(), 1f, 0f);
+		assertFalse(averaged.isConcurrentTrainable());
+		
+		try
+		{
+			averaged.setConcurrent(true);
+			fail();
+		}
+		catch (IllegalStateException e) {}
+	}
+}
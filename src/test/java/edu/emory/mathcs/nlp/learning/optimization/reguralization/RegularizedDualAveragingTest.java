@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.optimization.reguralization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
+import edu.emory.mathcs.nlp.learning.optimization.method.AdaGrad;
+import edu.emory.mathcs.nlp.learning.util.FeatureVector;
+import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.MLTestUtils;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.SparseItem;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class RegularizedDualAveragingTest
+{
+	static private final int LABEL_SIZE   = 2;
+	static private final int FEATURE_SIZE = 8;
+	static private final String[] LABELS = {"A", "B", "C", "A", "B", "A", "C", "C", "B", "A", "B", "B"};
+	
+	@Test
+	public void testLazy()
+	{
+		RegularizedDualAveraging eager = createRegularizer(), lazy = createRegularizer();
+		MajorVector we = eager.getWeightVector().getSparseWeightVector();
+		MajorVector wl = lazy .getWeightVector().getSparseWeightVector();
+		FeatureVector x;
+		int steps, index;
+		float gradient;
+		
+		for (steps=1; steps<=40; steps++)
+		{
+			// the eager one shrinks every weight at every step, whereas the lazy one catches up only the weights about to be read
+			x = new FeatureVector(MLTestUtils.createSparseVector(steps));
+			eager.updateWeights(steps);
+			lazy .updateWeights(x, steps);
+			
+			for (SparseItem xi : x.getSparseVector())
+			{
+				for (int y=0; y<LABEL_SIZE; y++)
+				{
+					index = we.indexOf(y, xi.getIndex());
+					assertEquals(we.get(index), wl.get(index), 0);
+					gradient = ((steps + y + xi.getIndex()) % 3 - 1) * 0.5f;
+					eager.updateWeight(index, gradient, 0.1f + 0.01f * y, steps, true);
+					lazy .updateWeight(index, gradient, 0.1f + 0.01f * y, steps, true);
+				}
+			}
+		}
+		
+		eager.updateWeights(steps);
+		lazy .updateWeights(steps);
+		assertSameWeights(we, wl);
+	}
+	
+	@Test
+	public void testSparsify()
+	{
+		OnlineOptimizer eager = createOptimizer(true), lazy = createOptimizer(false);
+		
+		for (int epoch=0; epoch<3; epoch++)
+		{
+			for (int i=0; i<LABELS.length; i++)
+			{
+				eager.train(new Instance(LABELS[i], MLTestUtils.createSparseVector(i)));
+				lazy .train(new Instance(LABELS[i], MLTestUtils.createSparseVector(i)));
+			}
+		}
+		
+		eager.sparsify();
+		lazy .sparsify();
+		assertSameWeights(eager.getWeightVector().getSparseWeightVector(), lazy.getWeightVector().getSparseWeightVector());
+	}
+	
+	@Test
+	public void testDense()
+	{
+		OnlineOptimizer eager = createOptimizer(true), lazy = createOptimizer(false);
+		Instance ie, il;
+		
+		for (int epoch=0; epoch<3; epoch++)
+		{
+			for (int i=0; i<LABELS.length; i++)
+			{
+				// some dense features are zeros, so their weights are caught up only when they become non-zero
+				ie = new Instance(LABELS[i], createFeatureVector(i));
+				il = new Instance(LABELS[i], createFeatureVector(i));
+				eager.train(ie);
+				lazy .train(il);
+				assertArrayEquals(ie.getScores(), il.getScores(), 0);
+			}
+		}
+		
+		eager.sparsify();
+		lazy .sparsify();
+		assertSameWeights(eager.getWeightVector().getSparseWeightVector(), lazy.getWeightVector().getSparseWeightVector());
+		assertSameWeights(eager.getWeightVector().getDenseWeightVector() , lazy.getWeightVector().getDenseWeightVector());
+	}
+	
+	/** @return the sparse features of the {@code i}'th instance with dense features, one or two of which are zeros. */
+	private FeatureVector createFeatureVector(int i)
+	{
+		return new FeatureVector(MLTestUtils.createSparseVector(i), new float[]{i % 2 * 0.5f, (i % 3 - 1) * 0.8f, 0.3f, i % 4 == 0 ? 0 : -0.6f});
+	}
+	
+	/** Asserts that the weights are the same, and that some but not all of them are zeros. */
+	private void assertSameWeights(MajorVector expected, MajorVector actual)
+	{
+		int zeros = 0;
+		assertEquals(expected.size(), actual.size());
+		
+		for (int i=0; i<expected.size(); i++)
+		{
+			assertEquals(expected.get(i), actual.get(i), 0);
+			if (expected.get(i) == 0) zeros++;
+		}
+		
+		assertTrue(0 < zeros && zeros < expected.size());
+	}
+	
+	private RegularizedDualAveraging createRegularizer()
+	{
+		WeightVector w = MLTestUtils.createWeightVector();
+		w.expand(FEATURE_SIZE, 0, LABEL_SIZE);
+		RegularizedDualAveraging rda = new RegularizedDualAveraging(0.02f);
+		rda.setWeightVector(w);
+		return rda;
+	}
+	
+	/** @param eager if true, all weights are caught up at every step instead of only the ones of the features. */
+	private OnlineOptimizer createOptimizer(boolean eager)
+	{
+		return new AdaGrad(MLTestUtils.createWeightVector(), 0.1f, 1f, new RegularizedDualAveraging(0.05f))
+		{
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected void trainExpanded(Instance instance)
+			{
+				if (eager) l1_regularizer.updateWeights(getRegularizationSteps());
+				super.trainExpanded(instance);
+			}
+		};
+	}
+}
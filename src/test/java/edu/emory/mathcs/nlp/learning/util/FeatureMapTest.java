@@ -15,7 +15,13 @@
  */
 package edu.emory.mathcs.nlp.learning.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 
 import org.junit.Test;
 
@@ -53,4 +59,126 @@ public class FeatureMapTest
 		assertEquals(-1, map.index(0, "D"));
 		assertEquals(-1, map.index(2, "A"));
 	}
+	
+	@Test
+	public void testHashed()
+	{
+		FeatureMap map = new FeatureMap();
+		assertEquals(-1, map.index(10L));
+		
+		assertEquals(1, map.add(0, "A"));
+		assertEquals(2, map.add(10L));
+		assertEquals(2, map.add(10L));
+		assertEquals(3, map.add(-7L));
+		assertEquals(4, map.add(0, "B"));
+		
+		assertEquals(2, map.index(10L));
+		assertEquals(3, map.index(-7L));
+		assertEquals(-1, map.index(11L));
+		
+		assertEquals(5, map.size());
+		assertEquals(4, map.getMaxIndex());
+	}
+	
+	@Test
+	public void testMappedHashTable() throws Exception
+	{
+		FeatureMap map = new FeatureMap();
+		for (long key=1; key<=100; key++) map.add(key * 0x9E3779B97F4A7C15L);
+		
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ChannelOutput out = new ChannelOutput(Channels.newChannel(bout));
+		MappedHashTable.write(map.getHashMap(), out);
+		out.flush();
+		assertEquals(MappedHashTable.byteSize(map.getHashMap()), bout.size());
+		
+		FeatureMap mapped = new FeatureMap();
+		mapped.setHashTable(new MappedHashTable(ByteBuffer.wrap(bout.toByteArray())));
+		
+		for (long key=1; key<=100; key++)
+			assertEquals(map.index(key * 0x9E3779B97F4A7C15L), mapped.index(key * 0x9E3779B97F4A7C15L));
+		
+		assertEquals(-1, mapped.index(7L));
+		assertEquals(map.getMaxIndex(), mapped.getMaxIndex());
+		
+		// a mapped table is saved as it is
+		ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		out = new ChannelOutput(Channels.newChannel(copy));
+		mapped.getHashTable().write(out);
+		out.flush();
+		assertArrayEquals(bout.toByteArray(), copy.toByteArray());
+		assertEquals(bout.size(), mapped.getHashTable().byteSize());
+	}
+	
+	@Test
+	public void testMappedStringTable() throws Exception
+	{
+		FeatureMap map = new FeatureMap();
+		for (int i=0; i<100; i++) map.add(i % 3, "f"+i);
+		map.add(0, "");
+		map.add(1, "寿司😀");
+		map.add(2, "f0");
+		
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ChannelOutput out = new ChannelOutput(Channels.newChannel(bout));
+		MappedStringTable.write(map.getIndexMaps(), out);
+		out.flush();
+		assertEquals(MappedStringTable.byteSize(map.getIndexMaps()), bout.size());
+		
+		FeatureMap mapped = new FeatureMap(map.size());
+		mapped.setIndexTable(new MappedStringTable(ByteBuffer.wrap(bout.toByteArray())));
+		
+		for (int type=0; type<3; type++)
+		{
+			for (int i=0; i<100; i++)
+				assertEquals(map.index(type, "f"+i), mapped.index(type, "f"+i));
+			
+			assertEquals(map.index(type, ""), mapped.index(type, ""));
+			assertEquals(map.index(type, "寿司😀"), mapped.index(type, "寿司😀"));
+		}
+		
+		assertEquals(-1, mapped.index(0, "f1"));
+		assertEquals(-1, mapped.index(3, "f0"));
+		assertEquals(-1, mapped.index(0, "f"));
+		assertEquals(map.getIndexMaps(), mapped.getIndexMaps());
+		assertEquals(map.getMaxIndex(), mapped.getMaxIndex());
+		
+		// a mapped table is saved as it is
+		ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		out = new ChannelOutput(Channels.newChannel(copy));
+		mapped.getIndexTable().write(out);
+		out.flush();
+		assertArrayEquals(bout.toByteArray(), copy.toByteArray());
+		
+		try
+		{
+			mapped.add(0, "g");
+			fail();
+		}
+		catch (IllegalStateException e) {}
+	}
+	
+	@Test
+	public void testMerge()
+	{
+		FeatureMap map = new FeatureMap();
+		map.add(0, "A");
+		map.add(0, "B");
+		
+		FeatureMap other = new FeatureMap();
+		other.add(0, "C");
+		other.add(0, "A");
+		other.add(1, "A");
+		other.add(7L);
+		
+		int[] indices = map.merge(other);
+		assertEquals(5, indices.length);
+		assertEquals(0, indices[0]);
+		assertEquals(map.index(0, "C"), indices[1]);
+		assertEquals(map.index(0, "A"), indices[2]);
+		assertEquals(map.index(1, "A"), indices[3]);
+		assertEquals(map.index(7L), indices[4]);
+		assertEquals(1, map.index(0, "A"));
+		assertEquals(6, map.size());
+	}
 }
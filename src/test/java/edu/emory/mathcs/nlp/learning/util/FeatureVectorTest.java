@@ -15,7 +15,10 @@
  */
 package edu.emory.mathcs.nlp.learning.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -54,4 +57,41 @@ public class FeatureVectorTest
 		
 		assertEquals("2:B:1.0 4:A:0.2 1:A:0.3 3:C:1.0", vector.toString());
 	}
+	
+	@Test
+	public void testDenseSlots()
+	{
+		float[] e1 = {1, 2}, e2 = {3, -1};
+		float[][] slots = {e1, null, e2, e1};
+		int[] ids = {1, -1, 2, 1};
+		
+		MajorVector w = new RowMajorArrayVector();
+		w.expand(3, 8);
+		for (int y=0, i=0; y<3; y++) for (int xi=0; xi<8; xi++) w.set(y, xi, i++ % 5 - 2);
+		
+		FeatureVector concat = new FeatureVector(new float[]{1, 2, 0, 0, 3, -1, 1, 2});
+		float[] expected = new float[3];
+		w.addScores(concat.getDenseVector(), expected);
+		
+		FeatureVector x = new FeatureVector();
+		x.setDenseSlots(slots, ids, 2);
+		assertTrue(x.hasDenseSlots());
+		
+		float[] actual = new float[3];
+		w.addScores(x.getDenseSlots(), x.getDenseSlotDimension(), actual);
+		assertArrayEquals(expected, actual, 0);
+		
+		// the projection gives the same scores when it is reused
+		DenseProjection projection = new DenseProjection(3, slots.length);
+		
+		for (int i=0; i<2; i++)
+		{
+			actual = new float[3];
+			projection.addScores(w, x, actual);
+			assertArrayEquals(expected, actual, 0);
+		}
+		
+		assertArrayEquals(concat.getDenseVector(), x.getDenseVector(), 0);
+		assertFalse(x.hasDenseSlots());
+	}
 }
@@ -16,6 +16,13 @@
 package edu.emory.mathcs.nlp.learning.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -47,4 +54,51 @@ public class LabelMapTest
 		assertEquals("B", map.getLabel(map.index("B")));
 		assertEquals("C", map.getLabel(map.index("C")));
 	}
+	
+	@Test
+	public void testFreeze()
+	{
+		LabelMap map = new LabelMap();
+		map.add("A");
+		map.add("B");
+		map.freeze();
+		
+		assertEquals( 0, map.index("A"));
+		assertEquals( 1, map.index("B"));
+		assertEquals(-1, map.index("C"));
+		assertEquals(2, map.size());
+		
+		try
+		{
+			map.add("C");
+			fail();
+		}
+		catch (UnsupportedOperationException e) {}
+	}
+	
+	@Test
+	public void testConcurrentAdd() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		LabelMap map = new LabelMap();
+		int size = 100;
+		
+		for (int t=0; t<4; t++)
+		{
+			futures.add(executor.submit(() ->
+			{
+				for (int i=0; i<size; i++)
+					assertEquals(Integer.toString(i), map.getLabel(map.add(Integer.toString(i))));
+			}));
+		}
+		
+		for (Future<?> f : futures) f.get();
+		executor.shutdown();
+		
+		assertEquals(size, map.size());
+		
+		for (int i=0; i<size; i++)
+			assertEquals(Integer.toString(i), map.getLabel(map.index(Integer.toString(i))));
+	}
 }
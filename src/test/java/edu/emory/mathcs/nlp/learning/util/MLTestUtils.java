@@ -0,0 +1,38 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+/**
+ * Fixtures shared by the tests of the optimizers.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class MLTestUtils
+{
+	/** @return an empty weight vector whose sparse weights are column-major and dense weights are row-major. */
+	static public WeightVector createWeightVector()
+	{
+		return new WeightVector(new ColumnMajorArrayVector(), new RowMajorArrayVector(), null);
+	}
+	
+	/** @return the features of the {@code i}'th instance: one among {@code [1, 3]} and one among {@code [4, 7]}, so the first 12 instances are all different. */
+	static public SparseVector createSparseVector(int i)
+	{
+		SparseVector x = new SparseVector();
+		x.add(1 + i % 3);
+		x.add(4 + i % 4);
+		return x;
+	}
+}
@@ -18,15 +18,31 @@ package edu.emory.mathcs.nlp.learning.vector;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 import org.junit.Test;
 
+import edu.emory.mathcs.nlp.learning.initialization.WeightGenerator;
+import edu.emory.mathcs.nlp.learning.util.ChannelOutput;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorDirectVector;
 import edu.emory.mathcs.nlp.learning.util.ColumnMajorVector;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.RowMajorArrayVector;
+import edu.emory.mathcs.nlp.learning.util.RowMajorQuantizedVector;
 import edu.emory.mathcs.nlp.learning.util.RowMajorVector;
 import edu.emory.mathcs.nlp.learning.util.SparseVector;
+import edu.emory.mathcs.nlp.learning.util.WeightVector;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -36,7 +52,264 @@ public class MajorVectorTest
 	@Test
 	public void testColumnMajorVector()
 	{
-		ColumnMajorVector v = new ColumnMajorVector();
+		testColumnMajorVector(new ColumnMajorVector());
+		testColumnMajorVector(new ColumnMajorArrayVector());
+		testColumnMajorVector(new ColumnMajorDirectVector());
+		testColumnMajorVector(new ColumnMajorDirectVector(2));
+	}
+	
+	@Test
+	public void testRowMajorVector()
+	{
+		testRowMajorVector(new RowMajorVector());
+		testRowMajorVector(new RowMajorArrayVector());
+	}
+	
+	@Test
+	public void testArrayVectorGenerator()
+	{
+		testArrayVectorGenerator(new ColumnMajorVector(), new ColumnMajorArrayVector());
+		testArrayVectorGenerator(new RowMajorVector()   , new RowMajorArrayVector());
+		testArrayVectorGenerator(new ColumnMajorVector(), new ColumnMajorDirectVector(3));
+	}
+	
+	@Test
+	public void testDirectVectorColumns()
+	{
+		// rows longer than a page and the copy buffer, shifted by one weight so that their old and new ranges overlap
+		MajorVector array = new ColumnMajorArrayVector(), direct = new ColumnMajorDirectVector(12);
+		WeightGenerator g1 = counter(), g2 = counter();
+		
+		for (int[] size : new int[][]{{9000,4},{9001,4},{9001,5},{17000,5}})
+		{
+			array .expand(size[0], size[1], g1);
+			direct.expand(size[0], size[1], g2);
+			assertSameWeights(array, direct);
+		}
+	}
+	
+	@Test
+	public void testOverflow()
+	{
+		for (MajorVector vector : new MajorVector[]{new ColumnMajorVector(), new RowMajorArrayVector(), new ColumnMajorDirectVector(2)})
+		{
+			vector.expand(2, 3);
+			
+			try
+			{
+				vector.expand(3, 1 << 30);
+				fail();
+			}
+			catch (IllegalStateException e) {}
+			
+			assertEquals(2, vector.getLabelSize());
+			assertEquals(3, vector.getFeatureSize());
+		}
+	}
+	
+	@Test
+	public void testMappedVector() throws Exception
+	{
+		testMappedVector(new ColumnMajorArrayVector());
+		testMappedVector(new RowMajorArrayVector());
+	}
+	
+	@Test
+	public void testDenseOperations()
+	{
+		testDenseOperations(new RowMajorVector()   , new RowMajorArrayVector());
+		testDenseOperations(new ColumnMajorVector(), new ColumnMajorArrayVector());
+	}
+	
+	/** The array vectors use {@link edu.emory.mathcs.nlp.learning.util.DenseKernels}, whose sums may be rounded differently. */
+	void testDenseOperations(MajorVector expected, MajorVector actual)
+	{
+		float[] x = {1, -2, 0.5f, 3, 0, 1.5f, -1}, g = {0.5f, -1, 2, 0};
+		
+		expected.expand(2, 3, counter());
+		actual  .expand(2, 3, counter());
+		expected.expand(4, 7, counter());
+		actual  .expand(4, 7, counter());
+		
+		float[] s1 = new float[4], s2 = new float[4];
+		expected.addScores(x, s1);
+		actual  .addScores(x, s2);
+		assertArrayEquals(s1, s2, 1e-4f);
+		
+		float[][] b1 = new float[3][4], b2 = new float[3][4];
+		expected.addScores(new float[][]{x, null, x}, b1);
+		actual  .addScores(new float[][]{x, null, x}, b2);
+		for (int i=0; i<3; i++) assertArrayEquals(b1[i], b2[i], 1e-4f);
+		assertArrayEquals(s1, b2[2], 1e-4f);
+		
+		float[] e1 = new float[7], e2 = new float[7];
+		expected.addTransposedScores(g, e1);
+		actual  .addTransposedScores(g, e2);
+		assertArrayEquals(e1, e2, 1e-4f);
+		
+		expected.addOuterProduct(-0.1f, g, x);
+		actual  .addOuterProduct(-0.1f, g, x);
+		
+		for (int y=0; y<4; y++)
+			for (int xi=0; xi<7; xi++)
+				assertEquals(expected.get(y, xi), actual.get(y, xi), 1e-4f);
+		
+		testBatchOperations(expected, actual);
+	}
+	
+	/** The batch operations must be the same as the single-vector operations for every vector in the batch. */
+	void testBatchOperations(MajorVector expected, MajorVector actual)
+	{
+		float[][] x = {{1, -2, 0.5f, 3, 0, 1.5f, -1}, null, {0, 1, 2}};
+		float[][] g = {{0.5f, -1, 2, 0}, {1, 1, 1, 1}, {-1, 0.25f}};
+		
+		float[][] e1 = new float[3][7], e2 = new float[3][7];
+		for (int i=0; i<3; i++) expected.addTransposedScores(g[i], e1[i]);
+		actual.addTransposedScores(g, e2);
+		for (int i=0; i<3; i++) assertArrayEquals(e1[i], e2[i], 1e-4f);
+		
+		// the weights are updated part by part as if by different threads
+		expected.addOuterProduct(-0.1f, g[0], x[0]);
+		expected.addOuterProduct(-0.1f, g[2], x[2]);
+		for (int part=0; part<3; part++) actual.addOuterProducts(-0.1f, g, x, part, 3);
+		
+		for (int y=0; y<4; y++)
+			for (int xi=0; xi<7; xi++)
+				assertEquals(expected.get(y, xi), actual.get(y, xi), 1e-4f);
+	}
+	
+	@Test
+	public void testQuantizedVector()
+	{
+		MajorVector vector = new RowMajorArrayVector();
+		vector.expand(4, 5, counter());
+		vector.set(1, 2, -7.5f);
+		
+		for (int bits : new int[]{8, 16})
+		{
+			RowMajorQuantizedVector quantized = new RowMajorQuantizedVector(vector, bits);
+			assertEquals(bits, quantized.getBits());
+			assertSame(quantized, quantized.compact());
+			
+			// 8 bits are off by at most half the scale of each row (max/127); 16 bits are exact for these weights
+			for (int y=0; y<4; y++)
+				for (int xi=0; xi<5; xi++)
+					assertEquals(vector.get(y, xi), quantized.get(y, xi), (bits == 8) ? (y*5+5) / 254f : 0);
+			
+			float[] x = {0.5f, -1, 2, 0, 1}, expected = new float[4], actual = new float[4];
+			vector.addScores(x, expected);
+			quantized.addScores(x, actual);
+			assertArrayEquals(expected, actual, (bits == 8) ? 0.5f : 0);
+			
+			// the values beyond the features are ignored
+			Arrays.fill(actual, 0);
+			quantized.addScores(new float[]{0.5f, -1, 2, 0, 1, 3, 4}, actual);
+			assertArrayEquals(expected, actual, (bits == 8) ? 0.5f : 0);
+		}
+		
+		// only row-major dense weights are quantized, once
+		WeightVector w = new WeightVector(new ColumnMajorArrayVector(), new RowMajorArrayVector(), null);
+		w.expand(2, 3, 2);
+		assertTrue (w.quantize(8));
+		assertFalse(w.quantize(8));
+		assertTrue (w.getDenseWeightVector() instanceof RowMajorQuantizedVector);
+		w = new WeightVector(new ColumnMajorArrayVector(), new ColumnMajorArrayVector(), null);
+		w.expand(2, 3, 2);
+		assertFalse(w.quantize(8));
+		assertTrue (w.getDenseWeightVector() instanceof ColumnMajorArrayVector);
+	}
+	
+	void testMappedVector(MajorVector vector) throws Exception
+	{
+		vector.expand(3, 5, counter());
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ChannelOutput out = new ChannelOutput(Channels.newChannel(bout));
+		MajorVector.write(vector, out);
+		out.flush();
+		assertEquals(MajorVector.byteSize(vector), bout.size());
+		assertMappedVector(vector, MajorVector.map(ByteBuffer.wrap(bout.toByteArray()).asReadOnlyBuffer()));
+		
+		// pages of 4 weights so that the weights of a feature cross the pages
+		File file = File.createTempFile("mapped", ".bin");
+		file.deleteOnExit();
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE))
+		{
+			channel.position(64);
+			out = new ChannelOutput(channel);
+			MajorVector.write(vector, out);
+			out.flush();
+		}
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			assertMappedVector(vector, MajorVector.map(channel, 64, 2));
+		}
+	}
+	
+	void assertMappedVector(MajorVector vector, MajorVector mapped)
+	{
+		assertSameWeights(vector, mapped);
+		assertSame(mapped, mapped.compact());
+		
+		SparseVector x = new SparseVector();
+		x.add(0); x.add(1); x.add(2); x.add(4);
+		float[] expected = new float[3], actual = new float[3];
+		vector.addScores(x, expected);
+		mapped.addScores(x, actual);
+		assertArrayEquals(expected, actual, 0);
+	}
+	
+	void testArrayVectorGenerator(MajorVector gap, MajorVector array)
+	{
+		int[][] sizes = {{2,3},{2,5},{4,5},{7,9},{8,30}};
+		WeightGenerator g1 = counter(), g2 = counter();
+		
+		for (int[] size : sizes)
+		{
+			gap  .expand(size[0], size[1], g1);
+			array.expand(size[0], size[1], g2);
+			assertSameWeights(gap, array);
+		}
+		
+		gap.add(1);
+		array.add(1);
+		assertSameWeights(gap, array);
+		assertEquals(gap.countNonZeroWeights(), array.countNonZeroWeights());
+		assertSameWeights(gap.createZeroVector(), array.createZeroVector());
+		assertSameWeights(gap, gap.compact());
+		assertSameWeights(gap, array.compact());
+		assertEquals(gap.getLabelSize() * gap.getFeatureSize(), array.compact().size());
+		assertEquals(array.getClass(), array.createInstance().getClass());
+	}
+	
+	void assertSameWeights(MajorVector expected, MajorVector actual)
+	{
+		assertEquals(expected.getLabelSize()  , actual.getLabelSize());
+		assertEquals(expected.getFeatureSize(), actual.getFeatureSize());
+		
+		for (int y=0; y<expected.getLabelSize(); y++)
+			for (int xi=0; xi<expected.getFeatureSize(); xi++)
+				assertEquals(expected.get(y, xi), actual.get(y, xi), 0);
+	}
+	
+	WeightGenerator counter()
+	{
+		return new WeightGenerator()
+		{
+			private static final long serialVersionUID = 1L;
+			private float count = 0;
+			
+			@Override
+			public float next()
+			{
+				return ++count;
+			}
+		};
+	}
+	
+	void testColumnMajorVector(ColumnMajorVector v)
+	{
 		assertEquals(0, v.size());
 		
 		assertTrue(v.expand(2, 3));
@@ -77,10 +350,8 @@ public class MajorVectorTest
 		assertArrayEquals(new float[]{45f, 50f, 55f, 60f}, scores, 0);
 	}
 	
-	@Test
-	public void testRowMajorVector()
+	void testRowMajorVector(RowMajorVector v)
 	{
-		RowMajorVector v = new RowMajorVector();
 		assertEquals(0, v.size());
 		
 		assertTrue(v.expand(2, 3));
@@ -109,7 +380,8 @@ public class MajorVectorTest
 		assertEquals(0, v.get(2, 4), 0);
 		assertEquals(0, v.get(3, 4), 0);
 		
-		for (int i=0; i<v.size(); i++) v.set(i, i+1);
+		for (int y=0, i=1; y<v.getLabelSize(); y++)
+			for (int xi=0; xi<v.getFeatureSize(); xi++) v.set(y, xi, i++);
 		SparseVector x = new SparseVector();
 		x.add(0); x.add(2); x.add(4);
 		float[] scores = new float[v.getLabelSize()];